@@ -21,6 +21,10 @@ public final class RestQueryInputParser implements QueryInputParser<RestQueryInp
             "pageSize",
             "page_size",
             "count",
+            "countStrategy",
+            "countLimit",
+            "paginationMode",
+            "after",
             "distinct",
             "entities",
             "attributes",
@@ -28,7 +32,8 @@ public final class RestQueryInputParser implements QueryInputParser<RestQueryInp
             "avg",
             "min",
             "max",
-            "sorting"
+            "sorting",
+            "timeout"
     );
 
     @Override
@@ -48,21 +53,29 @@ public final class RestQueryInputParser implements QueryInputParser<RestQueryInp
         List<String> max = parseList(params.get("max"));
         List<String> sorting = parseList(params.get("sorting"));
         List<FilterCriterion> filters = parseFilters(params);
-
-        return new RestQueryModel(
-                page,
-                pageSize,
-                count,
-                distinct,
-                entities,
-                attributes,
-                sum,
-                avg,
-                min,
-                max,
-                sorting,
-                filters
-        );
+        String countStrategy = params.get("countStrategy");
+        Integer countLimit = parseInteger(params.get("countLimit"));
+        String paginationMode = params.get("paginationMode");
+        String after = params.get("after");
+
+        return RestQueryModel.builder()
+                .page(page)
+                .pageSize(pageSize)
+                .count(count)
+                .distinct(distinct)
+                .entities(entities)
+                .attributes(attributes)
+                .sum(sum)
+                .avg(avg)
+                .min(min)
+                .max(max)
+                .sorting(sorting)
+                .filters(filters)
+                .countStrategy(countStrategy)
+                .countLimit(countLimit)
+                .paginationMode(paginationMode)
+                .after(after)
+                .build();
     }
 
     private static List<FilterCriterion> parseFilters(Map<String, String> params) {
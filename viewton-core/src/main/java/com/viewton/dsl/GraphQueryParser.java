@@ -162,13 +162,21 @@ public final class GraphQueryParser {
         Map<String, GraphValue> map = asObject(value, "pagination");
         Integer page = null;
         Integer pageSize = null;
+        String mode = null;
+        String after = null;
         if (map.containsKey("page")) {
             page = asInteger(map.get("page"), "pagination.page");
         }
         if (map.containsKey("pageSize")) {
             pageSize = asInteger(map.get("pageSize"), "pagination.pageSize");
         }
-        return new GraphPagination(page, pageSize);
+        if (map.containsKey("mode")) {
+            mode = asIdentifier(map.get("mode"), "pagination.mode");
+        }
+        if (map.containsKey("after")) {
+            after = asString(map.get("after"), "pagination.after");
+        }
+        return new GraphPagination(page, pageSize, mode, after);
     }
 
     private List<String> parseIdentifierList(GraphValue value, String field) {
@@ -234,6 +242,13 @@ public final class GraphQueryParser {
         throw new IllegalArgumentException(field + " must be numeric");
     }
 
+    private String asString(GraphValue value, String field) {
+        if (value.getType() == GraphValueType.STRING) {
+            return value.asIdentifier();
+        }
+        throw new IllegalArgumentException(field + " must be a string");
+    }
+
     private String asIdentifier(GraphValue value, String field) {
         if (value.getType() == GraphValueType.STRING || value.getType() == GraphValueType.ENUM) {
             return value.asIdentifier();
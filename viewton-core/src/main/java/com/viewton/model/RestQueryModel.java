@@ -21,6 +21,10 @@ public final class RestQueryModel implements QueryModel {
     private final List<String> max;
     private final List<String> sorting;
     private final List<FilterCriterion> filters;
+    private final String countStrategy;
+    private final Integer countLimit;
+    private final String paginationMode;
+    private final String after;
 
     public RestQueryModel(
             Integer page,
@@ -36,18 +40,42 @@ public final class RestQueryModel implements QueryModel {
             List<String> sorting,
             List<FilterCriterion> filters
     ) {
-        this.page = page;
-        this.pageSize = pageSize;
-        this.count = count;
-        this.distinct = distinct;
-        this.entities = entities;
-        this.attributes = List.copyOf(Objects.requireNonNull(attributes, "attributes"));
-        this.sum = List.copyOf(Objects.requireNonNull(sum, "sum"));
-        this.avg = List.copyOf(Objects.requireNonNull(avg, "avg"));
-        this.min = List.copyOf(Objects.requireNonNull(min, "min"));
-        this.max = List.copyOf(Objects.requireNonNull(max, "max"));
-        this.sorting = List.copyOf(Objects.requireNonNull(sorting, "sorting"));
-        this.filters = List.copyOf(Objects.requireNonNull(filters, "filters"));
+        this(builder()
+                .page(page)
+                .pageSize(pageSize)
+                .count(count)
+                .distinct(distinct)
+                .entities(entities)
+                .attributes(attributes)
+                .sum(sum)
+                .avg(avg)
+                .min(min)
+                .max(max)
+                .sorting(sorting)
+                .filters(filters));
+    }
+
+    private RestQueryModel(Builder builder) {
+        this.page = builder.page;
+        this.pageSize = builder.pageSize;
+        this.count = builder.count;
+        this.distinct = builder.distinct;
+        this.entities = builder.entities;
+        this.attributes = List.copyOf(builder.attributes);
+        this.sum = List.copyOf(builder.sum);
+        this.avg = List.copyOf(builder.avg);
+        this.min = List.copyOf(builder.min);
+        this.max = List.copyOf(builder.max);
+        this.sorting = List.copyOf(builder.sorting);
+        this.filters = List.copyOf(builder.filters);
+        this.countStrategy = builder.countStrategy;
+        this.countLimit = builder.countLimit;
+        this.paginationMode = builder.paginationMode;
+        this.after = builder.after;
+    }
+
+    public static Builder builder() {
+        return new Builder();
     }
 
     public Optional<Integer> getPage() {
@@ -98,7 +126,129 @@ public final class RestQueryModel implements QueryModel {
         return filters;
     }
 
+    public Optional<String> getCountStrategy() {
+        return Optional.ofNullable(countStrategy);
+    }
+
+    public Optional<Integer> getCountLimit() {
+        return Optional.ofNullable(countLimit);
+    }
+
+    public Optional<String> getPaginationMode() {
+        return Optional.ofNullable(paginationMode);
+    }
+
+    public Optional<String> getAfter() {
+        return Optional.ofNullable(after);
+    }
+
     public Set<String> getFilteredFields() {
         return filters.stream().map(FilterCriterion::getField).collect(java.util.stream.Collectors.toSet());
     }
+
+    public static final class Builder {
+        private Integer page;
+        private Integer pageSize;
+        private boolean count;
+        private boolean distinct;
+        private boolean entities = true;
+        private List<String> attributes = List.of();
+        private List<String> sum = List.of();
+        private List<String> avg = List.of();
+        private List<String> min = List.of();
+        private List<String> max = List.of();
+        private List<String> sorting = List.of();
+        private List<FilterCriterion> filters = List.of();
+        private String countStrategy;
+        private Integer countLimit;
+        private String paginationMode;
+        private String after;
+
+        public Builder page(Integer page) {
+            this.page = page;
+            return this;
+        }
+
+        public Builder pageSize(Integer pageSize) {
+            this.pageSize = pageSize;
+            return this;
+        }
+
+        public Builder count(boolean count) {
+            this.count = count;
+            return this;
+        }
+
+        public Builder distinct(boolean distinct) {
+            this.distinct = distinct;
+            return this;
+        }
+
+        /**
+         * Whether entity rows are requested; defaults to {@code true}.
+         */
+        public Builder entities(boolean entities) {
+            this.entities = entities;
+            return this;
+        }
+
+        public Builder attributes(List<String> attributes) {
+            this.attributes = Objects.requireNonNull(attributes, "attributes");
+            return this;
+        }
+
+        public Builder sum(List<String> sum) {
+            this.sum = Objects.requireNonNull(sum, "sum");
+            return this;
+        }
+
+        public Builder avg(List<String> avg) {
+            this.avg = Objects.requireNonNull(avg, "avg");
+            return this;
+        }
+
+        public Builder min(List<String> min) {
+            this.min = Objects.requireNonNull(min, "min");
+            return this;
+        }
+
+        public Builder max(List<String> max) {
+            this.max = Objects.requireNonNull(max, "max");
+            return this;
+        }
+
+        public Builder sorting(List<String> sorting) {
+            this.sorting = Objects.requireNonNull(sorting, "sorting");
+            return this;
+        }
+
+        public Builder filters(List<FilterCriterion> filters) {
+            this.filters = Objects.requireNonNull(filters, "filters");
+            return this;
+        }
+
+        public Builder countStrategy(String countStrategy) {
+            this.countStrategy = countStrategy;
+            return this;
+        }
+
+        public Builder countLimit(Integer countLimit) {
+            this.countLimit = countLimit;
+            return this;
+        }
+
+        public Builder paginationMode(String paginationMode) {
+            this.paginationMode = paginationMode;
+            return this;
+        }
+
+        public Builder after(String after) {
+            this.after = after;
+            return this;
+        }
+
+        public RestQueryModel build() {
+            return new RestQueryModel(this);
+        }
+    }
 }
@@ -6,10 +6,18 @@ package com.viewton.model.graph;
 public final class GraphPagination {
     private final Integer page;
     private final Integer pageSize;
+    private final String mode;
+    private final String after;
 
     public GraphPagination(Integer page, Integer pageSize) {
+        this(page, pageSize, null, null);
+    }
+
+    public GraphPagination(Integer page, Integer pageSize, String mode, String after) {
         this.page = page;
         this.pageSize = pageSize;
+        this.mode = mode;
+        this.after = after;
     }
 
     public Integer getPage() {
@@ -19,4 +27,12 @@ public final class GraphPagination {
     public Integer getPageSize() {
         return pageSize;
     }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public String getAfter() {
+        return after;
+    }
 }
@@ -39,4 +39,20 @@ public final class Aggregations {
     public List<String> getMaxFields() {
         return maxFields;
     }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Aggregations that)) {
+            return false;
+        }
+        return sumFields.equals(that.sumFields) && avgFields.equals(that.avgFields) && minFields.equals(that.minFields) && maxFields.equals(that.maxFields);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sumFields, avgFields, minFields, maxFields);
+    }
 }
@@ -0,0 +1,33 @@
+package com.viewton.plan;
+
+import java.util.Locale;
+
+/**
+ * How the total row count is obtained when a count is requested.
+ */
+public enum CountStrategy {
+    /**
+     * Run an exact {@code count(*)}.
+     */
+    EXACT,
+    /**
+     * Use the database planner's row estimate instead of counting.
+     */
+    ESTIMATED,
+    /**
+     * Use the estimate for large results and an exact count below a configured threshold.
+     */
+    AUTO;
+
+    public static CountStrategy fromValue(String value) {
+        if (value == null || value.isBlank()) {
+            return EXACT;
+        }
+        return switch (value.trim().toLowerCase(Locale.ROOT)) {
+            case "exact" -> EXACT;
+            case "estimated", "estimate" -> ESTIMATED;
+            case "auto" -> AUTO;
+            default -> throw new IllegalArgumentException("Unsupported count strategy: " + value);
+        };
+    }
+}
@@ -34,4 +34,20 @@ public final class FilterCriterion {
     public boolean isIgnoreCase() {
         return ignoreCase;
     }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof FilterCriterion that)) {
+            return false;
+        }
+        return field.equals(that.field) && operator.equals(that.operator) && values.equals(that.values) && ignoreCase == that.ignoreCase;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(field, operator, values, ignoreCase);
+    }
 }
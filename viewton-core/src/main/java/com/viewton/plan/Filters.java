@@ -16,4 +16,20 @@ public final class Filters {
     public List<FilterCriterion> getCriteria() {
         return criteria;
     }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Filters that)) {
+            return false;
+        }
+        return criteria.equals(that.criteria);
+    }
+
+    @Override
+    public int hashCode() {
+        return criteria.hashCode();
+    }
 }
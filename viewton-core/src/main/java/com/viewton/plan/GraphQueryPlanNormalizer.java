@@ -49,7 +49,14 @@ public final class GraphQueryPlanNormalizer {
         if (pagination == null) {
             return new Pagination(null, null);
         }
-        return new Pagination(pagination.getPage(), pagination.getPageSize());
+        String after = pagination.getAfter();
+        PaginationMode mode = after == null ? PaginationMode.fromValue(pagination.getMode()) : PaginationMode.CURSOR;
+        return Pagination.builder()
+                .page(pagination.getPage())
+                .pageSize(pagination.getPageSize())
+                .mode(mode)
+                .after(after)
+                .build();
     }
 
     private List<SortField> toSortFields(List<GraphOrderBy> orderBy) {
@@ -1,15 +1,36 @@
 package com.viewton.plan;
 
+import java.util.Objects;
+
 /**
  * Pagination settings for a query plan.
  */
 public final class Pagination {
     private final Integer page;
     private final Integer pageSize;
+    private final PaginationMode mode;
+    private final String after;
 
     public Pagination(Integer page, Integer pageSize) {
-        this.page = page;
-        this.pageSize = pageSize;
+        this(builder().page(page).pageSize(pageSize));
+    }
+
+    private Pagination(Builder builder) {
+        if (builder.after != null && builder.mode != PaginationMode.CURSOR) {
+            throw new IllegalArgumentException("after requires cursor pagination");
+        }
+        this.page = builder.page;
+        this.pageSize = builder.pageSize;
+        this.mode = builder.mode;
+        this.after = builder.after;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Builder toBuilder() {
+        return builder().page(page).pageSize(pageSize).mode(mode).after(after);
     }
 
     public Integer getPage() {
@@ -19,4 +40,65 @@ public final class Pagination {
     public Integer getPageSize() {
         return pageSize;
     }
+
+    public PaginationMode getMode() {
+        return mode;
+    }
+
+    public String getAfter() {
+        return after;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Pagination that)) {
+            return false;
+        }
+        return Objects.equals(page, that.page)
+                && Objects.equals(pageSize, that.pageSize)
+                && mode == that.mode
+                && Objects.equals(after, that.after);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(page, pageSize, mode, after);
+    }
+
+    public static final class Builder {
+        private Integer page;
+        private Integer pageSize;
+        private PaginationMode mode = PaginationMode.OFFSET;
+        private String after;
+
+        public Builder page(Integer page) {
+            this.page = page;
+            return this;
+        }
+
+        public Builder pageSize(Integer pageSize) {
+            this.pageSize = pageSize;
+            return this;
+        }
+
+        public Builder mode(PaginationMode mode) {
+            this.mode = Objects.requireNonNull(mode, "mode");
+            return this;
+        }
+
+        /**
+         * Cursor token of the last row already returned; only valid with {@link PaginationMode#CURSOR}.
+         */
+        public Builder after(String after) {
+            this.after = after;
+            return this;
+        }
+
+        public Pagination build() {
+            return new Pagination(this);
+        }
+    }
 }
@@ -0,0 +1,33 @@
+package com.viewton.plan;
+
+import java.util.Locale;
+
+/**
+ * How a page is fetched and described to the caller.
+ */
+public enum PaginationMode {
+    /**
+     * Classic {@code LIMIT/OFFSET} page.
+     */
+    OFFSET,
+    /**
+     * Fetches one extra row to report whether a next page exists, without counting.
+     */
+    HAS_NEXT,
+    /**
+     * Keyset pagination that continues after the row encoded in an opaque cursor token.
+     */
+    CURSOR;
+
+    public static PaginationMode fromValue(String value) {
+        if (value == null || value.isBlank()) {
+            return OFFSET;
+        }
+        return switch (value.trim().toLowerCase(Locale.ROOT)) {
+            case "offset" -> OFFSET;
+            case "hasnext", "has_next" -> HAS_NEXT;
+            case "cursor", "keyset" -> CURSOR;
+            default -> throw new IllegalArgumentException("Unsupported pagination mode: " + value);
+        };
+    }
+}
@@ -16,4 +16,20 @@ public final class Projection {
     public List<String> getFields() {
         return fields;
     }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Projection that)) {
+            return false;
+        }
+        return fields.equals(that.fields);
+    }
+
+    @Override
+    public int hashCode() {
+        return fields.hashCode();
+    }
 }
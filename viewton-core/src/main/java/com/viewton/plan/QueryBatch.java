@@ -0,0 +1,122 @@
+package com.viewton.plan;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Reduces a batch of plans to the statements that actually have to run.
+ * <p>
+ * Identical plans share one statement. Aggregation-only plans on the same entity with the same filters
+ * are merged into a single plan that computes the union of their aggregations; each member then reads
+ * its own aggregations from the merged result.
+ */
+public final class QueryBatch {
+    private final List<QueryPlan> plans;
+    private final List<QueryPlan> statements;
+    private final int[] statementIndexes;
+
+    private QueryBatch(List<QueryPlan> plans, List<QueryPlan> statements, int[] statementIndexes) {
+        this.plans = plans;
+        this.statements = statements;
+        this.statementIndexes = statementIndexes;
+    }
+
+    public static QueryBatch of(List<QueryPlan> plans) {
+        List<QueryPlan> batch = List.copyOf(Objects.requireNonNull(plans, "plans"));
+        List<Statement> statements = new ArrayList<>();
+        Map<Object, Integer> statementByKey = new HashMap<>();
+        int[] statementIndexes = new int[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            QueryPlan plan = batch.get(i);
+            Object key = isMergeable(plan) ? MergeKey.of(plan) : plan;
+            Integer index = statementByKey.get(key);
+            if (index == null) {
+                index = statements.size();
+                statements.add(new Statement());
+                statementByKey.put(key, index);
+            }
+            statements.get(index).members.add(plan);
+            statementIndexes[i] = index;
+        }
+        return new QueryBatch(batch, statements.stream().map(Statement::toPlan).toList(), statementIndexes);
+    }
+
+    public List<QueryPlan> getPlans() {
+        return plans;
+    }
+
+    /**
+     * Distinct plans to execute, in order of first appearance.
+     */
+    public List<QueryPlan> getStatements() {
+        return statements;
+    }
+
+    /**
+     * Index into {@link #getStatements()} of the statement that answers the plan at {@code planIndex}.
+     */
+    public int statementIndex(int planIndex) {
+        return statementIndexes[planIndex];
+    }
+
+    private static boolean isMergeable(QueryPlan plan) {
+        QueryFlags flags = plan.getFlags();
+        if (flags.isEntities() || !hasAggregations(plan)) {
+            return false;
+        }
+        // Estimated and capped counts are not computed by the aggregation statement.
+        return !flags.isCount() || (flags.getCountStrategy() == CountStrategy.EXACT && flags.getCountLimit() == null);
+    }
+
+    private static boolean hasAggregations(QueryPlan plan) {
+        Aggregations aggregations = plan.getAggregations();
+        return plan.getFlags().isCount()
+                || !aggregations.getSumFields().isEmpty()
+                || !aggregations.getAvgFields().isEmpty()
+                || !aggregations.getMinFields().isEmpty()
+                || !aggregations.getMaxFields().isEmpty();
+    }
+
+    private record MergeKey(EntityRef entity, Filters filters, boolean distinct) {
+        static MergeKey of(QueryPlan plan) {
+            return new MergeKey(plan.getEntity(), plan.getFilters(), plan.getFlags().isDistinct());
+        }
+    }
+
+    private static final class Statement {
+        private final Set<QueryPlan> members = new LinkedHashSet<>();
+
+        QueryPlan toPlan() {
+            QueryPlan first = members.iterator().next();
+            if (members.size() == 1) {
+                return first;
+            }
+            boolean count = false;
+            Set<String> sum = new LinkedHashSet<>();
+            Set<String> avg = new LinkedHashSet<>();
+            Set<String> min = new LinkedHashSet<>();
+            Set<String> max = new LinkedHashSet<>();
+            for (QueryPlan member : members) {
+                count |= member.getFlags().isCount();
+                sum.addAll(member.getAggregations().getSumFields());
+                avg.addAll(member.getAggregations().getAvgFields());
+                min.addAll(member.getAggregations().getMinFields());
+                max.addAll(member.getAggregations().getMaxFields());
+            }
+            return new QueryPlan(
+                    first.getEntity(),
+                    new Projection(List.of()),
+                    first.getFilters(),
+                    new Sorting(List.of()),
+                    new Pagination(null, null),
+                    new Aggregations(List.copyOf(sum), List.copyOf(avg), List.copyOf(min), List.copyOf(max)),
+                    new QueryFlags(count, first.getFlags().isDistinct(), false)
+            );
+        }
+    }
+}
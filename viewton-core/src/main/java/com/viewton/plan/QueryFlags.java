@@ -1,5 +1,7 @@
 package com.viewton.plan;
 
+import java.util.Objects;
+
 /**
  * Flags describing query behavior (e.g. count, distinct).
  */
@@ -7,11 +9,32 @@ public final class QueryFlags {
     private final boolean count;
     private final boolean distinct;
     private final boolean entities;
+    private final CountStrategy countStrategy;
+    private final Integer countLimit;
 
     public QueryFlags(boolean count, boolean distinct, boolean entities) {
-        this.count = count;
-        this.distinct = distinct;
-        this.entities = entities;
+        this(builder().count(count).distinct(distinct).entities(entities));
+    }
+
+    private QueryFlags(Builder builder) {
+        this.count = builder.count;
+        this.distinct = builder.distinct;
+        this.entities = builder.entities;
+        this.countStrategy = builder.countStrategy;
+        this.countLimit = builder.countLimit;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Builder toBuilder() {
+        return builder()
+                .count(count)
+                .distinct(distinct)
+                .entities(entities)
+                .countStrategy(countStrategy)
+                .countLimit(countLimit);
     }
 
     public boolean isCount() {
@@ -25,4 +48,81 @@ public final class QueryFlags {
     public boolean isEntities() {
         return entities;
     }
+
+    public CountStrategy getCountStrategy() {
+        return countStrategy;
+    }
+
+    /**
+     * Maximum number of rows an exact count inspects, or {@code null} for an unbounded count.
+     */
+    public Integer getCountLimit() {
+        return countLimit;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof QueryFlags that)) {
+            return false;
+        }
+        return count == that.count
+                && distinct == that.distinct
+                && entities == that.entities
+                && countStrategy == that.countStrategy
+                && Objects.equals(countLimit, that.countLimit);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(count, distinct, entities, countStrategy, countLimit);
+    }
+
+    public static final class Builder {
+        private boolean count;
+        private boolean distinct;
+        private boolean entities = true;
+        private CountStrategy countStrategy = CountStrategy.EXACT;
+        private Integer countLimit;
+
+        public Builder count(boolean count) {
+            this.count = count;
+            return this;
+        }
+
+        public Builder distinct(boolean distinct) {
+            this.distinct = distinct;
+            return this;
+        }
+
+        /**
+         * Whether entity rows are fetched; defaults to {@code true}.
+         */
+        public Builder entities(boolean entities) {
+            this.entities = entities;
+            return this;
+        }
+
+        public Builder countStrategy(CountStrategy countStrategy) {
+            this.countStrategy = Objects.requireNonNull(countStrategy, "countStrategy");
+            return this;
+        }
+
+        /**
+         * Maximum number of rows an exact count inspects, or {@code null} for an unbounded count.
+         */
+        public Builder countLimit(Integer countLimit) {
+            if (countLimit != null && countLimit < 0) {
+                throw new IllegalArgumentException("countLimit must not be negative");
+            }
+            this.countLimit = countLimit;
+            return this;
+        }
+
+        public QueryFlags build() {
+            return new QueryFlags(this);
+        }
+    }
 }
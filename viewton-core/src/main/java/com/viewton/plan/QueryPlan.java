@@ -13,6 +13,7 @@ public final class QueryPlan {
     private final Pagination pagination;
     private final Aggregations aggregations;
     private final QueryFlags flags;
+    private int hash;
 
     public QueryPlan(
             EntityRef entity,
@@ -59,4 +60,35 @@ public final class QueryPlan {
     public QueryFlags getFlags() {
         return flags;
     }
+
+    /**
+     * Plans are equal when they describe the same query, which makes them usable as cache keys.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof QueryPlan that)) {
+            return false;
+        }
+        return hashCode() == that.hashCode()
+                && entity.equals(that.entity)
+                && projection.equals(that.projection)
+                && filters.equals(that.filters)
+                && sorting.equals(that.sorting)
+                && pagination.equals(that.pagination)
+                && aggregations.equals(that.aggregations)
+                && flags.equals(that.flags);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = hash;
+        if (result == 0) {
+            result = Objects.hash(entity, projection, filters, sorting, pagination, aggregations, flags);
+            hash = result;
+        }
+        return result;
+    }
 }
@@ -0,0 +1,139 @@
+package com.viewton.plan;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, concurrent cache of normalized {@link QueryPlan}s keyed by entity name and REST parameters.
+ * <p>
+ * Parameters are reduced to a canonical form (sorted, without {@code null} values) so that maps with
+ * the same content share an entry regardless of their iteration order. Per-request parameters, the cursor
+ * token and the deadline, are left out of the key: every page of a cursor scan shares one entry, and the
+ * cached plan is returned with the request's own cursor token. Once the cache grows past its maximum size
+ * the least recently used entry is evicted. Plans are built outside the lock, so two concurrent misses
+ * for the same key may both build it; the first one stored wins.
+ */
+public final class QueryPlanCache {
+    private static final String AFTER = "after";
+    private static final Set<String> PER_REQUEST_PARAMETERS = Set.of(AFTER, "timeout");
+
+    private final int maximumSize;
+    private final Map<Key, QueryPlan> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public QueryPlanCache(int maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("maximumSize must not be negative");
+        }
+        this.maximumSize = maximumSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns the cached plan for the given entity and parameters, or builds it with {@code loader}.
+     * Plans that fail to build are not cached.
+     */
+    public QueryPlan get(String entityName, Map<String, String> parameters, Supplier<QueryPlan> loader) {
+        Objects.requireNonNull(entityName, "entityName");
+        Objects.requireNonNull(loader, "loader");
+        Key key = new Key(entityName, canonicalize(parameters));
+        String after = key.parameters().containsKey(AFTER) ? parameters.get(AFTER) : null;
+        QueryPlan cached;
+        synchronized (this) {
+            cached = entries.get(key);
+            if (cached != null) {
+                hits++;
+            } else {
+                misses++;
+            }
+        }
+        if (cached == null) {
+            cached = store(key, withAfter(Objects.requireNonNull(loader.get(), "plan"), null));
+        }
+        return withAfter(cached, after);
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions);
+    }
+
+    private synchronized QueryPlan store(Key key, QueryPlan plan) {
+        QueryPlan existing = entries.putIfAbsent(key, plan);
+        if (existing != null) {
+            return existing;
+        }
+        while (entries.size() > maximumSize) {
+            Key eldest = entries.keySet().iterator().next();
+            entries.remove(eldest);
+            evictions++;
+        }
+        return plan;
+    }
+
+    private static QueryPlan withAfter(QueryPlan plan, String after) {
+        Pagination pagination = plan.getPagination();
+        if (Objects.equals(pagination.getAfter(), after)) {
+            return plan;
+        }
+        return new QueryPlan(
+                plan.getEntity(),
+                plan.getProjection(),
+                plan.getFilters(),
+                plan.getSorting(),
+                pagination.toBuilder().after(after).build(),
+                plan.getAggregations(),
+                plan.getFlags()
+        );
+    }
+
+    /**
+     * The presence of a cursor token is kept, since it switches the plan to cursor pagination; its value is not.
+     */
+    private static SortedMap<String, String> canonicalize(Map<String, String> parameters) {
+        if (parameters == null || parameters.isEmpty()) {
+            return Collections.emptySortedMap();
+        }
+        SortedMap<String, String> canonical = new TreeMap<>();
+        for (Map.Entry<String, String> entry : parameters.entrySet()) {
+            String name = entry.getKey();
+            if (name == null || entry.getValue() == null) {
+                continue;
+            }
+            if (AFTER.equals(name)) {
+                canonical.put(name, "");
+            } else if (!PER_REQUEST_PARAMETERS.contains(name)) {
+                canonical.put(name, entry.getValue());
+            }
+        }
+        return Collections.unmodifiableSortedMap(canonical);
+    }
+
+    /**
+     * Point-in-time cache counters.
+     */
+    public record Stats(long hits, long misses, long evictions) {
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        }
+    }
+
+    private record Key(String entityName, SortedMap<String, String> parameters) {
+    }
+}
@@ -29,9 +29,24 @@ public final class RestQueryPlanNormalizer {
                 model.getMax()
         );
         Sorting sorting = new Sorting(toSortFields(model.getSorting()));
-        Pagination pagination = new Pagination(model.getPage().orElse(null), model.getPageSize().orElse(null));
+        String after = model.getAfter().orElse(null);
+        PaginationMode paginationMode = after == null
+                ? PaginationMode.fromValue(model.getPaginationMode().orElse(null))
+                : PaginationMode.CURSOR;
+        Pagination pagination = Pagination.builder()
+                .page(model.getPage().orElse(null))
+                .pageSize(model.getPageSize().orElse(null))
+                .mode(paginationMode)
+                .after(after)
+                .build();
         Filters filters = new Filters(toFilterCriteria(model.getFilters()));
-        QueryFlags flags = new QueryFlags(model.isCount(), model.isDistinct(), model.isEntities());
+        QueryFlags flags = QueryFlags.builder()
+                .count(model.isCount())
+                .distinct(model.isDistinct())
+                .entities(model.isEntities())
+                .countStrategy(CountStrategy.fromValue(model.getCountStrategy().orElse(null)))
+                .countLimit(model.getCountLimit().orElse(null))
+                .build();
 
         return new QueryPlan(new EntityRef(entityName), projection, filters, sorting, pagination, aggregations, flags);
     }
@@ -86,10 +101,61 @@ public final class RestQueryPlanNormalizer {
         if (value == null) {
             return new com.viewton.plan.value.QueryStringValue("");
         }
+        if (!looksNumeric(value)) {
+            return new com.viewton.plan.value.QueryStringValue(value);
+        }
         try {
             return new com.viewton.plan.value.QueryNumberValue(new BigDecimal(value));
         } catch (NumberFormatException ignored) {
             return new com.viewton.plan.value.QueryStringValue(value);
         }
     }
+
+    /**
+     * Cheap pre-check mirroring the {@link BigDecimal} string grammar, so plain text values
+     * do not pay for a {@link NumberFormatException}.
+     */
+    private boolean looksNumeric(String value) {
+        int length = value.length();
+        int index = 0;
+        if (index < length && (value.charAt(index) == '+' || value.charAt(index) == '-')) {
+            index++;
+        }
+        boolean digits = false;
+        boolean dot = false;
+        for (; index < length; index++) {
+            char current = value.charAt(index);
+            if (current >= '0' && current <= '9') {
+                digits = true;
+            } else if (current == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+        }
+        if (!digits) {
+            return false;
+        }
+        if (index == length) {
+            return true;
+        }
+        char exponent = value.charAt(index);
+        if (exponent != 'e' && exponent != 'E') {
+            return false;
+        }
+        index++;
+        if (index < length && (value.charAt(index) == '+' || value.charAt(index) == '-')) {
+            index++;
+        }
+        if (index == length) {
+            return false;
+        }
+        for (; index < length; index++) {
+            char current = value.charAt(index);
+            if (current < '0' || current > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -21,4 +21,20 @@ public final class SortField {
     public SortDirection getDirection() {
         return direction;
     }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof SortField that)) {
+            return false;
+        }
+        return field.equals(that.field) && direction.equals(that.direction);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(field, direction);
+    }
 }
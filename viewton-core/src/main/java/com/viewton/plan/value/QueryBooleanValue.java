@@ -26,4 +26,20 @@ public final class QueryBooleanValue implements QueryValue {
     public boolean getBoolean() {
         return value;
     }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof QueryBooleanValue that)) {
+            return false;
+        }
+        return value == that.value;
+    }
+
+    @Override
+    public int hashCode() {
+        return Boolean.hashCode(value);
+    }
 }
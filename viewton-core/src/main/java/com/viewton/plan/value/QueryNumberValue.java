@@ -29,4 +29,20 @@ public final class QueryNumberValue implements QueryValue {
     public BigDecimal getNumber() {
         return value;
     }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof QueryNumberValue that)) {
+            return false;
+        }
+        return value.equals(that.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return value.hashCode();
+    }
 }
@@ -79,4 +79,22 @@ class GraphQueryParserTest {
                 () -> assertEquals("ignoreCaseEmail@email.com", ignoreCaseFilter.getValue().asIdentifier())
         );
     }
+
+    @Test
+    void parsesCursorPagination() {
+        String query = """
+                query {
+                  payments(pagination: { pageSize: 20, after: "eyJhIjoxfQ.c2ln" }) {
+                    id
+                  }
+                }
+                """;
+
+        GraphPagination pagination = GraphQueryParser.parse(query).getPagination();
+
+        assertAll(
+                () -> assertEquals(20, pagination.getPageSize()),
+                () -> assertEquals("eyJhIjoxfQ.c2ln", pagination.getAfter())
+        );
+    }
 }
@@ -0,0 +1,107 @@
+package com.viewton.plan;
+
+import com.viewton.plan.value.QueryStringValue;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class QueryBatchTest {
+
+    @Test
+    void sharesStatementBetweenIdenticalPlans() {
+        QueryPlan page = entityPlan("payments");
+        QueryPlan other = entityPlan("refunds");
+
+        QueryBatch batch = QueryBatch.of(List.of(page, other, entityPlan("payments")));
+
+        assertAll(
+                () -> assertEquals(List.of(page, other), batch.getStatements()),
+                () -> assertEquals(0, batch.statementIndex(0)),
+                () -> assertEquals(1, batch.statementIndex(1)),
+                () -> assertEquals(0, batch.statementIndex(2))
+        );
+    }
+
+    @Test
+    void mergesAggregationPlansWithSameFilters() {
+        QueryPlan totals = aggregationPlan(true, new Aggregations(List.of("amount"), List.of(), List.of(), List.of()));
+        QueryPlan extremes = aggregationPlan(
+                false,
+                new Aggregations(List.of(), List.of(), List.of("amount"), List.of("amount"))
+        );
+
+        QueryBatch batch = QueryBatch.of(List.of(totals, extremes));
+
+        QueryPlan merged = batch.getStatements().get(0);
+        assertAll(
+                () -> assertEquals(1, batch.getStatements().size()),
+                () -> assertEquals(0, batch.statementIndex(1)),
+                () -> assertEquals(
+                        new Aggregations(List.of("amount"), List.of(), List.of("amount"), List.of("amount")),
+                        merged.getAggregations()
+                ),
+                () -> assertEquals(true, merged.getFlags().isCount()),
+                () -> assertEquals(false, merged.getFlags().isEntities()),
+                () -> assertEquals(totals.getFilters(), merged.getFilters())
+        );
+    }
+
+    @Test
+    void keepsSinglePlanAndCappedCountsUnmerged() {
+        QueryPlan capped = new QueryPlan(
+                new EntityRef("payments"),
+                new Projection(List.of()),
+                paidFilter(),
+                new Sorting(List.of()),
+                new Pagination(null, null),
+                new Aggregations(List.of(), List.of(), List.of(), List.of()),
+                QueryFlags.builder().count(true).entities(false).countLimit(1000).build()
+        );
+        QueryPlan sums = aggregationPlan(false, new Aggregations(List.of("amount"), List.of(), List.of(), List.of()));
+
+        QueryBatch batch = QueryBatch.of(List.of(capped, sums));
+
+        assertAll(
+                () -> assertEquals(2, batch.getStatements().size()),
+                () -> assertSame(capped, batch.getStatements().get(0)),
+                () -> assertSame(sums, batch.getStatements().get(1))
+        );
+    }
+
+    private static QueryPlan entityPlan(String entity) {
+        return new QueryPlan(
+                new EntityRef(entity),
+                new Projection(List.of("id")),
+                paidFilter(),
+                new Sorting(List.of()),
+                new Pagination(1, 20),
+                new Aggregations(List.of(), List.of(), List.of(), List.of()),
+                new QueryFlags(false, false, true)
+        );
+    }
+
+    private static QueryPlan aggregationPlan(boolean count, Aggregations aggregations) {
+        return new QueryPlan(
+                new EntityRef("payments"),
+                new Projection(List.of()),
+                paidFilter(),
+                new Sorting(List.of()),
+                new Pagination(null, null),
+                aggregations,
+                new QueryFlags(count, false, false)
+        );
+    }
+
+    private static Filters paidFilter() {
+        return new Filters(List.of(new FilterCriterion(
+                "status",
+                QueryOperator.EQ,
+                List.of(new QueryStringValue("PAID")),
+                false
+        )));
+    }
+}
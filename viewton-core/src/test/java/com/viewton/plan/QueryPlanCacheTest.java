@@ -0,0 +1,125 @@
+package com.viewton.plan;
+
+import com.viewton.api.input.RestQueryInput;
+import com.viewton.api.parser.RestQueryInputParser;
+import com.viewton.model.RestQueryModel;
+import com.viewton.schema.Schema;
+import com.viewton.schema.Table;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class QueryPlanCacheTest {
+
+    @Test
+    void returnsCachedPlanForEquivalentParameters() {
+        QueryPlanCache cache = new QueryPlanCache(16);
+        AtomicInteger loads = new AtomicInteger();
+
+        Map<String, String> first = new LinkedHashMap<>();
+        first.put("status", "PAID");
+        first.put("pageSize", "20");
+        Map<String, String> second = new LinkedHashMap<>();
+        second.put("pageSize", "20");
+        second.put("status", "PAID");
+        second.put("ignored", null);
+
+        QueryPlan plan = cache.get("payments", first, () -> load(first, loads));
+        QueryPlan cached = cache.get("payments", second, () -> load(second, loads));
+
+        assertAll(
+                () -> assertSame(plan, cached),
+                () -> assertEquals(1, loads.get()),
+                () -> assertEquals(new QueryPlanCache.Stats(1, 1, 0), cache.stats())
+        );
+    }
+
+    @Test
+    void separatesEntriesByEntityName() {
+        QueryPlanCache cache = new QueryPlanCache(16);
+        AtomicInteger loads = new AtomicInteger();
+        Map<String, String> params = Map.of("status", "PAID");
+
+        QueryPlan payments = cache.get("payments", params, () -> load(params, loads));
+        QueryPlan refunds = cache.get("refunds", params, () -> load(params, loads));
+
+        assertAll(
+                () -> assertNotSame(payments, refunds),
+                () -> assertEquals(2, loads.get())
+        );
+    }
+
+    @Test
+    void evictsWhenMaximumSizeIsExceeded() {
+        QueryPlanCache cache = new QueryPlanCache(2);
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 5; i++) {
+            Map<String, String> params = new HashMap<>();
+            params.put("id", String.valueOf(i));
+            cache.get("payments", params, () -> load(params, loads));
+        }
+
+        assertAll(
+                () -> assertEquals(2, cache.size()),
+                () -> assertEquals(3, cache.stats().evictions()),
+                () -> assertEquals(5, cache.stats().misses())
+        );
+    }
+
+    @Test
+    void sharesOneEntryAcrossCursorPages() {
+        QueryPlanCache cache = new QueryPlanCache(16);
+        AtomicInteger loads = new AtomicInteger();
+
+        Map<String, String> first = Map.of("status", "PAID", "paginationMode", "cursor", "timeout", "2s");
+        Map<String, String> second = Map.of("status", "PAID", "after", "token-1", "timeout", "5s");
+        Map<String, String> third = Map.of("status", "PAID", "after", "token-2");
+
+        QueryPlan firstPage = cache.get("payments", first, () -> load(first, loads));
+        QueryPlan secondPage = cache.get("payments", second, () -> load(second, loads));
+        QueryPlan thirdPage = cache.get("payments", third, () -> load(third, loads));
+
+        assertAll(
+                () -> assertNull(firstPage.getPagination().getAfter()),
+                () -> assertEquals("token-1", secondPage.getPagination().getAfter()),
+                () -> assertEquals("token-2", thirdPage.getPagination().getAfter()),
+                () -> assertEquals(PaginationMode.CURSOR, thirdPage.getPagination().getMode()),
+                () -> assertEquals(2, loads.get()),
+                () -> assertEquals(2, cache.size())
+        );
+    }
+
+    @Test
+    void doesNotCacheFailedLoads() {
+        QueryPlanCache cache = new QueryPlanCache(16);
+
+        assertThrows(IllegalArgumentException.class, () -> cache.get("payments", Map.of(), () -> {
+            throw new IllegalArgumentException("Unknown entity: payments");
+        }));
+        assertEquals(0, cache.size());
+    }
+
+    private static QueryPlan load(Map<String, String> params, AtomicInteger loads) {
+        loads.incrementAndGet();
+        RestQueryModel model = (RestQueryModel) new RestQueryInputParser().parse(new RestQueryInput(params));
+        return new RestQueryPlanNormalizer().normalize(model, "payments", new TestSchema());
+    }
+
+    private static final class TestSchema implements Schema {
+        @Override
+        public Table table(String name) {
+            return "payments".equals(name) ? new Table() {} : null;
+        }
+    }
+}
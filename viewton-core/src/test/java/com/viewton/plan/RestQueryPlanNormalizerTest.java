@@ -57,6 +57,69 @@ class RestQueryPlanNormalizerTest {
         );
     }
 
+    @Test
+    void normalizesEquivalentParametersToEqualPlans() {
+        Map<String, String> params = Map.of("status", "PAID", "amount", "10..20", "sorting", "-amount");
+        RestQueryPlanNormalizer normalizer = new RestQueryPlanNormalizer();
+
+        QueryPlan first = normalizer.normalize(
+                (RestQueryModel) new RestQueryInputParser().parse(new RestQueryInput(params)), "payments", new TestSchema());
+        QueryPlan second = normalizer.normalize(
+                (RestQueryModel) new RestQueryInputParser().parse(new RestQueryInput(params)), "payments", new TestSchema());
+
+        assertAll(
+                () -> assertEquals(first, second),
+                () -> assertEquals(first.hashCode(), second.hashCode())
+        );
+    }
+
+    @Test
+    void mapsCountStrategy() {
+        RestQueryModel model = (RestQueryModel) new RestQueryInputParser()
+                .parse(new RestQueryInput(Map.of("count", "true", "countStrategy", "estimated")));
+
+        QueryPlan plan = new RestQueryPlanNormalizer().normalize(model, "payments", new TestSchema());
+
+        assertAll(
+                () -> assertEquals(true, plan.getFlags().isCount()),
+                () -> assertEquals(CountStrategy.ESTIMATED, plan.getFlags().getCountStrategy()),
+                () -> assertEquals(0, plan.getFilters().getCriteria().size())
+        );
+    }
+
+    @Test
+    void mapsPaginationModeAndCountLimit() {
+        RestQueryModel model = (RestQueryModel) new RestQueryInputParser().parse(new RestQueryInput(Map.of(
+                "pageSize", "20",
+                "paginationMode", "hasNext",
+                "count", "true",
+                "countLimit", "10000"
+        )));
+
+        QueryPlan plan = new RestQueryPlanNormalizer().normalize(model, "payments", new TestSchema());
+
+        assertAll(
+                () -> assertEquals(PaginationMode.HAS_NEXT, plan.getPagination().getMode()),
+                () -> assertEquals(20, plan.getPagination().getPageSize()),
+                () -> assertEquals(10000, plan.getFlags().getCountLimit()),
+                () -> assertEquals(0, plan.getFilters().getCriteria().size())
+        );
+    }
+
+    @Test
+    void afterTokenSelectsCursorPagination() {
+        RestQueryModel model = (RestQueryModel) new RestQueryInputParser()
+                .parse(new RestQueryInput(Map.of("pageSize", "20", "after", "token")));
+
+        QueryPlan plan = new RestQueryPlanNormalizer().normalize(model, "payments", new TestSchema());
+
+        assertAll(
+                () -> assertEquals(PaginationMode.CURSOR, plan.getPagination().getMode()),
+                () -> assertEquals("token", plan.getPagination().getAfter()),
+                () -> assertEquals(0, plan.getFilters().getCriteria().size())
+        );
+    }
+
     @Test
     void throwsWhenEntityIsUnknown() {
         RestQueryModel model = (RestQueryModel) new RestQueryInputParser()
@@ -0,0 +1,239 @@
+package com.viewton.jooq.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.viewton.jooq.mapping.QueryResult;
+import com.viewton.plan.QueryPlan;
+import org.jooq.Table;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Cache of {@link QueryResult}s keyed by table and {@link QueryPlan}.
+ * <p>
+ * Entries expire after a fixed time to live and the cache is bounded by size using Caffeine's
+ * W-TinyLFU admission policy. When {@code staleAfter} is configured, entries older than that are
+ * still served while a single background refresh replaces them (stale-while-revalidate).
+ * Invalidation is per table; loads that race with an invalidation are discarded.
+ * <p>
+ * Callers must not read through the cache from a connection inside a transaction: such a read may see the
+ * transaction's uncommitted writes, which other callers must not be served.
+ */
+public final class QueryResultCache {
+    private final Cache<Key, Entry> cache;
+    private final long staleAfterNanos;
+    private final Executor refreshExecutor;
+    private final Ticker ticker;
+    private final ConcurrentHashMap<String, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final AtomicLong globalGeneration = new AtomicLong();
+    private final LongAdder staleHits = new LongAdder();
+
+    private QueryResultCache(Builder builder) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(builder.maximumSize)
+                .expireAfterWrite(builder.timeToLive)
+                .ticker(builder.ticker)
+                .recordStats()
+                .build();
+        this.staleAfterNanos = builder.staleAfter == null ? Long.MAX_VALUE : builder.staleAfter.toNanos();
+        this.refreshExecutor = builder.refreshExecutor;
+        this.ticker = builder.ticker;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the cached result for the plan against the given table, or loads and caches it.
+     */
+    public QueryResult get(Table<?> table, QueryPlan plan, Supplier<QueryResult> loader) {
+        return get(table, plan, loader, loader);
+    }
+
+    /**
+     * Like {@link #get(Table, QueryPlan, Supplier)}, but stale entries are reloaded with {@code refresher}.
+     * A refresh outlives the request that triggered it, so it must not run under that request's deadline
+     * or be cancelled with it.
+     */
+    public QueryResult get(
+            Table<?> table,
+            QueryPlan plan,
+            Supplier<QueryResult> loader,
+            Supplier<QueryResult> refresher
+    ) {
+        Objects.requireNonNull(table, "table");
+        Objects.requireNonNull(plan, "plan");
+        Objects.requireNonNull(loader, "loader");
+        Objects.requireNonNull(refresher, "refresher");
+        Key key = new Key(normalize(table.getName()), qualifier(table), plan);
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null) {
+            if (ticker.read() - entry.loadedAt >= staleAfterNanos) {
+                staleHits.increment();
+                refresh(key, entry, refresher);
+            }
+            return entry.result;
+        }
+        long generation = generation(key.tableName());
+        QueryResult result = loader.get();
+        store(key, new Entry(result, ticker.read()), generation);
+        return result;
+    }
+
+    public void invalidate(Table<?> table) {
+        Objects.requireNonNull(table, "table");
+        invalidateTable(table.getName());
+    }
+
+    /**
+     * Drops every entry read from a table with the given (unqualified, case-insensitive) name.
+     */
+    public void invalidateTable(String tableName) {
+        Objects.requireNonNull(tableName, "tableName");
+        String normalized = normalize(tableName);
+        generations.computeIfAbsent(normalized, ignored -> new AtomicLong()).incrementAndGet();
+        cache.asMap().keySet().removeIf(key -> key.tableName().equals(normalized));
+    }
+
+    public void invalidateAll() {
+        globalGeneration.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public Stats stats() {
+        CacheStats stats = cache.stats();
+        return new Stats(stats.hitCount(), stats.missCount(), stats.evictionCount(), staleHits.sum());
+    }
+
+    private void refresh(Key key, Entry entry, Supplier<QueryResult> loader) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        long generation = generation(key.tableName());
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    Entry refreshed = new Entry(loader.get(), ticker.read());
+                    if (cache.asMap().replace(key, entry, refreshed) && generation(key.tableName()) != generation) {
+                        cache.asMap().remove(key, refreshed);
+                    }
+                } catch (RuntimeException ignored) {
+                    // Keep serving the stale entry until it expires or the next refresh succeeds.
+                } finally {
+                    entry.refreshing.set(false);
+                }
+            });
+        } catch (RuntimeException rejected) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    private void store(Key key, Entry entry, long generation) {
+        cache.put(key, entry);
+        if (generation(key.tableName()) != generation) {
+            cache.asMap().remove(key, entry);
+        }
+    }
+
+    private long generation(String tableName) {
+        AtomicLong tableGeneration = generations.get(tableName);
+        return globalGeneration.get() + (tableGeneration == null ? 0 : tableGeneration.get());
+    }
+
+    private static String qualifier(Table<?> table) {
+        if (table.getSchema() == null || table.getSchema().getName() == null) {
+            return "";
+        }
+        return normalize(table.getSchema().getName());
+    }
+
+    private static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Point-in-time cache counters.
+     */
+    public record Stats(long hits, long misses, long evictions, long staleHits) {
+    }
+
+    private record Key(String tableName, String qualifier, QueryPlan plan) {
+    }
+
+    private static final class Entry {
+        private final QueryResult result;
+        private final long loadedAt;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private Entry(QueryResult result, long loadedAt) {
+            this.result = Objects.requireNonNull(result, "result");
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    public static final class Builder {
+        private long maximumSize = 10_000;
+        private Duration timeToLive = Duration.ofMinutes(1);
+        private Duration staleAfter;
+        private Executor refreshExecutor = ForkJoinPool.commonPool();
+        private Ticker ticker = Ticker.systemTicker();
+
+        public Builder maximumSize(long maximumSize) {
+            if (maximumSize < 0) {
+                throw new IllegalArgumentException("maximumSize must not be negative");
+            }
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        public Builder timeToLive(Duration timeToLive) {
+            this.timeToLive = Objects.requireNonNull(timeToLive, "timeToLive");
+            return this;
+        }
+
+        /**
+         * Age after which entries are served stale and refreshed in the background; {@code null} disables it.
+         */
+        public Builder staleAfter(Duration staleAfter) {
+            this.staleAfter = staleAfter;
+            return this;
+        }
+
+        /**
+         * Executor for background refreshes; defaults to the common pool, which is shared with the rest of
+         * the application, so a dedicated bounded executor should be configured when entries go stale.
+         */
+        public Builder refreshExecutor(Executor refreshExecutor) {
+            this.refreshExecutor = Objects.requireNonNull(refreshExecutor, "refreshExecutor");
+            return this;
+        }
+
+        /**
+         * Time source for expiry and staleness; defaults to {@link System#nanoTime()}.
+         */
+        public Builder ticker(Ticker ticker) {
+            this.ticker = Objects.requireNonNull(ticker, "ticker");
+            return this;
+        }
+
+        public QueryResultCache build() {
+            return new QueryResultCache(this);
+        }
+    }
+}
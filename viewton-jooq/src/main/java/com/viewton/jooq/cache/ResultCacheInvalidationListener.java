@@ -0,0 +1,206 @@
+package com.viewton.jooq.cache;
+
+import org.jooq.ExecuteContext;
+import org.jooq.ExecuteListener;
+import org.jooq.ExecuteType;
+import org.jooq.TransactionContext;
+import org.jooq.TransactionListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * jOOQ listener that invalidates {@link QueryResultCache} entries when DML or DDL runs against a table
+ * through the same {@code DSLContext}.
+ * <p>
+ * The target table is read from the rendered SQL, so plain SQL statements are covered as well; statements
+ * starting with {@code WITH} invalidate every table they write to. A write inside a transaction invalidates
+ * the table when the statement ends and again when the transaction commits, since results read by other
+ * connections in between still show the data from before the commit. Commits are observed for jOOQ
+ * transactions, when the listener is registered as a {@link TransactionListener}, and for Spring-managed
+ * transactions. Writes issued by other applications or other nodes are not observed; the cache time to
+ * live bounds their staleness.
+ */
+public final class ResultCacheInvalidationListener implements ExecuteListener, TransactionListener {
+    private static final boolean SPRING_TRANSACTIONS = isPresent(
+            "org.springframework.transaction.support.TransactionSynchronizationManager"
+    );
+    private static final String IDENTIFIER = "(?:\"[^\"]+\"|`[^`]+`|\\[[^\\]]+\\]|[\\w$]+)";
+    private static final String QUALIFIED_IDENTIFIER = "(" + IDENTIFIER + "(?:\\s*\\.\\s*" + IDENTIFIER + ")*)";
+    private static final String WRITE = "(?:insert\\s+(?:ignore\\s+)?into|update|delete\\s+from|merge\\s+into)";
+    private static final Pattern IDENTIFIER_PATTERN = Pattern.compile(IDENTIFIER);
+    private static final Pattern TARGET_TABLE = Pattern.compile(
+            "^\\s*(?:" + WRITE + "|truncate(?:\\s+table)?)\\s+" + QUALIFIED_IDENTIFIER,
+            Pattern.CASE_INSENSITIVE
+    );
+    private static final Pattern COMMON_TABLE_EXPRESSION = Pattern.compile("^\\s*with\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern NESTED_TARGET_TABLE = Pattern.compile(
+            "\\b" + WRITE + "\\s+" + QUALIFIED_IDENTIFIER,
+            Pattern.CASE_INSENSITIVE
+    );
+
+    private final QueryResultCache cache;
+    private final ThreadLocal<Deque<Set<String>>> transactions = ThreadLocal.withInitial(ArrayDeque::new);
+
+    public ResultCacheInvalidationListener(QueryResultCache cache) {
+        this.cache = Objects.requireNonNull(cache, "cache");
+    }
+
+    @Override
+    public void executeEnd(ExecuteContext ctx) {
+        if (ctx.type() == ExecuteType.READ) {
+            return;
+        }
+        Set<String> tableNames = new HashSet<>(targetTables(ctx.sql()));
+        String[] batchSql = ctx.batchSQL();
+        if (batchSql != null) {
+            for (String sql : batchSql) {
+                tableNames.addAll(targetTables(sql));
+            }
+        }
+        if (tableNames.isEmpty()) {
+            return;
+        }
+        tableNames.forEach(cache::invalidateTable);
+        if (inTransaction(ctx.connection())) {
+            invalidateOnCommit(tableNames);
+        }
+    }
+
+    @Override
+    public void beginEnd(TransactionContext ctx) {
+        transactions.get().push(new HashSet<>());
+    }
+
+    @Override
+    public void commitEnd(TransactionContext ctx) {
+        Deque<Set<String>> open = transactions.get();
+        Set<String> tableNames = open.poll();
+        if (tableNames == null) {
+            return;
+        }
+        if (open.isEmpty()) {
+            transactions.remove();
+            tableNames.forEach(cache::invalidateTable);
+        } else {
+            open.peek().addAll(tableNames);
+        }
+    }
+
+    @Override
+    public void rollbackEnd(TransactionContext ctx) {
+        Deque<Set<String>> open = transactions.get();
+        open.poll();
+        if (open.isEmpty()) {
+            transactions.remove();
+        }
+    }
+
+    private void invalidateOnCommit(Set<String> tableNames) {
+        Set<String> jooqTransaction = transactions.get().peek();
+        if (jooqTransaction != null) {
+            jooqTransaction.addAll(tableNames);
+        } else {
+            transactions.remove();
+        }
+        if (SPRING_TRANSACTIONS) {
+            SpringTransactions.afterCommit(() -> tableNames.forEach(cache::invalidateTable));
+        }
+    }
+
+    /**
+     * Connections whose state cannot be read are treated as transactional, which only costs an extra
+     * invalidation.
+     */
+    private static boolean inTransaction(Connection connection) {
+        if (connection == null) {
+            return false;
+        }
+        try {
+            return !connection.getAutoCommit();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    static String targetTable(String sql) {
+        List<String> tableNames = targetTables(sql);
+        return tableNames.isEmpty() ? null : tableNames.get(0);
+    }
+
+    static List<String> targetTables(String sql) {
+        if (sql == null) {
+            return List.of();
+        }
+        Matcher matcher = TARGET_TABLE.matcher(sql);
+        if (matcher.find()) {
+            return List.of(tableName(matcher.group(1)));
+        }
+        if (!COMMON_TABLE_EXPRESSION.matcher(sql).find()) {
+            return List.of();
+        }
+        List<String> tableNames = new ArrayList<>();
+        Matcher nested = NESTED_TARGET_TABLE.matcher(sql);
+        while (nested.find()) {
+            tableNames.add(tableName(nested.group(1)));
+        }
+        return tableNames;
+    }
+
+    private static String tableName(String qualifiedName) {
+        Matcher identifiers = IDENTIFIER_PATTERN.matcher(qualifiedName);
+        String last = null;
+        while (identifiers.find()) {
+            last = identifiers.group();
+        }
+        return unquote(last);
+    }
+
+    private static String unquote(String identifier) {
+        if (identifier.length() >= 2) {
+            char first = identifier.charAt(0);
+            char last = identifier.charAt(identifier.length() - 1);
+            if ((first == '"' && last == '"') || (first == '`' && last == '`') || (first == '[' && last == ']')) {
+                return identifier.substring(1, identifier.length() - 1);
+            }
+        }
+        return identifier;
+    }
+
+    private static boolean isPresent(String className) {
+        try {
+            Class.forName(className, false, ResultCacheInvalidationListener.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Kept apart so the listener loads without spring-tx on the classpath.
+     */
+    private static final class SpringTransactions {
+        private static void afterCommit(Runnable action) {
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                return;
+            }
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+}
@@ -1,24 +1,53 @@
 package com.viewton.jooq.config;
 
 import com.viewton.api.parser.RestQueryInputParser;
+import com.viewton.jooq.cache.QueryResultCache;
+import com.viewton.jooq.cache.ResultCacheInvalidationListener;
+import com.viewton.jooq.config.properties.ViewtonJooqProperties;
+import com.viewton.jooq.executor.CursorCodec;
+import com.viewton.jooq.executor.HedgingPolicy;
+import com.viewton.jooq.executor.JooqExecutorOptions;
 import com.viewton.jooq.executor.JooqQueryExecutor;
+import com.viewton.jooq.executor.QueryCostGuard;
+import com.viewton.jooq.executor.QueryLane;
+import com.viewton.jooq.executor.QueryScheduler;
+import com.viewton.jooq.executor.ReplicaRouter;
+import com.viewton.jooq.executor.ResultSizeLimits;
+import com.viewton.jooq.executor.ScrollRegistry;
 import com.viewton.jooq.mapping.DefaultResultMapper;
 import com.viewton.jooq.schema.JooqSchema;
 import com.viewton.jooq.util.ViewtonRepository;
+import com.viewton.plan.QueryPlanCache;
 import com.viewton.plan.RestQueryPlanNormalizer;
 import org.jooq.DSLContext;
+import org.jooq.ExecuteListenerProvider;
+import org.jooq.TransactionListenerProvider;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultExecuteListenerProvider;
+import org.jooq.impl.DefaultTransactionListenerProvider;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jooq.DefaultConfigurationCustomizer;
 import org.springframework.boot.autoconfigure.jooq.JooqAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
 import org.springframework.context.annotation.Bean;
+import org.springframework.util.StringUtils;
+
+import java.util.Arrays;
+
+import javax.sql.DataSource;
 
 /**
  * Auto-configuration for Viewton's jOOQ integration.
  */
 @AutoConfiguration(after = JooqAutoConfiguration.class)
 @ConditionalOnClass({ DSLContext.class, JooqQueryExecutor.class })
+@EnableConfigurationProperties(ViewtonJooqProperties.class)
 public class ViewtonJooqAutoConfiguration {
 
     @Bean
@@ -33,6 +62,12 @@ public class ViewtonJooqAutoConfiguration {
         return new RestQueryPlanNormalizer();
     }
 
+    @Bean
+    @ConditionalOnMissingBean
+    public QueryPlanCache queryPlanCache(ViewtonJooqProperties properties) {
+        return new QueryPlanCache(properties.getPlanCacheSize());
+    }
+
     @Bean
     @ConditionalOnMissingBean
     public JooqSchema jooqSchema(DSLContext dslContext) {
@@ -47,8 +82,206 @@ public class ViewtonJooqAutoConfiguration {
 
     @Bean
     @ConditionalOnMissingBean
-    public JooqQueryExecutor jooqQueryExecutor(DSLContext dslContext, JooqSchema jooqSchema) {
-        return new JooqQueryExecutor(dslContext, jooqSchema);
+    @ConditionalOnProperty(prefix = "viewton.jooq.result-cache", name = "enabled", havingValue = "true")
+    public QueryResultCache queryResultCache(
+            ViewtonJooqProperties properties,
+            ViewtonQueryThreads viewtonQueryThreads
+    ) {
+        ViewtonJooqProperties.ResultCache resultCache = properties.getResultCache();
+        return QueryResultCache.builder()
+                .maximumSize(resultCache.getMaximumSize())
+                .timeToLive(resultCache.getTimeToLive())
+                .staleAfter(resultCache.getStaleAfter())
+                .refreshExecutor(viewtonQueryThreads.getRefreshExecutor())
+                .build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "viewton.jooq.result-cache", name = "enabled", havingValue = "true")
+    public ResultCacheInvalidationListener resultCacheInvalidationListener(QueryResultCache queryResultCache) {
+        return new ResultCacheInvalidationListener(queryResultCache);
+    }
+
+    /**
+     * Registered with Spring Boot's jOOQ configuration so writes through the shared DSLContext
+     * invalidate cached results of the affected table.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "viewton.jooq.result-cache", name = "enabled", havingValue = "true")
+    public ExecuteListenerProvider resultCacheInvalidationListenerProvider(
+            ResultCacheInvalidationListener resultCacheInvalidationListener
+    ) {
+        return new DefaultExecuteListenerProvider(resultCacheInvalidationListener);
+    }
+
+    /**
+     * Adds the invalidation listener to the transaction listeners, so tables written in a jOOQ transaction
+     * are invalidated again once it commits.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "viewton.jooq.result-cache", name = "enabled", havingValue = "true")
+    public DefaultConfigurationCustomizer resultCacheTransactionListenerCustomizer(
+            ResultCacheInvalidationListener resultCacheInvalidationListener
+    ) {
+        return configuration -> {
+            TransactionListenerProvider[] current = configuration.transactionListenerProviders();
+            TransactionListenerProvider[] providers = Arrays.copyOf(current, current.length + 1);
+            providers[current.length] = new DefaultTransactionListenerProvider(resultCacheInvalidationListener);
+            configuration.setTransactionListenerProvider(providers);
+        };
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    public ViewtonQueryThreads viewtonQueryThreads(ViewtonJooqProperties properties) {
+        ViewtonJooqProperties.ParallelQueries parallelQueries = properties.getParallelQueries();
+        return new ViewtonQueryThreads(
+                properties.getAsyncPoolSize(),
+                parallelQueries.isEnabled() ? parallelQueries.getMaxConcurrency() : 0,
+                properties.getResultCache().getRefreshConcurrency()
+        );
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "viewton.jooq.scheduler", name = "enabled", havingValue = "true")
+    public QueryScheduler queryScheduler(ViewtonJooqProperties properties) {
+        ViewtonJooqProperties.Scheduler scheduler = properties.getScheduler();
+        return QueryScheduler.builder()
+                .laneConcurrency(QueryLane.INTERACTIVE, scheduler.getInteractiveConcurrency())
+                .laneConcurrency(QueryLane.AGGREGATE, scheduler.getAggregateConcurrency())
+                .laneConcurrency(QueryLane.EXPORT, scheduler.getExportConcurrency())
+                .tableConcurrency(scheduler.getTableConcurrency())
+                .maxQueueWait(scheduler.getMaxQueueWait())
+                .build();
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "viewton.jooq.scroll", name = "enabled", havingValue = "true")
+    public ScrollRegistry scrollRegistry(ViewtonJooqProperties properties) {
+        ViewtonJooqProperties.Scroll scroll = properties.getScroll();
+        return ScrollRegistry.builder()
+                .maxOpen(scroll.getMaxOpen())
+                .idleTimeout(scroll.getIdleTimeout())
+                .build();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "viewton.jooq.cost-guard", name = "enabled", havingValue = "true")
+    public QueryCostGuard queryCostGuard(ViewtonJooqProperties properties) {
+        ViewtonJooqProperties.CostGuard costGuard = properties.getCostGuard();
+        QueryCostGuard.Builder builder = QueryCostGuard.builder()
+                .defaultLimits(new QueryCostGuard.Limits(costGuard.getMaxCost(), costGuard.getMaxRows()))
+                .cacheSize(costGuard.getCacheSize())
+                .cacheTtl(costGuard.getCacheTtl());
+        costGuard.getTables().forEach((table, limits) ->
+                builder.tableLimits(table, new QueryCostGuard.Limits(limits.getMaxCost(), limits.getMaxRows())));
+        return builder.build();
+    }
+
+    /**
+     * Replicas share the primary's dialect. Routing is only active when {@code viewton.jooq.replicas.enabled}
+     * is set; applications with their own replica {@code DSLContext}s can declare a {@link ReplicaRouter} bean.
+     * The replica {@code DataSource}s built here are owned by the router and closed with it.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "viewton.jooq.replicas", name = "enabled", havingValue = "true")
+    public ReplicaRouter replicaRouter(ViewtonJooqProperties properties, DSLContext dslContext) {
+        ViewtonJooqProperties.Replicas replicas = properties.getReplicas();
+        ReplicaRouter.Builder builder = ReplicaRouter.builder()
+                .routedKinds(replicas.getRoutes())
+                .balancing(replicas.getBalancing())
+                .maxStaleness(replicas.getMaxStaleness())
+                .lagCheckInterval(replicas.getLagCheckInterval());
+        replicas.getDatasources().forEach((name, replica) -> {
+            DataSource dataSource = DataSourceBuilder.create()
+                    .url(replica.getUrl())
+                    .username(replica.getUsername())
+                    .password(replica.getPassword())
+                    .build();
+            builder.replica(
+                    name,
+                    DSL.using(dataSource, dslContext.dialect()),
+                    dataSource instanceof AutoCloseable closeable ? closeable : null
+            );
+        });
+        return builder.build();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "viewton.jooq.replicas.hedging", name = "enabled", havingValue = "true")
+    public HedgingPolicy hedgingPolicy(ViewtonJooqProperties properties) {
+        ViewtonJooqProperties.Hedging hedging = properties.getReplicas().getHedging();
+        return HedgingPolicy.builder()
+                .percentile(hedging.getPercentile())
+                .minDelay(hedging.getMinDelay())
+                .minSamples(hedging.getMinSamples())
+                .maxHedgeRatio(hedging.getMaxHedgeRatio())
+                .build();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ResultSizeLimits resultSizeLimits(ViewtonJooqProperties properties) {
+        ViewtonJooqProperties.ResultLimits resultLimits = properties.getResultLimits();
+        ResultSizeLimits.Builder builder = ResultSizeLimits.builder().defaultLimits(pageLimits(resultLimits));
+        resultLimits.getTables().forEach((table, limits) -> builder.tableLimits(table, pageLimits(limits)));
+        return builder.build();
+    }
+
+    private static ResultSizeLimits.Limits pageLimits(ViewtonJooqProperties.PageLimits limits) {
+        return new ResultSizeLimits.Limits(
+                limits.getDefaultPageSize(),
+                limits.getMaxPageSize(),
+                limits.getMaxPageBytes() == null ? null : limits.getMaxPageBytes().toBytes()
+        );
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public JooqExecutorOptions jooqExecutorOptions(
+            ViewtonJooqProperties properties,
+            ObjectProvider<QueryResultCache> queryResultCache,
+            ObjectProvider<QueryCostGuard> queryCostGuard,
+            ObjectProvider<ReplicaRouter> replicaRouter,
+            ObjectProvider<HedgingPolicy> hedgingPolicy,
+            ObjectProvider<ResultSizeLimits> resultSizeLimits,
+            ViewtonQueryThreads viewtonQueryThreads
+    ) {
+        JooqExecutorOptions.Builder builder = JooqExecutorOptions.builder()
+                .resultCache(queryResultCache.getIfAvailable())
+                .costGuard(queryCostGuard.getIfAvailable())
+                .replicaRouter(replicaRouter.getIfAvailable())
+                .hedgingPolicy(hedgingPolicy.getIfAvailable())
+                .resultSizeLimits(resultSizeLimits.getIfAvailable())
+                .parallelExecutor(viewtonQueryThreads.getParallelExecutor())
+                .parallelScanPartitions(properties.getParallelQueries().getScanPartitions())
+                .parallelScanMinRows(properties.getParallelQueries().getScanMinRows())
+                .asyncExecutor(viewtonQueryThreads.getAsyncExecutor())
+                .autoCountThreshold(properties.getAutoCountThreshold())
+                .windowAggregations(properties.isWindowAggregations())
+                .streamFetchSize(properties.getStreamFetchSize())
+                .queryTimeout(properties.getQueryTimeout())
+                .coalesceQueries(properties.isCoalesceQueries())
+                .databaseJson(properties.isDatabaseJson());
+        if (StringUtils.hasText(properties.getCursorSecret())) {
+            builder.cursorCodec(CursorCodec.fromSecret(properties.getCursorSecret()));
+        }
+        return builder.build();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public JooqQueryExecutor jooqQueryExecutor(
+            DSLContext dslContext,
+            JooqSchema jooqSchema,
+            JooqExecutorOptions jooqExecutorOptions
+    ) {
+        return new JooqQueryExecutor(dslContext, jooqSchema, jooqExecutorOptions);
     }
 
     @Bean
@@ -58,14 +291,18 @@ public class ViewtonJooqAutoConfiguration {
             RestQueryInputParser restQueryInputParser,
             RestQueryPlanNormalizer restQueryPlanNormalizer,
             JooqQueryExecutor jooqQueryExecutor,
-            DefaultResultMapper defaultResultMapper
+            DefaultResultMapper defaultResultMapper,
+            QueryPlanCache queryPlanCache,
+            ObjectProvider<QueryScheduler> queryScheduler
     ) {
         return new ViewtonRepository(
                 jooqSchema,
                 restQueryInputParser,
                 restQueryPlanNormalizer,
                 jooqQueryExecutor,
-                defaultResultMapper
+                defaultResultMapper,
+                queryPlanCache,
+                queryScheduler.getIfAvailable()
         );
     }
 }
@@ -0,0 +1,68 @@
+package com.viewton.jooq.config;
+
+import com.viewton.jooq.executor.BoundedVirtualThreadExecutor;
+import com.viewton.jooq.executor.QueryExecutors;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Owns the threads Viewton runs queries on, so that they are shut down with the application context.
+ * <p>
+ * The executors are deliberately not registered as {@link Executor} beans: Spring Boot backs off its
+ * {@code applicationTaskExecutor}, which serves async MVC requests, as soon as any executor bean exists.
+ */
+public class ViewtonQueryThreads implements AutoCloseable {
+    static final int DEFAULT_REFRESH_CONCURRENCY = 4;
+
+    private final ExecutorService asyncExecutor;
+    private final BoundedVirtualThreadExecutor parallelExecutor;
+    private final BoundedVirtualThreadExecutor refreshExecutor;
+
+    /**
+     * @param parallelMaxConcurrency slots for parallel aggregation queries, or {@code 0} to run them sequentially
+     */
+    public ViewtonQueryThreads(int asyncPoolSize, int parallelMaxConcurrency) {
+        this(asyncPoolSize, parallelMaxConcurrency, DEFAULT_REFRESH_CONCURRENCY);
+    }
+
+    /**
+     * @param parallelMaxConcurrency slots for parallel aggregation queries, or {@code 0} to run them sequentially
+     * @param refreshConcurrency slots for background refreshes of stale cached results
+     */
+    public ViewtonQueryThreads(int asyncPoolSize, int parallelMaxConcurrency, int refreshConcurrency) {
+        this.asyncExecutor = QueryExecutors.newAsyncExecutor(asyncPoolSize);
+        this.parallelExecutor = parallelMaxConcurrency > 0
+                ? new BoundedVirtualThreadExecutor(parallelMaxConcurrency)
+                : null;
+        this.refreshExecutor = new BoundedVirtualThreadExecutor(refreshConcurrency);
+    }
+
+    public Executor getAsyncExecutor() {
+        return asyncExecutor;
+    }
+
+    /**
+     * Executor for aggregation queries that run next to the entity query, or {@code null} when disabled.
+     */
+    public Executor getParallelExecutor() {
+        return parallelExecutor;
+    }
+
+    /**
+     * Executor for stale-while-revalidate refreshes of cached results. It rejects work once every slot is
+     * busy, in which case the stale entry keeps being served and is refreshed on a later hit.
+     */
+    public Executor getRefreshExecutor() {
+        return refreshExecutor;
+    }
+
+    @Override
+    public void close() {
+        asyncExecutor.shutdownNow();
+        refreshExecutor.close();
+        if (parallelExecutor != null) {
+            parallelExecutor.close();
+        }
+    }
+}
@@ -0,0 +1,832 @@
+package com.viewton.jooq.config.properties;
+
+import com.viewton.jooq.executor.ReplicaRouter;
+import com.viewton.jooq.executor.StatementKind;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Configuration properties for Viewton's jOOQ integration.
+ */
+@ConfigurationProperties(prefix = "viewton.jooq")
+public class ViewtonJooqProperties {
+
+    /**
+     * Maximum number of normalized REST query plans kept in memory; {@code 0} disables caching.
+     */
+    private int planCacheSize = 1024;
+
+    /**
+     * Estimated row count below which {@code countStrategy=auto} falls back to an exact count.
+     */
+    private long autoCountThreshold = 100_000;
+
+    /**
+     * Whether a page and its exact aggregations are fetched in a single statement using window functions.
+     * Worth enabling when filtered result sets are small; on large ones the window scans every matching row.
+     */
+    private boolean windowAggregations;
+
+    /**
+     * Secret used to sign cursor tokens. Must be shared by all nodes that serve the same clients; cursor
+     * pagination and exports are rejected while it is unset.
+     */
+    private String cursorSecret;
+
+    /**
+     * JDBC fetch size used when streaming rows; {@code 0} leaves the driver default.
+     */
+    private int streamFetchSize = 1000;
+
+    /**
+     * Threads serving asynchronous queries on runtimes without virtual threads (before Java 21).
+     */
+    private int asyncPoolSize = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    /**
+     * Maximum execution time of one query, shared by its entity and aggregation statements. Requests may
+     * ask for a shorter deadline. Unset means no limit.
+     */
+    private Duration queryTimeout;
+
+    /**
+     * Whether concurrent executions of the same query share one in-flight execution and its result. Queries
+     * run inside a transaction are never shared, since they may see its uncommitted writes.
+     */
+    private boolean coalesceQueries;
+
+    /**
+     * Whether Postgres renders plain JSON list responses itself, so that their rows are never decoded on the
+     * application node.
+     */
+    private boolean databaseJson;
+
+    private final ResultCache resultCache = new ResultCache();
+
+    private final ParallelQueries parallelQueries = new ParallelQueries();
+
+    private final Scheduler scheduler = new Scheduler();
+
+    private final CostGuard costGuard = new CostGuard();
+
+    private final Replicas replicas = new Replicas();
+
+    private final ResultLimits resultLimits = new ResultLimits();
+
+    private final Scroll scroll = new Scroll();
+
+    public int getPlanCacheSize() {
+        return planCacheSize;
+    }
+
+    public void setPlanCacheSize(int planCacheSize) {
+        this.planCacheSize = planCacheSize;
+    }
+
+    public long getAutoCountThreshold() {
+        return autoCountThreshold;
+    }
+
+    public void setAutoCountThreshold(long autoCountThreshold) {
+        this.autoCountThreshold = autoCountThreshold;
+    }
+
+    public boolean isWindowAggregations() {
+        return windowAggregations;
+    }
+
+    public void setWindowAggregations(boolean windowAggregations) {
+        this.windowAggregations = windowAggregations;
+    }
+
+    public String getCursorSecret() {
+        return cursorSecret;
+    }
+
+    public void setCursorSecret(String cursorSecret) {
+        this.cursorSecret = cursorSecret;
+    }
+
+    public int getStreamFetchSize() {
+        return streamFetchSize;
+    }
+
+    public void setStreamFetchSize(int streamFetchSize) {
+        this.streamFetchSize = streamFetchSize;
+    }
+
+    public int getAsyncPoolSize() {
+        return asyncPoolSize;
+    }
+
+    public void setAsyncPoolSize(int asyncPoolSize) {
+        this.asyncPoolSize = asyncPoolSize;
+    }
+
+    public Duration getQueryTimeout() {
+        return queryTimeout;
+    }
+
+    public void setQueryTimeout(Duration queryTimeout) {
+        this.queryTimeout = queryTimeout;
+    }
+
+    public boolean isCoalesceQueries() {
+        return coalesceQueries;
+    }
+
+    public void setCoalesceQueries(boolean coalesceQueries) {
+        this.coalesceQueries = coalesceQueries;
+    }
+
+    public boolean isDatabaseJson() {
+        return databaseJson;
+    }
+
+    public void setDatabaseJson(boolean databaseJson) {
+        this.databaseJson = databaseJson;
+    }
+
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    public ParallelQueries getParallelQueries() {
+        return parallelQueries;
+    }
+
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+
+    public CostGuard getCostGuard() {
+        return costGuard;
+    }
+
+    public Replicas getReplicas() {
+        return replicas;
+    }
+
+    public ResultLimits getResultLimits() {
+        return resultLimits;
+    }
+
+    public Scroll getScroll() {
+        return scroll;
+    }
+
+    /**
+     * Query result cache settings.
+     */
+    public static class ResultCache {
+
+        /**
+         * Whether executed query results are cached. Queries run inside a transaction bypass the cache.
+         */
+        private boolean enabled;
+
+        /**
+         * Maximum number of cached results.
+         */
+        private long maximumSize = 10_000;
+
+        /**
+         * Time after which a cached result is dropped.
+         */
+        private Duration timeToLive = Duration.ofMinutes(1);
+
+        /**
+         * Age after which a cached result is served stale while it is refreshed in the background.
+         */
+        private Duration staleAfter;
+
+        /**
+         * Maximum number of background refreshes running at once; stale entries are served until a slot frees up.
+         */
+        private int refreshConcurrency = 4;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        public Duration getTimeToLive() {
+            return timeToLive;
+        }
+
+        public void setTimeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+
+        public Duration getStaleAfter() {
+            return staleAfter;
+        }
+
+        public void setStaleAfter(Duration staleAfter) {
+            this.staleAfter = staleAfter;
+        }
+
+        public int getRefreshConcurrency() {
+            return refreshConcurrency;
+        }
+
+        public void setRefreshConcurrency(int refreshConcurrency) {
+            this.refreshConcurrency = refreshConcurrency;
+        }
+    }
+
+    /**
+     * Settings for running entity and aggregation queries concurrently.
+     */
+    public static class ParallelQueries {
+
+        /**
+         * Whether the aggregation query runs concurrently with the entity query on a separate connection.
+         */
+        private boolean enabled;
+
+        /**
+         * Maximum number of aggregation queries running concurrently; further plans run sequentially.
+         */
+        private int maxConcurrency = 64;
+
+        /**
+         * Number of key ranges that unpaged reads and aggregations over large ranges are split into, each read
+         * concurrently within {@code max-concurrency}; {@code 0} never splits.
+         */
+        private int scanPartitions;
+
+        /**
+         * Estimated number of matching rows below which reads are not split; {@code 0} splits without estimating.
+         */
+        private long scanMinRows = 1_000_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        public void setMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        public int getScanPartitions() {
+            return scanPartitions;
+        }
+
+        public void setScanPartitions(int scanPartitions) {
+            this.scanPartitions = scanPartitions;
+        }
+
+        public long getScanMinRows() {
+            return scanMinRows;
+        }
+
+        public void setScanMinRows(long scanMinRows) {
+            this.scanMinRows = scanMinRows;
+        }
+    }
+
+    /**
+     * Admission control settings: per-lane and per-table concurrency caps with fair queuing by caller.
+     */
+    public static class Scheduler {
+
+        /**
+         * Whether queries pass through admission control before they are executed.
+         */
+        private boolean enabled;
+
+        /**
+         * Maximum number of interactive page queries running concurrently.
+         */
+        private int interactiveConcurrency = 32;
+
+        /**
+         * Maximum number of aggregation-only queries running concurrently.
+         */
+        private int aggregateConcurrency = 8;
+
+        /**
+         * Maximum number of streams and exports running concurrently.
+         */
+        private int exportConcurrency = 4;
+
+        /**
+         * Maximum number of queries running concurrently against one table, across all lanes.
+         */
+        private int tableConcurrency = 16;
+
+        /**
+         * Longest time a query may wait for admission before it is rejected.
+         */
+        private Duration maxQueueWait = Duration.ofSeconds(2);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getInteractiveConcurrency() {
+            return interactiveConcurrency;
+        }
+
+        public void setInteractiveConcurrency(int interactiveConcurrency) {
+            this.interactiveConcurrency = interactiveConcurrency;
+        }
+
+        public int getAggregateConcurrency() {
+            return aggregateConcurrency;
+        }
+
+        public void setAggregateConcurrency(int aggregateConcurrency) {
+            this.aggregateConcurrency = aggregateConcurrency;
+        }
+
+        public int getExportConcurrency() {
+            return exportConcurrency;
+        }
+
+        public void setExportConcurrency(int exportConcurrency) {
+            this.exportConcurrency = exportConcurrency;
+        }
+
+        public int getTableConcurrency() {
+            return tableConcurrency;
+        }
+
+        public void setTableConcurrency(int tableConcurrency) {
+            this.tableConcurrency = tableConcurrency;
+        }
+
+        public Duration getMaxQueueWait() {
+            return maxQueueWait;
+        }
+
+        public void setMaxQueueWait(Duration maxQueueWait) {
+            this.maxQueueWait = maxQueueWait;
+        }
+    }
+
+    /**
+     * Settings for rejecting queries whose {@code EXPLAIN} estimates exceed configured limits.
+     */
+    public static class CostGuard {
+
+        /**
+         * Whether plans are checked with {@code EXPLAIN} before they run.
+         */
+        private boolean enabled;
+
+        /**
+         * Default maximum planner cost; unset leaves cost unchecked.
+         */
+        private Double maxCost;
+
+        /**
+         * Default maximum number of rows the filters may match; unset leaves it unchecked.
+         */
+        private Double maxRows;
+
+        /**
+         * Per-table overrides keyed by {@code table} or {@code schema.table}.
+         */
+        private Map<String, TableLimits> tables = new LinkedHashMap<>();
+
+        /**
+         * Maximum number of cached estimates.
+         */
+        private long cacheSize = 10_000;
+
+        /**
+         * How long an estimate is reused before the plan shape is explained again.
+         */
+        private Duration cacheTtl = Duration.ofMinutes(10);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Double getMaxCost() {
+            return maxCost;
+        }
+
+        public void setMaxCost(Double maxCost) {
+            this.maxCost = maxCost;
+        }
+
+        public Double getMaxRows() {
+            return maxRows;
+        }
+
+        public void setMaxRows(Double maxRows) {
+            this.maxRows = maxRows;
+        }
+
+        public Map<String, TableLimits> getTables() {
+            return tables;
+        }
+
+        public void setTables(Map<String, TableLimits> tables) {
+            this.tables = tables;
+        }
+
+        public long getCacheSize() {
+            return cacheSize;
+        }
+
+        public void setCacheSize(long cacheSize) {
+            this.cacheSize = cacheSize;
+        }
+
+        public Duration getCacheTtl() {
+            return cacheTtl;
+        }
+
+        public void setCacheTtl(Duration cacheTtl) {
+            this.cacheTtl = cacheTtl;
+        }
+    }
+
+    /**
+     * Cost limits of one table.
+     */
+    public static class TableLimits {
+
+        /**
+         * Maximum planner cost; unset leaves cost unchecked.
+         */
+        private Double maxCost;
+
+        /**
+         * Maximum number of rows the filters may match; unset leaves it unchecked.
+         */
+        private Double maxRows;
+
+        public Double getMaxCost() {
+            return maxCost;
+        }
+
+        public void setMaxCost(Double maxCost) {
+            this.maxCost = maxCost;
+        }
+
+        public Double getMaxRows() {
+            return maxRows;
+        }
+
+        public void setMaxRows(Double maxRows) {
+            this.maxRows = maxRows;
+        }
+    }
+
+    /**
+     * Settings for routing read statements to read replicas.
+     */
+    public static class Replicas {
+
+        /**
+         * Whether statements are routed to the configured replicas.
+         */
+        private boolean enabled;
+
+        /**
+         * Statement kinds sent to replicas; entity pages stay on the primary by default.
+         */
+        private Set<StatementKind> routes =
+                EnumSet.of(StatementKind.COUNT, StatementKind.AGGREGATIONS, StatementKind.EXPORT);
+
+        /**
+         * How statements are spread over eligible replicas.
+         */
+        private ReplicaRouter.Balancing balancing = ReplicaRouter.Balancing.ROUND_ROBIN;
+
+        /**
+         * Maximum replication lag of a replica that still receives statements.
+         */
+        private Duration maxStaleness = Duration.ofSeconds(5);
+
+        /**
+         * How often each replica's lag is measured.
+         */
+        private Duration lagCheckInterval = Duration.ofSeconds(1);
+
+        /**
+         * Replica connections keyed by replica name.
+         */
+        private Map<String, ReplicaDataSource> datasources = new LinkedHashMap<>();
+
+        private final Hedging hedging = new Hedging();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Set<StatementKind> getRoutes() {
+            return routes;
+        }
+
+        public void setRoutes(Set<StatementKind> routes) {
+            this.routes = routes;
+        }
+
+        public ReplicaRouter.Balancing getBalancing() {
+            return balancing;
+        }
+
+        public void setBalancing(ReplicaRouter.Balancing balancing) {
+            this.balancing = balancing;
+        }
+
+        public Duration getMaxStaleness() {
+            return maxStaleness;
+        }
+
+        public void setMaxStaleness(Duration maxStaleness) {
+            this.maxStaleness = maxStaleness;
+        }
+
+        public Duration getLagCheckInterval() {
+            return lagCheckInterval;
+        }
+
+        public void setLagCheckInterval(Duration lagCheckInterval) {
+            this.lagCheckInterval = lagCheckInterval;
+        }
+
+        public Map<String, ReplicaDataSource> getDatasources() {
+            return datasources;
+        }
+
+        public void setDatasources(Map<String, ReplicaDataSource> datasources) {
+            this.datasources = datasources;
+        }
+
+        public Hedging getHedging() {
+            return hedging;
+        }
+    }
+
+    /**
+     * Settings for re-sending slow replica statements to a second replica.
+     */
+    public static class Hedging {
+
+        /**
+         * Whether slow replica statements are hedged.
+         */
+        private boolean enabled;
+
+        /**
+         * Latency percentile of the same kind of statement on the same table after which a statement is hedged.
+         */
+        private double percentile = 0.95;
+
+        /**
+         * Shortest delay before a statement is hedged.
+         */
+        private Duration minDelay = Duration.ofMillis(5);
+
+        /**
+         * Number of recorded latencies needed before statements on a table are hedged.
+         */
+        private int minSamples = 50;
+
+        /**
+         * Maximum share of replica statements that may be hedged.
+         */
+        private double maxHedgeRatio = 0.05;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public void setPercentile(double percentile) {
+            this.percentile = percentile;
+        }
+
+        public Duration getMinDelay() {
+            return minDelay;
+        }
+
+        public void setMinDelay(Duration minDelay) {
+            this.minDelay = minDelay;
+        }
+
+        public int getMinSamples() {
+            return minSamples;
+        }
+
+        public void setMinSamples(int minSamples) {
+            this.minSamples = minSamples;
+        }
+
+        public double getMaxHedgeRatio() {
+            return maxHedgeRatio;
+        }
+
+        public void setMaxHedgeRatio(double maxHedgeRatio) {
+            this.maxHedgeRatio = maxHedgeRatio;
+        }
+    }
+
+    /**
+     * JDBC connection settings of one replica.
+     */
+    public static class ReplicaDataSource {
+
+        /**
+         * JDBC URL of the replica.
+         */
+        private String url;
+
+        /**
+         * Login username of the replica.
+         */
+        private String username;
+
+        /**
+         * Login password of the replica.
+         */
+        private String password;
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+    }
+
+    /**
+     * Server-side scrolls: open database cursors read page by page over several requests.
+     */
+    public static class Scroll {
+
+        /**
+         * Whether clients may open scrolls.
+         */
+        private boolean enabled;
+
+        /**
+         * Maximum number of scrolls open at once; each pins a pooled connection until it is closed.
+         */
+        private int maxOpen = 16;
+
+        /**
+         * Time after the last page read at which a scroll is closed and its connection released.
+         */
+        private Duration idleTimeout = Duration.ofMinutes(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxOpen() {
+            return maxOpen;
+        }
+
+        public void setMaxOpen(int maxOpen) {
+            this.maxOpen = maxOpen;
+        }
+
+        public Duration getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        public void setIdleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+        }
+    }
+
+    /**
+     * Bounds on the size of entity pages loaded into memory. All bounds are opt-in, since lowering the page
+     * size a client asked for, or truncating its page, changes the rows it receives.
+     */
+    public static class ResultLimits extends PageLimits {
+
+        /**
+         * Per-table overrides keyed by {@code table} or {@code schema.table}; unset bounds fall back to the
+         * global ones.
+         */
+        private Map<String, PageLimits> tables = new LinkedHashMap<>();
+
+        public Map<String, PageLimits> getTables() {
+            return tables;
+        }
+
+        public void setTables(Map<String, PageLimits> tables) {
+            this.tables = tables;
+        }
+    }
+
+    /**
+     * Page size and memory bounds of one table or of all tables.
+     */
+    public static class PageLimits {
+
+        /**
+         * Page size used when a query does not set one; unset by default, so such queries read every row.
+         */
+        private Integer defaultPageSize;
+
+        /**
+         * Largest page size a query may request; larger page sizes are lowered to it. Unset by default.
+         */
+        private Integer maxPageSize;
+
+        /**
+         * Estimated in-memory size of a page after which reading stops and the page is marked as truncated.
+         * Unset by default; per-table entries fall back to the global value.
+         */
+        private DataSize maxPageBytes;
+
+        public Integer getDefaultPageSize() {
+            return defaultPageSize;
+        }
+
+        public void setDefaultPageSize(Integer defaultPageSize) {
+            this.defaultPageSize = defaultPageSize;
+        }
+
+        public Integer getMaxPageSize() {
+            return maxPageSize;
+        }
+
+        public void setMaxPageSize(Integer maxPageSize) {
+            this.maxPageSize = maxPageSize;
+        }
+
+        public DataSize getMaxPageBytes() {
+            return maxPageBytes;
+        }
+
+        public void setMaxPageBytes(DataSize maxPageBytes) {
+            this.maxPageBytes = maxPageBytes;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.viewton.jooq.executor;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Executor for plan sub-queries that runs at most {@code maxConcurrency} tasks at once.
+ * <p>
+ * Tasks run on virtual threads when the runtime provides them (Java 21+) and on daemon platform threads
+ * otherwise. Tasks are never queued: when every permit is taken, {@link #execute(Runnable)} rejects the
+ * task so the caller runs the work on its own thread instead.
+ */
+public final class BoundedVirtualThreadExecutor implements Executor, AutoCloseable {
+    private final ExecutorService delegate;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+
+    public BoundedVirtualThreadExecutor(int maxConcurrency) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        this.delegate = newThreadPerTaskExecutor();
+        this.permits = new Semaphore(maxConcurrency);
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        Objects.requireNonNull(task, "task");
+        if (!permits.tryAcquire()) {
+            throw new RejectedExecutionException("All " + maxConcurrency + " sub-query slots are busy");
+        }
+        try {
+            delegate.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException rejected) {
+            permits.release();
+            throw rejected;
+        }
+    }
+
+    @Override
+    public void close() {
+        delegate.shutdownNow();
+    }
+
+    private static ExecutorService newThreadPerTaskExecutor() {
+        ExecutorService virtualThreads = QueryExecutors.newVirtualThreadPerTaskExecutor();
+        if (virtualThreads != null) {
+            return virtualThreads;
+        }
+        return Executors.newCachedThreadPool(QueryExecutors.daemonThreads("viewton-sub-query-"));
+    }
+}
@@ -0,0 +1,369 @@
+package com.viewton.jooq.executor;
+
+import org.jooq.Configuration;
+import org.jooq.DSLContext;
+import org.jooq.ExecuteContext;
+import org.jooq.ExecuteListener;
+import org.jooq.Query;
+import org.jooq.Record;
+import org.jooq.Result;
+import org.jooq.ResultQuery;
+import org.jooq.Table;
+import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Tracks the statements of one plan execution so that all of them can be cancelled together.
+ * <p>
+ * A scope may carry a deadline shared by all of its statements: each statement gets the time that is left
+ * when it starts as its JDBC query timeout, and no statement starts once the deadline has passed.
+ * <p>
+ * With a {@link ReplicaRouter}, each statement is attached to the replica chosen for its kind just before it
+ * runs, so the statements of one plan may run on different replicas. With a {@link HedgingPolicy} as well, a
+ * replica statement that is slower than usual is sent to a second replica, or to the primary when no other
+ * replica is eligible; the first result wins and the other statement is cancelled. Statements that run on the
+ * primary are never hedged: they may belong to the caller's transaction, which a copy sent from another
+ * thread would not see.
+ */
+final class CancellationScope {
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final Set<Query> running = ConcurrentHashMap.newKeySet();
+    private final Set<CompletableFuture<?>> waiting = ConcurrentHashMap.newKeySet();
+    private final long deadlineNanos;
+    private final ReplicaRouter router;
+    private final HedgingPolicy hedging;
+    private final Executor hedgeExecutor;
+    private volatile boolean cancelled;
+
+    /**
+     * @param timeout       time budget of the whole execution, or {@code null} for none
+     * @param router        router choosing a replica per statement, or {@code null} to run everything on the
+     *                      primary
+     * @param hedging       policy for hedging replica statements, or {@code null} for none
+     * @param hedgeExecutor executor running hedged statements
+     */
+    CancellationScope(Duration timeout, ReplicaRouter router, HedgingPolicy hedging, Executor hedgeExecutor) {
+        this.deadlineNanos = timeout == null ? NO_DEADLINE : System.nanoTime() + timeout.toNanos();
+        this.router = router;
+        this.hedging = hedging;
+        this.hedgeExecutor = hedgeExecutor;
+    }
+
+    /**
+     * Runs {@code query}, on a replica when the router takes statements of this kind.
+     *
+     * @param table table the statement reads; statements are hedged based on the latencies of the same kind
+     *              of statement on the same table
+     * @param copy  builds an equal statement for a hedged second attempt
+     */
+    <R extends Record> Result<R> fetch(
+            StatementKind kind,
+            Table<?> table,
+            ResultQuery<R> query,
+            Supplier<? extends ResultQuery<R>> copy
+    ) {
+        return fetch(kind, table, query, copy, ResultQuery::fetch);
+    }
+
+    /**
+     * Variant of {@link #fetch(StatementKind, Table, ResultQuery, Supplier)} that reads the statement's rows
+     * with {@code read}, e.g. through a cursor that stops early.
+     */
+    <R extends Record, T> T fetch(
+            StatementKind kind,
+            Table<?> table,
+            ResultQuery<R> query,
+            Supplier<? extends ResultQuery<R>> copy,
+            Function<? super ResultQuery<R>, T> read
+    ) {
+        ReplicaRouter.Lease replica = router == null ? null : router.acquire(kind);
+        if (replica == null || hedging == null) {
+            return fetch(replica, query, read);
+        }
+        String latencyKey = kind + ":" + table.getName();
+        long hedgeDelayNanos = hedging.hedgeDelayNanos(latencyKey);
+        if (hedgeDelayNanos < 0) {
+            long started = System.nanoTime();
+            T result = fetch(replica, query, read);
+            hedging.recordLatency(latencyKey, System.nanoTime() - started);
+            return result;
+        }
+        return new HedgedFetch<>(latencyKey, replica, query, copy, read).run(hedgeDelayNanos);
+    }
+
+    /**
+     * Runs {@code query} within {@code configuration}, such as a transaction the caller holds open, without
+     * routing or hedging it. The deadline and cancellation apply as for any other statement.
+     */
+    <R extends Record, T> T fetchIn(
+            Configuration configuration,
+            ResultQuery<R> query,
+            Function<? super ResultQuery<R>, T> read
+    ) {
+        query.attach(configuration);
+        return fetch(null, query, read);
+    }
+
+    /**
+     * Runs statements that jOOQ builds itself, such as {@code EXPLAIN}, on a replica when the router takes
+     * statements of this kind and on {@code primary} otherwise. {@code statements} gets a context whose
+     * statements run with the remaining time as their query timeout and are cancelled with the scope; they
+     * are not hedged.
+     */
+    <T> T run(StatementKind kind, DSLContext primary, Function<? super DSLContext, T> statements) {
+        ReplicaRouter.Lease replica = router == null ? null : router.acquire(kind);
+        try {
+            checkActive();
+            Configuration source = (replica == null ? primary : replica.dslContext()).configuration();
+            Configuration configuration = source.deriveAppending(new ExecuteListener() {
+                @Override
+                public void executeStart(ExecuteContext ctx) {
+                    if (ctx.query() != null) {
+                        running.add(ctx.query());
+                    }
+                    checkActive();
+                    if (deadlineNanos != NO_DEADLINE && ctx.statement() != null) {
+                        try {
+                            ctx.statement().setQueryTimeout(remainingSeconds());
+                        } catch (SQLException e) {
+                            throw new DataAccessException("Cannot set the query timeout", e);
+                        }
+                    }
+                }
+
+                @Override
+                public void end(ExecuteContext ctx) {
+                    if (ctx.query() != null) {
+                        running.remove(ctx.query());
+                    }
+                }
+            });
+            return statements.apply(DSL.using(configuration));
+        } catch (DataAccessException e) {
+            if (deadlineNanos != NO_DEADLINE && System.nanoTime() - deadlineNanos >= 0) {
+                throw new QueryTimeoutException("Query exceeded its deadline", e);
+            }
+            throw e;
+        } finally {
+            if (replica != null) {
+                replica.close();
+            }
+        }
+    }
+
+    /**
+     * Fails when the scope was cancelled or its deadline passed. Called between rows of a long read, whose
+     * JDBC query timeout only covers the time until the first rows arrive.
+     *
+     * @throws CancellationException when the scope was cancelled
+     * @throws QueryTimeoutException when the deadline passed
+     */
+    void checkActive() {
+        if (cancelled) {
+            throw new CancellationException("Query execution was cancelled");
+        }
+        if (deadlineNanos != NO_DEADLINE && System.nanoTime() - deadlineNanos >= 0) {
+            throw new QueryTimeoutException("Query exceeded its deadline");
+        }
+    }
+
+    private <R extends Record, T> T fetch(
+            ReplicaRouter.Lease replica,
+            ResultQuery<R> query,
+            Function<? super ResultQuery<R>, T> read
+    ) {
+        if (replica != null) {
+            query.attach(replica.dslContext().configuration());
+        }
+        running.add(query);
+        try {
+            // Checked after registering, so a concurrent cancel() either sees the query or is seen here.
+            if (cancelled) {
+                throw new CancellationException("Query execution was cancelled");
+            }
+            if (deadlineNanos != NO_DEADLINE) {
+                query.queryTimeout(remainingSeconds());
+            }
+            return read.apply(query);
+        } catch (DataAccessException e) {
+            if (deadlineNanos != NO_DEADLINE && System.nanoTime() - deadlineNanos >= 0) {
+                throw new QueryTimeoutException("Query exceeded its deadline", e);
+            }
+            throw e;
+        } finally {
+            running.remove(query);
+            if (replica != null) {
+                replica.close();
+            }
+        }
+    }
+
+    /**
+     * Waits for a result computed outside this scope, such as another caller's execution of the same plan.
+     * Cancelling this scope or passing its deadline stops the wait but leaves {@code shared} running.
+     */
+    <T> T await(CompletableFuture<T> shared) {
+        CompletableFuture<T> own = shared.copy();
+        waiting.add(own);
+        try {
+            if (cancelled) {
+                throw new CancellationException("Query execution was cancelled");
+            }
+            if (deadlineNanos == NO_DEADLINE) {
+                return own.join();
+            }
+            return own.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new QueryTimeoutException("Query exceeded its deadline");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for a shared execution");
+        } catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
+        } finally {
+            waiting.remove(own);
+        }
+    }
+
+    /**
+     * Cancels running statements through JDBC and prevents further statements from starting.
+     */
+    void cancel() {
+        cancelled = true;
+        for (Query query : running) {
+            query.cancel();
+        }
+        for (CompletableFuture<?> future : waiting) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Races a replica statement against a copy started after the hedge delay. The caller's thread runs the
+     * original statement; the copy runs on the hedge executor.
+     */
+    private final class HedgedFetch<R extends Record, T> {
+        private final String latencyKey;
+        private final ReplicaRouter.Lease replica;
+        private final ResultQuery<R> original;
+        private final Supplier<? extends ResultQuery<R>> copy;
+        private final Function<? super ResultQuery<R>, T> read;
+        private final CompletableFuture<T> winner = new CompletableFuture<>();
+        private ResultQuery<R> hedge;
+        private boolean hedgeRunning;
+        private RuntimeException originalFailure;
+
+        private HedgedFetch(
+                String latencyKey,
+                ReplicaRouter.Lease replica,
+                ResultQuery<R> original,
+                Supplier<? extends ResultQuery<R>> copy,
+                Function<? super ResultQuery<R>, T> read
+        ) {
+            this.latencyKey = latencyKey;
+            this.replica = replica;
+            this.original = original;
+            this.copy = copy;
+            this.read = read;
+        }
+
+        T run(long hedgeDelayNanos) {
+            CompletableFuture.delayedExecutor(hedgeDelayNanos, TimeUnit.NANOSECONDS, hedgeExecutor)
+                    .execute(this::hedge);
+            long started = System.nanoTime();
+            try {
+                T result = fetch(replica, original, read);
+                hedging.recordLatency(latencyKey, System.nanoTime() - started);
+                if (winner.complete(result)) {
+                    ResultQuery<R> running;
+                    synchronized (this) {
+                        running = hedge;
+                    }
+                    if (running != null) {
+                        running.cancel();
+                    }
+                }
+                return winner.join();
+            } catch (RuntimeException failure) {
+                synchronized (this) {
+                    originalFailure = failure;
+                    if (!hedgeRunning) {
+                        winner.completeExceptionally(failure);
+                    }
+                }
+                try {
+                    // Either the hedge won and cancelled this statement, or the hedge is still running.
+                    return winner.join();
+                } catch (CompletionException | CancellationException hedgeFailure) {
+                    throw failure;
+                }
+            }
+        }
+
+        private void hedge() {
+            synchronized (this) {
+                if (cancelled || winner.isDone() || originalFailure != null || !hedging.tryHedge()) {
+                    return;
+                }
+                hedgeRunning = true;
+            }
+            ReplicaRouter.Lease other = null;
+            try {
+                ResultQuery<R> query = copy.get();
+                synchronized (this) {
+                    // Published under the lock that the original's completion is checked with, so a result
+                    // that arrives from here on sees the hedge and cancels it.
+                    if (winner.isDone()) {
+                        hedgeRunning = false;
+                        return;
+                    }
+                    hedge = query;
+                }
+                other = router.acquireOther(replica);
+                long started = System.nanoTime();
+                T result = fetch(other, query, read);
+                hedging.recordLatency(latencyKey, System.nanoTime() - started);
+                if (winner.complete(result)) {
+                    hedging.recordHedgeWin();
+                    original.cancel();
+                }
+            } catch (RuntimeException failure) {
+                synchronized (this) {
+                    hedgeRunning = false;
+                    if (originalFailure != null) {
+                        winner.completeExceptionally(originalFailure);
+                    }
+                }
+            } finally {
+                if (other != null) {
+                    other.close();
+                }
+            }
+        }
+    }
+
+    private int remainingSeconds() {
+        long remaining = deadlineNanos - System.nanoTime();
+        if (remaining <= 0) {
+            throw new QueryTimeoutException("Query exceeded its deadline");
+        }
+        // JDBC timeouts have second granularity; round up so a short budget still runs.
+        long seconds = (remaining + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+        return (int) Math.min(seconds, Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,134 @@
+package com.viewton.jooq.executor;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Encodes keyset positions into opaque, HMAC-signed cursor tokens.
+ * <p>
+ * Tokens are stateless: every node configured with the same secret can verify and continue them. A token
+ * carries the seek values of the last returned row and is bound to the entity and sort order it was issued
+ * for, so it cannot be replayed against a different query shape.
+ */
+public final class CursorCodec {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int VERSION = 1;
+    private static final int MIN_SECRET_LENGTH = 16;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    private static final CursorCodec PROCESS_LOCAL = new CursorCodec(randomSecret());
+
+    private final SecretKeySpec key;
+
+    public CursorCodec(byte[] secret) {
+        Objects.requireNonNull(secret, "secret");
+        if (secret.length < MIN_SECRET_LENGTH) {
+            throw new IllegalArgumentException("Cursor secret must be at least " + MIN_SECRET_LENGTH + " bytes");
+        }
+        this.key = new SecretKeySpec(secret.clone(), ALGORITHM);
+    }
+
+    public static CursorCodec fromSecret(String secret) {
+        Objects.requireNonNull(secret, "secret");
+        return new CursorCodec(secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Codec with a random secret; its tokens are only valid within the current process.
+     */
+    public static CursorCodec processLocal() {
+        return PROCESS_LOCAL;
+    }
+
+    String encode(String scope, List<String> values) {
+        Objects.requireNonNull(scope, "scope");
+        Objects.requireNonNull(values, "values");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeUTF(scope);
+            out.writeShort(values.size());
+            for (String value : values) {
+                out.writeBoolean(value != null);
+                if (value != null) {
+                    out.writeUTF(value);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] payload = bytes.toByteArray();
+        return ENCODER.encodeToString(payload) + "." + ENCODER.encodeToString(sign(payload));
+    }
+
+    /**
+     * Verifies the token and returns its seek values.
+     *
+     * @throws IllegalArgumentException when the token is malformed, tampered with or issued for another scope
+     */
+    List<String> decode(String token, String scope) {
+        Objects.requireNonNull(token, "token");
+        Objects.requireNonNull(scope, "scope");
+        int separator = token.indexOf('.');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        byte[] payload;
+        byte[] signature;
+        try {
+            payload = DECODER.decode(token.substring(0, separator));
+            signature = DECODER.decode(token.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+        if (!MessageDigest.isEqual(sign(payload), signature)) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            if (in.readByte() != VERSION) {
+                throw new IllegalArgumentException("Unsupported cursor version");
+            }
+            if (!scope.equals(in.readUTF())) {
+                throw new IllegalArgumentException("Cursor was issued for a different query");
+            }
+            int size = in.readUnsignedShort();
+            List<String> values = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                values.add(in.readBoolean() ? in.readUTF() : null);
+            }
+            return values;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    private byte[] sign(byte[] payload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+
+    private static byte[] randomSecret() {
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        return secret;
+    }
+}
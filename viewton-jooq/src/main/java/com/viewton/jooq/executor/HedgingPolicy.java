@@ -0,0 +1,202 @@
+package com.viewton.jooq.executor;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides when a statement running on a read replica is sent a second time to another replica.
+ * <p>
+ * A statement is hedged once it has run longer than a percentile of the recent latencies of statements of
+ * the same kind on the same table, and only while the hedge budget allows it: every statement earns
+ * {@code maxHedgeRatio} of a hedge, and a hedge spends one, so hedges stay below that share of the traffic
+ * even when a replica slows down for everyone.
+ */
+public final class HedgingPolicy {
+    private static final double MAX_BUDGET = 10;
+
+    private final double percentile;
+    private final long minDelayNanos;
+    private final int minSamples;
+    private final int sampleWindow;
+    private final double maxHedgeRatio;
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+    private final AtomicLong statements = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private double budget;
+
+    private HedgingPolicy(Builder builder) {
+        this.percentile = builder.percentile;
+        this.minDelayNanos = builder.minDelay.toNanos();
+        this.minSamples = builder.minSamples;
+        this.sampleWindow = builder.sampleWindow;
+        this.maxHedgeRatio = builder.maxHedgeRatio;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Snapshot of how many statements were eligible, hedged, and won by their hedge.
+     */
+    public Stats stats() {
+        return new Stats(statements.get(), hedges.get(), hedgeWins.get());
+    }
+
+    /**
+     * Counts a statement towards the budget and returns how long to wait before hedging it, or {@code -1}
+     * while there are too few samples to know what is slow.
+     */
+    long hedgeDelayNanos(String key) {
+        statements.incrementAndGet();
+        synchronized (this) {
+            budget = Math.min(MAX_BUDGET, budget + maxHedgeRatio);
+        }
+        LatencyWindow window = latencies.get(key);
+        long threshold = window == null ? -1 : window.percentile(percentile, minSamples);
+        return threshold < 0 ? -1 : Math.max(threshold, minDelayNanos);
+    }
+
+    /**
+     * Takes one hedge from the budget, or returns {@code false} when the budget is spent.
+     */
+    boolean tryHedge() {
+        synchronized (this) {
+            if (budget < 1) {
+                return false;
+            }
+            budget--;
+        }
+        hedges.incrementAndGet();
+        return true;
+    }
+
+    void recordLatency(String key, long nanos) {
+        latencies.computeIfAbsent(key, ignored -> new LatencyWindow(sampleWindow)).add(nanos);
+    }
+
+    void recordHedgeWin() {
+        hedgeWins.incrementAndGet();
+    }
+
+    /**
+     * @param statements statements that ran on a replica with hedging enabled
+     * @param hedges     statements that were sent to a second target
+     * @param hedgeWins  hedges that answered before the original statement
+     */
+    public record Stats(long statements, long hedges, long hedgeWins) {
+    }
+
+    /**
+     * Ring buffer of the most recent latencies; the percentile is recomputed every few samples.
+     */
+    private static final class LatencyWindow {
+        private static final int RESORT_INTERVAL = 16;
+
+        private final long[] samples;
+        private int size;
+        private int next;
+        private int sinceSort = RESORT_INTERVAL;
+        private long cachedPercentile = -1;
+
+        private LatencyWindow(int capacity) {
+            this.samples = new long[capacity];
+        }
+
+        synchronized void add(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            size = Math.min(size + 1, samples.length);
+            sinceSort++;
+        }
+
+        synchronized long percentile(double percentile, int minSamples) {
+            if (size < minSamples) {
+                return -1;
+            }
+            if (sinceSort >= RESORT_INTERVAL) {
+                long[] sorted = Arrays.copyOf(samples, size);
+                Arrays.sort(sorted);
+                cachedPercentile = sorted[Math.min(size - 1, (int) Math.ceil(percentile * size) - 1)];
+                sinceSort = 0;
+            }
+            return cachedPercentile;
+        }
+    }
+
+    public static final class Builder {
+        private double percentile = 0.95;
+        private Duration minDelay = Duration.ofMillis(5);
+        private int minSamples = 50;
+        private int sampleWindow = 512;
+        private double maxHedgeRatio = 0.05;
+
+        /**
+         * Latency percentile after which a statement is hedged, between 0 (exclusive) and 1 (inclusive).
+         */
+        public Builder percentile(double percentile) {
+            if (!(percentile > 0 && percentile <= 1)) {
+                throw new IllegalArgumentException("percentile must be in (0, 1]");
+            }
+            this.percentile = percentile;
+            return this;
+        }
+
+        /**
+         * Lower bound of the hedge delay, so that fast tables are not hedged on noise.
+         */
+        public Builder minDelay(Duration minDelay) {
+            Objects.requireNonNull(minDelay, "minDelay");
+            if (minDelay.isNegative()) {
+                throw new IllegalArgumentException("minDelay must not be negative");
+            }
+            this.minDelay = minDelay;
+            return this;
+        }
+
+        /**
+         * Number of latencies recorded for a statement kind and table before it is hedged.
+         */
+        public Builder minSamples(int minSamples) {
+            if (minSamples <= 0) {
+                throw new IllegalArgumentException("minSamples must be positive");
+            }
+            this.minSamples = minSamples;
+            return this;
+        }
+
+        /**
+         * Number of recent latencies the percentile is computed over.
+         */
+        public Builder sampleWindow(int sampleWindow) {
+            if (sampleWindow <= 0) {
+                throw new IllegalArgumentException("sampleWindow must be positive");
+            }
+            this.sampleWindow = sampleWindow;
+            return this;
+        }
+
+        /**
+         * Maximum share of statements that may be hedged, e.g. {@code 0.05} for 5 %.
+         */
+        public Builder maxHedgeRatio(double maxHedgeRatio) {
+            if (!(maxHedgeRatio >= 0 && maxHedgeRatio <= 1)) {
+                throw new IllegalArgumentException("maxHedgeRatio must be in [0, 1]");
+            }
+            this.maxHedgeRatio = maxHedgeRatio;
+            return this;
+        }
+
+        public HedgingPolicy build() {
+            if (minSamples > sampleWindow) {
+                throw new IllegalArgumentException("minSamples must not exceed sampleWindow");
+            }
+            return new HedgingPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.viewton.jooq.executor;
+
+import com.viewton.jooq.cache.QueryResultCache;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+/**
+ * Optional collaborators and tuning knobs for {@link JooqQueryExecutor}.
+ */
+public final class JooqExecutorOptions {
+    private static final JooqExecutorOptions DEFAULTS = builder().build();
+
+    private final QueryResultCache resultCache;
+    private final long autoCountThreshold;
+    private final boolean windowAggregations;
+    private final Executor parallelExecutor;
+    private final int parallelScanPartitions;
+    private final long parallelScanMinRows;
+    private final CursorCodec cursorCodec;
+    private final int streamFetchSize;
+    private final Executor asyncExecutor;
+    private final Duration queryTimeout;
+    private final boolean coalesceQueries;
+    private final QueryCostGuard costGuard;
+    private final ReplicaRouter replicaRouter;
+    private final HedgingPolicy hedgingPolicy;
+    private final ResultSizeLimits resultSizeLimits;
+    private final boolean databaseJson;
+
+    private JooqExecutorOptions(Builder builder) {
+        this.resultCache = builder.resultCache;
+        this.autoCountThreshold = builder.autoCountThreshold;
+        this.windowAggregations = builder.windowAggregations;
+        this.parallelExecutor = builder.parallelExecutor;
+        this.parallelScanPartitions = builder.parallelScanPartitions;
+        this.parallelScanMinRows = builder.parallelScanMinRows;
+        this.cursorCodec = builder.cursorCodec;
+        this.streamFetchSize = builder.streamFetchSize;
+        this.asyncExecutor = builder.asyncExecutor;
+        this.queryTimeout = builder.queryTimeout;
+        this.coalesceQueries = builder.coalesceQueries;
+        this.costGuard = builder.costGuard;
+        this.replicaRouter = builder.replicaRouter;
+        this.hedgingPolicy = builder.hedgingPolicy;
+        this.resultSizeLimits = builder.resultSizeLimits;
+        this.databaseJson = builder.databaseJson;
+    }
+
+    public static JooqExecutorOptions defaults() {
+        return DEFAULTS;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Result cache consulted before executing a plan, or {@code null} when caching is disabled.
+     */
+    public QueryResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Estimated row count below which {@code AUTO} count strategy runs an exact count instead.
+     */
+    public long getAutoCountThreshold() {
+        return autoCountThreshold;
+    }
+
+    /**
+     * Whether entities and exact aggregations are fetched in one statement using window functions. Off by
+     * default: the window has to visit every filtered row before the page is cut, which saves a round trip
+     * on small result sets but can cost far more than a separate count on large ones.
+     */
+    public boolean isWindowAggregations() {
+        return windowAggregations;
+    }
+
+    /**
+     * Executor that runs the aggregation query concurrently with the entity query, or {@code null} to run
+     * them sequentially. The two queries use separate connections, so they do not share a surrounding
+     * transaction.
+     */
+    public Executor getParallelExecutor() {
+        return parallelExecutor;
+    }
+
+    /**
+     * Number of key ranges a large read is split into, each read on its own connection through
+     * {@link #getParallelExecutor()}; below {@code 2} reads are never split. Reads qualify when they return
+     * every matching row, either aggregations or entities without a page size, and filter a numeric or
+     * date/time column with {@code BETWEEN} or have such a single-column primary key.
+     */
+    public int getParallelScanPartitions() {
+        return parallelScanPartitions;
+    }
+
+    /**
+     * Estimated row count below which reads are not split into key ranges; zero splits without estimating.
+     */
+    public long getParallelScanMinRows() {
+        return parallelScanMinRows;
+    }
+
+    /**
+     * Signs and verifies cursor tokens; nodes that continue each other's scrolls need the same secret. There is
+     * no default: cursor pagination fails until a codec is configured.
+     */
+    public CursorCodec getCursorCodec() {
+        return cursorCodec;
+    }
+
+    /**
+     * JDBC fetch size used when streaming rows; {@code 0} leaves the driver default.
+     */
+    public int getStreamFetchSize() {
+        return streamFetchSize;
+    }
+
+    /**
+     * Executor that runs {@link JooqQueryExecutor#executeAsync} calls. Defaults to a shared executor on
+     * virtual threads (Java 21+) or a bounded daemon pool.
+     */
+    public Executor getAsyncExecutor() {
+        return asyncExecutor == null ? QueryExecutors.sharedAsyncExecutor() : asyncExecutor;
+    }
+
+    /**
+     * Upper bound on the execution time of one plan, or {@code null} for none. Callers may ask for a shorter
+     * deadline but not a longer one.
+     */
+    public Duration getQueryTimeout() {
+        return queryTimeout;
+    }
+
+    /**
+     * Whether concurrent executions of equal plans share a single in-flight execution. Off by default;
+     * executions whose connection is inside a transaction never share one.
+     */
+    public boolean isCoalesceQueries() {
+        return coalesceQueries;
+    }
+
+    /**
+     * Guard that rejects plans whose {@code EXPLAIN} estimates exceed per-table limits, or {@code null} to run
+     * every plan unchecked.
+     */
+    public QueryCostGuard getCostGuard() {
+        return costGuard;
+    }
+
+    /**
+     * Router sending counts, aggregations and exports to read replicas, or {@code null} to run every
+     * statement on the executor's own {@code DSLContext}.
+     */
+    public ReplicaRouter getReplicaRouter() {
+        return replicaRouter;
+    }
+
+    /**
+     * Policy for re-sending slow replica statements to a second target, or {@code null} to never hedge.
+     * Only statements routed to a replica by {@link #getReplicaRouter()} are hedged.
+     */
+    public HedgingPolicy getHedgingPolicy() {
+        return hedgingPolicy;
+    }
+
+    /**
+     * Page size and byte limits of entity queries, or {@code null} to load pages without bounds.
+     */
+    public ResultSizeLimits getResultSizeLimits() {
+        return resultSizeLimits;
+    }
+
+    /**
+     * Whether {@link JooqQueryExecutor#executeJsonAsync} may have Postgres render plain pages as JSON documents.
+     */
+    public boolean isDatabaseJson() {
+        return databaseJson;
+    }
+
+    public static final class Builder {
+        private QueryResultCache resultCache;
+        private long autoCountThreshold = 100_000;
+        private boolean windowAggregations;
+        private Executor parallelExecutor;
+        private int parallelScanPartitions;
+        private long parallelScanMinRows = 1_000_000;
+        private CursorCodec cursorCodec;
+        private int streamFetchSize = 1000;
+        private Executor asyncExecutor;
+        private Duration queryTimeout;
+        private boolean coalesceQueries;
+        private QueryCostGuard costGuard;
+        private ReplicaRouter replicaRouter;
+        private HedgingPolicy hedgingPolicy;
+        private ResultSizeLimits resultSizeLimits;
+        private boolean databaseJson;
+
+        public Builder resultCache(QueryResultCache resultCache) {
+            this.resultCache = resultCache;
+            return this;
+        }
+
+        public Builder autoCountThreshold(long autoCountThreshold) {
+            if (autoCountThreshold < 0) {
+                throw new IllegalArgumentException("autoCountThreshold must not be negative");
+            }
+            this.autoCountThreshold = autoCountThreshold;
+            return this;
+        }
+
+        public Builder windowAggregations(boolean windowAggregations) {
+            this.windowAggregations = windowAggregations;
+            return this;
+        }
+
+        public Builder parallelExecutor(Executor parallelExecutor) {
+            this.parallelExecutor = parallelExecutor;
+            return this;
+        }
+
+        public Builder parallelScanPartitions(int parallelScanPartitions) {
+            if (parallelScanPartitions < 0) {
+                throw new IllegalArgumentException("parallelScanPartitions must not be negative");
+            }
+            this.parallelScanPartitions = parallelScanPartitions;
+            return this;
+        }
+
+        public Builder parallelScanMinRows(long parallelScanMinRows) {
+            if (parallelScanMinRows < 0) {
+                throw new IllegalArgumentException("parallelScanMinRows must not be negative");
+            }
+            this.parallelScanMinRows = parallelScanMinRows;
+            return this;
+        }
+
+        public Builder cursorCodec(CursorCodec cursorCodec) {
+            this.cursorCodec = Objects.requireNonNull(cursorCodec, "cursorCodec");
+            return this;
+        }
+
+        public Builder streamFetchSize(int streamFetchSize) {
+            if (streamFetchSize < 0) {
+                throw new IllegalArgumentException("streamFetchSize must not be negative");
+            }
+            this.streamFetchSize = streamFetchSize;
+            return this;
+        }
+
+        public Builder asyncExecutor(Executor asyncExecutor) {
+            this.asyncExecutor = asyncExecutor;
+            return this;
+        }
+
+        public Builder queryTimeout(Duration queryTimeout) {
+            if (queryTimeout != null && (queryTimeout.isZero() || queryTimeout.isNegative())) {
+                throw new IllegalArgumentException("queryTimeout must be positive");
+            }
+            this.queryTimeout = queryTimeout;
+            return this;
+        }
+
+        public Builder coalesceQueries(boolean coalesceQueries) {
+            this.coalesceQueries = coalesceQueries;
+            return this;
+        }
+
+        public Builder costGuard(QueryCostGuard costGuard) {
+            this.costGuard = costGuard;
+            return this;
+        }
+
+        public Builder replicaRouter(ReplicaRouter replicaRouter) {
+            this.replicaRouter = replicaRouter;
+            return this;
+        }
+
+        public Builder hedgingPolicy(HedgingPolicy hedgingPolicy) {
+            this.hedgingPolicy = hedgingPolicy;
+            return this;
+        }
+
+        public Builder resultSizeLimits(ResultSizeLimits resultSizeLimits) {
+            this.resultSizeLimits = resultSizeLimits;
+            return this;
+        }
+
+        public Builder databaseJson(boolean databaseJson) {
+            this.databaseJson = databaseJson;
+            return this;
+        }
+
+        public JooqExecutorOptions build() {
+            return new JooqExecutorOptions(this);
+        }
+    }
+}
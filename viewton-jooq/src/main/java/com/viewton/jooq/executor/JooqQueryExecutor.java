@@ -1,67 +1,1325 @@
 package com.viewton.jooq.executor;
 
+import com.viewton.jooq.cache.QueryResultCache;
+import com.viewton.jooq.mapping.CountPrecision;
 import com.viewton.jooq.mapping.JooqRow;
+import com.viewton.jooq.mapping.PageInfo;
 import com.viewton.jooq.mapping.QueryResult;
 import com.viewton.jooq.schema.JooqSchema;
+import com.viewton.plan.Aggregations;
+import com.viewton.plan.CountStrategy;
 import com.viewton.plan.FilterCriterion;
+import com.viewton.plan.Pagination;
+import com.viewton.plan.PaginationMode;
+import com.viewton.plan.QueryBatch;
+import com.viewton.plan.QueryFlags;
+import com.viewton.plan.QueryOperator;
 import com.viewton.plan.QueryPlan;
 import com.viewton.plan.QueryValue;
 import com.viewton.plan.SortDirection;
 import com.viewton.plan.SortField;
+import org.jooq.AggregateFunction;
 import org.jooq.Condition;
+import org.jooq.Configuration;
+import org.jooq.ConnectionProvider;
+import org.jooq.Cursor;
+import org.jooq.DataType;
 import org.jooq.Field;
+import org.jooq.Index;
+import org.jooq.JSON;
+import org.jooq.JSONEntry;
 import org.jooq.Record;
+import org.jooq.Record1;
+import org.jooq.Record2;
 import org.jooq.Result;
+import org.jooq.ResultQuery;
+import org.jooq.SQLDialect;
 import org.jooq.SelectConditionStep;
 import org.jooq.SelectFieldOrAsterisk;
 import org.jooq.SelectSeekStepN;
 import org.jooq.Select;
 import org.jooq.SelectLimitStep;
 import org.jooq.Table;
+import org.jooq.UniqueKey;
+import org.jooq.exception.DataAccessException;
+import org.jooq.exception.DataTypeException;
 import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultConnectionProvider;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Executes {@link QueryPlan} instances using jOOQ.
  */
 public final class JooqQueryExecutor {
+    private static final String WINDOW_ALIAS_PREFIX = "viewton_window_";
+    private static final String SEEK_ALIAS_PREFIX = "viewton_seek_";
+    private static final String JSON_PAGE_ALIAS = "viewton_page";
+    private static final String JSON_AGGREGATIONS_ALIAS = "viewton_aggregations";
+    private static final String JSON_ROWS_ALIAS = "viewton_rows";
+    private static final String JSON_SIZED_ALIAS = "viewton_sized";
+    private static final String JSON_PACKED_ALIAS = "viewton_packed";
+    private static final String JSON_ROW = "doc";
+    private static final String JSON_POSITION = "pos";
+    private static final String JSON_SIZE = "bytes";
+    private static final String JSON_ENTITIES = "entities";
+    private static final String JSON_TRUNCATED = "truncated";
+    private static final int BUDGET_CHUNK_ROWS = 256;
+    private static final int DEFAULT_SCROLL_PAGE_SIZE = 1000;
+    private static final String PARTIAL_SUM_SUFFIX = "_partial_sum";
+    private static final String PARTIAL_COUNT_SUFFIX = "_partial_count";
+
     private final org.jooq.DSLContext dslContext;
     private final JooqSchema schema;
+    private final JooqExecutorOptions options;
+    private final Map<QueryPlan, CompletableFuture<QueryResult>> inFlight = new ConcurrentHashMap<>();
 
     public JooqQueryExecutor(org.jooq.DSLContext dslContext, JooqSchema schema) {
+        this(dslContext, schema, JooqExecutorOptions.defaults());
+    }
+
+    public JooqQueryExecutor(org.jooq.DSLContext dslContext, JooqSchema schema, JooqExecutorOptions options) {
         this.dslContext = Objects.requireNonNull(dslContext, "dslContext");
         this.schema = Objects.requireNonNull(schema, "schema");
+        this.options = Objects.requireNonNull(options, "options");
     }
 
     public QueryResult execute(QueryPlan plan) {
+        return execute(plan, (Duration) null);
+    }
+
+    /**
+     * Executes the plan within {@code timeout}, which is shared by all of the plan's statements: each one
+     * runs with the remaining time as its JDBC query timeout.
+     *
+     * @param timeout maximum execution time, or {@code null} for the configured default
+     * @throws QueryTimeoutException when the deadline passes before the plan completes
+     */
+    public QueryResult execute(QueryPlan plan, Duration timeout) {
+        Objects.requireNonNull(plan, "plan");
+        return execute(plan, newScope(effectiveTimeout(timeout)));
+    }
+
+    /**
+     * Executes the plan on the configured async executor.
+     * <p>
+     * Cancelling the returned future cancels the plan's running statements through JDBC.
+     */
+    public CompletableFuture<QueryResult> executeAsync(QueryPlan plan) {
+        return executeAsync(plan, null);
+    }
+
+    /**
+     * Executes the plan on the configured async executor and fails the future with a
+     * {@link java.util.concurrent.TimeoutException} after {@code timeout}.
+     * <p>
+     * Cancellation and timeouts cancel the plan's running statements through JDBC.
+     *
+     * @param timeout maximum execution time, or {@code null} for the configured default
+     */
+    public CompletableFuture<QueryResult> executeAsync(QueryPlan plan, Duration timeout) {
+        Objects.requireNonNull(plan, "plan");
+        return runAsync(timeout, scope -> execute(plan, scope));
+    }
+
+    /**
+     * Whether {@link #executeJsonAsync(QueryPlan, Duration)} can have the database render the plan's response.
+     * <p>
+     * That takes Postgres and a plain page: entities paged with {@code LIMIT/OFFSET} and, when counted, an exact
+     * uncapped count, because next-page detection, cursors and count estimates are worked out on this node. The
+     * sort fields must be part of the projection, since the document orders the page by them. Cached results are
+     * already decoded, so the mode is off while a result cache is configured.
+     */
+    public boolean rendersJson(QueryPlan plan) {
         Objects.requireNonNull(plan, "plan");
+        if (!options.isDatabaseJson()
+                || options.getResultCache() != null
+                || dslContext.dialect().family() != SQLDialect.POSTGRES
+                || !plan.getFlags().isEntities()
+                || reportsNextPage(plan)
+                || !projectsSortFields(plan)) {
+            return false;
+        }
+        return !plan.getFlags().isCount()
+                || plan.getFlags().getCountStrategy() == CountStrategy.EXACT && plan.getFlags().getCountLimit() == null;
+    }
+
+    /**
+     * Executes the plan as a single statement that returns the response document as built by Postgres:
+     * {@code {"entities": [...], "aggregations": {...}, "countPrecision": "EXACT"}}, the last entry only when
+     * counting. The rows are never decoded into records, and values are formatted by Postgres' JSON functions.
+     * <p>
+     * The table's byte budget is applied by the statement itself: rows past it are left out of the array and the
+     * document gets {@code "truncated": true}, as a page built on this node would.
+     *
+     * @param timeout maximum execution time, or {@code null} for the configured default
+     * @throws IllegalArgumentException when {@link #rendersJson(QueryPlan)} is {@code false} for the plan
+     */
+    public CompletableFuture<String> executeJsonAsync(QueryPlan plan, Duration timeout) {
+        Objects.requireNonNull(plan, "plan");
+        if (!rendersJson(plan)) {
+            throw new IllegalArgumentException("Plan cannot be rendered as JSON by the database");
+        }
+        return runAsync(timeout, scope -> executeJson(plan, scope));
+    }
+
+    private <T> CompletableFuture<T> runAsync(Duration timeout, Function<CancellationScope, T> work) {
+        Duration deadline = effectiveTimeout(timeout);
+        CancellationScope scope = newScope(deadline);
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.whenComplete((ignored, failure) -> {
+            if (failure != null) {
+                scope.cancel();
+            }
+        });
+        try {
+            options.getAsyncExecutor().execute(() -> {
+                if (future.isDone()) {
+                    return;
+                }
+                try {
+                    future.complete(work.apply(scope));
+                } catch (Throwable failure) {
+                    future.completeExceptionally(failure);
+                }
+            });
+        } catch (RejectedExecutionException rejected) {
+            future.completeExceptionally(rejected);
+        }
+        if (deadline != null) {
+            future.orTimeout(deadline.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        return future;
+    }
+
+    /**
+     * Executes a batch of plans and returns their results in the same order.
+     * <p>
+     * The batch is reduced with {@link QueryBatch}: identical plans run once and aggregation-only plans
+     * with the same filters share one aggregation statement. The remaining statements run concurrently on
+     * the async executor. Cancelling the returned future cancels every statement of the batch.
+     */
+    public CompletableFuture<List<QueryResult>> executeAllAsync(List<QueryPlan> plans) {
+        return executeAllAsync(plans, null);
+    }
+
+    /**
+     * Variant of {@link #executeAllAsync(List)} whose statements each run within {@code timeout}.
+     *
+     * @param timeout maximum execution time, or {@code null} for the configured default
+     */
+    public CompletableFuture<List<QueryResult>> executeAllAsync(List<QueryPlan> plans, Duration timeout) {
+        QueryBatch batch = QueryBatch.of(plans);
+        List<CompletableFuture<QueryResult>> statements = batch.getStatements().stream()
+                .map(statement -> executeAsync(statement, timeout))
+                .toList();
+        CompletableFuture<List<QueryResult>> results = CompletableFuture
+                .allOf(statements.toArray(CompletableFuture<?>[]::new))
+                .thenApply(ignored -> collect(batch, statements));
+        results.whenComplete((ignored, failure) -> {
+            if (failure != null) {
+                statements.forEach(statement -> statement.cancel(true));
+            }
+        });
+        return results;
+    }
+
+    /**
+     * Blocking variant of {@link #executeAllAsync(List)}.
+     */
+    public List<QueryResult> executeAll(List<QueryPlan> plans) {
+        CompletableFuture<List<QueryResult>> results = executeAllAsync(plans);
+        try {
+            return results.join();
+        } catch (CompletionException e) {
+            throw unwrap(results);
+        }
+    }
+
+    private List<QueryResult> collect(QueryBatch batch, List<CompletableFuture<QueryResult>> statements) {
+        List<QueryResult> results = new ArrayList<>(batch.getPlans().size());
+        for (int i = 0; i < batch.getPlans().size(); i++) {
+            QueryPlan plan = batch.getPlans().get(i);
+            int statement = batch.statementIndex(i);
+            QueryResult result = statements.get(statement).join();
+            results.add(plan.equals(batch.getStatements().get(statement)) ? result : sliceAggregations(plan, result));
+        }
+        return results;
+    }
+
+    private QueryResult sliceAggregations(QueryPlan plan, QueryResult merged) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        Map<String, Object> aggregations = merged.getAggregations();
+        if (plan.getFlags().isCount()) {
+            values.put("count", aggregations.get("count"));
+        }
+        copyAggregations(values, aggregations, plan.getAggregations().getSumFields(), "_sum");
+        copyAggregations(values, aggregations, plan.getAggregations().getAvgFields(), "_avg");
+        copyAggregations(values, aggregations, plan.getAggregations().getMinFields(), "_min");
+        copyAggregations(values, aggregations, plan.getAggregations().getMaxFields(), "_max");
+        CountPrecision countPrecision = plan.getFlags().isCount() ? CountPrecision.EXACT : null;
+        return new QueryResult(List.of(), values, countPrecision, PageInfo.empty());
+    }
+
+    private void copyAggregations(
+            Map<String, Object> target,
+            Map<String, Object> source,
+            List<String> fieldNames,
+            String suffix
+    ) {
+        for (String fieldName : fieldNames) {
+            target.put(fieldName + suffix, source.get(fieldName + suffix));
+        }
+    }
+
+    private Duration effectiveTimeout(Duration requested) {
+        Duration configured = options.getQueryTimeout();
+        if (requested == null) {
+            return configured;
+        }
+        if (requested.isZero() || requested.isNegative()) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        return configured == null || requested.compareTo(configured) < 0 ? requested : configured;
+    }
+
+    /**
+     * Whether the calling thread's primary connection is inside a transaction, as it is under Spring's
+     * {@code @Transactional}. Reads there may see the transaction's uncommitted writes, so their results are
+     * neither cached nor shared with other callers.
+     */
+    private boolean inTransaction() {
+        return dslContext.connectionResult(connection -> !connection.getAutoCommit());
+    }
+
+    private CancellationScope newScope(Duration timeout) {
+        return new CancellationScope(
+                timeout,
+                options.getReplicaRouter(),
+                options.getHedgingPolicy(),
+                options.getAsyncExecutor()
+        );
+    }
+
+    private QueryResult execute(QueryPlan requested, CancellationScope scope) {
+        Table<?> table = resolveTable(requested.getEntity().name());
+        QueryPlan plan = resultLimits(table).bound(requested);
+        checkCost(plan, table, scope);
+        if (inTransaction()) {
+            return executeUncached(plan, table, scope);
+        }
+        QueryResultCache resultCache = options.getResultCache();
+        if (resultCache == null) {
+            return executeCoalesced(plan, table, scope);
+        }
+        return resultCache.get(
+                table,
+                plan,
+                () -> executeCoalesced(plan, table, scope),
+                () -> executeCoalesced(plan, table, newScope(options.getQueryTimeout()))
+        );
+    }
+
+    private String executeJson(QueryPlan requested, CancellationScope scope) {
+        Table<?> table = resolveTable(requested.getEntity().name());
+        ResultSizeLimits.Limits limits = resultLimits(table);
+        QueryPlan plan = limits.bound(requested);
+        checkCost(plan, table, scope);
+        Record1<JSON> rendered = scope.fetch(
+                StatementKind.ENTITIES,
+                table,
+                jsonQuery(plan, table, limits.byteBudget()),
+                () -> jsonQuery(plan, table, limits.byteBudget()),
+                ResultQuery::fetchOne
+        );
+        return rendered.value1().data();
+    }
+
+    /**
+     * Whether every sort field is a column of the entity rows.
+     */
+    private boolean projectsSortFields(QueryPlan plan) {
+        List<String> projection = plan.getProjection().getFields();
+        if (projection.isEmpty()) {
+            return true;
+        }
         Table<?> table = resolveTable(plan.getEntity().name());
+        Set<String> projected = new HashSet<>();
+        for (String fieldName : projection) {
+            projected.add(resolveField(table, fieldName, Object.class).getName());
+        }
+        return plan.getSorting().getFields().stream()
+                .allMatch(sortField -> projected.contains(resolveField(table, sortField.getField(), Object.class)
+                        .getName()));
+    }
+
+    /**
+     * {@code select json_build_object('entities', <page as array>, 'aggregations', <aggregates as object>)},
+     * with {@code 'truncated', true} added when the byte budget cut the page short.
+     * <p>
+     * The rows of the page are numbered in the plan's order and aggregated with
+     * {@code json_agg(row ORDER BY position)}, so the array keeps that order whatever plan Postgres picks. With
+     * a byte budget, a running total of the rows' text length, counted as UTF-16 like decoded rows, keeps the
+     * rows that fit; the statement never returns more than the budget and the page is not run again.
+     */
+    private Select<Record1<JSON>> jsonQuery(QueryPlan plan, Table<?> table, long byteBudget) {
+        Table<?> page = entityQuery(plan, table, false).select().asTable(JSON_PAGE_ALIAS);
+        List<org.jooq.SortField<?>> order = new ArrayList<>();
+        for (SortField sortField : plan.getSorting().getFields()) {
+            Field<?> field = page.field(resolveField(table, sortField.getField(), Object.class).getName());
+            order.add(sortField.getDirection() == SortDirection.ASC ? field.asc() : field.desc());
+        }
+        Table<?> rows = DSL.select(
+                        DSL.field("row_to_json({0})", JSON.class, DSL.name(JSON_PAGE_ALIAS)).as(JSON_ROW),
+                        (order.isEmpty() ? DSL.rowNumber().over() : DSL.rowNumber().over(DSL.orderBy(order)))
+                                .as(JSON_POSITION)
+                )
+                .from(page)
+                .asTable(JSON_ROWS_ALIAS);
+        Field<JSON> row = DSL.field(DSL.name(JSON_ROWS_ALIAS, JSON_ROW), JSON.class);
+        Field<Integer> position = DSL.field(DSL.name(JSON_ROWS_ALIAS, JSON_POSITION), Integer.class);
+        Field<JSON> array;
+        Field<Boolean> truncated;
+        if (byteBudget == Long.MAX_VALUE) {
+            array = DSL.field("json_agg({0} order by {1})", JSON.class, row, position);
+            truncated = DSL.inline(false);
+        } else {
+            rows = DSL.select(
+                            row.as(JSON_ROW),
+                            position.as(JSON_POSITION),
+                            DSL.field("sum(2 * length({0}::text)) over (order by {1})", Long.class, row, position)
+                                    .as(JSON_SIZE)
+                    )
+                    .from(rows)
+                    .asTable(JSON_SIZED_ALIAS);
+            row = DSL.field(DSL.name(JSON_SIZED_ALIAS, JSON_ROW), JSON.class);
+            position = DSL.field(DSL.name(JSON_SIZED_ALIAS, JSON_POSITION), Integer.class);
+            Field<Long> size = DSL.field(DSL.name(JSON_SIZED_ALIAS, JSON_SIZE), Long.class);
+            array = DSL.field(
+                    "json_agg({0} order by {1}) filter (where {2} <= {3})",
+                    JSON.class, row, position, size, DSL.inline(byteBudget)
+            );
+            truncated = DSL.coalesce(DSL.boolOr(size.gt(DSL.inline(byteBudget))), DSL.inline(false));
+        }
+        Table<?> packed = DSL.select(
+                        DSL.coalesce(array, DSL.field("'[]'::json", JSON.class)).as(JSON_ENTITIES),
+                        truncated.as(JSON_TRUNCATED)
+                )
+                .from(rows)
+                .asTable(JSON_PACKED_ALIAS);
+        Field<JSON> entities = packed.field(JSON_ENTITIES, JSON.class);
+        SelectConditionStep<Record> aggregationQuery = aggregationQuery(plan, table, true);
+        Field<JSON> aggregations = aggregationQuery == null
+                ? DSL.field("'{}'::json", JSON.class)
+                : DSL.field(DSL.select(DSL.field("row_to_json({0})", JSON.class, DSL.name(JSON_AGGREGATIONS_ALIAS)))
+                        .from(aggregationQuery.asTable(JSON_AGGREGATIONS_ALIAS)));
+        List<JSONEntry<?>> entries = new ArrayList<>();
+        entries.add(DSL.jsonEntry("entities", entities));
+        entries.add(DSL.jsonEntry("aggregations", aggregations));
+        if (plan.getFlags().isCount()) {
+            entries.add(DSL.jsonEntry("countPrecision", DSL.inline(CountPrecision.EXACT.name())));
+        }
+        Field<JSON> document = DSL.jsonObject(entries);
+        if (byteBudget != Long.MAX_VALUE) {
+            // Like decoded responses, a complete page carries no truncated flag at all.
+            List<JSONEntry<?>> truncatedEntries = new ArrayList<>(entries);
+            truncatedEntries.add(DSL.jsonEntry(JSON_TRUNCATED, DSL.inline(true)));
+            Condition cutShort = DSL.condition(packed.field(JSON_TRUNCATED, Boolean.class));
+            document = DSL.when(cutShort, DSL.jsonObject(truncatedEntries)).otherwise(document);
+        }
+        return dslContext.select(document).from(packed);
+    }
 
-        List<JooqRow> rows = List.of();
+    /**
+     * Shares one execution between concurrent callers of an equal plan. The first caller runs the plan; the
+     * others wait for its result without taking a connection. A caller whose shared execution was cancelled
+     * or timed out by its owner runs the plan again under its own scope.
+     */
+    private QueryResult executeCoalesced(QueryPlan plan, Table<?> table, CancellationScope scope) {
+        if (!options.isCoalesceQueries()) {
+            return executeUncached(plan, table, scope);
+        }
+        while (true) {
+            CompletableFuture<QueryResult> shared = inFlight.get(plan);
+            if (shared == null) {
+                CompletableFuture<QueryResult> own = new CompletableFuture<>();
+                shared = inFlight.putIfAbsent(plan, own);
+                if (shared == null) {
+                    try {
+                        QueryResult result = executeUncached(plan, table, scope);
+                        own.complete(result);
+                        return result;
+                    } catch (Throwable failure) {
+                        own.completeExceptionally(failure);
+                        throw failure;
+                    } finally {
+                        inFlight.remove(plan, own);
+                    }
+                }
+            }
+            try {
+                return scope.await(shared);
+            } catch (CompletionException failure) {
+                Throwable cause = failure.getCause();
+                if (!(cause instanceof CancellationException) && !(cause instanceof QueryTimeoutException)) {
+                    throw unwrap(shared);
+                }
+                inFlight.remove(plan, shared);
+            }
+        }
+    }
+
+    /**
+     * Streams the plan's entity rows to {@code consumer} as they are read instead of materializing the page.
+     * <p>
+     * Rows are fetched through a JDBC cursor with the configured fetch size, so memory stays bounded by the
+     * fetch size and a slow consumer slows down reading. The result cache is bypassed. The returned result
+     * holds no rows; it carries the aggregations, which are computed after the last row, and the page info.
+     */
+    public QueryResult stream(QueryPlan plan, Consumer<JooqRow> consumer) {
+        return stream(plan, consumer, null);
+    }
+
+    /**
+     * Variant of {@link #stream(QueryPlan, Consumer)} that reads the rows and computes the aggregations within
+     * {@code timeout}. The deadline includes the time spent in {@code consumer}: a slow reader that holds the
+     * cursor past it stops the stream.
+     *
+     * @param timeout maximum execution time, or {@code null} for the configured default
+     * @throws QueryTimeoutException when the deadline passes before the last row and aggregations are read
+     */
+    public QueryResult stream(QueryPlan plan, Consumer<JooqRow> consumer, Duration timeout) {
+        Objects.requireNonNull(plan, "plan");
+        Objects.requireNonNull(consumer, "consumer");
+        Table<?> table = resolveTable(plan.getEntity().name());
+        CancellationScope scope = newScope(effectiveTimeout(timeout));
+        PageInfo pageInfo = PageInfo.empty();
         if (plan.getFlags().isEntities()) {
-            List<SelectFieldOrAsterisk> selectFields = buildEntitySelectFields(plan, table);
-            SelectConditionStep<Record> select = (plan.getFlags().isDistinct()
-                    ? dslContext.selectDistinct(selectFields).from(table)
-                    : dslContext.select(selectFields).from(table))
-                    .where(buildCondition(plan, table));
+            ReplicaRouter router = options.getReplicaRouter();
+            try (ReplicaRouter.Lease replica = router == null ? null : router.acquire(StatementKind.EXPORT)) {
+                org.jooq.DSLContext exportContext = replica == null ? dslContext : replica.dslContext();
+                pageInfo = exportContext.transactionResult(
+                        configuration -> streamEntities(plan, table, configuration, consumer, scope)
+                );
+            }
+        }
+        Aggregates aggregates = computeAggregations(plan, table, scope);
+        return new QueryResult(List.of(), aggregates.values(), aggregates.countPrecision(), pageInfo);
+    }
 
-            SelectLimitStep<Record> sorted = applySorting(select, plan, table);
-            Select<Record> limited = applyPagination(sorted, plan);
+    /**
+     * Opens a database cursor over every entity row of the plan, to be read page by page across requests.
+     * <p>
+     * The cursor runs in a read-only transaction on a connection of its own, which stays pinned until the
+     * cursor is closed; pages are read from the open statement instead of re-running it with a growing offset.
+     * The plan's page size, bounded by the table's limits, sets the rows per page; its page, cursor position,
+     * count and aggregations are ignored. Like streams, scrolls run on a replica when the router takes exports.
+     * The result cache is bypassed. Opening runs within the configured query timeout.
+     */
+    public ScrollCursor openScroll(QueryPlan plan) {
+        return openScroll(plan, null);
+    }
 
-            Result<Record> result = limited.fetch();
-            rows = result.stream().map(JooqRow::new).toList();
+    /**
+     * Variant of {@link #openScroll(QueryPlan)} whose cost check and statement run within {@code timeout}. The
+     * deadline covers opening the cursor up to its first rows, not the pages read from it later.
+     *
+     * @param timeout maximum time for opening the cursor, or {@code null} for the configured default
+     * @throws QueryTimeoutException when the deadline passes before the statement returns its first rows
+     */
+    public ScrollCursor openScroll(QueryPlan plan, Duration timeout) {
+        Objects.requireNonNull(plan, "plan");
+        CancellationScope scope = newScope(effectiveTimeout(timeout));
+        Table<?> table = resolveTable(plan.getEntity().name());
+        Integer pageSize = resultLimits(table).bound(plan).getPagination().getPageSize();
+        QueryPlan scroll = new QueryPlan(
+                plan.getEntity(),
+                plan.getProjection(),
+                plan.getFilters(),
+                plan.getSorting(),
+                new Pagination(null, null),
+                new Aggregations(List.of(), List.of(), List.of(), List.of()),
+                new QueryFlags(false, plan.getFlags().isDistinct(), true)
+        );
+        checkCost(scroll, table, scope);
+        int rowsPerPage = pageSize == null || pageSize <= 0 ? DEFAULT_SCROLL_PAGE_SIZE : pageSize;
+
+        ReplicaRouter router = options.getReplicaRouter();
+        ReplicaRouter.Lease replica = router == null ? null : router.acquire(StatementKind.EXPORT);
+        Configuration source = (replica == null ? dslContext : replica.dslContext()).configuration();
+        ConnectionProvider connectionProvider = source.connectionProvider();
+        Connection connection = null;
+        try {
+            connection = connectionProvider.acquire();
+            // Postgres only honours the fetch size inside a transaction.
+            connection.setReadOnly(true);
+            connection.setAutoCommit(false);
+            Select<Record> select = entityQuery(scroll, table, false).select();
+            Cursor<Record> cursor = scope.fetchIn(
+                    source.derive(new DefaultConnectionProvider(connection)),
+                    select.fetchSize(rowsPerPage),
+                    ResultQuery::fetchLazy
+            );
+            return new ScrollCursor(cursor, connection, connectionProvider, replica, rowsPerPage);
+        } catch (SQLException e) {
+            abandonScroll(connectionProvider, connection, replica);
+            throw new DataAccessException("Cannot open the scroll transaction", e);
+        } catch (RuntimeException e) {
+            abandonScroll(connectionProvider, connection, replica);
+            throw e;
         }
+    }
 
-        Map<String, Object> aggregations = Map.of();
+    private static void abandonScroll(
+            ConnectionProvider connectionProvider,
+            Connection connection,
+            ReplicaRouter.Lease replica
+    ) {
+        try {
+            if (connection != null) {
+                try {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                    connection.setReadOnly(false);
+                } catch (SQLException ignored) {
+                    // The pool validates returned connections.
+                } finally {
+                    connectionProvider.release(connection);
+                }
+            }
+        } finally {
+            if (replica != null) {
+                replica.close();
+            }
+        }
+    }
+
+    /**
+     * Columns of the plan's entity rows, in row order, as declared in the table metadata.
+     */
+    public List<Field<?>> entityFields(QueryPlan plan) {
+        Objects.requireNonNull(plan, "plan");
+        Table<?> table = resolveTable(plan.getEntity().name());
+        if (plan.getProjection().getFields().isEmpty()) {
+            return List.of(table.fields());
+        }
+        return plan.getProjection().getFields().stream()
+                .<Field<?>>map(fieldName -> resolveField(table, fieldName, Object.class))
+                .toList();
+    }
+
+    /**
+     * Drops cached results for the entity; a no-op when no result cache is configured.
+     */
+    public void invalidateCache(String entityName) {
+        Objects.requireNonNull(entityName, "entityName");
+        QueryResultCache resultCache = options.getResultCache();
+        if (resultCache != null) {
+            resultCache.invalidate(resolveTable(entityName));
+        }
+    }
+
+    private QueryResult executeUncached(QueryPlan plan, Table<?> table, CancellationScope scope) {
+        ScanRange range = scanRange(plan, table, scope);
+        if (range != null) {
+            return executePartitioned(plan, table, range, scope);
+        }
+        boolean singleStatement = usesWindowAggregations(plan);
+        Executor parallelExecutor = options.getParallelExecutor();
+        if (parallelExecutor != null
+                && !singleStatement
+                && plan.getFlags().isEntities()
+                && requiresAggregations(plan)) {
+            return executeInParallel(plan, table, parallelExecutor, scope);
+        }
+        EntityPage page = plan.getFlags().isEntities()
+                ? fetchEntities(plan, table, singleStatement, scope)
+                : EntityPage.EMPTY;
+        Aggregates aggregates = page.windowAggregations() != null
+                ? new Aggregates(page.windowAggregations(), plan.getFlags().isCount() ? CountPrecision.EXACT : null)
+                : computeAggregations(plan, table, scope);
+        return new QueryResult(page.rows(), aggregates.values(), aggregates.countPrecision(), page.pageInfo());
+    }
+
+    /**
+     * Runs the aggregation side on the parallel executor while the caller thread fetches the page.
+     * <p>
+     * Each side acquires its own connection from the configured connection provider. A failure on either
+     * side cancels the statements of the other. When the executor has no free slot the plan runs sequentially.
+     */
+    private QueryResult executeInParallel(QueryPlan plan, Table<?> table, Executor executor, CancellationScope scope) {
+        CompletableFuture<Aggregates> aggregates;
+        try {
+            aggregates = CompletableFuture.supplyAsync(() -> computeAggregations(plan, table, scope), executor);
+        } catch (RejectedExecutionException busy) {
+            EntityPage page = fetchEntities(plan, table, false, scope);
+            Aggregates sequential = computeAggregations(plan, table, scope);
+            return new QueryResult(page.rows(), sequential.values(), sequential.countPrecision(), page.pageInfo());
+        }
+        aggregates.whenComplete((ignored, failure) -> {
+            if (failure != null) {
+                scope.cancel();
+            }
+        });
+
+        EntityPage page;
+        try {
+            page = fetchEntities(plan, table, false, scope);
+        } catch (RuntimeException failure) {
+            scope.cancel();
+            if (aggregates.isCompletedExceptionally()) {
+                RuntimeException cause = unwrap(aggregates);
+                cause.addSuppressed(failure);
+                throw cause;
+            }
+            throw failure;
+        }
+        Aggregates joined;
+        try {
+            joined = aggregates.join();
+        } catch (CompletionException failure) {
+            throw unwrap(aggregates);
+        }
+        return new QueryResult(page.rows(), joined.values(), joined.countPrecision(), page.pageInfo());
+    }
+
+    /**
+     * Key range a large read is split on, or {@code null} when the plan runs as usual.
+     * <p>
+     * Plans qualify when parallel scans are enabled and they read every matching row: aggregations, or entities
+     * without a page size. Counts must be exact, and rows unsorted or sorted by the key first, so that the
+     * ranges' pages concatenate in order; merging other orders would have to follow the database's collation.
+     * The key is the first {@code BETWEEN} filter on a numeric or date/time column, or else a single-column
+     * primary key, whose bounds are read with {@code min/max}. Reads the planner estimates below the
+     * configured minimum are not split; a minimum of zero splits every qualifying read without an estimate.
+     */
+    private ScanRange scanRange(QueryPlan plan, Table<?> table, CancellationScope scope) {
+        int partitions = options.getParallelScanPartitions();
+        if (partitions < 2 || options.getParallelExecutor() == null || plan.getFlags().isDistinct()) {
+            return null;
+        }
+        if (plan.getFlags().isEntities()
+                ? plan.getPagination().getMode() != PaginationMode.OFFSET || plan.getPagination().getPageSize() != null
+                : !requiresAggregations(plan)) {
+            return null;
+        }
+        if (plan.getFlags().isCount()
+                && (plan.getFlags().getCountStrategy() != CountStrategy.EXACT
+                || plan.getFlags().getCountLimit() != null)) {
+            return null;
+        }
+        ScanKey key = scanKey(plan, table);
+        if (key == null) {
+            return null;
+        }
+        boolean descending = false;
+        List<SortField> sortFields = plan.getSorting().getFields();
+        if (!sortFields.isEmpty()) {
+            SortField leading = sortFields.get(0);
+            if (!resolveField(table, leading.getField(), Object.class).getName().equals(key.field().getName())) {
+                return null;
+            }
+            descending = leading.getDirection() == SortDirection.DESC;
+        }
+        if (options.getParallelScanMinRows() > 0) {
+            Long estimate = estimateRows(plan, table, scope);
+            if (estimate == null || estimate < options.getParallelScanMinRows()) {
+                return null;
+            }
+        }
+        Object low = key.low();
+        Object high = key.high();
+        if (low == null) {
+            Record2<?, ?> bounds = keyBounds(plan, table, key.field(), scope);
+            low = bounds.value1();
+            high = bounds.value2();
+            if (low == null) {
+                return null;
+            }
+        }
+        List<Object> boundaries = RangePartitions.boundaries(low, high, partitions);
+        return boundaries.isEmpty() ? null : new ScanRange(key.field(), boundaries, descending);
+    }
+
+    /**
+     * Column to split on with the bounds of its {@code BETWEEN} filter, or with {@code null} bounds for the
+     * primary key.
+     */
+    private ScanKey scanKey(QueryPlan plan, Table<?> table) {
+        for (FilterCriterion criterion : plan.getFilters().getCriteria()) {
+            if (criterion.getOperator() != QueryOperator.BETWEEN
+                    || criterion.isIgnoreCase()
+                    || criterion.getValues().size() < 2) {
+                continue;
+            }
+            Field<?> column = table.field(resolveField(table, criterion.getField(), Object.class).getName());
+            if (column == null || !isRangeType(column.getDataType())) {
+                continue;
+            }
+            try {
+                Object low = column.getDataType().convert(criterion.getValues().get(0).getValue());
+                Object high = column.getDataType().convert(criterion.getValues().get(1).getValue());
+                if (low != null && high != null) {
+                    return new ScanKey(column, low, high);
+                }
+            } catch (DataTypeException ignored) {
+                // Left to the statement to reject.
+            }
+        }
+        UniqueKey<?> primaryKey = table.getPrimaryKey();
+        if (primaryKey == null || primaryKey.getFields().size() != 1) {
+            return null;
+        }
+        Field<?> column = primaryKey.getFields().get(0);
+        return isRangeType(column.getDataType()) ? new ScanKey(column, null, null) : null;
+    }
+
+    private static boolean isRangeType(DataType<?> dataType) {
+        return dataType.isNumeric() || dataType.isDateTime();
+    }
+
+    private <T> Record2<T, T> keyBounds(QueryPlan plan, Table<?> table, Field<T> key, CancellationScope scope) {
+        return scope.fetch(
+                StatementKind.AGGREGATIONS,
+                table,
+                keyBoundsQuery(plan, table, key),
+                () -> keyBoundsQuery(plan, table, key)
+        ).get(0);
+    }
+
+    private <T> Select<Record2<T, T>> keyBoundsQuery(QueryPlan plan, Table<?> table, Field<T> key) {
+        return dslContext.select(DSL.min(key), DSL.max(key)).from(table).where(buildCondition(plan, table));
+    }
+
+    /**
+     * Reads each key range with its own statements on the parallel executor and combines the results: pages are
+     * concatenated in key order and partial aggregates added up. Once the executor rejects a range, that range
+     * and all after it are read as one range on the caller thread, so a busy executor leaves the caller with a
+     * single scan rather than a share of the ranges; when it rejects the first range the read is not split at
+     * all. Each range may hold its share of the table's byte budget; a truncated range ends the page. A failure
+     * in any range cancels the others.
+     */
+    private QueryResult executePartitioned(QueryPlan plan, Table<?> table, ScanRange range, CancellationScope scope) {
+        List<Table<?>> partitions = range.partitions(table);
+        long byteBudget = resultLimits(table).byteBudget();
+        long partitionBudget = byteBudget == Long.MAX_VALUE ? byteBudget : byteBudget / partitions.size();
+        Executor executor = options.getParallelExecutor();
+        List<CompletableFuture<PartitionScan>> scans = new ArrayList<>(partitions.size());
+        Table<?> remainder = null;
+        long remainderBudget = 0;
+        for (int i = 0; i < partitions.size(); i++) {
+            Table<?> partition = partitions.get(i);
+            CompletableFuture<PartitionScan> scan;
+            try {
+                scan = CompletableFuture.supplyAsync(
+                        () -> scanPartition(plan, partition, partitionBudget, scope),
+                        executor
+                );
+            } catch (RejectedExecutionException busy) {
+                remainder = range.remainder(table, i);
+                remainderBudget = i == 0 ? byteBudget : Math.min(byteBudget, partitionBudget * (partitions.size() - i));
+                break;
+            }
+            scan.whenComplete((ignored, failure) -> {
+                if (failure != null) {
+                    scope.cancel();
+                }
+            });
+            scans.add(scan);
+        }
+
+        List<PartitionScan> results = new ArrayList<>(partitions.size());
+        try {
+            PartitionScan remaining = remainder == null ? null : scanPartition(plan, remainder, remainderBudget, scope);
+            for (CompletableFuture<PartitionScan> scan : scans) {
+                results.add(join(scan));
+            }
+            if (remaining != null) {
+                results.add(remaining);
+            }
+        } catch (RuntimeException failure) {
+            scope.cancel();
+            throw firstFailure(scans, failure);
+        }
+
+        List<JooqRow> rows = new ArrayList<>();
+        boolean truncated = false;
+        for (PartitionScan result : results) {
+            rows.addAll(result.page().rows());
+            if (Boolean.TRUE.equals(result.page().pageInfo().getTruncated())) {
+                truncated = true;
+                break;
+            }
+        }
+        Map<String, Object> aggregations = combineAggregates(plan, results);
+        CountPrecision countPrecision = plan.getFlags().isCount() ? CountPrecision.EXACT : null;
+        PageInfo pageInfo = truncated ? new PageInfo(null, null, true) : PageInfo.empty();
+        return new QueryResult(List.copyOf(rows), aggregations, countPrecision, pageInfo);
+    }
+
+    private PartitionScan scanPartition(QueryPlan plan, Table<?> partition, long byteBudget, CancellationScope scope) {
+        EntityPage page = plan.getFlags().isEntities()
+                ? fetchEntities(plan, partition, false, byteBudget, scope)
+                : EntityPage.EMPTY;
+        Map<String, Object> aggregates = Map.of();
         if (requiresAggregations(plan)) {
-            aggregations = runAggregations(plan, table);
+            Result<Record> result = scope.fetch(
+                    aggregationKind(plan),
+                    partition,
+                    partialAggregationQuery(plan, partition),
+                    () -> partialAggregationQuery(plan, partition)
+            );
+            aggregates = new JooqRow(result.get(0)).asMap();
+        }
+        return new PartitionScan(page, aggregates);
+    }
+
+    private PartitionScan join(CompletableFuture<PartitionScan> scan) {
+        try {
+            return scan.join();
+        } catch (CompletionException failure) {
+            throw unwrap(scan);
+        }
+    }
+
+    /**
+     * The failure that stopped the scans, rather than the cancellation it caused in the other ranges.
+     */
+    private RuntimeException firstFailure(List<CompletableFuture<PartitionScan>> scans, RuntimeException failure) {
+        if (!(failure instanceof CancellationException)) {
+            return failure;
+        }
+        for (CompletableFuture<PartitionScan> scan : scans) {
+            if (scan != null && scan.isCompletedExceptionally()) {
+                RuntimeException cause = unwrap(scan);
+                if (!(cause instanceof CancellationException)) {
+                    return cause;
+                }
+            }
+        }
+        return failure;
+    }
+
+    /**
+     * Aggregates of one key range that add up across ranges: each average is read as a sum and a count of
+     * non-null values.
+     */
+    private SelectConditionStep<Record> partialAggregationQuery(QueryPlan plan, Table<?> table) {
+        List<SelectFieldOrAsterisk> fields = new ArrayList<>();
+        if (plan.getFlags().isCount()) {
+            fields.add(DSL.count().as("count"));
+        }
+        for (String fieldName : plan.getAggregations().getSumFields()) {
+            Field<Double> field = resolveField(table, fieldName, Double.class);
+            fields.add(DSL.sum(field).coerce(sumType(table, fieldName)).as(fieldName + "_sum"));
+        }
+        for (String fieldName : plan.getAggregations().getAvgFields()) {
+            Field<Double> field = resolveField(table, fieldName, Double.class);
+            fields.add(DSL.sum(field).coerce(sumType(table, fieldName)).as(fieldName + "_avg" + PARTIAL_SUM_SUFFIX));
+            fields.add(DSL.count(field).as(fieldName + "_avg" + PARTIAL_COUNT_SUFFIX));
+        }
+        for (String fieldName : plan.getAggregations().getMinFields()) {
+            fields.add(DSL.min(resolveField(table, fieldName, Double.class)).as(fieldName + "_min"));
+        }
+        for (String fieldName : plan.getAggregations().getMaxFields()) {
+            fields.add(DSL.max(resolveField(table, fieldName, Double.class)).as(fieldName + "_max"));
+        }
+        return dslContext.select(fields).from(table).where(buildCondition(plan, table));
+    }
+
+    /**
+     * Combines the ranges' partial aggregates into the values a single aggregation query would return.
+     */
+    private Map<String, Object> combineAggregates(QueryPlan plan, List<PartitionScan> scans) {
+        if (!requiresAggregations(plan)) {
+            return Map.of();
+        }
+        List<Map<String, Object>> partials = scans.stream().map(PartitionScan::aggregates).toList();
+        Map<String, Object> values = new LinkedHashMap<>();
+        if (plan.getFlags().isCount()) {
+            values.put("count", sum(partials, "count"));
+        }
+        for (String fieldName : plan.getAggregations().getSumFields()) {
+            values.put(fieldName + "_sum", sum(partials, fieldName + "_sum"));
+        }
+        for (String fieldName : plan.getAggregations().getAvgFields()) {
+            values.put(fieldName + "_avg", average(
+                    sum(partials, fieldName + "_avg" + PARTIAL_SUM_SUFFIX),
+                    sum(partials, fieldName + "_avg" + PARTIAL_COUNT_SUFFIX)
+            ));
+        }
+        for (String fieldName : plan.getAggregations().getMinFields()) {
+            values.put(fieldName + "_min", extreme(partials, fieldName + "_min", -1));
+        }
+        for (String fieldName : plan.getAggregations().getMaxFields()) {
+            values.put(fieldName + "_max", extreme(partials, fieldName + "_max", 1));
+        }
+        return values;
+    }
+
+    /**
+     * Sum of the non-null values under {@code name}, or {@code null} when every range has none, as in SQL. The
+     * ranges' values share one type and are added in it, so the sum has the type an unsplit query returns and
+     * floating-point sums keep NaN and infinity.
+     */
+    private static Object sum(List<Map<String, Object>> partials, String name) {
+        Object sum = null;
+        for (Map<String, Object> partial : partials) {
+            Object value = partial.get(name);
+            if (value != null) {
+                sum = sum == null ? value : add(sum, value);
+            }
+        }
+        return sum;
+    }
+
+    private static Object add(Object sum, Object value) {
+        if (sum instanceof BigDecimal decimal) {
+            return decimal.add((BigDecimal) value);
+        }
+        if (sum instanceof Double number) {
+            return number + (Double) value;
+        }
+        if (sum instanceof Integer number) {
+            return Math.addExact(number, (Integer) value);
+        }
+        if (sum instanceof Long number) {
+            return Math.addExact(number, (Long) value);
+        }
+        if (sum instanceof BigInteger number) {
+            return number.add((BigInteger) value);
+        }
+        throw new IllegalStateException("Cannot add partial aggregates of type " + sum.getClass().getName());
+    }
+
+    /**
+     * Average from a combined sum and count of non-null values, in the sum's type.
+     */
+    private static Object average(Object sum, Object count) {
+        long values = count == null ? 0 : ((Number) count).longValue();
+        if (sum == null || values == 0) {
+            return null;
+        }
+        if (sum instanceof Double number) {
+            return number / values;
         }
-        return new QueryResult(rows, aggregations);
+        return ((BigDecimal) sum).divide(BigDecimal.valueOf(values), MathContext.DECIMAL64);
+    }
+
+    /**
+     * Smallest ({@code sign = -1}) or largest ({@code sign = 1}) non-null value under {@code name}.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Object extreme(List<Map<String, Object>> partials, String name, int sign) {
+        Comparable extreme = null;
+        for (Map<String, Object> partial : partials) {
+            Object value = partial.get(name);
+            if (value != null && (extreme == null || Integer.signum(extreme.compareTo(value)) == -sign)) {
+                extreme = (Comparable) value;
+            }
+        }
+        return extreme;
+    }
+
+    private RuntimeException unwrap(CompletableFuture<?> future) {
+        try {
+            future.join();
+            throw new IllegalStateException("Future completed normally");
+        } catch (CompletionException failure) {
+            Throwable cause = failure.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                return runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            return failure;
+        } catch (CancellationException cancelled) {
+            return cancelled;
+        }
+    }
+
+    private EntityPage fetchEntities(QueryPlan plan, Table<?> table, boolean singleStatement, CancellationScope scope) {
+        return fetchEntities(plan, table, singleStatement, resultLimits(table).byteBudget(), scope);
+    }
+
+    private EntityPage fetchEntities(
+            QueryPlan plan,
+            Table<?> table,
+            boolean singleStatement,
+            long byteBudget,
+            CancellationScope scope
+    ) {
+        EntityQuery query = entityQuery(plan, table, singleStatement);
+        BudgetedResult budgeted = scope.fetch(
+                StatementKind.ENTITIES,
+                table,
+                query.select(),
+                () -> entityQuery(plan, table, singleStatement).select(),
+                select -> fetchWithinBudget(select, byteBudget)
+        );
+        Result<Record> result = budgeted.records();
+        Map<String, Object> windowAggregations = null;
+        if (singleStatement && !result.isEmpty()) {
+            // An empty page carries no window values; the aggregation query fills them in instead.
+            windowAggregations = windowAggregations(result.get(0));
+        }
+        List<Record> records = result;
+        PageInfo pageInfo = budgeted.truncated() ? new PageInfo(null, null, true) : PageInfo.empty();
+        if (reportsNextPage(plan)) {
+            Integer pageSize = plan.getPagination().getPageSize();
+            boolean hasNext = pageSize != null && records.size() > Math.max(pageSize, 0);
+            if (hasNext) {
+                records = records.subList(0, Math.max(pageSize, 0));
+            }
+            Record last = records.isEmpty() ? null : records.get(records.size() - 1);
+            pageInfo = pageInfo(query, hasNext || budgeted.truncated(), last, budgeted.truncated());
+        }
+        List<JooqRow> rows = query.hiddenFieldCount() == 0
+                ? records.stream().map(JooqRow::new).toList()
+                : withoutHiddenFields(records, result.fields().length - query.hiddenFieldCount());
+        return new EntityPage(rows, pageInfo, windowAggregations);
+    }
+
+    /**
+     * Reads the page through a JDBC cursor inside a transaction, which Postgres needs to honour the fetch size.
+     */
+    private PageInfo streamEntities(
+            QueryPlan plan,
+            Table<?> table,
+            Configuration configuration,
+            Consumer<JooqRow> consumer,
+            CancellationScope scope
+    ) {
+        EntityQuery query = entityQuery(plan, table, false);
+        ResultQuery<Record> select = query.select().fetchSize(options.getStreamFetchSize());
+        return scope.fetchIn(configuration, select, streamed -> {
+            Integer pageSize = plan.getPagination().getPageSize();
+            int limit = reportsNextPage(plan) && pageSize != null ? Math.max(pageSize, 0) : Integer.MAX_VALUE;
+            int emitted = 0;
+            boolean hasNext = false;
+            Record last = null;
+            Field<?>[] entityFields = null;
+            try (Cursor<Record> cursor = streamed.fetchLazy()) {
+                for (Record record : cursor) {
+                    scope.checkActive();
+                    if (emitted == limit) {
+                        hasNext = true;
+                        break;
+                    }
+                    if (query.hiddenFieldCount() == 0) {
+                        consumer.accept(new JooqRow(record));
+                    } else {
+                        if (entityFields == null) {
+                            entityFields = Arrays.copyOf(record.fields(), record.size() - query.hiddenFieldCount());
+                        }
+                        consumer.accept(new JooqRow(record.into(entityFields)));
+                    }
+                    last = record;
+                    emitted++;
+                }
+            }
+            return reportsNextPage(plan) ? pageInfo(query, hasNext, last, false) : PageInfo.empty();
+        });
+    }
+
+    private EntityQuery entityQuery(QueryPlan plan, Table<?> table, boolean singleStatement) {
+        Keyset keyset = plan.getPagination().getMode() == PaginationMode.CURSOR ? keyset(plan, table) : null;
+        // Window aggregates and seek values are appended after the entity columns and stripped from the rows.
+        List<SelectFieldOrAsterisk> hiddenFields = new ArrayList<>();
+        if (singleStatement) {
+            hiddenFields.addAll(buildAggregationFields(plan, table, true, true));
+        }
+        if (keyset != null) {
+            hiddenFields.addAll(keyset.selectFields());
+        }
+        List<SelectFieldOrAsterisk> selectFields = buildEntitySelectFields(plan, table, !hiddenFields.isEmpty());
+        selectFields.addAll(hiddenFields);
+        SelectConditionStep<Record> select = (plan.getFlags().isDistinct()
+                ? dslContext.selectDistinct(selectFields).from(table)
+                : dslContext.select(selectFields).from(table))
+                .where(buildCondition(plan, table));
+
+        Select<Record> limited = keyset == null
+                ? applyPagination(applySorting(select, plan, table), plan)
+                : applyKeyset(select, plan, keyset);
+        return new EntityQuery(limited, keyset, hiddenFields.size());
+    }
+
+    private boolean reportsNextPage(QueryPlan plan) {
+        PaginationMode mode = plan.getPagination().getMode();
+        return mode == PaginationMode.HAS_NEXT || mode == PaginationMode.CURSOR;
+    }
+
+    private PageInfo pageInfo(EntityQuery query, boolean hasNext, Record last, boolean truncated) {
+        String nextCursor = null;
+        if (query.keyset() != null && hasNext && last != null) {
+            nextCursor = query.keyset().cursorAfter(last, options.getCursorCodec());
+        }
+        return new PageInfo(hasNext, nextCursor, truncated ? Boolean.TRUE : null);
+    }
+
+    private ResultSizeLimits.Limits resultLimits(Table<?> table) {
+        ResultSizeLimits limits = options.getResultSizeLimits();
+        if (limits == null) {
+            return ResultSizeLimits.Limits.unlimited();
+        }
+        return limits.limitsFor(table.getSchema() == null ? null : table.getSchema().getName(), table.getName());
+    }
+
+    /**
+     * Reads rows in chunks until their estimated size exceeds {@code byteBudget}. The row that crosses the
+     * budget and everything after it are dropped, so a page is either complete or marked as truncated.
+     * <p>
+     * Postgres ignores the fetch size outside a transaction and would load the whole result before the first
+     * chunk, so the rows are read in a transaction of the statement's {@code DSLContext}: under Spring or jOOQ
+     * transaction management one that is nested in the caller's, if there is one. A new transaction on
+     * Postgres is made read-only.
+     */
+    private BudgetedResult fetchWithinBudget(ResultQuery<Record> select, long byteBudget) {
+        if (byteBudget == Long.MAX_VALUE) {
+            return new BudgetedResult(select.fetch(), false);
+        }
+        org.jooq.DSLContext source = select.configuration().dsl();
+        boolean readOnly = source.dialect().family() == SQLDialect.POSTGRES
+                && source.connectionResult(Connection::getAutoCommit);
+        return source.transactionResult(transaction -> {
+            if (readOnly) {
+                transaction.dsl().execute("set transaction read only");
+            }
+            select.attach(transaction);
+            return readWithinBudget(select, byteBudget);
+        });
+    }
+
+    private static BudgetedResult readWithinBudget(ResultQuery<Record> select, long byteBudget) {
+        try (Cursor<Record> cursor = select.fetchSize(BUDGET_CHUNK_ROWS).fetchLazy()) {
+            Result<Record> records = cursor.fetchNext(BUDGET_CHUNK_ROWS);
+            long bytes = 0;
+            int measured = 0;
+            while (true) {
+                for (; measured < records.size(); measured++) {
+                    bytes += estimatedBytes(records.get(measured));
+                    if (bytes > byteBudget) {
+                        records.subList(measured, records.size()).clear();
+                        return new BudgetedResult(records, true);
+                    }
+                }
+                if (!cursor.hasNext()) {
+                    return new BudgetedResult(records, false);
+                }
+                records.addAll(cursor.fetchNext(BUDGET_CHUNK_ROWS));
+            }
+        }
+    }
+
+    /**
+     * Rough heap size of a record: object headers plus the payload of strings and binary values.
+     */
+    private static long estimatedBytes(Record record) {
+        long bytes = 16 + 8L * record.size();
+        for (int i = 0; i < record.size(); i++) {
+            Object value = record.get(i);
+            if (value instanceof CharSequence text) {
+                bytes += 40 + 2L * text.length();
+            } else if (value instanceof byte[] binary) {
+                bytes += 16 + binary.length;
+            } else if (value != null) {
+                bytes += 24;
+            }
+        }
+        return bytes;
+    }
+
+    private Aggregates computeAggregations(QueryPlan plan, Table<?> table, CancellationScope scope) {
+        if (!requiresAggregations(plan)) {
+            return new Aggregates(Map.of(), null);
+        }
+        Long count = null;
+        CountPrecision countPrecision = null;
+        if (plan.getFlags().isCount()) {
+            count = estimateCount(plan, table, scope);
+            countPrecision = count == null ? CountPrecision.EXACT : CountPrecision.ESTIMATED;
+            Integer countLimit = plan.getFlags().getCountLimit();
+            if (count == null && countLimit != null) {
+                count = cappedCount(plan, table, countLimit, scope);
+                if (count > countLimit) {
+                    count = (long) countLimit;
+                    countPrecision = CountPrecision.CAPPED;
+                }
+            }
+        }
+        Map<String, Object> values = runAggregations(plan, table, count == null, scope);
+        if (count != null) {
+            values = withCount(values, count);
+        }
+        return new Aggregates(values, countPrecision);
+    }
+
+    /**
+     * Whether the page and its aggregations can be read from one statement with {@code agg(...) over ()}.
+     * <p>
+     * Window aggregates are evaluated over all filtered rows before {@code LIMIT/OFFSET}, so this saves a
+     * round trip and a second scan whenever both are requested. DISTINCT is applied after window functions
+     * and would change the rows being counted, a cursor position would exclude earlier rows from the
+     * aggregates, and estimated or capped counts must not scan every row, so those plans keep the separate
+     * aggregation query.
+     */
+    private boolean usesWindowAggregations(QueryPlan plan) {
+        if (!options.isWindowAggregations()
+                || !plan.getFlags().isEntities()
+                || plan.getFlags().isDistinct()
+                || plan.getPagination().getAfter() != null
+                || !requiresAggregations(plan)) {
+            return false;
+        }
+        if (!plan.getFlags().isCount()) {
+            return true;
+        }
+        return plan.getFlags().getCountStrategy() == CountStrategy.EXACT && plan.getFlags().getCountLimit() == null;
+    }
+
+    private Map<String, Object> windowAggregations(Record record) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (Field<?> field : record.fields()) {
+            if (field.getName().startsWith(WINDOW_ALIAS_PREFIX)) {
+                values.put(field.getName().substring(WINDOW_ALIAS_PREFIX.length()), record.get(field));
+            }
+        }
+        return values;
+    }
+
+    private List<JooqRow> withoutHiddenFields(List<Record> records, int entityFieldCount) {
+        if (records.isEmpty()) {
+            return List.of();
+        }
+        Field<?>[] entityFields = Arrays.copyOf(records.get(0).fields(), entityFieldCount);
+        return records.stream().map(record -> new JooqRow(record.into(entityFields))).toList();
     }
 
     private Table<?> resolveTable(String entityName) {
@@ -72,7 +1330,11 @@ public final class JooqQueryExecutor {
         return table;
     }
 
-    private List<SelectFieldOrAsterisk> buildEntitySelectFields(QueryPlan plan, Table<?> table) {
+    private List<SelectFieldOrAsterisk> buildEntitySelectFields(
+            QueryPlan plan,
+            Table<?> table,
+            boolean qualifyAsterisk
+    ) {
         List<SelectFieldOrAsterisk> fields = new ArrayList<>();
         if (!plan.getProjection().getFields().isEmpty()) {
             for (String fieldName : plan.getProjection().getFields()) {
@@ -80,35 +1342,60 @@ public final class JooqQueryExecutor {
             }
         }
         if (fields.isEmpty()) {
-            fields.add(DSL.asterisk());
+            // Several dialects reject a bare * next to other select items.
+            fields.add(qualifyAsterisk ? table.asterisk() : DSL.asterisk());
         }
         return fields;
     }
 
-    private List<SelectFieldOrAsterisk> buildAggregationFields(QueryPlan plan, Table<?> table) {
+    private List<SelectFieldOrAsterisk> buildAggregationFields(
+            QueryPlan plan,
+            Table<?> table,
+            boolean includeCount,
+            boolean window
+    ) {
         List<SelectFieldOrAsterisk> fields = new ArrayList<>();
-        if (plan.getFlags().isCount()) {
-            fields.add(DSL.count().as("count"));
+        if (includeCount && plan.getFlags().isCount()) {
+            fields.add(aggregate(DSL.count(), "count", window));
         }
         for (String fieldName : plan.getAggregations().getSumFields()) {
             Field<Double> field = resolveField(table, fieldName, Double.class);
-            fields.add(DSL.sum(field).as(fieldName + "_sum"));
+            fields.add(aggregate(DSL.sum(field), sumType(table, fieldName), fieldName + "_sum", window));
         }
         for (String fieldName : plan.getAggregations().getAvgFields()) {
             Field<Double> field = resolveField(table, fieldName, Double.class);
-            fields.add(DSL.avg(field).as(fieldName + "_avg"));
+            fields.add(aggregate(DSL.avg(field), sumType(table, fieldName), fieldName + "_avg", window));
         }
         for (String fieldName : plan.getAggregations().getMinFields()) {
             Field<Double> field = resolveField(table, fieldName, Double.class);
-            fields.add(DSL.min(field).as(fieldName + "_min"));
+            fields.add(aggregate(DSL.min(field), fieldName + "_min", window));
         }
         for (String fieldName : plan.getAggregations().getMaxFields()) {
             Field<Double> field = resolveField(table, fieldName, Double.class);
-            fields.add(DSL.max(field).as(fieldName + "_max"));
+            fields.add(aggregate(DSL.max(field), fieldName + "_max", window));
         }
         return fields;
     }
 
+    private Field<?> aggregate(AggregateFunction<?> function, String name, boolean window) {
+        return window ? function.over().as(WINDOW_ALIAS_PREFIX + name) : function.as(name);
+    }
+
+    private Field<?> aggregate(AggregateFunction<?> function, Class<?> type, String name, boolean window) {
+        Field<?> value = window ? function.over() : function;
+        return value.coerce(type).as(window ? WINDOW_ALIAS_PREFIX + name : name);
+    }
+
+    /**
+     * Type that sums and averages of a column are read as: {@code Double} for floating-point columns, whose
+     * sums may be NaN or infinite and have no decimal form, and {@code BigDecimal} for all others.
+     */
+    private Class<?> sumType(Table<?> table, String fieldName) {
+        Field<?> column = table.field(resolveField(table, fieldName, Object.class).getName());
+        Class<?> type = column == null ? null : column.getType();
+        return type == Double.class || type == Float.class ? Double.class : BigDecimal.class;
+    }
+
     private boolean requiresAggregations(QueryPlan plan) {
         return plan.getFlags().isCount()
                 || !plan.getAggregations().getSumFields().isEmpty()
@@ -117,22 +1404,242 @@ public final class JooqQueryExecutor {
                 || !plan.getAggregations().getMaxFields().isEmpty();
     }
 
-    private Map<String, Object> runAggregations(QueryPlan plan, Table<?> table) {
-        List<SelectFieldOrAsterisk> aggregationFields = buildAggregationFields(plan, table);
-        if (aggregationFields.isEmpty()) {
+    private Map<String, Object> runAggregations(
+            QueryPlan plan,
+            Table<?> table,
+            boolean includeCount,
+            CancellationScope scope
+    ) {
+        SelectConditionStep<Record> select = aggregationQuery(plan, table, includeCount);
+        if (select == null) {
             return Map.of();
         }
-        SelectConditionStep<Record> select = (plan.getFlags().isDistinct()
-                ? dslContext.selectDistinct(aggregationFields).from(table)
-                : dslContext.select(aggregationFields).from(table))
-                .where(buildCondition(plan, table));
-        Result<Record> result = select.fetch();
+        Result<Record> result = scope.fetch(
+                aggregationKind(plan),
+                table,
+                select,
+                () -> aggregationQuery(plan, table, includeCount)
+        );
         if (result.isEmpty()) {
             return Map.of();
         }
         return new JooqRow(result.get(0)).asMap();
     }
 
+    private SelectConditionStep<Record> aggregationQuery(QueryPlan plan, Table<?> table, boolean includeCount) {
+        List<SelectFieldOrAsterisk> aggregationFields = buildAggregationFields(plan, table, includeCount, false);
+        if (aggregationFields.isEmpty()) {
+            return null;
+        }
+        return (plan.getFlags().isDistinct()
+                ? dslContext.selectDistinct(aggregationFields).from(table)
+                : dslContext.select(aggregationFields).from(table))
+                .where(buildCondition(plan, table));
+    }
+
+    private Map<String, Object> withCount(Map<String, Object> aggregations, long count) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("count", count);
+        values.putAll(aggregations);
+        return values;
+    }
+
+    /**
+     * Counts matching rows, stopping after {@code countLimit + 1} so that large tables are never fully scanned.
+     */
+    private long cappedCount(QueryPlan plan, Table<?> table, int countLimit, CancellationScope scope) {
+        return scope.fetch(
+                StatementKind.COUNT,
+                table,
+                cappedCountQuery(plan, table, countLimit),
+                () -> cappedCountQuery(plan, table, countLimit)
+        ).get(0).value1();
+    }
+
+    private Select<Record1<Integer>> cappedCountQuery(QueryPlan plan, Table<?> table, int countLimit) {
+        Table<?> capped = dslContext.selectOne()
+                .from(table)
+                .where(buildCondition(plan, table))
+                .limit(countLimit + 1L)
+                .asTable("capped");
+        return dslContext.selectCount().from(capped);
+    }
+
+    private StatementKind aggregationKind(QueryPlan plan) {
+        Aggregations aggregations = plan.getAggregations();
+        boolean countOnly = aggregations.getSumFields().isEmpty()
+                && aggregations.getAvgFields().isEmpty()
+                && aggregations.getMinFields().isEmpty()
+                && aggregations.getMaxFields().isEmpty();
+        return countOnly ? StatementKind.COUNT : StatementKind.AGGREGATIONS;
+    }
+
+    /**
+     * Returns a row estimate when the plan's count strategy allows one, or {@code null} when an
+     * exact {@code count(*)} has to run.
+     */
+    private Long estimateCount(QueryPlan plan, Table<?> table, CancellationScope scope) {
+        CountStrategy strategy = plan.getFlags().getCountStrategy();
+        if (strategy == CountStrategy.EXACT) {
+            return null;
+        }
+        Long estimate = estimateRows(plan, table, scope);
+        if (estimate == null) {
+            return null;
+        }
+        if (strategy == CountStrategy.AUTO && estimate < options.getAutoCountThreshold()) {
+            return null;
+        }
+        return estimate;
+    }
+
+    /**
+     * Planner estimate of the rows the plan's filters match. The statistics and {@code EXPLAIN} reads run
+     * where counts run and within the plan's deadline.
+     */
+    private Long estimateRows(QueryPlan plan, Table<?> table, CancellationScope scope) {
+        if (plan.getFilters().getCriteria().isEmpty()) {
+            Long statistics = tableStatistics(table, scope);
+            if (statistics != null) {
+                return statistics;
+            }
+        }
+        try {
+            double rows = scope.run(
+                    StatementKind.COUNT,
+                    dslContext,
+                    dsl -> dsl.explain(dsl.selectOne().from(table).where(buildCondition(plan, table))).rows()
+            );
+            if (Double.isNaN(rows) || rows < 0) {
+                return null;
+            }
+            return Math.round(rows);
+        } catch (DataAccessException ignored) {
+            scope.checkActive();
+            return null;
+        }
+    }
+
+    /**
+     * Reads {@code pg_class.reltuples}, which Postgres keeps up to date through VACUUM/ANALYZE.
+     */
+    private Long tableStatistics(Table<?> table, CancellationScope scope) {
+        if (dslContext.dialect().family() != SQLDialect.POSTGRES) {
+            return null;
+        }
+        try {
+            Long reltuples = scope.fetch(
+                    StatementKind.COUNT,
+                    table,
+                    tableStatisticsQuery(table),
+                    () -> tableStatisticsQuery(table),
+                    query -> query.fetchOne(0, Long.class)
+            );
+            return reltuples == null || reltuples < 0 ? null : reltuples;
+        } catch (DataAccessException ignored) {
+            scope.checkActive();
+            return null;
+        }
+    }
+
+    private ResultQuery<Record> tableStatisticsQuery(Table<?> table) {
+        return dslContext.resultQuery(
+                "select reltuples::bigint from pg_class where oid = to_regclass(?)",
+                dslContext.render(table)
+        );
+    }
+
+    /**
+     * Rejects the plan when the cost guard's {@code EXPLAIN} estimates exceed the table's limits.
+     */
+    private void checkCost(QueryPlan plan, Table<?> table, CancellationScope scope) {
+        QueryCostGuard guard = options.getCostGuard();
+        if (guard == null) {
+            return;
+        }
+        String schemaName = table.getSchema() == null ? null : table.getSchema().getName();
+        QueryCostGuard.Limits limits = guard.limitsFor(schemaName, table.getName());
+        if (limits.isUnlimited()) {
+            return;
+        }
+        QueryCostGuard.Estimate estimate = guard.estimate(plan, () -> explain(plan, table, scope));
+        if (!limits.allows(estimate)) {
+            throw new QueryCostExceededException(
+                    table.getName(),
+                    estimate.cost(),
+                    estimate.rows(),
+                    unindexedFilters(plan, table)
+            );
+        }
+    }
+
+    /**
+     * Cost of the statement the plan runs and the number of rows its filters match, explained where that
+     * statement would run and within the plan's deadline.
+     */
+    private QueryCostGuard.Estimate explain(QueryPlan plan, Table<?> table, CancellationScope scope) {
+        StatementKind kind = plan.getFlags().isEntities() ? StatementKind.ENTITIES : aggregationKind(plan);
+        try {
+            return scope.run(kind, dslContext, dsl -> {
+                Select<?> statement = plan.getFlags().isEntities()
+                        ? entityQuery(plan, table, false).select()
+                        : aggregationQuery(plan, table, true);
+                double rows = dsl.explain(dsl.selectOne().from(table).where(buildCondition(plan, table))).rows();
+                double cost = statement == null ? 0 : dsl.explain(statement).cost();
+                return new QueryCostGuard.Estimate(cost, rows);
+            });
+        } catch (DataAccessException ignored) {
+            // Databases without EXPLAIN support are not guarded; a cancelled plan stops here.
+            scope.checkActive();
+            return QueryCostGuard.Estimate.UNKNOWN;
+        }
+    }
+
+    /**
+     * Filters and sort keys that no index can serve: columns that do not lead an index, case-insensitive
+     * comparisons and {@code LIKE} patterns with a leading wildcard. Falls back to all filters when every
+     * column is indexed, since the combination is then what makes the plan expensive.
+     */
+    private List<String> unindexedFilters(QueryPlan plan, Table<?> table) {
+        Set<String> indexed = new HashSet<>();
+        for (Index index : table.getIndexes()) {
+            if (!index.getFields().isEmpty()) {
+                indexed.add(index.getFields().get(0).getName().toLowerCase(Locale.ROOT));
+            }
+        }
+        UniqueKey<?> primaryKey = table.getPrimaryKey();
+        if (primaryKey != null && !primaryKey.getFields().isEmpty()) {
+            indexed.add(primaryKey.getFields().get(0).getName().toLowerCase(Locale.ROOT));
+        }
+        List<String> offending = new ArrayList<>();
+        for (FilterCriterion criterion : plan.getFilters().getCriteria()) {
+            String column = resolveField(table, criterion.getField(), Object.class).getName();
+            if (!indexed.contains(column.toLowerCase(Locale.ROOT))
+                    || criterion.isIgnoreCase()
+                    || hasLeadingWildcard(criterion)) {
+                offending.add(criterion.getField() + " " + criterion.getOperator());
+            }
+        }
+        for (SortField sortField : plan.getSorting().getFields()) {
+            String column = resolveField(table, sortField.getField(), Object.class).getName();
+            if (!indexed.contains(column.toLowerCase(Locale.ROOT))) {
+                offending.add(sortField.getField() + " (sort)");
+            }
+        }
+        if (offending.isEmpty()) {
+            for (FilterCriterion criterion : plan.getFilters().getCriteria()) {
+                offending.add(criterion.getField() + " " + criterion.getOperator());
+            }
+        }
+        return offending;
+    }
+
+    private boolean hasLeadingWildcard(FilterCriterion criterion) {
+        return criterion.getOperator() == QueryOperator.LIKE
+                && !criterion.getValues().isEmpty()
+                && stringValue(criterion.getValues().get(0).getValue()).startsWith("%");
+    }
+
     private Condition buildCondition(QueryPlan plan, Table<?> table) {
         Condition condition = DSL.trueCondition();
         for (FilterCriterion criterion : plan.getFilters().getCriteria()) {
@@ -230,11 +1737,13 @@ public final class JooqQueryExecutor {
             return select;
         }
         int limit = Math.max(pageSize, 0);
+        // One extra row tells whether a next page exists without counting.
+        int fetchSize = plan.getPagination().getMode() == PaginationMode.HAS_NEXT ? limit + 1 : limit;
         if (page == null || page <= 1) {
-            return select.limit(limit);
+            return select.limit(fetchSize);
         }
         int offset = (page - 1) * limit;
-        return select.limit(limit).offset(offset);
+        return select.limit(fetchSize).offset(offset);
     }
 
     private <T> Field<T> resolveField(Table<?> table, String fieldName, Class<T> type) {
@@ -245,4 +1754,206 @@ public final class JooqQueryExecutor {
         return field;
     }
 
+    /**
+     * Orders by the plan's sort fields followed by a tiebreaker that makes the order total: the primary key,
+     * else a unique key on non-null columns. Views have neither, so every comparable column is used; rows that
+     * are equal in all of them cannot be told apart, and one of them may be skipped at a page boundary.
+     * <p>
+     * NULLs sort after every value in ascending columns and before every value in descending ones, which is
+     * Postgres' default and keeps ordinary b-tree indexes usable.
+     */
+    private Keyset keyset(QueryPlan plan, Table<?> table) {
+        if (plan.getFlags().isDistinct()) {
+            throw new IllegalArgumentException("Cursor pagination does not support distinct");
+        }
+        if (options.getCursorCodec() == null) {
+            throw new IllegalStateException(
+                    "Cursor pagination requires a cursor secret shared by all nodes (viewton.jooq.cursor-secret)"
+            );
+        }
+        List<Field<?>> fields = new ArrayList<>();
+        List<SortDirection> directions = new ArrayList<>();
+        StringJoiner scope = new StringJoiner(",", table.getName() + "|", "");
+        Set<String> sortedNames = new HashSet<>();
+        for (SortField sortField : plan.getSorting().getFields()) {
+            Field<Object> field = resolveField(table, sortField.getField(), Object.class);
+            fields.add(field);
+            directions.add(sortField.getDirection());
+            scope.add(field.getName() + ":" + sortField.getDirection());
+            sortedNames.add(field.getName());
+        }
+        for (Field<?> keyField : tiebreaker(table)) {
+            if (sortedNames.add(keyField.getName())) {
+                fields.add(keyField);
+                directions.add(SortDirection.ASC);
+                scope.add(keyField.getName() + ":" + SortDirection.ASC);
+            }
+        }
+        return new Keyset(fields, directions, scope.toString());
+    }
+
+    private static List<? extends Field<?>> tiebreaker(Table<?> table) {
+        UniqueKey<?> primaryKey = table.getPrimaryKey();
+        if (primaryKey != null) {
+            return primaryKey.getFields();
+        }
+        for (UniqueKey<?> key : table.getKeys()) {
+            if (key.getFields().stream().noneMatch(field -> field.getDataType().nullable())) {
+                return key.getFields();
+            }
+        }
+        List<Field<?>> comparable = new ArrayList<>();
+        for (Field<?> field : table.fields()) {
+            DataType<?> type = field.getDataType();
+            if (!type.isLob()
+                    && (type.isNumeric() || type.isString() || type.isDateTime() || type.getType() == Boolean.class)) {
+                comparable.add(field);
+            }
+        }
+        if (comparable.isEmpty()) {
+            throw new IllegalArgumentException("Cursor pagination needs a comparable column on " + table.getName());
+        }
+        return comparable;
+    }
+
+    private Select<Record> applyKeyset(SelectConditionStep<Record> select, QueryPlan plan, Keyset keyset) {
+        Integer pageSize = plan.getPagination().getPageSize();
+        // One extra row tells whether a next page exists.
+        int fetchSize = pageSize == null ? 0 : Math.max(pageSize, 0) + 1;
+        String after = plan.getPagination().getAfter();
+        SelectSeekStepN<Record> ordered = after == null
+                ? select.orderBy(keyset.orderBy())
+                : select.and(keyset.after(after, options.getCursorCodec())).orderBy(keyset.orderBy());
+        return pageSize == null ? ordered : ordered.limit(fetchSize);
+    }
+
+    private record BudgetedResult(Result<Record> records, boolean truncated) {
+    }
+
+    private record ScanKey(Field<?> field, Object low, Object high) {
+    }
+
+    private record PartitionScan(EntityPage page, Map<String, Object> aggregates) {
+    }
+
+    /**
+     * Half-open key ranges {@code [..., b1)}, {@code [b1, b2)}, ..., {@code [bn, ...]} between the boundaries; the
+     * outer ranges are closed by the plan's own filters.
+     */
+    private record ScanRange(Field<?> key, List<Object> boundaries, boolean descending) {
+
+        /**
+         * The table restricted to each range, in the order the plan's rows come in.
+         */
+        List<Table<?>> partitions(Table<?> table) {
+            List<Table<?>> partitions = new ArrayList<>(boundaries.size() + 1);
+            for (int i = 0; i <= boundaries.size(); i++) {
+                Object from = i == 0 ? null : boundaries.get(i - 1);
+                Object to = i == boundaries.size() ? null : boundaries.get(i);
+                partitions.add(table.where(range(key, from, to)));
+            }
+            if (descending) {
+                Collections.reverse(partitions);
+            }
+            return partitions;
+        }
+
+        /**
+         * Table restricted to the ranges from position {@code first} of {@link #partitions(Table)} on, as one
+         * range; the whole table for the first position.
+         */
+        Table<?> remainder(Table<?> table, int first) {
+            if (first == 0) {
+                return table;
+            }
+            return descending
+                    ? table.where(range(key, null, boundaries.get(boundaries.size() - first)))
+                    : table.where(range(key, boundaries.get(first - 1), null));
+        }
+
+        private static <T> Condition range(Field<T> key, Object from, Object to) {
+            Condition condition = DSL.noCondition();
+            if (from != null) {
+                condition = condition.and(key.ge(DSL.val(from, key)));
+            }
+            if (to != null) {
+                condition = condition.and(key.lt(DSL.val(to, key)));
+            }
+            return condition;
+        }
+    }
+
+    private record EntityPage(List<JooqRow> rows, PageInfo pageInfo, Map<String, Object> windowAggregations) {
+        private static final EntityPage EMPTY = new EntityPage(List.of(), PageInfo.empty(), null);
+    }
+
+    private record EntityQuery(Select<Record> select, Keyset keyset, int hiddenFieldCount) {
+    }
+
+    private record Aggregates(Map<String, Object> values, CountPrecision countPrecision) {
+    }
+
+    private record Keyset(List<Field<?>> fields, List<SortDirection> directions, String scope) {
+
+        List<org.jooq.SortField<?>> orderBy() {
+            List<org.jooq.SortField<?>> orderBy = new ArrayList<>(fields.size());
+            for (int i = 0; i < fields.size(); i++) {
+                orderBy.add(directions.get(i) == SortDirection.ASC
+                        ? fields.get(i).asc().nullsLast()
+                        : fields.get(i).desc().nullsFirst());
+            }
+            return orderBy;
+        }
+
+        List<SelectFieldOrAsterisk> selectFields() {
+            List<SelectFieldOrAsterisk> aliased = new ArrayList<>();
+            for (int i = 0; i < fields.size(); i++) {
+                aliased.add(fields.get(i).as(SEEK_ALIAS_PREFIX + i));
+            }
+            return aliased;
+        }
+
+        String cursorAfter(Record record, CursorCodec codec) {
+            List<String> values = new ArrayList<>();
+            for (int i = 0; i < fields.size(); i++) {
+                Object value = record.get(SEEK_ALIAS_PREFIX + i);
+                values.add(value == null ? null : value.toString());
+            }
+            return codec.encode(scope, values);
+        }
+
+        /**
+         * Rows after the position in the token: for some column i, every earlier column equals the position
+         * and column i comes after it, with NULL treated as larger than any value.
+         */
+        Condition after(String token, CursorCodec codec) {
+            List<String> values = codec.decode(token, scope);
+            if (values.size() != fields.size()) {
+                throw new IllegalArgumentException("Cursor was issued for a different query");
+            }
+            List<Condition> alternatives = new ArrayList<>();
+            Condition equalSoFar = DSL.noCondition();
+            for (int i = 0; i < fields.size(); i++) {
+                @SuppressWarnings("unchecked")
+                Field<Object> field = (Field<Object>) fields.get(i);
+                Object value = values.get(i) == null ? null : field.getDataType().convert(values.get(i));
+                Condition follows = follows(field, value, directions.get(i));
+                if (follows != null) {
+                    alternatives.add(equalSoFar.and(follows));
+                }
+                equalSoFar = equalSoFar.and(value == null ? field.isNull() : field.eq(DSL.val(value, field)));
+            }
+            return alternatives.isEmpty() ? DSL.falseCondition() : DSL.or(alternatives);
+        }
+
+        /**
+         * Values of the column that come after {@code value}, or {@code null} when none do.
+         */
+        private static Condition follows(Field<Object> field, Object value, SortDirection direction) {
+            if (direction == SortDirection.ASC) {
+                return value == null ? null : field.gt(DSL.val(value, field)).or(field.isNull());
+            }
+            return value == null ? field.isNotNull() : field.lt(DSL.val(value, field));
+        }
+    }
 }
@@ -0,0 +1,58 @@
+package com.viewton.jooq.executor;
+
+import java.util.List;
+
+/**
+ * Thrown when {@link QueryCostGuard} rejects a plan because the planner expects it to be too expensive.
+ */
+public final class QueryCostExceededException extends RuntimeException {
+    private final String table;
+    private final double estimatedCost;
+    private final double estimatedRows;
+    private final List<String> offendingFilters;
+
+    public QueryCostExceededException(
+            String table,
+            double estimatedCost,
+            double estimatedRows,
+            List<String> offendingFilters
+    ) {
+        super(message(table, estimatedCost, estimatedRows, offendingFilters));
+        this.table = table;
+        this.estimatedCost = estimatedCost;
+        this.estimatedRows = estimatedRows;
+        this.offendingFilters = List.copyOf(offendingFilters);
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public double getEstimatedCost() {
+        return estimatedCost;
+    }
+
+    public double getEstimatedRows() {
+        return estimatedRows;
+    }
+
+    /**
+     * Filters and sort keys on columns that no index starts with, e.g. {@code note LIKE}.
+     */
+    public List<String> getOffendingFilters() {
+        return offendingFilters;
+    }
+
+    private static String message(String table, double cost, double rows, List<String> offendingFilters) {
+        String message = String.format(
+                "Query on %s exceeds its cost limit (estimated cost %.0f, %.0f rows)",
+                table,
+                cost,
+                rows
+        );
+        if (offendingFilters.isEmpty()) {
+            return message;
+        }
+        return message + "; unindexed filters: " + String.join(", ", offendingFilters);
+    }
+}
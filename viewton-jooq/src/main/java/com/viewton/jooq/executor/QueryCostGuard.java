@@ -0,0 +1,165 @@
+package com.viewton.jooq.executor;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.viewton.plan.Aggregations;
+import com.viewton.plan.Filters;
+import com.viewton.plan.PaginationMode;
+import com.viewton.plan.QueryPlan;
+import com.viewton.plan.Sorting;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Pre-execution guard that rejects plans whose planner estimates exceed per-table limits.
+ * <p>
+ * Estimates come from {@code EXPLAIN} and are cached per plan shape: the entity, the filters with their values,
+ * sorting, projection, aggregations and page size. Values are part of the shape because the planner's estimate
+ * depends on them: a common value matches far more rows than a rare one, and {@code LIKE '%abc%'} cannot use
+ * the index that serves {@code LIKE 'abc%'}. Only the offset is coarsened: deep offsets are bucketed by order
+ * of magnitude, so all pages of one query share an estimate, but page 2 and page 20 000 do not.
+ */
+public final class QueryCostGuard {
+    private final Limits defaultLimits;
+    private final Map<String, Limits> tableLimits;
+    private final Cache<PlanShape, Estimate> estimates;
+
+    private QueryCostGuard(Builder builder) {
+        this.defaultLimits = builder.defaultLimits;
+        this.tableLimits = Map.copyOf(builder.tableLimits);
+        this.estimates = Caffeine.newBuilder()
+                .maximumSize(builder.cacheSize)
+                .expireAfterWrite(builder.cacheTtl)
+                .build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Limits for a table, looked up by qualified name ({@code schema.table}) first and by table name second.
+     */
+    public Limits limitsFor(String schemaName, String tableName) {
+        Objects.requireNonNull(tableName, "tableName");
+        String name = tableName.toLowerCase(Locale.ROOT);
+        if (schemaName != null) {
+            Limits qualified = tableLimits.get(schemaName.toLowerCase(Locale.ROOT) + "." + name);
+            if (qualified != null) {
+                return qualified;
+            }
+        }
+        return tableLimits.getOrDefault(name, defaultLimits);
+    }
+
+    Estimate estimate(QueryPlan plan, Supplier<Estimate> explain) {
+        return estimates.get(PlanShape.of(plan), ignored -> explain.get());
+    }
+
+    /**
+     * Upper bounds on the planner's estimates; {@code null} leaves a bound unchecked.
+     */
+    public record Limits(Double maxCost, Double maxRows) {
+        private static final Limits UNLIMITED = new Limits(null, null);
+
+        public static Limits unlimited() {
+            return UNLIMITED;
+        }
+
+        public boolean isUnlimited() {
+            return maxCost == null && maxRows == null;
+        }
+
+        boolean allows(Estimate estimate) {
+            return (maxCost == null || !(estimate.cost() > maxCost))
+                    && (maxRows == null || !(estimate.rows() > maxRows));
+        }
+    }
+
+    /**
+     * Planner estimates of a plan; {@code NaN} when the database could not provide one.
+     */
+    public record Estimate(double cost, double rows) {
+        static final Estimate UNKNOWN = new Estimate(Double.NaN, Double.NaN);
+    }
+
+    private record PlanShape(
+            String entity,
+            Filters filters,
+            List<String> projection,
+            Sorting sorting,
+            Aggregations aggregations,
+            boolean entities,
+            boolean distinct,
+            boolean count,
+            Integer pageSize,
+            PaginationMode mode,
+            int offsetMagnitude
+    ) {
+        static PlanShape of(QueryPlan plan) {
+            Integer page = plan.getPagination().getPage();
+            Integer pageSize = plan.getPagination().getPageSize();
+            long offset = page == null || pageSize == null || page <= 1 ? 0 : (long) (page - 1) * pageSize;
+            return new PlanShape(
+                    plan.getEntity().name(),
+                    plan.getFilters(),
+                    plan.getProjection().getFields(),
+                    plan.getSorting(),
+                    plan.getAggregations(),
+                    plan.getFlags().isEntities(),
+                    plan.getFlags().isDistinct(),
+                    plan.getFlags().isCount(),
+                    pageSize,
+                    plan.getPagination().getMode(),
+                    64 - Long.numberOfLeadingZeros(offset)
+            );
+        }
+    }
+
+    public static final class Builder {
+        private Limits defaultLimits = Limits.unlimited();
+        private final Map<String, Limits> tableLimits = new HashMap<>();
+        private long cacheSize = 10_000;
+        private Duration cacheTtl = Duration.ofMinutes(10);
+
+        public Builder defaultLimits(Limits defaultLimits) {
+            this.defaultLimits = Objects.requireNonNull(defaultLimits, "defaultLimits");
+            return this;
+        }
+
+        /**
+         * Limits for one table, named either {@code table} or {@code schema.table}.
+         */
+        public Builder tableLimits(String tableName, Limits limits) {
+            Objects.requireNonNull(tableName, "tableName");
+            tableLimits.put(tableName.toLowerCase(Locale.ROOT), Objects.requireNonNull(limits, "limits"));
+            return this;
+        }
+
+        public Builder cacheSize(long cacheSize) {
+            if (cacheSize < 0) {
+                throw new IllegalArgumentException("cacheSize must not be negative");
+            }
+            this.cacheSize = cacheSize;
+            return this;
+        }
+
+        /**
+         * How long an estimate is reused; it should be shorter than the time statistics take to drift.
+         */
+        public Builder cacheTtl(Duration cacheTtl) {
+            this.cacheTtl = Objects.requireNonNull(cacheTtl, "cacheTtl");
+            return this;
+        }
+
+        public QueryCostGuard build() {
+            return new QueryCostGuard(this);
+        }
+    }
+}
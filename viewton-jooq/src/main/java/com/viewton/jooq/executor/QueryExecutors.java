@@ -0,0 +1,64 @@
+package com.viewton.jooq.executor;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Factories for the executors that run Viewton queries off the caller thread.
+ * <p>
+ * Virtual threads are used when the runtime provides them (Java 21+). The library targets Java 17, so
+ * they are looked up reflectively and platform threads are used otherwise.
+ */
+public final class QueryExecutors {
+    private static final int DEFAULT_POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    private QueryExecutors() {
+    }
+
+    /**
+     * Returns a virtual-thread-per-task executor, or a fixed pool of {@code fallbackPoolSize} daemon threads
+     * on runtimes without virtual threads.
+     */
+    public static ExecutorService newAsyncExecutor(int fallbackPoolSize) {
+        if (fallbackPoolSize <= 0) {
+            throw new IllegalArgumentException("fallbackPoolSize must be positive");
+        }
+        ExecutorService virtualThreads = newVirtualThreadPerTaskExecutor();
+        if (virtualThreads != null) {
+            return virtualThreads;
+        }
+        return Executors.newFixedThreadPool(fallbackPoolSize, daemonThreads("viewton-async-"));
+    }
+
+    /**
+     * Process-wide executor used by {@link JooqQueryExecutor#executeAsync} when none is configured.
+     */
+    static ExecutorService sharedAsyncExecutor() {
+        return SharedAsyncExecutor.INSTANCE;
+    }
+
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException unsupported) {
+            return null;
+        }
+    }
+
+    static ThreadFactory daemonThreads(String namePrefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class SharedAsyncExecutor {
+        private static final ExecutorService INSTANCE = newAsyncExecutor(DEFAULT_POOL_SIZE);
+    }
+}
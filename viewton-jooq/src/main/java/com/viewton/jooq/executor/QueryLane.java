@@ -0,0 +1,29 @@
+package com.viewton.jooq.executor;
+
+import com.viewton.plan.QueryPlan;
+
+/**
+ * Admission lanes of {@link QueryScheduler}. Each lane has its own concurrency cap, so a burst in one lane
+ * cannot take the connections the others need.
+ */
+public enum QueryLane {
+    /**
+     * Pages of entities requested by interactive clients.
+     */
+    INTERACTIVE,
+    /**
+     * Aggregation-only queries, which typically scan more rows than a page.
+     */
+    AGGREGATE,
+    /**
+     * Long-running streams and exports.
+     */
+    EXPORT;
+
+    /**
+     * Lane of a plan executed for a regular (non-streaming) response.
+     */
+    public static QueryLane of(QueryPlan plan) {
+        return plan.getFlags().isEntities() ? INTERACTIVE : AGGREGATE;
+    }
+}
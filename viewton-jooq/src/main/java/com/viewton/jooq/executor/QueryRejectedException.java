@@ -0,0 +1,12 @@
+package com.viewton.jooq.executor;
+
+/**
+ * Thrown when {@link QueryScheduler} sheds a query because it waited in the queue longer than allowed, or when
+ * {@link ScrollRegistry} refuses a scroll because too many are open.
+ */
+public final class QueryRejectedException extends RuntimeException {
+
+    public QueryRejectedException(String message) {
+        super(message);
+    }
+}
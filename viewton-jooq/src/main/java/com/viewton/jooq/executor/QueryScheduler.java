@@ -0,0 +1,357 @@
+package com.viewton.jooq.executor;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Admission control in front of {@link JooqQueryExecutor}.
+ * <p>
+ * Queries are admitted per {@link QueryLane}, each lane with its own concurrency cap, and additionally capped
+ * per table across all lanes. Queries that cannot start right away wait in their lane, queued per caller key
+ * and admitted round-robin across callers, so one caller submitting many queries does not delay the queries
+ * of others. A query that waits longer than the configured budget is shed with a {@link QueryRejectedException}.
+ */
+public final class QueryScheduler {
+    private final Map<QueryLane, Lane> lanes = new EnumMap<>(QueryLane.class);
+    private final Map<String, Integer> runningByTable = new HashMap<>();
+    private final int tableConcurrency;
+    private final Duration maxQueueWait;
+
+    private QueryScheduler(Builder builder) {
+        for (QueryLane lane : QueryLane.values()) {
+            lanes.put(lane, new Lane(builder.laneConcurrency.get(lane)));
+        }
+        this.tableConcurrency = builder.tableConcurrency;
+        this.maxQueueWait = builder.maxQueueWait;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Runs {@code task} once the query is admitted and holds its slot until the task's future completes.
+     * <p>
+     * Cancelling the returned future while the query is queued removes it from the queue; once started, the
+     * cancellation is passed on to the task's future.
+     */
+    public <T> CompletableFuture<T> submit(
+            QueryLane lane,
+            String table,
+            String callerKey,
+            Supplier<CompletableFuture<T>> task
+    ) {
+        Objects.requireNonNull(task, "task");
+        CompletableFuture<Permit> admission = admit(lane, table, callerKey);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        admission.whenComplete((permit, rejected) -> {
+            if (rejected != null) {
+                result.completeExceptionally(rejected);
+                return;
+            }
+            CompletableFuture<T> running;
+            try {
+                running = task.get();
+            } catch (RuntimeException | Error failure) {
+                permit.close();
+                result.completeExceptionally(failure);
+                return;
+            }
+            running.whenComplete((value, failure) -> {
+                permit.close();
+                if (failure != null) {
+                    result.completeExceptionally(failure);
+                } else {
+                    result.complete(value);
+                }
+            });
+            result.whenComplete((ignored, failure) -> {
+                if (failure instanceof CancellationException) {
+                    running.cancel(true);
+                }
+            });
+        });
+        result.whenComplete((ignored, failure) -> {
+            if (failure instanceof CancellationException) {
+                admission.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Waits for a slot in {@code lane} and for {@code table}. The returned permit must be closed when the
+     * query is done. The future fails with {@link QueryRejectedException} when the wait exceeds the budget.
+     */
+    public CompletableFuture<Permit> admit(QueryLane lane, String table, String callerKey) {
+        Objects.requireNonNull(lane, "lane");
+        Objects.requireNonNull(table, "table");
+        Waiter waiter = new Waiter(lane, table, callerKey == null ? "" : callerKey);
+        synchronized (this) {
+            lanes.get(lane).enqueue(waiter);
+        }
+        waiter.future.whenComplete((ignored, failure) -> {
+            if (failure != null) {
+                synchronized (this) {
+                    lanes.get(lane).remove(waiter);
+                }
+            }
+        });
+        dispatch();
+        if (!waiter.future.isDone()) {
+            CompletableFuture.delayedExecutor(maxQueueWait.toNanos(), TimeUnit.NANOSECONDS).execute(() -> shed(waiter));
+        }
+        return waiter.future;
+    }
+
+    /**
+     * Snapshot of queue depth, running queries and queue wait times per lane.
+     */
+    public synchronized Stats stats() {
+        Map<QueryLane, LaneStats> snapshot = new EnumMap<>(QueryLane.class);
+        lanes.forEach((name, lane) -> snapshot.put(name, lane.stats()));
+        return new Stats(snapshot);
+    }
+
+    private void dispatch() {
+        List<Grant> grants = new ArrayList<>();
+        synchronized (this) {
+            for (Lane lane : lanes.values()) {
+                Waiter waiter;
+                while (lane.running < lane.concurrency && (waiter = lane.poll(this::hasTableCapacity)) != null) {
+                    lane.running++;
+                    runningByTable.merge(waiter.table, 1, Integer::sum);
+                    long waitedNanos = System.nanoTime() - waiter.enqueuedNanos;
+                    lane.admitted++;
+                    lane.totalWaitNanos += waitedNanos;
+                    lane.maxWaitNanos = Math.max(lane.maxWaitNanos, waitedNanos);
+                    grants.add(new Grant(waiter, new Permit(this, waiter.lane, waiter.table)));
+                }
+            }
+        }
+        // Completed outside the lock: dependents start queries on this thread.
+        for (Grant grant : grants) {
+            if (!grant.waiter.future.complete(grant.permit)) {
+                grant.permit.close();
+            }
+        }
+    }
+
+    private void shed(Waiter waiter) {
+        QueryRejectedException rejected = new QueryRejectedException(
+                "Query waited more than " + maxQueueWait.toMillis() + " ms in the " + waiter.lane + " lane"
+        );
+        synchronized (this) {
+            // Removed under the lock so that dispatch() cannot admit the waiter while it is being rejected.
+            if (waiter.future.isDone() || !lanes.get(waiter.lane).remove(waiter)) {
+                return;
+            }
+            lanes.get(waiter.lane).rejected++;
+        }
+        waiter.future.completeExceptionally(rejected);
+    }
+
+    private boolean hasTableCapacity(String table) {
+        return runningByTable.getOrDefault(table, 0) < tableConcurrency;
+    }
+
+    private void release(QueryLane lane, String table) {
+        synchronized (this) {
+            lanes.get(lane).running--;
+            runningByTable.computeIfPresent(table, (ignored, running) -> running > 1 ? running - 1 : null);
+        }
+        dispatch();
+    }
+
+    /**
+     * Slot held by an admitted query; closing it admits the next waiting query.
+     */
+    public static final class Permit implements AutoCloseable {
+        private final QueryScheduler scheduler;
+        private final QueryLane lane;
+        private final String table;
+        private boolean released;
+
+        private Permit(QueryScheduler scheduler, QueryLane lane, String table) {
+            this.scheduler = scheduler;
+            this.lane = lane;
+            this.table = table;
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+            }
+            scheduler.release(lane, table);
+        }
+    }
+
+    public record Stats(Map<QueryLane, LaneStats> lanes) {
+        public Stats {
+            lanes = Collections.unmodifiableMap(new EnumMap<>(lanes));
+        }
+    }
+
+    public record LaneStats(
+            int concurrency,
+            int running,
+            int queued,
+            long admitted,
+            long rejected,
+            Duration averageWait,
+            Duration maxWait
+    ) {
+    }
+
+    private record Grant(Waiter waiter, Permit permit) {
+    }
+
+    private static final class Waiter {
+        private final QueryLane lane;
+        private final String table;
+        private final String callerKey;
+        private final long enqueuedNanos = System.nanoTime();
+        private final CompletableFuture<Permit> future = new CompletableFuture<>();
+
+        private Waiter(QueryLane lane, String table, String callerKey) {
+            this.lane = lane;
+            this.table = table;
+            this.callerKey = callerKey;
+        }
+    }
+
+    /**
+     * Per-lane queues keyed by caller; the map's iteration order is the round-robin order.
+     */
+    private static final class Lane {
+        private final int concurrency;
+        private final LinkedHashMap<String, ArrayDeque<Waiter>> queues = new LinkedHashMap<>();
+        private int running;
+        private int queued;
+        private long admitted;
+        private long rejected;
+        private long totalWaitNanos;
+        private long maxWaitNanos;
+
+        private Lane(int concurrency) {
+            this.concurrency = concurrency;
+        }
+
+        void enqueue(Waiter waiter) {
+            queues.computeIfAbsent(waiter.callerKey, ignored -> new ArrayDeque<>()).addLast(waiter);
+            queued++;
+        }
+
+        boolean remove(Waiter waiter) {
+            ArrayDeque<Waiter> queue = queues.get(waiter.callerKey);
+            if (queue == null || !queue.remove(waiter)) {
+                return false;
+            }
+            queued--;
+            if (queue.isEmpty()) {
+                queues.remove(waiter.callerKey);
+            }
+            return true;
+        }
+
+        /**
+         * Takes the oldest admissible waiter of the first caller in round-robin order and moves that caller
+         * to the back.
+         */
+        Waiter poll(Predicate<String> tableHasCapacity) {
+            Iterator<Map.Entry<String, ArrayDeque<Waiter>>> callers = queues.entrySet().iterator();
+            while (callers.hasNext()) {
+                Map.Entry<String, ArrayDeque<Waiter>> caller = callers.next();
+                ArrayDeque<Waiter> queue = caller.getValue();
+                Iterator<Waiter> waiters = queue.iterator();
+                while (waiters.hasNext()) {
+                    Waiter waiter = waiters.next();
+                    if (waiter.future.isDone()) {
+                        continue;
+                    }
+                    if (tableHasCapacity.test(waiter.table)) {
+                        waiters.remove();
+                        queued--;
+                        callers.remove();
+                        if (!queue.isEmpty()) {
+                            queues.put(caller.getKey(), queue);
+                        }
+                        return waiter;
+                    }
+                }
+            }
+            return null;
+        }
+
+        LaneStats stats() {
+            Duration averageWait = Duration.ofNanos(admitted == 0 ? 0 : totalWaitNanos / admitted);
+            return new LaneStats(
+                    concurrency,
+                    running,
+                    queued,
+                    admitted,
+                    rejected,
+                    averageWait,
+                    Duration.ofNanos(maxWaitNanos)
+            );
+        }
+    }
+
+    public static final class Builder {
+        private final Map<QueryLane, Integer> laneConcurrency = new EnumMap<>(Map.of(
+                QueryLane.INTERACTIVE, 32,
+                QueryLane.AGGREGATE, 8,
+                QueryLane.EXPORT, 4
+        ));
+        private int tableConcurrency = 16;
+        private Duration maxQueueWait = Duration.ofSeconds(2);
+
+        public Builder laneConcurrency(QueryLane lane, int concurrency) {
+            Objects.requireNonNull(lane, "lane");
+            if (concurrency <= 0) {
+                throw new IllegalArgumentException("Lane concurrency must be positive");
+            }
+            laneConcurrency.put(lane, concurrency);
+            return this;
+        }
+
+        public Builder tableConcurrency(int tableConcurrency) {
+            if (tableConcurrency <= 0) {
+                throw new IllegalArgumentException("tableConcurrency must be positive");
+            }
+            this.tableConcurrency = tableConcurrency;
+            return this;
+        }
+
+        public Builder maxQueueWait(Duration maxQueueWait) {
+            Objects.requireNonNull(maxQueueWait, "maxQueueWait");
+            if (maxQueueWait.isNegative()) {
+                throw new IllegalArgumentException("maxQueueWait must not be negative");
+            }
+            this.maxQueueWait = maxQueueWait;
+            return this;
+        }
+
+        public QueryScheduler build() {
+            return new QueryScheduler(this);
+        }
+    }
+}
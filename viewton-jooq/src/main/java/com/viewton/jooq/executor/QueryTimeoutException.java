@@ -0,0 +1,16 @@
+package com.viewton.jooq.executor;
+
+/**
+ * Thrown when a plan does not finish before its deadline. Statements still running at that point are
+ * cancelled through JDBC.
+ */
+public final class QueryTimeoutException extends RuntimeException {
+
+    public QueryTimeoutException(String message) {
+        super(message);
+    }
+
+    public QueryTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,148 @@
+package com.viewton.jooq.executor;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Splits the value range of a numeric or date/time key into sub-ranges of about equal width, so that each can
+ * be scanned on its own connection.
+ * <p>
+ * Values are mapped to positions on a number line: the number itself, the epoch day of a date, or the epoch
+ * second, with a fraction for nanoseconds, of a timestamp. Boundaries are taken at equal steps between the
+ * positions of the bounds and mapped back to the bounds' type, rounding down to the type's precision.
+ */
+final class RangePartitions {
+    private static final BigDecimal NANOS_PER_SECOND = BigDecimal.valueOf(1_000_000_000L);
+
+    private RangePartitions() {
+    }
+
+    /**
+     * Inner boundaries {@code b1 < b2 < ...} that cut {@code [low, high]} into at most {@code partitions}
+     * non-empty ranges {@code [low, b1)}, {@code [b1, b2)}, ..., {@code [bn, high]}, of the same type as the
+     * bounds. Narrow integer and date ranges give fewer boundaries than requested.
+     *
+     * @return the boundaries, or an empty list when the range cannot be split: fewer than two partitions,
+     * {@code low >= high}, or bounds of different or unsupported types
+     */
+    static List<Object> boundaries(Object low, Object high, int partitions) {
+        Objects.requireNonNull(low, "low");
+        Objects.requireNonNull(high, "high");
+        if (partitions < 2 || low.getClass() != high.getClass() || position(low) == null) {
+            return List.of();
+        }
+        BigDecimal start = position(low);
+        BigDecimal width = position(high).subtract(start);
+        if (width.signum() <= 0) {
+            return List.of();
+        }
+        List<Object> boundaries = new ArrayList<>(partitions - 1);
+        BigDecimal previous = start;
+        for (int i = 1; i < partitions; i++) {
+            BigDecimal step = width.multiply(BigDecimal.valueOf(i))
+                    .divide(BigDecimal.valueOf(partitions), MathContext.DECIMAL128);
+            Object boundary = value(start.add(step), low);
+            BigDecimal boundaryPosition = position(boundary);
+            if (boundaryPosition.compareTo(previous) > 0) {
+                boundaries.add(boundary);
+                previous = boundaryPosition;
+            }
+        }
+        return boundaries;
+    }
+
+    /**
+     * Position of a supported value, or {@code null} for other types.
+     */
+    private static BigDecimal position(Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return BigDecimal.valueOf(((Number) value).longValue());
+        }
+        if (value instanceof BigInteger number) {
+            return new BigDecimal(number);
+        }
+        if (value instanceof BigDecimal number) {
+            return number;
+        }
+        if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            return Double.isFinite(number) ? BigDecimal.valueOf(number) : null;
+        }
+        if (value instanceof LocalDate date) {
+            return BigDecimal.valueOf(date.toEpochDay());
+        }
+        if (value instanceof LocalDateTime dateTime) {
+            return seconds(dateTime.toInstant(ZoneOffset.UTC));
+        }
+        if (value instanceof OffsetDateTime dateTime) {
+            return seconds(dateTime.toInstant());
+        }
+        if (value instanceof Instant instant) {
+            return seconds(instant);
+        }
+        return null;
+    }
+
+    /**
+     * Value at {@code position}, of the same type as {@code sample}.
+     */
+    private static Object value(BigDecimal position, Object sample) {
+        BigDecimal whole = position.setScale(0, RoundingMode.FLOOR);
+        if (sample instanceof Long) {
+            return whole.longValueExact();
+        }
+        if (sample instanceof Integer) {
+            return whole.intValueExact();
+        }
+        if (sample instanceof Short) {
+            return whole.shortValueExact();
+        }
+        if (sample instanceof Byte) {
+            return whole.byteValueExact();
+        }
+        if (sample instanceof BigInteger) {
+            return whole.toBigIntegerExact();
+        }
+        if (sample instanceof BigDecimal number) {
+            return position.setScale(Math.max(number.scale(), 0), RoundingMode.FLOOR);
+        }
+        if (sample instanceof Double) {
+            return position.doubleValue();
+        }
+        if (sample instanceof Float) {
+            return position.floatValue();
+        }
+        if (sample instanceof LocalDate) {
+            return LocalDate.ofEpochDay(whole.longValueExact());
+        }
+        Instant instant = instant(position);
+        if (sample instanceof LocalDateTime) {
+            return LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+        }
+        if (sample instanceof OffsetDateTime dateTime) {
+            return instant.atOffset(dateTime.getOffset());
+        }
+        return instant;
+    }
+
+    private static BigDecimal seconds(Instant instant) {
+        return BigDecimal.valueOf(instant.getEpochSecond())
+                .add(BigDecimal.valueOf(instant.getNano()).divide(NANOS_PER_SECOND));
+    }
+
+    private static Instant instant(BigDecimal seconds) {
+        BigDecimal whole = seconds.setScale(0, RoundingMode.FLOOR);
+        long nanos = seconds.subtract(whole).multiply(NANOS_PER_SECOND).setScale(0, RoundingMode.FLOOR).longValue();
+        return Instant.ofEpochSecond(whole.longValueExact(), nanos);
+    }
+}
@@ -0,0 +1,39 @@
+package com.viewton.jooq.executor;
+
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+/**
+ * Measures how far a read replica is behind the primary.
+ */
+@FunctionalInterface
+public interface ReplicaLagProbe {
+
+    /**
+     * @return the replica's replication lag; a failure marks the replica as stale until the next probe
+     */
+    Duration lag(DSLContext replica);
+
+    /**
+     * Reads the replay delay on Postgres standbys and reports no lag for other databases, so that loopback
+     * replicas such as a second H2 connection are always eligible.
+     * <p>
+     * A standby that has replayed everything it received reports no lag even when the primary has been idle.
+     */
+    static ReplicaLagProbe defaults() {
+        return replica -> {
+            if (replica.dialect().family() != SQLDialect.POSTGRES) {
+                return Duration.ZERO;
+            }
+            BigDecimal seconds = replica.resultQuery(
+                    "select case when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0"
+                            + " else extract(epoch from now() - pg_last_xact_replay_timestamp()) end"
+            ).queryTimeout(1).fetchOne(0, BigDecimal.class);
+            // Null on a server that is not in recovery, i.e. the primary itself.
+            return seconds == null ? Duration.ZERO : Duration.ofMillis(seconds.movePointRight(3).longValue());
+        };
+    }
+}
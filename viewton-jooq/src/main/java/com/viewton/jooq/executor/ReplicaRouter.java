@@ -0,0 +1,297 @@
+package com.viewton.jooq.executor;
+
+import org.jooq.DSLContext;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes read statements to read replicas by {@link StatementKind}.
+ * <p>
+ * Only the configured kinds leave the primary; by default counts, aggregations and exports do, while entity
+ * pages stay on the primary so that clients read their own writes. A replica is eligible while its last
+ * measured lag is within the maximum staleness. Lag is probed at most once per check interval, on the thread
+ * that needs the replica, and a failed probe marks the replica stale until the next one. When no replica is
+ * eligible the statement runs on the primary. Resources handed over with a replica, such as the
+ * {@code DataSource} behind its {@code DSLContext}, are owned by the router and released by {@link #close()}.
+ */
+public final class ReplicaRouter implements AutoCloseable {
+    private final List<Replica> replicas;
+    private final Set<StatementKind> routedKinds;
+    private final Balancing balancing;
+    private final Duration maxStaleness;
+    private final long lagCheckIntervalNanos;
+    private final ReplicaLagProbe lagProbe;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private ReplicaRouter(Builder builder) {
+        this.replicas = List.copyOf(builder.replicas);
+        this.routedKinds = EnumSet.copyOf(builder.routedKinds);
+        this.balancing = builder.balancing;
+        this.maxStaleness = builder.maxStaleness;
+        this.lagCheckIntervalNanos = builder.lagCheckInterval.toNanos();
+        this.lagProbe = builder.lagProbe;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Picks a replica for a statement of the given kind.
+     *
+     * @return a lease that must be closed once the statement completes, or {@code null} to run on the primary
+     */
+    public Lease acquire(StatementKind kind) {
+        Objects.requireNonNull(kind, "kind");
+        if (!routedKinds.contains(kind)) {
+            return null;
+        }
+        return pick(null);
+    }
+
+    /**
+     * Picks an eligible replica other than the one {@code current} holds, for a hedged second attempt.
+     *
+     * @return a lease that must be closed once the statement completes, or {@code null} when none is left
+     */
+    Lease acquireOther(Lease current) {
+        return pick(current.replica);
+    }
+
+    private Lease pick(Replica excluded) {
+        if (replicas.isEmpty()) {
+            return null;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        Replica chosen = null;
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica == excluded || !isFresh(replica)) {
+                continue;
+            }
+            if (balancing == Balancing.ROUND_ROBIN) {
+                chosen = replica;
+                break;
+            }
+            if (chosen == null || replica.outstanding.get() < chosen.outstanding.get()) {
+                chosen = replica;
+            }
+        }
+        if (chosen == null) {
+            return null;
+        }
+        chosen.outstanding.incrementAndGet();
+        return new Lease(chosen);
+    }
+
+    /**
+     * Snapshot of each replica's outstanding statements and last measured lag.
+     */
+    public List<ReplicaStats> stats() {
+        return replicas.stream()
+                .map(replica -> {
+                    LagSample sample = replica.lag;
+                    Duration lag = sample == null ? null : sample.lag();
+                    return new ReplicaStats(
+                            replica.name,
+                            replica.outstanding.get(),
+                            lag,
+                            lag != null && lag.compareTo(maxStaleness) <= 0
+                    );
+                })
+                .toList();
+    }
+
+    /**
+     * Closes the resources the replicas were registered with; replicas registered without one are left open.
+     */
+    @Override
+    public void close() {
+        RuntimeException failure = null;
+        for (Replica replica : replicas) {
+            if (replica.resource == null) {
+                continue;
+            }
+            try {
+                replica.resource.close();
+            } catch (Exception e) {
+                if (failure == null) {
+                    failure = new IllegalStateException("Failed to close replica: " + replica.name, e);
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private boolean isFresh(Replica replica) {
+        LagSample sample = replica.lag;
+        long now = System.nanoTime();
+        if ((sample == null || now - sample.measuredNanos() >= lagCheckIntervalNanos)
+                && replica.probing.compareAndSet(false, true)) {
+            try {
+                sample = new LagSample(probe(replica), now);
+                replica.lag = sample;
+            } finally {
+                replica.probing.set(false);
+            }
+        }
+        // Another thread may still be taking the first sample; the replica is not used until it is known.
+        return sample != null && sample.lag() != null && sample.lag().compareTo(maxStaleness) <= 0;
+    }
+
+    private Duration probe(Replica replica) {
+        try {
+            return lagProbe.lag(replica.dslContext);
+        } catch (RuntimeException unreachable) {
+            return null;
+        }
+    }
+
+    public enum Balancing {
+        /**
+         * Takes eligible replicas in turn.
+         */
+        ROUND_ROBIN,
+        /**
+         * Takes the eligible replica with the fewest statements in flight.
+         */
+        LEAST_OUTSTANDING
+    }
+
+    /**
+     * @param lag last measured lag, or {@code null} when it has not been measured or the probe failed
+     */
+    public record ReplicaStats(String name, int outstanding, Duration lag, boolean fresh) {
+    }
+
+    /**
+     * Replica chosen for one statement; closing it marks the statement as finished.
+     */
+    public static final class Lease implements AutoCloseable {
+        private final Replica replica;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Lease(Replica replica) {
+            this.replica = replica;
+        }
+
+        public String name() {
+            return replica.name;
+        }
+
+        public DSLContext dslContext() {
+            return replica.dslContext;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                replica.outstanding.decrementAndGet();
+            }
+        }
+    }
+
+    private record LagSample(Duration lag, long measuredNanos) {
+    }
+
+    private static final class Replica {
+        private final String name;
+        private final DSLContext dslContext;
+        private final AutoCloseable resource;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicBoolean probing = new AtomicBoolean();
+        private volatile LagSample lag;
+
+        private Replica(String name, DSLContext dslContext, AutoCloseable resource) {
+            this.name = name;
+            this.dslContext = dslContext;
+            this.resource = resource;
+        }
+    }
+
+    public static final class Builder {
+        private final List<Replica> replicas = new ArrayList<>();
+        private final Set<StatementKind> routedKinds =
+                EnumSet.of(StatementKind.COUNT, StatementKind.AGGREGATIONS, StatementKind.EXPORT);
+        private Balancing balancing = Balancing.ROUND_ROBIN;
+        private Duration maxStaleness = Duration.ofSeconds(5);
+        private Duration lagCheckInterval = Duration.ofSeconds(1);
+        private ReplicaLagProbe lagProbe = ReplicaLagProbe.defaults();
+
+        /**
+         * Adds a replica whose {@code DSLContext} is managed by the caller.
+         */
+        public Builder replica(String name, DSLContext dslContext) {
+            return replica(name, dslContext, null);
+        }
+
+        /**
+         * Adds a replica together with the resource behind it, which {@link ReplicaRouter#close()} closes.
+         */
+        public Builder replica(String name, DSLContext dslContext, AutoCloseable resource) {
+            Objects.requireNonNull(name, "name");
+            Objects.requireNonNull(dslContext, "dslContext");
+            if (replicas.stream().anyMatch(replica -> replica.name.equals(name))) {
+                throw new IllegalArgumentException("Duplicate replica: " + name);
+            }
+            replicas.add(new Replica(name, dslContext, resource));
+            return this;
+        }
+
+        /**
+         * Statement kinds sent to replicas; all others run on the primary.
+         */
+        public Builder routedKinds(Set<StatementKind> routedKinds) {
+            Objects.requireNonNull(routedKinds, "routedKinds");
+            this.routedKinds.clear();
+            this.routedKinds.addAll(routedKinds);
+            return this;
+        }
+
+        public Builder balancing(Balancing balancing) {
+            this.balancing = Objects.requireNonNull(balancing, "balancing");
+            return this;
+        }
+
+        /**
+         * Maximum replication lag of a replica that still receives statements.
+         */
+        public Builder maxStaleness(Duration maxStaleness) {
+            Objects.requireNonNull(maxStaleness, "maxStaleness");
+            if (maxStaleness.isNegative()) {
+                throw new IllegalArgumentException("maxStaleness must not be negative");
+            }
+            this.maxStaleness = maxStaleness;
+            return this;
+        }
+
+        public Builder lagCheckInterval(Duration lagCheckInterval) {
+            Objects.requireNonNull(lagCheckInterval, "lagCheckInterval");
+            if (lagCheckInterval.isNegative()) {
+                throw new IllegalArgumentException("lagCheckInterval must not be negative");
+            }
+            this.lagCheckInterval = lagCheckInterval;
+            return this;
+        }
+
+        public Builder lagProbe(ReplicaLagProbe lagProbe) {
+            this.lagProbe = Objects.requireNonNull(lagProbe, "lagProbe");
+            return this;
+        }
+
+        public ReplicaRouter build() {
+            return new ReplicaRouter(this);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.viewton.jooq.executor;
+
+import com.viewton.plan.Pagination;
+import com.viewton.plan.QueryPlan;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Bounds on how much of a table one entity query may load into memory.
+ * <p>
+ * Page sizes are bounded before the statement is built: a plan without a page size gets the default page
+ * size, or the maximum when there is no default, and larger page sizes are lowered to the maximum. The byte
+ * budget is enforced while rows are read; once the estimated size of the rows read so far exceeds it, reading
+ * stops and the page is marked as truncated. Budgeted pages are read in a transaction, nested in the caller's
+ * when there is one, so that Postgres honours the fetch size instead of loading the whole result first.
+ * <p>
+ * Limits are opt-in: the builder starts out unlimited, and so does the Spring auto-configuration unless
+ * {@code viewton.jooq.result-limits} sets bounds.
+ */
+public final class ResultSizeLimits {
+    private final Limits defaultLimits;
+    private final Map<String, Limits> tableLimits;
+
+    private ResultSizeLimits(Builder builder) {
+        this.defaultLimits = builder.defaultLimits;
+        this.tableLimits = Map.copyOf(builder.tableLimits);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Limits for a table, looked up by qualified name ({@code schema.table}) first and by table name second.
+     * Bounds a table does not set are taken from the default limits.
+     */
+    public Limits limitsFor(String schemaName, String tableName) {
+        Objects.requireNonNull(tableName, "tableName");
+        String name = tableName.toLowerCase(Locale.ROOT);
+        Limits table = schemaName == null ? null : tableLimits.get(schemaName.toLowerCase(Locale.ROOT) + "." + name);
+        if (table == null) {
+            table = tableLimits.get(name);
+        }
+        return table == null ? defaultLimits : table.orElse(defaultLimits);
+    }
+
+    /**
+     * @param defaultPageSize page size of plans that do not set one; {@code null} for none
+     * @param maxPageSize     largest page size a plan may request; {@code null} for no maximum
+     * @param maxBytes        estimated size of the rows read for one page before reading stops; {@code null}
+     *                        for no budget
+     */
+    public record Limits(Integer defaultPageSize, Integer maxPageSize, Long maxBytes) {
+        private static final Limits UNLIMITED = new Limits(null, null, null);
+
+        public Limits {
+            if (defaultPageSize != null && defaultPageSize <= 0) {
+                throw new IllegalArgumentException("defaultPageSize must be positive");
+            }
+            if (maxPageSize != null && maxPageSize <= 0) {
+                throw new IllegalArgumentException("maxPageSize must be positive");
+            }
+            if (maxBytes != null && maxBytes <= 0) {
+                throw new IllegalArgumentException("maxBytes must be positive");
+            }
+        }
+
+        public static Limits unlimited() {
+            return UNLIMITED;
+        }
+
+        Limits orElse(Limits fallback) {
+            return new Limits(
+                    defaultPageSize != null ? defaultPageSize : fallback.defaultPageSize,
+                    maxPageSize != null ? maxPageSize : fallback.maxPageSize,
+                    maxBytes != null ? maxBytes : fallback.maxBytes
+            );
+        }
+
+        long byteBudget() {
+            return maxBytes == null ? Long.MAX_VALUE : maxBytes;
+        }
+
+        /**
+         * Returns the plan with its page size bounded, or the plan itself when it is within the limits.
+         */
+        QueryPlan bound(QueryPlan plan) {
+            if (!plan.getFlags().isEntities()) {
+                return plan;
+            }
+            Pagination pagination = plan.getPagination();
+            Integer pageSize = pagination.getPageSize();
+            Integer bounded = pageSize;
+            if (bounded == null) {
+                bounded = defaultPageSize != null ? defaultPageSize : maxPageSize;
+            }
+            if (bounded != null && maxPageSize != null && bounded > maxPageSize) {
+                bounded = maxPageSize;
+            }
+            if (Objects.equals(bounded, pageSize)) {
+                return plan;
+            }
+            return new QueryPlan(
+                    plan.getEntity(),
+                    plan.getProjection(),
+                    plan.getFilters(),
+                    plan.getSorting(),
+                    pagination.toBuilder().pageSize(bounded).build(),
+                    plan.getAggregations(),
+                    plan.getFlags()
+            );
+        }
+    }
+
+    public static final class Builder {
+        private Limits defaultLimits = Limits.unlimited();
+        private final Map<String, Limits> tableLimits = new HashMap<>();
+
+        public Builder defaultLimits(Limits defaultLimits) {
+            this.defaultLimits = Objects.requireNonNull(defaultLimits, "defaultLimits");
+            return this;
+        }
+
+        /**
+         * Limits for one table, named either {@code table} or {@code schema.table}.
+         */
+        public Builder tableLimits(String tableName, Limits limits) {
+            Objects.requireNonNull(tableName, "tableName");
+            tableLimits.put(tableName.toLowerCase(Locale.ROOT), Objects.requireNonNull(limits, "limits"));
+            return this;
+        }
+
+        public ResultSizeLimits build() {
+            return new ResultSizeLimits(this);
+        }
+    }
+}
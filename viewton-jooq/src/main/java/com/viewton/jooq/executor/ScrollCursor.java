@@ -0,0 +1,96 @@
+package com.viewton.jooq.executor;
+
+import com.viewton.jooq.mapping.JooqRow;
+import org.jooq.ConnectionProvider;
+import org.jooq.Cursor;
+import org.jooq.Record;
+import org.jooq.exception.DataAccessException;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Open database cursor over a plan's entity rows, read one page at a time, possibly across several requests.
+ * <p>
+ * The cursor pins a connection in a read-only transaction until it is closed; see
+ * {@link JooqQueryExecutor#openScroll}. Pages are read one at a time.
+ */
+public final class ScrollCursor implements AutoCloseable {
+    private final Cursor<Record> cursor;
+    private final Connection connection;
+    private final ConnectionProvider connectionProvider;
+    private final ReplicaRouter.Lease replica;
+    private final int pageSize;
+    private boolean closed;
+
+    ScrollCursor(
+            Cursor<Record> cursor,
+            Connection connection,
+            ConnectionProvider connectionProvider,
+            ReplicaRouter.Lease replica,
+            int pageSize
+    ) {
+        this.cursor = Objects.requireNonNull(cursor, "cursor");
+        this.connection = Objects.requireNonNull(connection, "connection");
+        this.connectionProvider = Objects.requireNonNull(connectionProvider, "connectionProvider");
+        this.replica = replica;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Rows per page.
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Reads the next page; empty once the rows are exhausted.
+     *
+     * @throws IllegalStateException when the cursor is closed
+     */
+    public synchronized List<JooqRow> next() {
+        if (closed) {
+            throw new IllegalStateException("Scroll cursor is closed");
+        }
+        List<JooqRow> rows = new ArrayList<>(pageSize);
+        for (Record record : cursor.fetchNext(pageSize)) {
+            rows.add(new JooqRow(record));
+        }
+        return rows;
+    }
+
+    /**
+     * Whether another row follows the last page read; reads ahead one row.
+     */
+    public synchronized boolean hasNext() {
+        return !closed && cursor.hasNext();
+    }
+
+    /**
+     * Closes the cursor, ends the transaction and returns the connection to its pool.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            cursor.close();
+            connection.rollback();
+            connection.setAutoCommit(true);
+            connection.setReadOnly(false);
+        } catch (SQLException e) {
+            throw new DataAccessException("Cannot end the scroll transaction", e);
+        } finally {
+            connectionProvider.release(connection);
+            if (replica != null) {
+                replica.close();
+            }
+        }
+    }
+}
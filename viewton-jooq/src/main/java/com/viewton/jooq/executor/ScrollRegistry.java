@@ -0,0 +1,208 @@
+package com.viewton.jooq.executor;
+
+import com.viewton.jooq.mapping.JooqRow;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Open {@link ScrollCursor}s by id, so that clients can read a result page by page over several requests.
+ * <p>
+ * Every open scroll pins a connection, so at most {@code maxOpen} may be open at once; further scrolls are
+ * rejected with a {@link QueryRejectedException} until one is closed. Scrolls are closed when their last page
+ * has been read, when the client closes them, and when they have not been read for {@code idleTimeout}.
+ */
+public final class ScrollRegistry implements AutoCloseable {
+    private final Map<String, Entry> scrolls = new ConcurrentHashMap<>();
+    private final AtomicInteger open = new AtomicInteger();
+    private final int maxOpen;
+    private final long idleTimeoutNanos;
+    private final ScheduledExecutorService reaper;
+
+    private ScrollRegistry(Builder builder) {
+        this.maxOpen = builder.maxOpen;
+        this.idleTimeoutNanos = builder.idleTimeout.toNanos();
+        this.reaper = Executors.newSingleThreadScheduledExecutor(
+                QueryExecutors.daemonThreads("viewton-scroll-reaper-")
+        );
+        long period = Math.max(TimeUnit.SECONDS.toNanos(1), idleTimeoutNanos / 4);
+        reaper.scheduleWithFixedDelay(this::closeIdle, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Opens a scroll with {@code opener} once a slot is free.
+     *
+     * @return the scroll's id
+     * @throws QueryRejectedException when {@code maxOpen} scrolls are open
+     */
+    public String open(Supplier<ScrollCursor> opener) {
+        Objects.requireNonNull(opener, "opener");
+        if (open.incrementAndGet() > maxOpen) {
+            open.decrementAndGet();
+            throw new QueryRejectedException("All " + maxOpen + " scrolls are open");
+        }
+        ScrollCursor cursor;
+        try {
+            cursor = Objects.requireNonNull(opener.get(), "cursor");
+        } catch (RuntimeException | Error failure) {
+            open.decrementAndGet();
+            throw failure;
+        }
+        String id = UUID.randomUUID().toString();
+        scrolls.put(id, new Entry(cursor, System.nanoTime()));
+        return id;
+    }
+
+    /**
+     * Reads the scroll's next page and closes the scroll after its last one.
+     *
+     * @return the page, or {@code null} when no scroll with this id is open
+     */
+    public Page next(String id) {
+        Entry entry = scrolls.get(Objects.requireNonNull(id, "id"));
+        if (entry == null) {
+            return null;
+        }
+        synchronized (entry) {
+            if (entry.closed) {
+                return null;
+            }
+            try {
+                List<JooqRow> rows = entry.cursor.next();
+                boolean hasNext = entry.cursor.hasNext();
+                entry.lastReadNanos = System.nanoTime();
+                if (!hasNext) {
+                    close(id, entry);
+                }
+                return new Page(rows, hasNext);
+            } catch (RuntimeException failure) {
+                close(id, entry);
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Closes the scroll and releases its connection.
+     *
+     * @return whether a scroll with this id was open
+     */
+    public boolean close(String id) {
+        Entry entry = scrolls.get(Objects.requireNonNull(id, "id"));
+        if (entry == null) {
+            return false;
+        }
+        synchronized (entry) {
+            return close(id, entry);
+        }
+    }
+
+    /**
+     * Number of open scrolls, each holding a connection.
+     */
+    public int openCount() {
+        return open.get();
+    }
+
+    /**
+     * Stops the idle reaper and closes every open scroll.
+     */
+    @Override
+    public void close() {
+        reaper.shutdownNow();
+        scrolls.keySet().forEach(this::close);
+    }
+
+    private void closeIdle() {
+        long now = System.nanoTime();
+        scrolls.forEach((id, entry) -> {
+            synchronized (entry) {
+                if (now - entry.lastReadNanos >= idleTimeoutNanos) {
+                    close(id, entry);
+                }
+            }
+        });
+    }
+
+    /**
+     * Removes and closes the entry; callers hold its lock.
+     */
+    private boolean close(String id, Entry entry) {
+        if (entry.closed) {
+            return false;
+        }
+        entry.closed = true;
+        scrolls.remove(id, entry);
+        open.decrementAndGet();
+        try {
+            entry.cursor.close();
+        } catch (RuntimeException ignored) {
+            // The connection is released regardless; a failed rollback leaves nothing to clean up here.
+        }
+        return true;
+    }
+
+    /**
+     * One page of a scroll.
+     *
+     * @param hasNext whether another page follows; the scroll is closed when it does not
+     */
+    public record Page(List<JooqRow> rows, boolean hasNext) {
+    }
+
+    private static final class Entry {
+        private final ScrollCursor cursor;
+        private long lastReadNanos;
+        private boolean closed;
+
+        private Entry(ScrollCursor cursor, long lastReadNanos) {
+            this.cursor = cursor;
+            this.lastReadNanos = lastReadNanos;
+        }
+    }
+
+    public static final class Builder {
+        private int maxOpen = 16;
+        private Duration idleTimeout = Duration.ofMinutes(1);
+
+        /**
+         * Maximum number of scrolls open at once, which is also the number of connections they may pin.
+         */
+        public Builder maxOpen(int maxOpen) {
+            if (maxOpen <= 0) {
+                throw new IllegalArgumentException("maxOpen must be positive");
+            }
+            this.maxOpen = maxOpen;
+            return this;
+        }
+
+        /**
+         * Time after the last read at which a scroll is closed.
+         */
+        public Builder idleTimeout(Duration idleTimeout) {
+            Objects.requireNonNull(idleTimeout, "idleTimeout");
+            if (idleTimeout.isZero() || idleTimeout.isNegative()) {
+                throw new IllegalArgumentException("idleTimeout must be positive");
+            }
+            this.idleTimeout = idleTimeout;
+            return this;
+        }
+
+        public ScrollRegistry build() {
+            return new ScrollRegistry(this);
+        }
+    }
+}
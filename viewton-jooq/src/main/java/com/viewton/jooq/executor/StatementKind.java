@@ -0,0 +1,23 @@
+package com.viewton.jooq.executor;
+
+/**
+ * Kind of statement the executor runs for a plan, used by {@link ReplicaRouter} to decide where it runs.
+ */
+public enum StatementKind {
+    /**
+     * Page of entity rows, including window aggregates computed in the same statement.
+     */
+    ENTITIES,
+    /**
+     * {@code count(*)} without other aggregations, exact or capped.
+     */
+    COUNT,
+    /**
+     * {@code sum}, {@code avg}, {@code min} and {@code max}, with or without a count.
+     */
+    AGGREGATIONS,
+    /**
+     * Entity rows streamed through a cursor.
+     */
+    EXPORT
+}
@@ -0,0 +1,19 @@
+package com.viewton.jooq.mapping;
+
+/**
+ * Describes how the reported {@code count} aggregation was obtained.
+ */
+public enum CountPrecision {
+    /**
+     * Result of an exact {@code count(*)}.
+     */
+    EXACT,
+    /**
+     * Planner row estimate; may differ from the actual number of rows.
+     */
+    ESTIMATED,
+    /**
+     * The count stopped at the plan's count limit; more rows than the reported value exist.
+     */
+    CAPPED
+}
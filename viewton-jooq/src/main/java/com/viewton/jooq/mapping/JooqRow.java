@@ -36,4 +36,11 @@ public final class JooqRow {
         }
         return values;
     }
+
+    /**
+     * Read-only map of the record's values that does not copy them, for rows that are only serialized.
+     */
+    public Map<String, Object> asMapView() {
+        return new RecordMap(record);
+    }
 }
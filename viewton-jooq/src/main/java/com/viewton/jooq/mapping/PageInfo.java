@@ -0,0 +1,52 @@
+package com.viewton.jooq.mapping;
+
+/**
+ * Navigation details of a fetched page that are not derived from a count.
+ */
+public final class PageInfo {
+    private static final PageInfo EMPTY = new PageInfo(null, null);
+
+    private final Boolean hasNext;
+    private final String nextCursor;
+    private final Boolean truncated;
+
+    public PageInfo(Boolean hasNext) {
+        this(hasNext, null);
+    }
+
+    public PageInfo(Boolean hasNext, String nextCursor) {
+        this(hasNext, nextCursor, null);
+    }
+
+    public PageInfo(Boolean hasNext, String nextCursor, Boolean truncated) {
+        this.hasNext = hasNext;
+        this.nextCursor = nextCursor;
+        this.truncated = truncated;
+    }
+
+    public static PageInfo empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Whether rows exist after this page, or {@code null} when the pagination mode does not compute it.
+     */
+    public Boolean getHasNext() {
+        return hasNext;
+    }
+
+    /**
+     * Token to pass as {@code after} for the next page, or {@code null} on the last page or outside cursor mode.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * {@code true} when reading stopped before the end of the page because the rows exceeded the byte budget,
+     * otherwise {@code null}. In cursor mode the next cursor continues after the last row returned.
+     */
+    public Boolean getTruncated() {
+        return truncated;
+    }
+}
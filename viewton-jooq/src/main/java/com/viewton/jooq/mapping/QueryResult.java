@@ -2,6 +2,8 @@ package com.viewton.jooq.mapping;
 
 import com.viewton.execution.ExecutionResult;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -12,10 +14,30 @@ import java.util.Objects;
 public final class QueryResult implements ExecutionResult {
     private final List<JooqRow> rows;
     private final Map<String, Object> aggregations;
+    private final CountPrecision countPrecision;
+    private final PageInfo pageInfo;
 
     public QueryResult(List<JooqRow> rows, Map<String, Object> aggregations) {
+        this(rows, aggregations, null);
+    }
+
+    public QueryResult(List<JooqRow> rows, Map<String, Object> aggregations, CountPrecision countPrecision) {
+        this(rows, aggregations, countPrecision, PageInfo.empty());
+    }
+
+    public QueryResult(
+            List<JooqRow> rows,
+            Map<String, Object> aggregations,
+            CountPrecision countPrecision,
+            PageInfo pageInfo
+    ) {
         this.rows = List.copyOf(Objects.requireNonNull(rows, "rows"));
-        this.aggregations = Map.copyOf(Objects.requireNonNull(aggregations, "aggregations"));
+        // Aggregates over no rows (e.g. sum) are null, which Map.copyOf rejects.
+        this.aggregations = Collections.unmodifiableMap(
+                new LinkedHashMap<>(Objects.requireNonNull(aggregations, "aggregations"))
+        );
+        this.countPrecision = countPrecision;
+        this.pageInfo = Objects.requireNonNull(pageInfo, "pageInfo");
     }
 
     public List<JooqRow> getRows() {
@@ -26,6 +48,17 @@ public final class QueryResult implements ExecutionResult {
         return aggregations;
     }
 
+    /**
+     * Precision of the {@code count} aggregation, or {@code null} when no count was requested.
+     */
+    public CountPrecision getCountPrecision() {
+        return countPrecision;
+    }
+
+    public PageInfo getPageInfo() {
+        return pageInfo;
+    }
+
     public boolean isEmpty() {
         return rows.isEmpty();
     }
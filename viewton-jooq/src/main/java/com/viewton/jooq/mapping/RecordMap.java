@@ -0,0 +1,78 @@
+package com.viewton.jooq.mapping;
+
+import org.jooq.Record;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Read-only {@link java.util.Map} view of a jOOQ {@link Record}, keyed by field name in field order.
+ * <p>
+ * Unlike {@link JooqRow#asMap()}, nothing is copied; serializers that recognise the view write the record
+ * directly.
+ */
+public final class RecordMap extends AbstractMap<String, Object> {
+    private final Record record;
+
+    public RecordMap(Record record) {
+        this.record = Objects.requireNonNull(record, "record");
+    }
+
+    public Record getRecord() {
+        return record;
+    }
+
+    @Override
+    public int size() {
+        return record.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String name && record.indexOf(name) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (!(key instanceof String name)) {
+            return null;
+        }
+        int index = record.indexOf(name);
+        return index < 0 ? null : record.get(index);
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return record.size();
+            }
+
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new Iterator<>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < record.size();
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        int index = next++;
+                        return new SimpleImmutableEntry<>(record.field(index).getName(), record.get(index));
+                    }
+                };
+            }
+        };
+    }
+}
@@ -4,16 +4,23 @@ import com.viewton.api.input.QueryInput;
 import com.viewton.api.input.RestQueryInput;
 import com.viewton.api.parser.RestQueryInputParser;
 import com.viewton.jooq.executor.JooqQueryExecutor;
+import com.viewton.jooq.executor.QueryLane;
+import com.viewton.jooq.executor.QueryScheduler;
 import com.viewton.jooq.mapping.DefaultResultMapper;
 import com.viewton.jooq.mapping.QueryResult;
 import com.viewton.jooq.schema.JooqSchema;
 import com.viewton.model.QueryModel;
 import com.viewton.model.RestQueryModel;
 import com.viewton.plan.QueryPlan;
+import com.viewton.plan.QueryPlanCache;
 import com.viewton.plan.RestQueryPlanNormalizer;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Convenience repository that parses query input and executes it via jOOQ.
@@ -24,6 +31,8 @@ public final class ViewtonRepository {
     private final RestQueryPlanNormalizer restQueryPlanNormalizer;
     private final JooqQueryExecutor executor;
     private final DefaultResultMapper resultMapper;
+    private final QueryPlanCache planCache;
+    private final QueryScheduler scheduler;
 
     public ViewtonRepository(
             JooqSchema schema,
@@ -31,30 +40,133 @@ public final class ViewtonRepository {
             RestQueryPlanNormalizer restQueryPlanNormalizer,
             JooqQueryExecutor executor,
             DefaultResultMapper resultMapper
+    ) {
+        this(schema, restQueryInputParser, restQueryPlanNormalizer, executor, resultMapper, null);
+    }
+
+    /**
+     * @param planCache optional cache of normalized REST plans; {@code null} disables caching
+     */
+    public ViewtonRepository(
+            JooqSchema schema,
+            RestQueryInputParser restQueryInputParser,
+            RestQueryPlanNormalizer restQueryPlanNormalizer,
+            JooqQueryExecutor executor,
+            DefaultResultMapper resultMapper,
+            QueryPlanCache planCache
+    ) {
+        this(schema, restQueryInputParser, restQueryPlanNormalizer, executor, resultMapper, planCache, null);
+    }
+
+    /**
+     * @param planCache optional cache of normalized REST plans; {@code null} disables caching
+     * @param scheduler optional admission control; {@code null} runs every query immediately
+     */
+    public ViewtonRepository(
+            JooqSchema schema,
+            RestQueryInputParser restQueryInputParser,
+            RestQueryPlanNormalizer restQueryPlanNormalizer,
+            JooqQueryExecutor executor,
+            DefaultResultMapper resultMapper,
+            QueryPlanCache planCache,
+            QueryScheduler scheduler
     ) {
         this.schema = Objects.requireNonNull(schema, "schema");
         this.restQueryInputParser = Objects.requireNonNull(restQueryInputParser, "restQueryInputParser");
         this.restQueryPlanNormalizer = Objects.requireNonNull(restQueryPlanNormalizer, "restQueryPlanNormalizer");
         this.executor = Objects.requireNonNull(executor, "executor");
         this.resultMapper = Objects.requireNonNull(resultMapper, "resultMapper");
+        this.planCache = planCache;
+        this.scheduler = scheduler;
     }
 
+    /**
+     * Runs the query on the caller's thread. With a scheduler, the call blocks until the query is admitted
+     * and fails with a {@link com.viewton.jooq.executor.QueryRejectedException} when it is shed.
+     */
     public <T> List<T> list(QueryInput input, Class<T> resultType) {
         Objects.requireNonNull(input, "input");
         Objects.requireNonNull(resultType, "resultType");
         QueryPlan plan = buildPlan(input, resultType);
-        QueryResult result = executor.execute(plan);
+        QueryResult result;
+        try (QueryScheduler.Permit ignored = admit(plan)) {
+            result = executor.execute(plan);
+        }
         return resultMapper.map(result, resultType);
     }
 
+    public <T> CompletableFuture<List<T>> listAsync(QueryInput input, Class<T> resultType) {
+        return listAsync(input, resultType, null);
+    }
+
+    /**
+     * Asynchronous variant of {@link #list(QueryInput, Class)}.
+     * <p>
+     * Invalid input fails the returned future. Cancelling the future, or exceeding {@code timeout},
+     * cancels the running statements through JDBC. With a scheduler, the query first waits for admission.
+     *
+     * @param timeout maximum execution time, or {@code null} for the configured default
+     */
+    public <T> CompletableFuture<List<T>> listAsync(QueryInput input, Class<T> resultType, Duration timeout) {
+        Objects.requireNonNull(input, "input");
+        Objects.requireNonNull(resultType, "resultType");
+        QueryPlan plan;
+        try {
+            plan = buildPlan(input, resultType);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<QueryResult> execution = scheduler == null
+                ? executor.executeAsync(plan, timeout)
+                : scheduler.submit(
+                        QueryLane.of(plan),
+                        plan.getEntity().name(),
+                        null,
+                        () -> executor.executeAsync(plan, timeout)
+                );
+        CompletableFuture<List<T>> mapped = execution.thenApply(result -> resultMapper.map(result, resultType));
+        mapped.whenComplete((ignored, failure) -> {
+            if (failure instanceof CancellationException) {
+                execution.cancel(true);
+            }
+        });
+        return mapped;
+    }
+
+    private QueryScheduler.Permit admit(QueryPlan plan) {
+        if (scheduler == null) {
+            return null;
+        }
+        try {
+            return scheduler.admit(QueryLane.of(plan), plan.getEntity().name(), null).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
     private QueryPlan buildPlan(QueryInput input, Class<?> resultType) {
         if (input instanceof RestQueryInput restQueryInput) {
-            QueryModel model = restQueryInputParser.parse(restQueryInput);
-            return restQueryPlanNormalizer.normalize(asRestModel(model), resolveEntity(resultType), schema);
+            String entityName = resolveEntity(resultType);
+            if (planCache == null) {
+                return buildRestPlan(restQueryInput, entityName);
+            }
+            return planCache.get(
+                    entityName,
+                    restQueryInput.getParameters(),
+                    () -> buildRestPlan(restQueryInput, entityName)
+            );
         }
         throw new IllegalArgumentException("Unsupported query input type: " + input.getClass().getName());
     }
 
+    private QueryPlan buildRestPlan(RestQueryInput input, String entityName) {
+        QueryModel model = restQueryInputParser.parse(input);
+        return restQueryPlanNormalizer.normalize(asRestModel(model), entityName, schema);
+    }
+
     private RestQueryModel asRestModel(QueryModel model) {
         if (model instanceof RestQueryModel restModel) {
             return restModel;
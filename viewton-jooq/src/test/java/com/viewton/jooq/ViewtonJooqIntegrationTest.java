@@ -1,11 +1,45 @@
 package com.viewton.jooq;
 
 import com.viewton.api.input.RestQueryInput;
+import com.viewton.api.parser.RestQueryInputParser;
+import com.viewton.jooq.cache.QueryResultCache;
 import com.viewton.jooq.config.ViewtonJooqAutoConfiguration;
+import com.viewton.jooq.executor.BoundedVirtualThreadExecutor;
+import com.viewton.jooq.executor.CursorCodec;
+import com.viewton.jooq.executor.JooqExecutorOptions;
+import com.viewton.jooq.executor.JooqQueryExecutor;
+import com.viewton.jooq.executor.QueryCostExceededException;
+import com.viewton.jooq.executor.QueryCostGuard;
+import com.viewton.jooq.executor.QueryTimeoutException;
+import com.viewton.jooq.executor.ReplicaRouter;
+import com.viewton.jooq.executor.ResultSizeLimits;
+import com.viewton.jooq.mapping.CountPrecision;
+import com.viewton.jooq.mapping.QueryResult;
 import com.viewton.jooq.schema.JooqSchema;
 import com.viewton.jooq.util.ViewtonRepository;
+import com.viewton.model.RestQueryModel;
+import com.viewton.plan.Aggregations;
+import com.viewton.plan.Pagination;
+import com.viewton.plan.PaginationMode;
+import com.viewton.plan.QueryBatch;
+import com.viewton.plan.QueryFlags;
+import com.viewton.plan.QueryPlan;
+import com.viewton.plan.RestQueryPlanNormalizer;
 import org.jooq.DSLContext;
+import org.jooq.ExecuteContext;
+import org.jooq.ExecuteListener;
+import org.jooq.Field;
+import org.jooq.JSON;
+import org.jooq.Record1;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
 import org.jooq.Table;
+import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
@@ -17,12 +51,27 @@ import org.springframework.context.annotation.Primary;
 import org.springframework.test.context.TestPropertySource;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
 
 @SpringBootTest(classes = {
         ViewtonJooqIntegrationTest.TestApplication.class,
@@ -37,10 +86,25 @@ import static org.assertj.core.api.Assertions.assertThat;
         "spring.flyway.enabled=true"
 })
 class ViewtonJooqIntegrationTest {
+    private static final CursorCodec CURSOR_CODEC = CursorCodec.fromSecret("integration-test-cursor-secret");
 
     @Autowired
     private ViewtonRepository viewtonRepository;
 
+    @Autowired
+    private DSLContext dslContext;
+
+    @Autowired
+    private JooqSchema jooqSchema;
+
+    @Autowired
+    private ResultSizeLimits resultSizeLimits;
+
+    @AfterEach
+    void openGate() {
+        QueryGate.open();
+    }
+
     @Test
     void listReturnsFilteredResults() {
         Map<String, String> params = new HashMap<>();
@@ -58,6 +122,633 @@ class ViewtonJooqIntegrationTest {
         assertThat(result.get(1).getAmount()).isEqualByComparingTo(new BigDecimal("150.00"));
     }
 
+    @Test
+    void windowAggregationsMatchTheSeparateAggregationQuery() {
+        QueryPlan plan = plan(Map.of(
+                "STATUS", "PAID",
+                "count", "true",
+                "sum", "AMOUNT",
+                "max", "AMOUNT",
+                "sorting", "ID",
+                "pageSize", "1"
+        ));
+        JooqQueryExecutor window = executor(JooqExecutorOptions.builder().windowAggregations(true).build());
+        JooqQueryExecutor separate = executor(JooqExecutorOptions.builder().build());
+
+        QueryResult single = window.execute(plan);
+        QueryResult twoStatements = separate.execute(plan);
+
+        assertThat(single.getRows()).hasSize(1);
+        assertThat(((Number) single.getAggregations().get("count")).longValue()).isEqualTo(2L);
+        assertThat(single.getAggregations())
+                .usingRecursiveComparison()
+                .withComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                .isEqualTo(twoStatements.getAggregations());
+    }
+
+    @Test
+    void windowAggregationsFallBackToACountWhenThePageIsEmpty() {
+        QueryPlan plan = plan(Map.of("STATUS", "PAID", "count", "true", "pageSize", "10", "page", "5"));
+
+        QueryResult result = executor(JooqExecutorOptions.builder().windowAggregations(true).build()).execute(plan);
+
+        assertThat(result.getRows()).isEmpty();
+        assertThat(((Number) result.getAggregations().get("count")).longValue()).isEqualTo(2L);
+    }
+
+    @Test
+    void parallelAggregationsMatchSequentialExecution() {
+        QueryPlan plan = plan(Map.of("count", "true", "sum", "AMOUNT", "min", "AMOUNT", "sorting", "-AMOUNT"));
+
+        QueryResult sequential = executor(JooqExecutorOptions.builder().build()).execute(plan);
+        QueryResult parallel;
+        try (BoundedVirtualThreadExecutor threads = new BoundedVirtualThreadExecutor(2)) {
+            parallel = executor(JooqExecutorOptions.builder().parallelExecutor(threads).build()).execute(plan);
+        }
+
+        assertThat(parallel.getRows()).extracting(row -> row.get("ID")).containsExactly(1L, 2L, 3L);
+        assertThat(parallel.getAggregations())
+                .usingRecursiveComparison()
+                .withComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                .isEqualTo(sequential.getAggregations());
+    }
+
+    @Test
+    void parallelExecutionFailsWhenTheAggregationQueryFails() {
+        QueryPlan plan = plan(Map.of("sum", "STATUS", "sorting", "ID"));
+
+        try (BoundedVirtualThreadExecutor threads = new BoundedVirtualThreadExecutor(2)) {
+            JooqQueryExecutor executor = executor(JooqExecutorOptions.builder().parallelExecutor(threads).build());
+
+            assertThatThrownBy(() -> executor.execute(plan)).isInstanceOf(DataAccessException.class);
+        }
+    }
+
+    @Test
+    void batchedAggregationsAreSlicedBackToEachPlan() {
+        QueryPlan sum = plan(Map.of("STATUS", "PAID", "entities", "false", "count", "true", "sum", "AMOUNT"));
+        QueryPlan max = plan(Map.of("STATUS", "PAID", "entities", "false", "max", "AMOUNT"));
+        QueryPlan failed = plan(Map.of("STATUS", "FAILED", "entities", "false", "sum", "AMOUNT"));
+        assertThat(QueryBatch.of(List.of(sum, max, failed)).getStatements()).hasSize(2);
+
+        List<QueryResult> results = executor(JooqExecutorOptions.builder().build())
+                .executeAllAsync(List.of(sum, max, failed))
+                .join();
+
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0).getAggregations()).containsOnlyKeys("count", "AMOUNT_sum");
+        assertThat(((Number) results.get(0).getAggregations().get("count")).longValue()).isEqualTo(2L);
+        assertThat((BigDecimal) results.get(0).getAggregations().get("AMOUNT_sum")).isEqualByComparingTo("400.00");
+        assertThat(results.get(0).getCountPrecision()).isEqualTo(CountPrecision.EXACT);
+        assertThat(results.get(1).getAggregations()).containsOnlyKeys("AMOUNT_max");
+        assertThat((BigDecimal) results.get(1).getAggregations().get("AMOUNT_max")).isEqualByComparingTo("250.00");
+        assertThat(results.get(1).getCountPrecision()).isNull();
+        assertThat(results.get(2).getAggregations()).containsOnlyKeys("AMOUNT_sum");
+        assertThat((BigDecimal) results.get(2).getAggregations().get("AMOUNT_sum")).isEqualByComparingTo("75.00");
+    }
+
+    @Test
+    void cursorContinuesOnTheSecondPage() {
+        JooqQueryExecutor executor = executor(JooqExecutorOptions.builder().cursorCodec(CURSOR_CODEC).build());
+
+        QueryResult first = executor.execute(plan(Map.of(
+                "sorting", "-AMOUNT",
+                "pageSize", "2",
+                "paginationMode", "cursor"
+        )));
+        QueryResult second = executor.execute(plan(Map.of(
+                "sorting", "-AMOUNT",
+                "pageSize", "2",
+                "after", first.getPageInfo().getNextCursor()
+        )));
+
+        assertThat(first.getRows()).extracting(row -> row.get("ID")).containsExactly(1L, 2L);
+        assertThat(first.getPageInfo().getHasNext()).isTrue();
+        assertThat(second.getRows()).extracting(row -> row.get("ID")).containsExactly(3L);
+        assertThat(second.getPageInfo().getHasNext()).isFalse();
+        assertThat(second.getPageInfo().getNextCursor()).isNull();
+    }
+
+    @Test
+    void cursorPagesThroughNullSortValues() {
+        JooqQueryExecutor executor = executor(JooqExecutorOptions.builder().cursorCodec(CURSOR_CODEC).build());
+
+        assertThat(cursorIds(executor, "shipments", "CARRIER")).containsExactly(1L, 4L, 3L, 2L, 5L);
+        assertThat(cursorIds(executor, "shipments", "-CARRIER")).containsExactly(2L, 5L, 3L, 1L, 4L);
+    }
+
+    @Test
+    void cursorPagesThroughAViewWithoutPrimaryKey() {
+        JooqQueryExecutor executor = executor(JooqExecutorOptions.builder().cursorCodec(CURSOR_CODEC).build());
+
+        assertThat(cursorIds(executor, "shipment_view", "WEIGHT")).containsExactly(4L, 2L, 1L, 5L, 3L);
+    }
+
+    @Test
+    void cursorPaginationRequiresAConfiguredSecret() {
+        QueryPlan plan = plan(Map.of("sorting", "ID", "pageSize", "2", "paginationMode", "cursor"));
+
+        assertThatThrownBy(() -> executor(JooqExecutorOptions.builder().build()).execute(plan))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("viewton.jooq.cursor-secret");
+    }
+
+    @Test
+    void cursorIssuedForAnotherSortIsRejected() {
+        JooqQueryExecutor executor = executor(JooqExecutorOptions.builder().cursorCodec(CURSOR_CODEC).build());
+        String cursor = executor.execute(plan(Map.of("sorting", "ID", "pageSize", "1", "paginationMode", "cursor")))
+                .getPageInfo()
+                .getNextCursor();
+
+        QueryPlan otherSort = plan(Map.of("sorting", "-AMOUNT", "pageSize", "1", "after", cursor));
+
+        assertThatThrownBy(() -> executor.execute(otherSort)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void listAsyncCompletesWithTheMappedRows() throws Exception {
+        Map<String, String> params = Map.of("STATUS", "PAID", "sorting", "ID");
+
+        List<PaymentDto> result = viewtonRepository.listAsync(new RestQueryInput(params), PaymentDto.class)
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(result).extracting(PaymentDto::getId).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void listAsyncFailsTheFutureForInvalidInput() {
+        Map<String, String> params = Map.of("sorting", "MISSING");
+
+        CompletableFuture<List<PaymentDto>> result =
+                viewtonRepository.listAsync(new RestQueryInput(params), PaymentDto.class);
+
+        assertThat(result).failsWithin(Duration.ofSeconds(5))
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void cancellingAnAsyncQueryReleasesTheCaller() throws Exception {
+        JooqQueryExecutor executor = executor(JooqExecutorOptions.builder().build());
+        QueryPlan plan = plan("gated_rows", Map.of());
+        QueryGate.close();
+
+        CompletableFuture<QueryResult> running = executor.executeAsync(plan);
+        QueryGate.awaitEntered(1);
+
+        assertThat(running.cancel(true)).isTrue();
+        assertThat(running).isCancelled();
+        QueryGate.open();
+        assertThat(executor.executeAsync(plan).get(5, TimeUnit.SECONDS).getRows()).hasSize(1);
+    }
+
+    @Test
+    void asyncQueryFailsWithATimeoutAfterItsDeadline() {
+        JooqQueryExecutor executor = executor(JooqExecutorOptions.builder().build());
+        QueryPlan plan = plan("gated_rows", Map.of());
+        QueryGate.close();
+
+        CompletableFuture<QueryResult> running = executor.executeAsync(plan, Duration.ofMillis(200));
+
+        assertThat(running).failsWithin(Duration.ofSeconds(5))
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(TimeoutException.class);
+    }
+
+    @Test
+    void streamReadsEveryRowAndTheAggregationsWithinTheDeadline() {
+        JooqQueryExecutor executor = executor(JooqExecutorOptions.builder().build());
+        List<Object> ids = new ArrayList<>();
+
+        QueryResult summary = executor.stream(
+                plan(Map.of("sorting", "ID", "count", "true")),
+                row -> ids.add(row.get("ID")),
+                Duration.ofSeconds(5)
+        );
+
+        assertThat(ids).containsExactly(1L, 2L, 3L);
+        assertThat(((Number) summary.getAggregations().get("count")).longValue()).isEqualTo(3L);
+    }
+
+    @Test
+    void streamStopsWhenASlowConsumerOutlivesTheDeadline() {
+        JooqQueryExecutor executor = executor(JooqExecutorOptions.builder().build());
+        List<Object> ids = new ArrayList<>();
+        QueryPlan plan = plan(Map.of("sorting", "ID"));
+
+        assertThatThrownBy(() -> executor.stream(plan, row -> {
+            ids.add(row.get("ID"));
+            sleep(Duration.ofMillis(300));
+        }, Duration.ofMillis(200))).isInstanceOf(QueryTimeoutException.class);
+        assertThat(ids).containsExactly(1L);
+    }
+
+    @Test
+    void resultCacheIsBypassedInsideATransaction() {
+        QueryResultCache cache = QueryResultCache.builder().build();
+        JooqQueryExecutor executor = executor(JooqExecutorOptions.builder().resultCache(cache).build());
+        QueryPlan plan = plan(Map.of("STATUS", "PAID", "sorting", "ID"));
+        List<Object> ids = new ArrayList<>();
+
+        assertThatThrownBy(() -> dslContext.transaction(configuration -> {
+            configuration.dsl().execute("insert into payments (id, amount, status, created_at) "
+                    + "values (98, 1.00, 'PAID', '2024-02-01')");
+            executor.execute(plan).getRows().forEach(row -> ids.add(row.get("ID")));
+            assertThat(cache.size()).isZero();
+            throw new IllegalStateException("roll back");
+        })).hasMessage("roll back");
+
+        assertThat(ids).containsExactly(1L, 2L, 98L);
+        assertThat(executor.execute(plan).getRows()).extracting(row -> row.get("ID")).containsExactly(1L, 2L);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentIdenticalQueriesShareOneExecution() throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        try {
+            StartedTasks started = new StartedTasks(threads);
+            JooqQueryExecutor executor = executor(JooqExecutorOptions.builder()
+                    .asyncExecutor(started)
+                    .coalesceQueries(true)
+                    .build());
+            QueryPlan plan = plan("gated_rows", Map.of());
+            QueryGate.close();
+
+            CompletableFuture<QueryResult> leader = executor.executeAsync(plan);
+            QueryGate.awaitEntered(1);
+            CompletableFuture<QueryResult> follower = executor.executeAsync(plan);
+            started.awaitStarted(2);
+            QueryGate.open();
+
+            assertThat(leader.get(5, TimeUnit.SECONDS).getRows()).hasSize(1);
+            assertThat(follower.get(5, TimeUnit.SECONDS).getRows()).hasSize(1);
+            assertThat(QueryGate.entered()).isEqualTo(1);
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    void transactionalReadsDoNotJoinASharedExecution() throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        try {
+            StartedTasks started = new StartedTasks(threads);
+            JooqQueryExecutor executor = executor(JooqExecutorOptions.builder()
+                    .asyncExecutor(started)
+                    .coalesceQueries(true)
+                    .build());
+            QueryPlan plan = plan("gated_rows", Map.of("sorting", "ID"));
+            QueryGate.close();
+
+            CompletableFuture<QueryResult> leader = executor.executeAsync(plan);
+            QueryGate.awaitEntered(1);
+            CompletableFuture<List<Object>> transactional = CompletableFuture.supplyAsync(() -> {
+                List<Object> ids = new ArrayList<>();
+                assertThatThrownBy(() -> dslContext.transaction(configuration -> {
+                    dslContext.execute("insert into gate_rows (id) values (2)");
+                    executor.execute(plan).getRows().forEach(row -> ids.add(row.get("ID")));
+                    throw new IllegalStateException("roll back");
+                })).hasMessage("roll back");
+                return ids;
+            }, threads);
+            QueryGate.awaitEntered(2);
+            QueryGate.open();
+
+            assertThat(transactional.get(5, TimeUnit.SECONDS)).containsExactly(1L, 2L);
+            assertThat(leader.get(5, TimeUnit.SECONDS).getRows()).extracting(row -> row.get("ID"))
+                    .containsExactly(1L);
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    void cancellingACoalescedCallerLeavesTheSharedExecutionRunning() throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        try {
+            StartedTasks started = new StartedTasks(threads);
+            JooqQueryExecutor executor = executor(JooqExecutorOptions.builder()
+                    .asyncExecutor(started)
+                    .coalesceQueries(true)
+                    .build());
+            QueryPlan plan = plan("gated_rows", Map.of());
+            QueryGate.close();
+
+            CompletableFuture<QueryResult> leader = executor.executeAsync(plan);
+            QueryGate.awaitEntered(1);
+            CompletableFuture<QueryResult> follower = executor.executeAsync(plan);
+            started.awaitStarted(2);
+
+            assertThat(follower.cancel(true)).isTrue();
+            QueryGate.open();
+
+            assertThat(leader.get(5, TimeUnit.SECONDS).getRows()).hasSize(1);
+            assertThat(follower).isCancelled();
+            assertThat(QueryGate.entered()).isEqualTo(1);
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    void costGuardAdmitsPlansWithinTheTableLimits() {
+        QueryCostGuard guard = QueryCostGuard.builder()
+                .tableLimits("payments", new QueryCostGuard.Limits(null, 1_000.0))
+                .build();
+
+        QueryResult result = executor(JooqExecutorOptions.builder().costGuard(guard).build())
+                .execute(plan(Map.of("STATUS", "PAID", "sorting", "ID")));
+
+        assertThat(result.getRows()).extracting(row -> row.get("ID")).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void costGuardRejectsPlansThatMatchTooManyRows() {
+        QueryCostGuard guard = QueryCostGuard.builder()
+                .tableLimits("payments", new QueryCostGuard.Limits(null, 0.5))
+                .build();
+        JooqQueryExecutor executor = executor(JooqExecutorOptions.builder().costGuard(guard).build());
+
+        assertThatThrownBy(() -> executor.execute(plan(Map.of("STATUS", "PAID"))))
+                .isInstanceOf(QueryCostExceededException.class)
+                .satisfies(e -> assertThat(((QueryCostExceededException) e).getEstimatedRows()).isGreaterThan(0.5));
+    }
+
+    @Test
+    void costGuardExplainsWhereTheStatementRuns() {
+        List<String> replicaStatements = new ArrayList<>();
+        DSLContext replica = DSL.using(dslContext.configuration().deriveAppending(new ExecuteListener() {
+            @Override
+            public void executeStart(ExecuteContext ctx) {
+                replicaStatements.add(ctx.sql().toLowerCase(Locale.ROOT));
+            }
+        }));
+        QueryCostGuard guard = QueryCostGuard.builder()
+                .tableLimits("payments", new QueryCostGuard.Limits(null, 1_000.0))
+                .build();
+        try (ReplicaRouter router = ReplicaRouter.builder().replica("replica", replica).build()) {
+            JooqExecutorOptions options = JooqExecutorOptions.builder().costGuard(guard).replicaRouter(router).build();
+
+            QueryResult result = executor(options)
+                    .execute(plan(Map.of("STATUS", "PAID", "sum", "AMOUNT", "entities", "false")));
+
+            assertThat((BigDecimal) result.getAggregations().get("AMOUNT_sum")).isEqualByComparingTo("400.00");
+        }
+        assertThat(replicaStatements).anyMatch(sql -> sql.startsWith("explain"));
+        assertThat(replicaStatements).anyMatch(sql -> sql.startsWith("select"));
+    }
+
+    @Test
+    void estimatedCountsAreExplainedWhereCountsRun() {
+        List<String> replicaStatements = new ArrayList<>();
+        DSLContext replica = DSL.using(dslContext.configuration().deriveAppending(new ExecuteListener() {
+            @Override
+            public void executeStart(ExecuteContext ctx) {
+                replicaStatements.add(ctx.sql().toLowerCase(Locale.ROOT));
+            }
+        }));
+        try (ReplicaRouter router = ReplicaRouter.builder().replica("replica", replica).build()) {
+            QueryResult result = executor(JooqExecutorOptions.builder().replicaRouter(router).build())
+                    .execute(plan(Map.of("STATUS", "PAID", "count", "true", "countStrategy", "estimated",
+                            "entities", "false")));
+
+            assertThat(result.getCountPrecision()).isEqualTo(CountPrecision.ESTIMATED);
+        }
+        assertThat(replicaStatements).anyMatch(sql -> sql.startsWith("explain"));
+    }
+
+    @Test
+    void resultLimitsAreOffByDefault() {
+        assertThat(resultSizeLimits.limitsFor("PUBLIC", "PAYMENTS")).isEqualTo(ResultSizeLimits.Limits.unlimited());
+    }
+
+    @Test
+    void byteBudgetTruncatesThePage() {
+        ResultSizeLimits limits = ResultSizeLimits.builder()
+                .defaultLimits(new ResultSizeLimits.Limits(null, null, 200L))
+                .build();
+
+        QueryResult result = executor(JooqExecutorOptions.builder().resultSizeLimits(limits).build())
+                .execute(plan(Map.of("sorting", "ID")));
+
+        assertThat(result.getRows()).extracting(row -> row.get("ID")).containsExactly(1L);
+        assertThat(result.getPageInfo().getTruncated()).isTrue();
+        assertThat(dslContext.connectionResult(connection -> connection.getAutoCommit() && !connection.isReadOnly()))
+                .isTrue();
+    }
+
+    @Test
+    void byteBudgetReadsWithinTheCallersTransaction() {
+        ResultSizeLimits limits = ResultSizeLimits.builder()
+                .defaultLimits(new ResultSizeLimits.Limits(null, null, 1L << 20))
+                .build();
+        JooqExecutorOptions options = JooqExecutorOptions.builder().resultSizeLimits(limits).build();
+        List<Object> ids = new ArrayList<>();
+
+        assertThatThrownBy(() -> dslContext.transaction(configuration -> {
+            configuration.dsl().execute("insert into payments (id, amount, status, created_at) "
+                    + "values (99, 1.00, 'PAID', '2024-02-01')");
+            new JooqQueryExecutor(configuration.dsl(), jooqSchema, options)
+                    .execute(plan(Map.of("STATUS", "PAID", "sorting", "ID")))
+                    .getRows()
+                    .forEach(row -> ids.add(row.get("ID")));
+            throw new IllegalStateException("roll back");
+        })).hasMessage("roll back");
+
+        assertThat(ids).containsExactly(1L, 2L, 99L);
+        assertThat(dslContext.fetchCount(TestSchemaConfiguration.table(dslContext, "payments"))).isEqualTo(3);
+    }
+
+    @Test
+    void databaseJsonRendersOnlyOnPostgres() {
+        JooqQueryExecutor executor = executor(JooqExecutorOptions.builder().databaseJson(true).build());
+        QueryPlan plan = plan(Map.of("STATUS", "PAID", "sorting", "ID"));
+
+        assertThat(executor.rendersJson(plan)).isFalse();
+        assertThatThrownBy(() -> executor.executeJsonAsync(plan, null)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(executor.executeAsync(plan).join().getRows()).extracting(row -> row.get("ID"))
+                .containsExactly(1L, 2L);
+    }
+
+    @Test
+    void databaseJsonAppliesTheByteBudgetInTheStatement() {
+        String document = "{\"entities\": [], \"aggregations\": {}}";
+        List<String> statements = new ArrayList<>();
+        DSLContext postgres = DSL.using(new MockConnection(context -> {
+            statements.add(context.sql());
+            DSLContext create = DSL.using(SQLDialect.POSTGRES);
+            Field<JSON> field = DSL.field(DSL.name("document"), SQLDataType.JSON);
+            Result<Record1<JSON>> result = create.newResult(field);
+            result.add(create.newRecord(field).values(JSON.valueOf(document)));
+            return new MockResult[] {new MockResult(1, result)};
+        }), SQLDialect.POSTGRES);
+        ResultSizeLimits limits = ResultSizeLimits.builder()
+                .defaultLimits(new ResultSizeLimits.Limits(null, null, 4096L))
+                .build();
+        JooqQueryExecutor executor = new JooqQueryExecutor(postgres, jooqSchema,
+                JooqExecutorOptions.builder().databaseJson(true).resultSizeLimits(limits).build());
+        QueryPlan plan = plan(Map.of("STATUS", "PAID", "sorting", "ID"));
+
+        assertThat(executor.rendersJson(plan)).isTrue();
+        assertThat(executor.executeJsonAsync(plan, null).join()).isEqualTo(document);
+        assertThat(statements).hasSize(1);
+        String sql = statements.get(0).toLowerCase(Locale.ROOT);
+        assertThat(sql)
+                .contains("row_number() over (order by")
+                .contains("sum(2 * length(")
+                .contains(") filter (where")
+                .contains("<= 4096")
+                .contains("> 4096")
+                .contains("case when")
+                .contains("'truncated', true");
+        assertThat(sql).containsPattern("json_agg\\(.* order by .*\\) filter \\(where");
+    }
+
+    @Test
+    void exportChunksResumeFromARecordedCursorInAnotherProcess() {
+        QueryPlan source = plan(Map.of("sorting", "-AMOUNT"));
+        JooqQueryExecutor before = executor(JooqExecutorOptions.builder().cursorCodec(CURSOR_CODEC).build());
+        JooqQueryExecutor after = executor(JooqExecutorOptions.builder()
+                .cursorCodec(CursorCodec.fromSecret("integration-test-cursor-secret"))
+                .build());
+
+        QueryResult first = before.execute(exportChunk(source, null));
+        QueryResult resumed = after.execute(exportChunk(source, first.getPageInfo().getNextCursor()));
+
+        assertThat(first.getRows()).extracting(row -> row.get("ID")).containsExactly(1L, 2L);
+        assertThat(resumed.getRows()).extracting(row -> row.get("ID")).containsExactly(3L);
+        assertThat(resumed.getPageInfo().getNextCursor()).isNull();
+    }
+
+    @Test
+    void exportChunksCannotResumeUnderAnotherCursorSecret() {
+        QueryPlan source = plan(Map.of("sorting", "-AMOUNT"));
+        QueryResult first = executor(JooqExecutorOptions.builder().cursorCodec(CURSOR_CODEC).build())
+                .execute(exportChunk(source, null));
+        JooqQueryExecutor restarted = executor(JooqExecutorOptions.builder()
+                .cursorCodec(CursorCodec.fromSecret("another-integration-test-secret"))
+                .build());
+
+        assertThatThrownBy(() -> restarted.execute(exportChunk(source, first.getPageInfo().getNextCursor())))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void partitionedScansMatchTheUnsplitRead() {
+        AtomicInteger submitted = new AtomicInteger();
+        try (BoundedVirtualThreadExecutor threads = new BoundedVirtualThreadExecutor(4)) {
+            Executor counting = task -> {
+                submitted.incrementAndGet();
+                threads.execute(task);
+            };
+            JooqQueryExecutor partitioned = executor(JooqExecutorOptions.builder()
+                    .parallelExecutor(counting)
+                    .parallelScanPartitions(3)
+                    .parallelScanMinRows(0)
+                    .build());
+            JooqQueryExecutor unsplit = executor(JooqExecutorOptions.builder().build());
+
+            for (String sorting : List.of("ID", "-ID")) {
+                QueryPlan plan = plan(Map.of(
+                        "sorting", sorting,
+                        "count", "true",
+                        "sum", "AMOUNT",
+                        "avg", "AMOUNT",
+                        "max", "AMOUNT"
+                ));
+                QueryResult expected = unsplit.execute(plan);
+                QueryResult actual = partitioned.execute(plan);
+
+                assertThat(actual.getRows()).extracting(row -> row.get("ID"))
+                        .containsExactlyElementsOf(expected.getRows().stream().map(row -> row.get("ID")).toList());
+                Map<String, Object> aggregations = actual.getAggregations();
+                assertThat(aggregations.get("count")).isEqualTo(expected.getAggregations().get("count"));
+                assertThat((BigDecimal) aggregations.get("AMOUNT_sum"))
+                        .isEqualByComparingTo((BigDecimal) expected.getAggregations().get("AMOUNT_sum"));
+                BigDecimal average = (BigDecimal) expected.getAggregations().get("AMOUNT_avg");
+                assertThat((BigDecimal) aggregations.get("AMOUNT_avg"))
+                        .isCloseTo(average, within(new BigDecimal("1e-6")));
+                assertThat(aggregations.get("AMOUNT_max")).isEqualTo(expected.getAggregations().get("AMOUNT_max"));
+            }
+        }
+        assertThat(submitted.get()).isGreaterThanOrEqualTo(4);
+    }
+
+    @Test
+    void partitionedScanDegradesToOneScanWhenTheExecutorIsFull() {
+        AtomicInteger rejected = new AtomicInteger();
+        Executor full = task -> {
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("No free slot");
+        };
+        JooqQueryExecutor executor = executor(JooqExecutorOptions.builder()
+                .parallelExecutor(full)
+                .parallelScanPartitions(3)
+                .parallelScanMinRows(0)
+                .build());
+
+        QueryResult result = executor.execute(plan(Map.of("sorting", "-ID", "count", "true", "sum", "AMOUNT")));
+
+        assertThat(result.getRows()).extracting(row -> row.get("ID")).containsExactly(3L, 2L, 1L);
+        assertThat(((Number) result.getAggregations().get("count")).longValue()).isEqualTo(3L);
+        assertThat((BigDecimal) result.getAggregations().get("AMOUNT_sum")).isEqualByComparingTo("475.00");
+        assertThat(rejected).hasValue(1);
+    }
+
+    /**
+     * Entities of {@code plan}, two rows after {@code after} in keyset order, as an export job reads them.
+     */
+    private static QueryPlan exportChunk(QueryPlan plan, String after) {
+        return new QueryPlan(
+                plan.getEntity(),
+                plan.getProjection(),
+                plan.getFilters(),
+                plan.getSorting(),
+                Pagination.builder().pageSize(2).mode(PaginationMode.CURSOR).after(after).build(),
+                new Aggregations(List.of(), List.of(), List.of(), List.of()),
+                new QueryFlags(false, false, true)
+        );
+    }
+
+    /**
+     * Reads every page of the entity two rows at a time and returns the ids in the order they came.
+     */
+    private List<Object> cursorIds(JooqQueryExecutor executor, String entity, String sorting) {
+        List<Object> ids = new ArrayList<>();
+        String after = null;
+        do {
+            Map<String, String> params = new HashMap<>(Map.of("sorting", sorting, "pageSize", "2"));
+            params.put(after == null ? "paginationMode" : "after", after == null ? "cursor" : after);
+            QueryResult page = executor.execute(plan(entity, params));
+            page.getRows().forEach(row -> ids.add(((Number) row.get("ID")).longValue()));
+            after = page.getPageInfo().getNextCursor();
+        } while (after != null);
+        return ids;
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private QueryPlan plan(Map<String, String> params) {
+        return plan("payments", params);
+    }
+
+    private QueryPlan plan(String entity, Map<String, String> params) {
+        RestQueryModel model = (RestQueryModel) new RestQueryInputParser().parse(new RestQueryInput(params));
+        return new RestQueryPlanNormalizer().normalize(model, entity, jooqSchema);
+    }
+
+    private JooqQueryExecutor executor(JooqExecutorOptions options) {
+        return new JooqQueryExecutor(dslContext, jooqSchema, options);
+    }
+
     @SpringBootApplication
     static class TestApplication {
     }
@@ -67,15 +758,92 @@ class ViewtonJooqIntegrationTest {
         @Bean
         @Primary
         JooqSchema jooqSchema(DSLContext dslContext) {
-            Table<?> payments = dslContext.meta().getTables().stream()
-                    .filter(table -> table.getName().equalsIgnoreCase("payments"))
-                    .findFirst()
-                    .orElseThrow();
             return JooqSchema.builder()
-                    .registerTable("payments", payments)
+                    .registerTable("payments", table(dslContext, "payments"))
+                    .registerTable("shipments", table(dslContext, "shipments"))
+                    .registerTable("shipment_view", table(dslContext, "shipment_view"))
+                    .registerTable("gated_rows", table(dslContext, "gated_rows"))
                     .mapDto(PaymentDto.class, "payments")
                     .build();
         }
+
+        private static Table<?> table(DSLContext dslContext, String name) {
+            return dslContext.meta().getTables().stream()
+                    .filter(table -> table.getName().equalsIgnoreCase(name))
+                    .findFirst()
+                    .orElseThrow();
+        }
+    }
+
+    /**
+     * Function behind the {@code gated_rows} view: reads of the view block while the gate is closed.
+     */
+    public static final class QueryGate {
+        private static final AtomicInteger ENTERED = new AtomicInteger();
+        private static volatile CountDownLatch release = new CountDownLatch(0);
+
+        private QueryGate() {
+        }
+
+        public static boolean pass() throws InterruptedException {
+            ENTERED.incrementAndGet();
+            return release.await(10, TimeUnit.SECONDS);
+        }
+
+        static void close() {
+            ENTERED.set(0);
+            release = new CountDownLatch(1);
+        }
+
+        static void open() {
+            release.countDown();
+        }
+
+        static int entered() {
+            return ENTERED.get();
+        }
+
+        static void awaitEntered(int reads) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (ENTERED.get() < reads) {
+                if (System.nanoTime() > deadline) {
+                    throw new AssertionError("Expected " + reads + " reads of gated_rows, saw " + ENTERED.get());
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    /**
+     * Async executor that tells when its tasks have started. A started task reaches the in-flight map of the
+     * coalescing executor almost at once; the short pause covers the rest of the way.
+     */
+    private static final class StartedTasks implements Executor {
+        private final Executor delegate;
+        private final AtomicInteger started = new AtomicInteger();
+
+        private StartedTasks(Executor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            delegate.execute(() -> {
+                started.incrementAndGet();
+                task.run();
+            });
+        }
+
+        void awaitStarted(int tasks) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (started.get() < tasks) {
+                if (System.nanoTime() > deadline) {
+                    throw new AssertionError("Expected " + tasks + " started tasks, saw " + started.get());
+                }
+                Thread.sleep(10);
+            }
+            Thread.sleep(100);
+        }
     }
 
     static class PaymentDto {
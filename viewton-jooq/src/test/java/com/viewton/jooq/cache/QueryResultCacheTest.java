@@ -0,0 +1,159 @@
+package com.viewton.jooq.cache;
+
+import com.viewton.jooq.mapping.QueryResult;
+import com.viewton.plan.Aggregations;
+import com.viewton.plan.EntityRef;
+import com.viewton.plan.Filters;
+import com.viewton.plan.Pagination;
+import com.viewton.plan.Projection;
+import com.viewton.plan.QueryFlags;
+import com.viewton.plan.QueryPlan;
+import com.viewton.plan.Sorting;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryResultCacheTest {
+    private static final Table<?> PAYMENTS = DSL.table(DSL.name("public", "payments"));
+    private static final QueryPlan PLAN = plan();
+
+    private final AtomicLong now = new AtomicLong();
+    private final Deque<Runnable> refreshes = new ArrayDeque<>();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void expiresEntriesAfterTheTimeToLive() {
+        QueryResultCache cache = cache(null);
+
+        QueryResult first = cache.get(PAYMENTS, PLAN, this::load);
+        now.addAndGet(Duration.ofSeconds(59).toNanos());
+        QueryResult cached = cache.get(PAYMENTS, PLAN, this::load);
+        now.addAndGet(Duration.ofSeconds(2).toNanos());
+        QueryResult reloaded = cache.get(PAYMENTS, PLAN, this::load);
+
+        assertThat(cached).isSameAs(first);
+        assertThat(reloaded).isNotSameAs(first);
+        assertThat(loads).hasValue(2);
+        assertThat(cache.stats().hits()).isEqualTo(1);
+    }
+
+    @Test
+    void servesStaleEntriesWhileASingleRefreshRuns() {
+        QueryResultCache cache = cache(Duration.ofSeconds(10));
+        QueryResult first = cache.get(PAYMENTS, PLAN, this::load);
+
+        now.addAndGet(Duration.ofSeconds(11).toNanos());
+        QueryResult stale = cache.get(PAYMENTS, PLAN, this::load);
+        QueryResult stillStale = cache.get(PAYMENTS, PLAN, this::load);
+
+        assertThat(stale).isSameAs(first);
+        assertThat(stillStale).isSameAs(first);
+        assertThat(refreshes).hasSize(1);
+
+        refreshes.poll().run();
+        QueryResult refreshed = cache.get(PAYMENTS, PLAN, this::load);
+
+        assertThat(refreshed).isNotSameAs(first);
+        assertThat(loads).hasValue(2);
+        assertThat(cache.stats().staleHits()).isEqualTo(2);
+        assertThat(refreshes).isEmpty();
+    }
+
+    @Test
+    void invalidationDropsEntriesOfThatTableOnly() {
+        QueryResultCache cache = cache(null);
+        Table<?> refunds = DSL.table(DSL.name("public", "refunds"));
+        QueryResult payments = cache.get(PAYMENTS, PLAN, this::load);
+        QueryResult refund = cache.get(refunds, PLAN, this::load);
+
+        cache.invalidateTable("PAYMENTS");
+
+        assertThat(cache.get(PAYMENTS, PLAN, this::load)).isNotSameAs(payments);
+        assertThat(cache.get(refunds, PLAN, this::load)).isSameAs(refund);
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void discardsLoadsThatRaceWithAnInvalidation() {
+        QueryResultCache cache = cache(null);
+
+        QueryResult raced = cache.get(PAYMENTS, PLAN, () -> {
+            QueryResult result = load();
+            cache.invalidateTable("payments");
+            return result;
+        });
+        QueryResult next = cache.get(PAYMENTS, PLAN, this::load);
+
+        assertThat(next).isNotSameAs(raced);
+        assertThat(cache.get(PAYMENTS, PLAN, this::load)).isSameAs(next);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void discardsRefreshesThatRaceWithAnInvalidation() {
+        QueryResultCache cache = cache(Duration.ofSeconds(10));
+        cache.get(PAYMENTS, PLAN, this::load);
+        now.addAndGet(Duration.ofSeconds(11).toNanos());
+        cache.get(PAYMENTS, PLAN, this::load, () -> {
+            QueryResult result = load();
+            cache.invalidateTable("payments");
+            return result;
+        });
+
+        refreshes.poll().run();
+
+        assertThat(cache.size()).isZero();
+        cache.get(PAYMENTS, PLAN, this::load);
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void discardsRefreshesOfEntriesReplacedInTheMeantime() {
+        QueryResultCache cache = cache(Duration.ofSeconds(10));
+        cache.get(PAYMENTS, PLAN, this::load);
+        now.addAndGet(Duration.ofSeconds(11).toNanos());
+        cache.get(PAYMENTS, PLAN, this::load);
+        cache.invalidateTable("payments");
+        QueryResult current = cache.get(PAYMENTS, PLAN, this::load);
+
+        refreshes.poll().run();
+
+        assertThat(cache.get(PAYMENTS, PLAN, this::load)).isSameAs(current);
+    }
+
+    private QueryResultCache cache(Duration staleAfter) {
+        return QueryResultCache.builder()
+                .timeToLive(Duration.ofMinutes(1))
+                .staleAfter(staleAfter)
+                .refreshExecutor(refreshes::add)
+                .ticker(now::get)
+                .build();
+    }
+
+    private QueryResult load() {
+        loads.incrementAndGet();
+        return new QueryResult(List.of(), Map.of("count", loads.get()));
+    }
+
+    private static QueryPlan plan() {
+        return new QueryPlan(
+                new EntityRef("payments"),
+                new Projection(List.of()),
+                new Filters(List.of()),
+                new Sorting(List.of()),
+                new Pagination(1, 10),
+                new Aggregations(List.of(), List.of(), List.of(), List.of()),
+                new QueryFlags(true, false, true)
+        );
+    }
+}
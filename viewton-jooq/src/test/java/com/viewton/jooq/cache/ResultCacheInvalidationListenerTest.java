@@ -0,0 +1,151 @@
+package com.viewton.jooq.cache;
+
+import com.viewton.jooq.mapping.QueryResult;
+import com.viewton.plan.Aggregations;
+import com.viewton.plan.EntityRef;
+import com.viewton.plan.Filters;
+import com.viewton.plan.Pagination;
+import com.viewton.plan.Projection;
+import com.viewton.plan.QueryFlags;
+import com.viewton.plan.QueryPlan;
+import com.viewton.plan.Sorting;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultConfiguration;
+import org.jooq.impl.DefaultExecuteListenerProvider;
+import org.jooq.impl.DefaultTransactionListenerProvider;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ResultCacheInvalidationListenerTest {
+    private static final Table<?> PAYMENTS = DSL.table(DSL.name("PUBLIC", "PAYMENTS"));
+
+    @Test
+    void extractsTargetTableFromDmlStatements() {
+        assertThat(ResultCacheInvalidationListener.targetTable(
+                "insert into \"PUBLIC\".\"PAYMENTS\" (\"ID\") values (?)")).isEqualTo("PAYMENTS");
+        assertThat(ResultCacheInvalidationListener.targetTable("update payments set status = ?")).isEqualTo("payments");
+        assertThat(ResultCacheInvalidationListener.targetTable("DELETE FROM public.payments where id = ?")).isEqualTo("payments");
+        assertThat(ResultCacheInvalidationListener.targetTable("merge into sales.orders using dual")).isEqualTo("orders");
+        assertThat(ResultCacheInvalidationListener.targetTable("truncate table \"audit.log\"")).isEqualTo("audit.log");
+    }
+
+    @Test
+    void ignoresStatementsWithoutWriteTarget() {
+        assertThat(ResultCacheInvalidationListener.targetTable("select * from payments")).isNull();
+        assertThat(ResultCacheInvalidationListener.targetTable(null)).isNull();
+        assertThat(ResultCacheInvalidationListener.targetTables(
+                "with paid as (select * from payments) select * from paid")).isEmpty();
+    }
+
+    @Test
+    void extractsEveryTargetTableOfCommonTableExpressions() {
+        assertThat(ResultCacheInvalidationListener.targetTables(
+                "with paid as (select id from payments where status = ?) update refunds set status = ? "
+                        + "where payment_id in (select id from paid)"))
+                .containsExactly("refunds");
+        assertThat(ResultCacheInvalidationListener.targetTables(
+                "WITH moved AS (DELETE FROM public.payments WHERE id = ? RETURNING *) "
+                        + "INSERT INTO \"archive\".\"payments_log\" SELECT * FROM moved"))
+                .containsExactly("payments", "payments_log");
+    }
+
+    @Test
+    void invalidatesAgainWhenAJooqTransactionCommits() throws SQLException {
+        QueryResultCache cache = QueryResultCache.builder().build();
+        try (Connection connection = connection("commits")) {
+            DSLContext dsl = listening(connection, cache);
+
+            dsl.transaction(transaction -> {
+                transaction.dsl().execute("insert into payments values (1)");
+                cache.get(PAYMENTS, plan(), ResultCacheInvalidationListenerTest::result);
+                assertThat(cache.size()).isEqualTo(1);
+            });
+
+            assertThat(cache.size()).isZero();
+        }
+    }
+
+    @Test
+    void keepsEntriesReadBeforeARolledBackWrite() throws SQLException {
+        QueryResultCache cache = QueryResultCache.builder().build();
+        try (Connection connection = connection("rollbacks")) {
+            DSLContext dsl = listening(connection, cache);
+
+            assertThatThrownBy(() -> dsl.transaction(transaction -> {
+                transaction.dsl().execute("insert into payments values (1)");
+                cache.get(PAYMENTS, plan(), ResultCacheInvalidationListenerTest::result);
+                throw new IllegalStateException("rollback");
+            })).isInstanceOf(IllegalStateException.class);
+
+            assertThat(cache.size()).isEqualTo(1);
+            assertThat(dsl.fetchCount(DSL.table("payments"))).isZero();
+        }
+    }
+
+    @Test
+    void invalidatesAgainWhenASpringTransactionCommits() throws SQLException {
+        QueryResultCache cache = QueryResultCache.builder().build();
+        try (Connection connection = connection("spring")) {
+            DSLContext dsl = listening(connection, cache);
+            connection.setAutoCommit(false);
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                dsl.execute("insert into payments values (1)");
+                cache.get(PAYMENTS, plan(), ResultCacheInvalidationListenerTest::result);
+                assertThat(cache.size()).isEqualTo(1);
+
+                connection.commit();
+                TransactionSynchronizationManager.getSynchronizations()
+                        .forEach(TransactionSynchronization::afterCommit);
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+
+            assertThat(cache.size()).isZero();
+        }
+    }
+
+    private static Connection connection(String name) throws SQLException {
+        Connection connection = DriverManager.getConnection("jdbc:h2:mem:" + name, "sa", "");
+        connection.createStatement().execute("create table payments (id bigint primary key)");
+        return connection;
+    }
+
+    private static DSLContext listening(Connection connection, QueryResultCache cache) {
+        ResultCacheInvalidationListener listener = new ResultCacheInvalidationListener(cache);
+        return DSL.using(new DefaultConfiguration()
+                .set(connection)
+                .set(SQLDialect.H2)
+                .set(new DefaultExecuteListenerProvider(listener))
+                .set(new DefaultTransactionListenerProvider(listener)));
+    }
+
+    private static QueryResult result() {
+        return new QueryResult(List.of(), Map.of("count", 0L));
+    }
+
+    private static QueryPlan plan() {
+        return new QueryPlan(
+                new EntityRef("payments"),
+                new Projection(List.of()),
+                new Filters(List.of()),
+                new Sorting(List.of()),
+                new Pagination(1, 10),
+                new Aggregations(List.of(), List.of(), List.of(), List.of()),
+                new QueryFlags(true, false, true)
+        );
+    }
+}
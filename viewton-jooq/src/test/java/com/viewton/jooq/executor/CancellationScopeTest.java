@@ -0,0 +1,292 @@
+package com.viewton.jooq.executor;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.jooq.DSLContext;
+import org.jooq.ExecuteContext;
+import org.jooq.ExecuteListener;
+import org.jooq.Record;
+import org.jooq.ResultQuery;
+import org.jooq.SQLDialect;
+import org.jooq.Table;
+import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultConfiguration;
+import org.jooq.impl.DefaultExecuteListenerProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CancellationScopeTest {
+    private static final Table<?> TABLE = DSL.table(DSL.name("replica_name"));
+    private static final String LATENCY_KEY = StatementKind.COUNT + ":replica_name";
+    // The gate blocks the first row; the cross join gives a cancelled statement rows to notice the cancel on.
+    private static final String SQL = "select distinct name from replica_name cross join system_range(1, 100000) "
+            + "where hedge_gate(name)";
+
+    private final List<String> failed = new CopyOnWriteArrayList<>();
+    private final ExecutorService threads = Executors.newCachedThreadPool();
+    private DSLContext primary;
+    private DSLContext replicaA;
+    private DSLContext replicaB;
+
+    @BeforeEach
+    void setUp() {
+        primary = database("primary");
+        replicaA = database("a");
+        replicaB = database("b");
+    }
+
+    @AfterEach
+    void tearDown() {
+        Gates.openAll();
+        threads.shutdownNow();
+        for (DSLContext database : List.of(primary, replicaA, replicaB)) {
+            database.execute("drop all objects");
+        }
+    }
+
+    @Test
+    void hedgeThatAnswersFirstWinsAndCancelsTheOriginal() throws Exception {
+        HedgingPolicy policy = policy(1);
+        Gate original = Gates.close("a");
+
+        CompletableFuture<String> result = fetch(scope(policy), StatementKind.COUNT, DSL.using(SQLDialect.H2));
+        await(() -> policy.stats().hedgeWins() == 1);
+        original.open();
+
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("b");
+        await(() -> failed.contains("a"));
+        assertThat(policy.stats().hedges()).isEqualTo(1);
+    }
+
+    @Test
+    void originalThatAnswersFirstWinsAndCancelsTheHedge() throws Exception {
+        HedgingPolicy policy = policy(1);
+        Gate original = Gates.close("a");
+        Gate hedge = Gates.close("b");
+
+        CompletableFuture<String> result = fetch(scope(policy), StatementKind.COUNT, DSL.using(SQLDialect.H2));
+        await(hedge::entered);
+        original.open();
+
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("a");
+        hedge.open();
+        await(() -> failed.contains("b"));
+        assertThat(policy.stats().hedgeWins()).isZero();
+    }
+
+    @Test
+    void originalFailureWaitsForTheRunningHedge() throws Exception {
+        HedgingPolicy policy = policy(1);
+        Gate original = Gates.close("a");
+        Gate hedge = Gates.close("b");
+
+        CompletableFuture<String> result = fetch(scope(policy), StatementKind.COUNT, DSL.using(SQLDialect.H2));
+        await(hedge::entered);
+        original.fail();
+        await(() -> failed.contains("a"));
+        assertThat(result).isNotDone();
+        hedge.open();
+
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("b");
+        assertThat(policy.stats().hedgeWins()).isEqualTo(1);
+    }
+
+    @Test
+    void originalFailureIsThrownWhenTheHedgeFailsToo() throws Exception {
+        HedgingPolicy policy = policy(1);
+        Gate original = Gates.close("a");
+        Gate hedge = Gates.close("b");
+
+        CompletableFuture<String> result = fetch(scope(policy), StatementKind.COUNT, DSL.using(SQLDialect.H2));
+        await(hedge::entered);
+        original.fail();
+        await(() -> failed.contains("a"));
+        hedge.fail();
+
+        assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .cause()
+                .isInstanceOf(DataAccessException.class)
+                .hasMessageContaining("Replica a failed");
+    }
+
+    @Test
+    void spentBudgetLeavesSlowStatementsUnhedged() throws Exception {
+        HedgingPolicy policy = policy(0);
+        Gate original = Gates.close("a");
+        Gate hedge = Gates.close("b");
+
+        CompletableFuture<String> result = fetch(scope(policy), StatementKind.COUNT, DSL.using(SQLDialect.H2));
+        Thread.sleep(200);
+        original.open();
+
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("a");
+        assertThat(hedge.entered()).isFalse();
+        assertThat(policy.stats().statements()).isEqualTo(1);
+        assertThat(policy.stats().hedges()).isZero();
+    }
+
+    @Test
+    void primaryStatementsAreNeverHedged() throws Exception {
+        HedgingPolicy policy = policy(1);
+        policy.recordLatency(StatementKind.ENTITIES + ":replica_name", 1_000_000L);
+        Gate original = Gates.close("primary");
+
+        CompletableFuture<String> result = fetch(scope(policy), StatementKind.ENTITIES, primary);
+        Thread.sleep(200);
+        original.open();
+
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("primary");
+        assertThat(policy.stats().statements()).isZero();
+        assertThat(Gates.entered("a") || Gates.entered("b")).isFalse();
+    }
+
+    /**
+     * Runs the statement on a caller thread of its own, like an async query; the original blocks that thread.
+     */
+    private CompletableFuture<String> fetch(CancellationScope scope, StatementKind kind, DSLContext source) {
+        return CompletableFuture.supplyAsync(
+                () -> scope.fetch(kind, TABLE, query(source), () -> query(source), CancellationScopeTest::name),
+                threads
+        );
+    }
+
+    private CancellationScope scope(HedgingPolicy policy) {
+        ReplicaRouter router = ReplicaRouter.builder()
+                .replica("a", replicaA)
+                .replica("b", replicaB)
+                .lagProbe(replica -> Duration.ZERO)
+                .build();
+        return new CancellationScope(null, router, policy, threads);
+    }
+
+    /**
+     * A policy that hedges after a millisecond, with a budget of {@code maxHedgeRatio} hedges per statement.
+     */
+    private static HedgingPolicy policy(double maxHedgeRatio) {
+        HedgingPolicy policy = HedgingPolicy.builder()
+                .minSamples(1)
+                .minDelay(Duration.ZERO)
+                .maxHedgeRatio(maxHedgeRatio)
+                .build();
+        policy.recordLatency(LATENCY_KEY, 1_000_000L);
+        return policy;
+    }
+
+    private static ResultQuery<Record> query(DSLContext source) {
+        return source.resultQuery(SQL);
+    }
+
+    private static String name(ResultQuery<Record> query) {
+        return query.fetchOne(0, String.class);
+    }
+
+    private DSLContext database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:hedge-" + name + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        DSLContext database = DSL.using(new DefaultConfiguration()
+                .set(dataSource)
+                .set(SQLDialect.H2)
+                .set(new DefaultExecuteListenerProvider(new ExecuteListener() {
+                    @Override
+                    public void exception(ExecuteContext ctx) {
+                        failed.add(name);
+                    }
+                })));
+        database.execute("create table replica_name (name varchar(10))");
+        database.execute("insert into replica_name values ('" + name + "')");
+        database.execute("create alias hedge_gate for '" + Gates.class.getName() + ".pass'");
+        return database;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Condition not met within 5 seconds");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Function behind {@code hedge_gate}: a statement on a database whose gate is closed blocks until the
+     * test opens it, or fails once the test fails it.
+     */
+    public static final class Gates {
+        private static final Map<String, Gate> GATES = new ConcurrentHashMap<>();
+
+        private Gates() {
+        }
+
+        public static boolean pass(String database) throws InterruptedException {
+            Gate gate = GATES.get(database);
+            return gate == null || gate.pass(database);
+        }
+
+        static Gate close(String database) {
+            Gate gate = new Gate();
+            GATES.put(database, gate);
+            return gate;
+        }
+
+        static boolean entered(String database) {
+            Gate gate = GATES.get(database);
+            return gate != null && gate.entered();
+        }
+
+        static void openAll() {
+            GATES.values().forEach(Gate::open);
+            GATES.clear();
+        }
+    }
+
+    private static final class Gate {
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final AtomicBoolean entered = new AtomicBoolean();
+        private volatile boolean failing;
+
+        boolean pass(String database) throws InterruptedException {
+            entered.set(true);
+            if (!release.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Gate of " + database + " was never opened");
+            }
+            if (failing) {
+                throw new IllegalStateException("Replica " + database + " failed");
+            }
+            return true;
+        }
+
+        boolean entered() {
+            return entered.get();
+        }
+
+        void open() {
+            release.countDown();
+        }
+
+        void fail() {
+            failing = true;
+            release.countDown();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.viewton.jooq.executor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CursorCodecTest {
+    private final CursorCodec codec = CursorCodec.fromSecret("0123456789abcdef0123456789abcdef");
+
+    @Test
+    void roundTripsSeekValues() {
+        List<String> values = Arrays.asList("2024-01-31 10:15:00.0", null, "42");
+
+        String token = codec.encode("payments|created_at:DESC,id:ASC", values);
+
+        assertThat(codec.decode(token, "payments|created_at:DESC,id:ASC")).isEqualTo(values);
+        assertThat(CursorCodec.fromSecret("0123456789abcdef0123456789abcdef")
+                .decode(token, "payments|created_at:DESC,id:ASC")).isEqualTo(values);
+    }
+
+    @Test
+    void rejectsTamperedTokens() {
+        String token = codec.encode("payments|id:ASC", List.of("42"));
+        String tampered = codec.encode("payments|id:ASC", List.of("43")).split("\\.")[0]
+                + token.substring(token.indexOf('.'));
+
+        assertThatThrownBy(() -> codec.decode(tampered, "payments|id:ASC"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CursorCodec.fromSecret("fedcba9876543210fedcba9876543210")
+                .decode(token, "payments|id:ASC"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> codec.decode("not-a-cursor", "payments|id:ASC"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsTokensIssuedForAnotherSortOrder() {
+        String token = codec.encode("payments|id:ASC", List.of("42"));
+
+        assertThatThrownBy(() -> codec.decode(token, "payments|id:DESC"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("different query");
+    }
+}
@@ -0,0 +1,43 @@
+package com.viewton.jooq.executor;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HedgingPolicyTest {
+
+    @Test
+    void hedgesAfterPercentileOfRecordedLatencies() {
+        HedgingPolicy policy = HedgingPolicy.builder()
+                .percentile(0.9)
+                .minSamples(10)
+                .minDelay(Duration.ZERO)
+                .build();
+
+        assertThat(policy.hedgeDelayNanos("COUNT:payments")).isNegative();
+        for (int i = 1; i <= 10; i++) {
+            policy.recordLatency("COUNT:payments", i * 1_000_000L);
+        }
+
+        assertThat(policy.hedgeDelayNanos("COUNT:payments")).isEqualTo(9_000_000L);
+        assertThat(policy.hedgeDelayNanos("COUNT:refunds")).isNegative();
+    }
+
+    @Test
+    void limitsHedgesToBudgetShareOfStatements() {
+        HedgingPolicy policy = HedgingPolicy.builder().maxHedgeRatio(0.1).build();
+        int hedged = 0;
+        for (int i = 0; i < 1000; i++) {
+            policy.hedgeDelayNanos("ENTITIES:payments");
+            if (policy.tryHedge()) {
+                hedged++;
+            }
+        }
+
+        assertThat(hedged).isBetween(99, 100);
+        assertThat(policy.stats().statements()).isEqualTo(1000);
+        assertThat(policy.stats().hedges()).isEqualTo(hedged);
+    }
+}
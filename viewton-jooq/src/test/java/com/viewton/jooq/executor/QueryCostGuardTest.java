@@ -0,0 +1,60 @@
+package com.viewton.jooq.executor;
+
+import com.viewton.plan.Aggregations;
+import com.viewton.plan.EntityRef;
+import com.viewton.plan.FilterCriterion;
+import com.viewton.plan.Filters;
+import com.viewton.plan.Pagination;
+import com.viewton.plan.Projection;
+import com.viewton.plan.QueryFlags;
+import com.viewton.plan.QueryOperator;
+import com.viewton.plan.QueryPlan;
+import com.viewton.plan.Sorting;
+import com.viewton.plan.value.QueryStringValue;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryCostGuardTest {
+    private final QueryCostGuard guard = QueryCostGuard.builder().build();
+    private final AtomicInteger explains = new AtomicInteger();
+
+    @Test
+    void explainsEachFilterValueSeparately() {
+        QueryCostGuard.Estimate prefix = estimate(plan(QueryOperator.LIKE, "abc%", 1));
+        QueryCostGuard.Estimate contains = estimate(plan(QueryOperator.LIKE, "%abc%", 1));
+        estimate(plan(QueryOperator.LIKE, "abc%", 1));
+
+        assertThat(prefix).isNotEqualTo(contains);
+        assertThat(explains).hasValue(2);
+    }
+
+    @Test
+    void sharesEstimatesBetweenNearbyPagesOnly() {
+        estimate(plan(QueryOperator.EQ, "PAID", 5));
+        estimate(plan(QueryOperator.EQ, "PAID", 6));
+        estimate(plan(QueryOperator.EQ, "PAID", 20_000));
+
+        assertThat(explains).hasValue(2);
+    }
+
+    private QueryCostGuard.Estimate estimate(QueryPlan plan) {
+        return guard.estimate(plan, () -> new QueryCostGuard.Estimate(explains.incrementAndGet(), 1));
+    }
+
+    private static QueryPlan plan(QueryOperator operator, String value, int page) {
+        FilterCriterion filter = new FilterCriterion("status", operator, List.of(new QueryStringValue(value)), false);
+        return new QueryPlan(
+                new EntityRef("payments"),
+                new Projection(List.of()),
+                new Filters(List.of(filter)),
+                new Sorting(List.of()),
+                new Pagination(page, 20),
+                new Aggregations(List.of(), List.of(), List.of(), List.of()),
+                new QueryFlags(false, false, true)
+        );
+    }
+}
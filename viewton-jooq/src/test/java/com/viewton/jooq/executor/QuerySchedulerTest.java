@@ -0,0 +1,78 @@
+package com.viewton.jooq.executor;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QuerySchedulerTest {
+
+    @Test
+    void admitsCallersRoundRobin() {
+        QueryScheduler scheduler = QueryScheduler.builder()
+                .laneConcurrency(QueryLane.INTERACTIVE, 1)
+                .maxQueueWait(Duration.ofSeconds(30))
+                .build();
+        QueryScheduler.Permit running = scheduler.admit(QueryLane.INTERACTIVE, "payments", "tenant-a").join();
+        List<String> admitted = new ArrayList<>();
+        CompletableFuture<QueryScheduler.Permit> first = admit(scheduler, "tenant-a", admitted);
+        CompletableFuture<QueryScheduler.Permit> second = admit(scheduler, "tenant-a", admitted);
+        CompletableFuture<QueryScheduler.Permit> other = admit(scheduler, "tenant-b", admitted);
+
+        running.close();
+        first.join().close();
+        other.join().close();
+
+        assertThat(admitted).containsExactly("tenant-a", "tenant-b", "tenant-a");
+        assertThat(second).isCompleted();
+    }
+
+    @Test
+    void capsConcurrencyPerTableAcrossLanes() {
+        QueryScheduler scheduler = QueryScheduler.builder()
+                .tableConcurrency(1)
+                .maxQueueWait(Duration.ofSeconds(30))
+                .build();
+        QueryScheduler.Permit export = scheduler.admit(QueryLane.EXPORT, "payments", "a").join();
+
+        CompletableFuture<QueryScheduler.Permit> sameTable = scheduler.admit(QueryLane.INTERACTIVE, "payments", "b");
+        CompletableFuture<QueryScheduler.Permit> otherTable = scheduler.admit(QueryLane.INTERACTIVE, "refunds", "b");
+
+        assertThat(sameTable).isNotDone();
+        assertThat(otherTable).isCompleted();
+        export.close();
+        assertThat(sameTable).isCompleted();
+    }
+
+    @Test
+    void shedsQueriesThatWaitTooLong() {
+        QueryScheduler scheduler = QueryScheduler.builder()
+                .laneConcurrency(QueryLane.AGGREGATE, 1)
+                .maxQueueWait(Duration.ofMillis(20))
+                .build();
+        scheduler.admit(QueryLane.AGGREGATE, "payments", "a").join();
+
+        CompletableFuture<QueryScheduler.Permit> queued = scheduler.admit(QueryLane.AGGREGATE, "payments", "b");
+
+        assertThatThrownBy(queued::join).hasCauseInstanceOf(QueryRejectedException.class);
+        QueryScheduler.LaneStats stats = scheduler.stats().lanes().get(QueryLane.AGGREGATE);
+        assertThat(stats.running()).isEqualTo(1);
+        assertThat(stats.queued()).isZero();
+        assertThat(stats.rejected()).isEqualTo(1);
+    }
+
+    private static CompletableFuture<QueryScheduler.Permit> admit(
+            QueryScheduler scheduler,
+            String callerKey,
+            List<String> admitted
+    ) {
+        CompletableFuture<QueryScheduler.Permit> permit = scheduler.admit(QueryLane.INTERACTIVE, "payments", callerKey);
+        permit.thenAccept(ignored -> admitted.add(callerKey));
+        return permit;
+    }
+}
@@ -0,0 +1,52 @@
+package com.viewton.jooq.executor;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RangePartitionsTest {
+
+    @Test
+    void splitsNumericRangesIntoEqualSteps() {
+        assertThat(RangePartitions.boundaries(1L, 100L, 4)).containsExactly(25L, 50L, 75L);
+        assertThat(RangePartitions.boundaries(new BigDecimal("0.00"), new BigDecimal("1.00"), 3))
+                .containsExactly(new BigDecimal("0.33"), new BigDecimal("0.66"));
+    }
+
+    @Test
+    void splitsDateAndTimestampRangesInTheirOwnType() {
+        assertThat(RangePartitions.boundaries(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31), 4))
+                .containsExactly(LocalDate.of(2024, 4, 1), LocalDate.of(2024, 7, 1), LocalDate.of(2024, 9, 30));
+        assertThat(RangePartitions.boundaries(
+                LocalDateTime.of(2024, 1, 1, 0, 0),
+                LocalDateTime.of(2024, 1, 2, 0, 0),
+                3
+        )).containsExactly(LocalDateTime.of(2024, 1, 1, 8, 0), LocalDateTime.of(2024, 1, 1, 16, 0));
+        assertThat(RangePartitions.boundaries(
+                OffsetDateTime.parse("2024-01-01T00:00+02:00"),
+                OffsetDateTime.parse("2024-01-01T06:00+02:00"),
+                2
+        )).containsExactly(OffsetDateTime.parse("2024-01-01T03:00+02:00"));
+    }
+
+    @Test
+    void returnsFewerBoundariesForNarrowRanges() {
+        assertThat(RangePartitions.boundaries(1, 3, 8)).containsExactly(2);
+        assertThat(RangePartitions.boundaries(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 3), 4))
+                .containsExactly(LocalDate.of(2024, 1, 2));
+    }
+
+    @Test
+    void leavesUnsplittableRangesWhole() {
+        assertThat(RangePartitions.boundaries(5L, 5L, 4)).isEmpty();
+        assertThat(RangePartitions.boundaries(10L, 1L, 4)).isEmpty();
+        assertThat(RangePartitions.boundaries(1L, 100L, 1)).isEmpty();
+        assertThat(RangePartitions.boundaries(1L, 100, 4)).isEmpty();
+        assertThat(RangePartitions.boundaries("a", "z", 4)).isEmpty();
+    }
+}
@@ -0,0 +1,113 @@
+package com.viewton.jooq.executor;
+
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReplicaRouterTest {
+    private final DSLContext replicaA = DSL.using(SQLDialect.H2);
+    private final DSLContext replicaB = DSL.using(SQLDialect.H2);
+
+    @Test
+    void spreadsRoutedKindsRoundRobinAndKeepsEntitiesOnPrimary() {
+        ReplicaRouter router = ReplicaRouter.builder()
+                .replica("a", replicaA)
+                .replica("b", replicaB)
+                .build();
+
+        try (ReplicaRouter.Lease first = router.acquire(StatementKind.COUNT);
+             ReplicaRouter.Lease second = router.acquire(StatementKind.AGGREGATIONS);
+             ReplicaRouter.Lease third = router.acquire(StatementKind.EXPORT)) {
+            assertThat(first.name()).isEqualTo("a");
+            assertThat(second.name()).isEqualTo("b");
+            assertThat(third.name()).isEqualTo("a");
+        }
+        assertThat(router.acquire(StatementKind.ENTITIES)).isNull();
+    }
+
+    @Test
+    void prefersReplicaWithFewestOutstandingStatements() {
+        ReplicaRouter router = ReplicaRouter.builder()
+                .replica("a", replicaA)
+                .replica("b", replicaB)
+                .balancing(ReplicaRouter.Balancing.LEAST_OUTSTANDING)
+                .build();
+        ReplicaRouter.Lease busy = router.acquire(StatementKind.COUNT);
+
+        try (ReplicaRouter.Lease next = router.acquire(StatementKind.COUNT);
+             ReplicaRouter.Lease another = router.acquire(StatementKind.COUNT)) {
+            assertThat(next.name()).isNotEqualTo(busy.name());
+            assertThat(router.stats()).allSatisfy(stats -> assertThat(stats.outstanding()).isLessThanOrEqualTo(2));
+            assertThat(another).isNotNull();
+        }
+        busy.close();
+        busy.close();
+        assertThat(router.stats()).allSatisfy(stats -> assertThat(stats.outstanding()).isZero());
+    }
+
+    @Test
+    void skipsStaleReplicasAndFallsBackToPrimary() {
+        ReplicaRouter router = ReplicaRouter.builder()
+                .replica("a", replicaA)
+                .replica("b", replicaB)
+                .maxStaleness(Duration.ofSeconds(1))
+                .lagProbe(replica -> {
+                    if (replica == replicaB) {
+                        throw new IllegalStateException("replica unreachable");
+                    }
+                    return Duration.ofSeconds(30);
+                })
+                .build();
+
+        assertThat(router.acquire(StatementKind.COUNT)).isNull();
+        assertThat(router.stats()).extracting(ReplicaRouter.ReplicaStats::fresh).containsExactly(false, false);
+    }
+
+    @Test
+    void usesLoopbackReplicasWithDefaultProbe() {
+        ReplicaRouter router = ReplicaRouter.builder()
+                .replica("loopback", replicaA)
+                .maxStaleness(Duration.ZERO)
+                .build();
+
+        try (ReplicaRouter.Lease lease = router.acquire(StatementKind.EXPORT)) {
+            assertThat(lease.dslContext()).isSameAs(replicaA);
+        }
+    }
+
+    @Test
+    void closesTheResourcesItWasGivenOnly() {
+        AtomicInteger closed = new AtomicInteger();
+        ReplicaRouter router = ReplicaRouter.builder()
+                .replica("owned", replicaA, closed::incrementAndGet)
+                .replica("shared", replicaB)
+                .build();
+
+        router.close();
+
+        assertThat(closed).hasValue(1);
+    }
+
+    @Test
+    void closesEveryResourceEvenWhenOneFails() {
+        AtomicInteger closed = new AtomicInteger();
+        ReplicaRouter router = ReplicaRouter.builder()
+                .replica("broken", replicaA, () -> {
+                    throw new IllegalStateException("pool already closed");
+                })
+                .replica("healthy", replicaB, closed::incrementAndGet)
+                .build();
+
+        assertThatThrownBy(router::close)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("broken");
+        assertThat(closed).hasValue(1);
+    }
+}
@@ -0,0 +1,60 @@
+package com.viewton.jooq.executor;
+
+import com.viewton.plan.Aggregations;
+import com.viewton.plan.EntityRef;
+import com.viewton.plan.Filters;
+import com.viewton.plan.Pagination;
+import com.viewton.plan.Projection;
+import com.viewton.plan.QueryFlags;
+import com.viewton.plan.QueryPlan;
+import com.viewton.plan.Sorting;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResultSizeLimitsTest {
+    private final ResultSizeLimits limits = ResultSizeLimits.builder()
+            .defaultLimits(new ResultSizeLimits.Limits(100, 1000, 64L << 20))
+            .tableLimits("audit.events", new ResultSizeLimits.Limits(null, 50, null))
+            .build();
+
+    @Test
+    void boundsMissingAndOversizedPageSizes() {
+        ResultSizeLimits.Limits payments = limits.limitsFor("public", "payments");
+
+        assertThat(payments.bound(plan(null, true)).getPagination().getPageSize()).isEqualTo(100);
+        assertThat(payments.bound(plan(5000, true)).getPagination().getPageSize()).isEqualTo(1000);
+        QueryPlan withinLimits = plan(20, true);
+        assertThat(payments.bound(withinLimits)).isSameAs(withinLimits);
+    }
+
+    @Test
+    void mergesTableOverridesWithDefaults() {
+        ResultSizeLimits.Limits events = limits.limitsFor("audit", "EVENTS");
+
+        assertThat(events).isEqualTo(new ResultSizeLimits.Limits(100, 50, 64L << 20));
+        assertThat(events.bound(plan(null, true)).getPagination().getPageSize()).isEqualTo(50);
+        assertThat(limits.limitsFor("public", "events").maxPageSize()).isEqualTo(1000);
+    }
+
+    @Test
+    void leavesAggregationOnlyPlansUnbounded() {
+        QueryPlan aggregation = plan(null, false);
+
+        assertThat(limits.limitsFor(null, "payments").bound(aggregation)).isSameAs(aggregation);
+    }
+
+    private static QueryPlan plan(Integer pageSize, boolean entities) {
+        return new QueryPlan(
+                new EntityRef("payments"),
+                new Projection(List.of()),
+                new Filters(List.of()),
+                new Sorting(List.of()),
+                new Pagination(1, pageSize),
+                new Aggregations(List.of(), List.of(), List.of(), List.of()),
+                new QueryFlags(false, false, entities)
+        );
+    }
+}
@@ -0,0 +1,193 @@
+package com.viewton.jooq.executor;
+
+import com.viewton.jooq.schema.JooqSchema;
+import com.viewton.plan.Aggregations;
+import com.viewton.plan.EntityRef;
+import com.viewton.plan.Filters;
+import com.viewton.plan.Pagination;
+import com.viewton.plan.Projection;
+import com.viewton.plan.QueryFlags;
+import com.viewton.plan.QueryPlan;
+import com.viewton.plan.SortDirection;
+import com.viewton.plan.SortField;
+import com.viewton.plan.Sorting;
+import org.h2.jdbcx.JdbcDataSource;
+import org.jooq.ConnectionProvider;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DataSourceConnectionProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ScrollRegistryTest {
+    private final AtomicInteger leased = new AtomicInteger();
+    private DSLContext dslContext;
+    private JooqQueryExecutor executor;
+    private ScrollRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:scrolls;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        dslContext = DSL.using(new LeaseCounter(new DataSourceConnectionProvider(dataSource)), SQLDialect.H2);
+        dslContext.execute("create table items (id bigint primary key, name varchar(20))");
+        dslContext.execute("insert into items values (1, 'a'), (2, 'b'), (3, 'c'), (4, 'd'), (5, 'e')");
+        dslContext.execute("create table gone (id bigint primary key)");
+        // Produces no rows, and only after a scan too long to finish within any test's timeout.
+        dslContext.execute("create view slow as select a.x as id from system_range(1, 100000) a "
+                + "cross join system_range(1, 100000) b where a.x + b.x < 0");
+        JooqSchema schema = JooqSchema.builder()
+                .registerTable("items", dslContext.meta().getTables("ITEMS").get(0))
+                .registerTable("gone", dslContext.meta().getTables("GONE").get(0))
+                .registerTable("slow", dslContext.meta().getTables("SLOW").get(0))
+                .build();
+        dslContext.execute("drop table gone");
+        executor = new JooqQueryExecutor(dslContext, schema);
+        registry = ScrollRegistry.builder().maxOpen(1).idleTimeout(Duration.ofMinutes(1)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.close();
+        dslContext.execute("drop all objects");
+        dslContext.close();
+    }
+
+    @Test
+    void readsPagesFromOneCursorAndClosesAfterTheLastPage() {
+        String id = registry.open(() -> executor.openScroll(plan(2)));
+
+        ScrollRegistry.Page first = registry.next(id);
+        ScrollRegistry.Page second = registry.next(id);
+        ScrollRegistry.Page last = registry.next(id);
+
+        assertThat(first.rows()).extracting(row -> row.get("ID")).containsExactly(1L, 2L);
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.rows()).extracting(row -> row.get("ID")).containsExactly(3L, 4L);
+        assertThat(last.rows()).extracting(row -> row.get("ID")).containsExactly(5L);
+        assertThat(last.hasNext()).isFalse();
+        assertThat(registry.next(id)).isNull();
+        assertThat(registry.openCount()).isZero();
+    }
+
+    @Test
+    void rejectsScrollsBeyondTheCapUntilOneIsClosed() {
+        String id = registry.open(() -> executor.openScroll(plan(2)));
+
+        assertThatThrownBy(() -> registry.open(() -> executor.openScroll(plan(2))))
+                .isInstanceOf(QueryRejectedException.class);
+
+        assertThat(registry.close(id)).isTrue();
+        assertThat(registry.close(id)).isFalse();
+        String reopened = registry.open(() -> executor.openScroll(plan(10)));
+        assertThat(registry.next(reopened).rows()).hasSize(5);
+    }
+
+    @Test
+    void scrollHoldsOneConnectionUntilItsLastPage() {
+        String id = registry.open(() -> executor.openScroll(plan(2)));
+        assertThat(leased).hasValue(1);
+
+        int rows = 0;
+        ScrollRegistry.Page page;
+        do {
+            page = registry.next(id);
+            rows += page.rows().size();
+        } while (page.hasNext());
+
+        assertThat(rows).isEqualTo(5);
+        assertThat(leased).hasValue(0);
+    }
+
+    @Test
+    void closingAScrollReleasesItsConnection() {
+        String id = registry.open(() -> executor.openScroll(plan(2)));
+        registry.next(id);
+
+        assertThat(registry.close(id)).isTrue();
+        assertThat(leased).hasValue(0);
+    }
+
+    @Test
+    void idleScrollsAreClosedAndReleaseTheirConnection() throws InterruptedException {
+        try (ScrollRegistry reaped = ScrollRegistry.builder().idleTimeout(Duration.ofMillis(50)).build()) {
+            String id = reaped.open(() -> executor.openScroll(plan(2)));
+            assertThat(leased).hasValue(1);
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (reaped.openCount() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertThat(reaped.openCount()).isZero();
+            assertThat(reaped.next(id)).isNull();
+            assertThat(leased).hasValue(0);
+        }
+    }
+
+    @Test
+    void failedOpenReleasesTheConnectionAndTheSlot() {
+        assertThatThrownBy(() -> registry.open(() -> executor.openScroll(plan("gone", 2))))
+                .isInstanceOf(DataAccessException.class);
+        assertThat(leased).hasValue(0);
+        assertThat(registry.openCount()).isZero();
+
+        assertThatThrownBy(() -> registry.open(() -> executor.openScroll(plan("slow", 2), Duration.ofMillis(200))))
+                .isInstanceOf(QueryTimeoutException.class);
+        assertThat(leased).hasValue(0);
+        assertThat(registry.openCount()).isZero();
+    }
+
+    private static QueryPlan plan(int pageSize) {
+        return plan("items", pageSize);
+    }
+
+    private static QueryPlan plan(String entity, int pageSize) {
+        return new QueryPlan(
+                new EntityRef(entity),
+                new Projection(List.of()),
+                new Filters(List.of()),
+                new Sorting(List.of(new SortField("ID", SortDirection.ASC))),
+                new Pagination(3, pageSize),
+                new Aggregations(List.of(), List.of(), List.of(), List.of()),
+                new QueryFlags(true, false, true)
+        );
+    }
+
+    /**
+     * Counts the connections that are handed out and not yet returned.
+     */
+    private final class LeaseCounter implements ConnectionProvider {
+        private final ConnectionProvider delegate;
+
+        private LeaseCounter(ConnectionProvider delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Connection acquire() {
+            Connection connection = delegate.acquire();
+            leased.incrementAndGet();
+            return connection;
+        }
+
+        @Override
+        public void release(Connection connection) {
+            leased.decrementAndGet();
+            delegate.release(connection);
+        }
+    }
+}
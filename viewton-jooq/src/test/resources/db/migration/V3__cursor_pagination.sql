@@ -0,0 +1,15 @@
+create table shipments (
+    id bigint primary key,
+    carrier varchar(32),
+    weight numeric(10, 2) not null
+);
+
+insert into shipments (id, carrier, weight) values
+    (1, 'DHL', 2.50),
+    (2, null, 1.00),
+    (3, 'UPS', 4.00),
+    (4, 'DHL', 0.75),
+    (5, null, 3.20);
+
+create view shipment_view as
+    select id, carrier, weight from shipments;
@@ -0,0 +1,11 @@
+-- A one-row view whose read blocks while the test holds ViewtonJooqIntegrationTest.QueryGate closed.
+create table gate_rows (
+    id bigint primary key
+);
+
+insert into gate_rows (id) values (1);
+
+create alias viewton_gate for 'com.viewton.jooq.ViewtonJooqIntegrationTest$QueryGate.pass';
+
+create view gated_rows as
+    select id from gate_rows where viewton_gate();
@@ -0,0 +1,101 @@
+package com.viewton.materialized.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.viewton.jooq.mapping.CountPrecision;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares JSON, Smile and CBOR for one page of {@link MaterializedQueryResponse}: CPU time to serialize and to
+ * parse it, and its size on the wire, reported as the {@code bytes} secondary metric.
+ * <p>
+ * Run with {@code ./gradlew :viewton-materialized:jmh}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MaterializedResponseFormatBenchmark {
+    private static final String[] STATUSES = { "NEW", "PAID", "REFUNDED", "CANCELLED" };
+
+    @Param({ "json", "smile", "cbor" })
+    public String format;
+
+    @Param({ "100", "1000" })
+    public int rows;
+
+    private ObjectMapper mapper;
+    private MaterializedQueryResponse response;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapper json = new ObjectMapper();
+        mapper = switch (format) {
+            case "json" -> json;
+            case "smile" -> MaterializedBinaryFormats.smile(json);
+            case "cbor" -> MaterializedBinaryFormats.cbor(json);
+            default -> throw new IllegalArgumentException("Unknown format: " + format);
+        };
+        List<Map<String, Object>> entities = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("payment_id", 1_000_000L + i);
+            row.put("customer_id", 40_000 + i % 997);
+            row.put("amount", BigDecimal.valueOf(1999 + i * 37L, 2));
+            row.put("currency", "EUR");
+            row.put("status", STATUSES[i % STATUSES.length]);
+            row.put("created_on", LocalDate.of(2024, 1, 1).plusDays(i % 365).toString());
+            row.put("reference", "INV-" + Integer.toHexString(i * 7919));
+            row.put("refunded", i % 13 == 0);
+            entities.add(row);
+        }
+        response = MaterializedQueryResponse.builder(entities, Map.of("count", (long) rows))
+                .countPrecision(CountPrecision.EXACT)
+                .build();
+        encoded = mapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] serialize(WireSize wireSize) throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(response);
+        wireSize.bytes = bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public Object parse() throws IOException {
+        return mapper.readTree(encoded);
+    }
+
+    /**
+     * Size of the last serialized response.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class WireSize {
+        public long bytes;
+    }
+}
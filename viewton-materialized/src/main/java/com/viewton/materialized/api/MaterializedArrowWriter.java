@@ -0,0 +1,383 @@
+package com.viewton.materialized.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.viewton.materialized.service.MaterializedRowStream;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BaseFixedWidthVector;
+import org.apache.arrow.vector.BaseVariableWidthVector;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.DecimalVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.SmallIntVector;
+import org.apache.arrow.vector.TimeStampMicroTZVector;
+import org.apache.arrow.vector.TimeStampMicroVector;
+import org.apache.arrow.vector.TinyIntVector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.dictionary.Dictionary;
+import org.apache.arrow.vector.dictionary.DictionaryProvider.MapDictionaryProvider;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.DictionaryEncoding;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.jooq.DataType;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Writes a {@link MaterializedRowStream} as an Arrow IPC stream.
+ * <p>
+ * Column types come from the table metadata, so the schema is known before the first row. Rows are
+ * collected into record batches of {@value #BATCH_ROWS} rows, each written as soon as it is full. String
+ * columns with few distinct values in the first batch are dictionary-encoded; each batch carries its own
+ * dictionary, which the stream writer resends only when it changes. Aggregations are computed before the
+ * rows and sent as JSON in the schema metadata under {@value #AGGREGATIONS_METADATA}.
+ */
+final class MaterializedArrowWriter implements Consumer<Map<String, Object>> {
+    static final MediaType MEDIA_TYPE = MediaType.parseMediaType("application/vnd.apache.arrow.stream");
+    static final String AGGREGATIONS_METADATA = "viewton.aggregations";
+    static final String COUNT_PRECISION_METADATA = "viewton.countPrecision";
+
+    private static final int BATCH_ROWS = 8192;
+    private static final int MAX_DICTIONARY_SIZE = 256;
+    private static final ArrowType.Int DICTIONARY_INDEX_TYPE = new ArrowType.Int(32, true);
+
+    private final List<org.jooq.Field<?>> columns;
+    private final Map<String, String> metadata;
+    private final OutputStream output;
+    private final List<Map<String, Object>> batch = new ArrayList<>(BATCH_ROWS);
+    private final MapDictionaryProvider dictionaries = new MapDictionaryProvider();
+    private final Map<Long, Dictionary> currentDictionaries = new HashMap<>();
+    private BufferAllocator allocator;
+    private VectorSchemaRoot root;
+    private ArrowStreamWriter writer;
+
+    private MaterializedArrowWriter(
+            List<org.jooq.Field<?>> columns,
+            Map<String, String> metadata,
+            OutputStream output
+    ) {
+        this.columns = columns;
+        this.metadata = metadata;
+        this.output = output;
+    }
+
+    /**
+     * Writes all rows of {@code rows} to {@code output}, leaving {@code output} open.
+     */
+    static void write(MaterializedRowStream rows, ObjectMapper objectMapper, OutputStream output) throws IOException {
+        MaterializedStreamSummary summary = rows.aggregateFirst();
+        Map<String, String> metadata = new LinkedHashMap<>();
+        metadata.put(AGGREGATIONS_METADATA, json(objectMapper, summary.getAggregations()));
+        if (summary.getCountPrecision() != null) {
+            metadata.put(COUNT_PRECISION_METADATA, summary.getCountPrecision().name());
+        }
+        MaterializedArrowWriter writer = new MaterializedArrowWriter(rows.fields(), metadata, output);
+        try {
+            rows.forEach(writer);
+            writer.finish();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Override
+    public void accept(Map<String, Object> row) {
+        batch.add(row);
+        if (batch.size() == BATCH_ROWS) {
+            try {
+                flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void finish() throws IOException {
+        if (!batch.isEmpty() || writer == null) {
+            flush();
+        }
+        writer.end();
+        output.flush();
+    }
+
+    private void flush() throws IOException {
+        if (root == null) {
+            createRoot();
+        }
+        root.allocateNew();
+        for (int column = 0; column < columns.size(); column++) {
+            FieldVector vector = root.getVector(column);
+            String name = columns.get(column).getName();
+            DictionaryEncoding encoding = vector.getField().getDictionary();
+            if (encoding != null) {
+                writeDictionaryColumn((IntVector) vector, encoding, name);
+            } else {
+                for (int row = 0; row < batch.size(); row++) {
+                    setValue(vector, row, batch.get(row).get(name));
+                }
+            }
+        }
+        root.setRowCount(batch.size());
+        if (writer == null) {
+            // The schema message refers to the dictionaries, so the first ones must exist before it is written.
+            writer = new ArrowStreamWriter(root, dictionaries, Channels.newChannel(new UnclosedOutputStream(output)));
+            writer.start();
+        }
+        writer.writeBatch();
+        batch.clear();
+    }
+
+    /**
+     * Chooses the schema from the column types and the first batch, which decides which string columns are
+     * dictionary-encoded.
+     */
+    private void createRoot() {
+        allocator = new RootAllocator();
+        List<Field> fields = new ArrayList<>(columns.size());
+        long dictionaryId = 0;
+        for (org.jooq.Field<?> column : columns) {
+            ArrowType type = arrowType(column.getDataType());
+            if (type instanceof ArrowType.Utf8 && isLowCardinality(column.getName())) {
+                DictionaryEncoding encoding = new DictionaryEncoding(dictionaryId++, false, DICTIONARY_INDEX_TYPE);
+                fields.add(new Field(column.getName(), new FieldType(true, DICTIONARY_INDEX_TYPE, encoding), null));
+            } else {
+                fields.add(new Field(column.getName(), FieldType.nullable(type), null));
+            }
+        }
+        root = VectorSchemaRoot.create(new Schema(fields, metadata), allocator);
+    }
+
+    private boolean isLowCardinality(String column) {
+        Set<Object> distinct = new HashSet<>();
+        for (Map<String, Object> row : batch) {
+            Object value = row.get(column);
+            if (value != null && distinct.add(value) && distinct.size() > MAX_DICTIONARY_SIZE) {
+                return false;
+            }
+        }
+        // Dictionaries only pay off when values repeat.
+        return !distinct.isEmpty() && distinct.size() * 2 <= batch.size();
+    }
+
+    /**
+     * Encodes the column against a dictionary of this batch's values, replacing the previous batch's.
+     */
+    private void writeDictionaryColumn(IntVector indices, DictionaryEncoding encoding, String column) {
+        Map<String, Integer> positions = new LinkedHashMap<>();
+        for (int row = 0; row < batch.size(); row++) {
+            Object value = batch.get(row).get(column);
+            if (value == null) {
+                indices.setNull(row);
+            } else {
+                String text = value.toString();
+                Integer position = positions.computeIfAbsent(text, ignored -> positions.size());
+                indices.setSafe(row, position);
+            }
+        }
+        VarCharVector values = new VarCharVector(column, allocator);
+        values.allocateNew(positions.size());
+        int position = 0;
+        for (String text : positions.keySet()) {
+            values.setSafe(position++, text.getBytes(StandardCharsets.UTF_8));
+        }
+        values.setValueCount(positions.size());
+        Dictionary dictionary = new Dictionary(values, encoding);
+        dictionaries.put(dictionary);
+        Dictionary previous = currentDictionaries.put(encoding.getId(), dictionary);
+        if (previous != null) {
+            previous.getVector().close();
+        }
+    }
+
+    private void close() throws IOException {
+        try {
+            if (writer != null) {
+                writer.close();
+            }
+        } finally {
+            currentDictionaries.values().forEach(dictionary -> dictionary.getVector().close());
+            if (root != null) {
+                root.close();
+            }
+            if (allocator != null) {
+                allocator.close();
+            }
+        }
+    }
+
+    private static ArrowType arrowType(DataType<?> dataType) {
+        Class<?> type = dataType.getType();
+        if (type == Boolean.class) {
+            return ArrowType.Bool.INSTANCE;
+        }
+        if (type == Byte.class) {
+            return new ArrowType.Int(8, true);
+        }
+        if (type == Short.class) {
+            return new ArrowType.Int(16, true);
+        }
+        if (type == Integer.class) {
+            return new ArrowType.Int(32, true);
+        }
+        if (type == Long.class) {
+            return new ArrowType.Int(64, true);
+        }
+        if (type == Float.class) {
+            return new ArrowType.FloatingPoint(FloatingPointPrecision.SINGLE);
+        }
+        if (type == Double.class) {
+            return new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE);
+        }
+        if (type == BigDecimal.class && dataType.hasPrecision()
+                && dataType.precision() > 0 && dataType.precision() <= 38) {
+            return new ArrowType.Decimal(dataType.precision(), dataType.scale(), 128);
+        }
+        if (type == LocalDate.class || type == java.sql.Date.class) {
+            return new ArrowType.Date(DateUnit.DAY);
+        }
+        if (type == LocalDateTime.class || type == Timestamp.class) {
+            return new ArrowType.Timestamp(TimeUnit.MICROSECOND, null);
+        }
+        if (type == OffsetDateTime.class || type == Instant.class) {
+            return new ArrowType.Timestamp(TimeUnit.MICROSECOND, "UTC");
+        }
+        if (type == byte[].class) {
+            return ArrowType.Binary.INSTANCE;
+        }
+        // Unbounded numerics, UUIDs, JSON and other types are sent as text.
+        return ArrowType.Utf8.INSTANCE;
+    }
+
+    private static void setValue(FieldVector vector, int row, Object value) {
+        if (value == null) {
+            if (vector instanceof BaseFixedWidthVector fixedWidth) {
+                fixedWidth.setNull(row);
+            } else {
+                ((BaseVariableWidthVector) vector).setNull(row);
+            }
+            return;
+        }
+        if (vector instanceof BitVector bits) {
+            bits.setSafe(row, (Boolean) value ? 1 : 0);
+        } else if (vector instanceof TinyIntVector tinyInts) {
+            tinyInts.setSafe(row, ((Number) value).byteValue());
+        } else if (vector instanceof SmallIntVector smallInts) {
+            smallInts.setSafe(row, ((Number) value).shortValue());
+        } else if (vector instanceof IntVector ints) {
+            ints.setSafe(row, ((Number) value).intValue());
+        } else if (vector instanceof BigIntVector bigInts) {
+            bigInts.setSafe(row, ((Number) value).longValue());
+        } else if (vector instanceof Float4Vector floats) {
+            floats.setSafe(row, ((Number) value).floatValue());
+        } else if (vector instanceof Float8Vector doubles) {
+            doubles.setSafe(row, ((Number) value).doubleValue());
+        } else if (vector instanceof DecimalVector decimals) {
+            decimals.setSafe(row, ((BigDecimal) value).setScale(decimals.getScale(), RoundingMode.HALF_UP));
+        } else if (vector instanceof DateDayVector dates) {
+            dates.setSafe(row, (int) toLocalDate(value).toEpochDay());
+        } else if (vector instanceof TimeStampMicroTZVector instants) {
+            instants.setSafe(row, toEpochMicros(value));
+        } else if (vector instanceof TimeStampMicroVector timestamps) {
+            timestamps.setSafe(row, toEpochMicros(value));
+        } else if (vector instanceof VarBinaryVector binary) {
+            binary.setSafe(row, (byte[]) value);
+        } else {
+            ((VarCharVector) vector).setSafe(row, value.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        return value instanceof java.sql.Date date ? date.toLocalDate() : (LocalDate) value;
+    }
+
+    private static long toEpochMicros(Object value) {
+        Instant instant;
+        if (value instanceof OffsetDateTime offsetDateTime) {
+            instant = offsetDateTime.toInstant();
+        } else if (value instanceof Instant exact) {
+            instant = exact;
+        } else if (value instanceof Timestamp timestamp) {
+            instant = timestamp.toLocalDateTime().toInstant(ZoneOffset.UTC);
+        } else {
+            instant = ((LocalDateTime) value).toInstant(ZoneOffset.UTC);
+        }
+        return ChronoUnit.MICROS.between(Instant.EPOCH, instant);
+    }
+
+    private static String json(ObjectMapper objectMapper, Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Aggregations are not serializable", e);
+        }
+    }
+
+    /**
+     * Keeps the response stream open when the Arrow writer closes its channel.
+     */
+    private static final class UnclosedOutputStream extends OutputStream {
+        private final OutputStream delegate;
+
+        private UnclosedOutputStream(OutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            delegate.write(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.flush();
+        }
+    }
+}
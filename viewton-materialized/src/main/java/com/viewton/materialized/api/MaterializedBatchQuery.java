@@ -0,0 +1,46 @@
+package com.viewton.materialized.api;
+
+import java.util.Map;
+
+/**
+ * Entry of a batch request: either a REST query ({@code schema}, {@code table} and {@code parameters})
+ * or a declarative {@code query}.
+ */
+public final class MaterializedBatchQuery {
+    private String schema;
+    private String table;
+    private Map<String, String> parameters;
+    private MaterializedDeclarativeQueryRequest query;
+
+    public String getSchema() {
+        return schema;
+    }
+
+    public void setSchema(String schema) {
+        this.schema = schema;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public void setTable(String table) {
+        this.table = table;
+    }
+
+    public Map<String, String> getParameters() {
+        return parameters;
+    }
+
+    public void setParameters(Map<String, String> parameters) {
+        this.parameters = parameters;
+    }
+
+    public MaterializedDeclarativeQueryRequest getQuery() {
+        return query;
+    }
+
+    public void setQuery(MaterializedDeclarativeQueryRequest query) {
+        this.query = query;
+    }
+}
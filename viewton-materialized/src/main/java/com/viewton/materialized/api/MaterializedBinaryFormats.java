@@ -0,0 +1,53 @@
+package com.viewton.materialized.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.http.MediaType;
+
+import java.util.Objects;
+
+/**
+ * Binary encodings of the JSON responses for service-to-service callers.
+ * <p>
+ * Both encodings refer back to field names already written instead of writing them again, so the column
+ * names of a page are encoded once rather than once per row. Smile does so for the whole response, including
+ * every row of a stream. CBOR uses the stringref extension ({@code tag 256}), which shares repeated string
+ * values as well and which decoders must support; Jackson does since 2.15.
+ */
+public final class MaterializedBinaryFormats {
+    public static final MediaType SMILE = new MediaType("application", "x-jackson-smile");
+    public static final MediaType CBOR = MediaType.APPLICATION_CBOR;
+    /**
+     * Smile values written one after another, as NDJSON does for JSON; rows first, then the summary.
+     */
+    public static final String SMILE_STREAM_VALUE = "application/stream+x-jackson-smile";
+    public static final MediaType SMILE_STREAM = MediaType.valueOf(SMILE_STREAM_VALUE);
+
+    private MaterializedBinaryFormats() {
+    }
+
+    /**
+     * Copy of {@code objectMapper} that writes Smile with shared field names; values are not shared, since
+     * looking them up costs more than it saves for mostly distinct row values.
+     */
+    public static ObjectMapper smile(ObjectMapper objectMapper) {
+        SmileFactory factory = SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_NAMES)
+                .disable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+        return Objects.requireNonNull(objectMapper, "objectMapper").copyWith(factory);
+    }
+
+    /**
+     * Copy of {@code objectMapper} that writes CBOR with string references.
+     */
+    public static ObjectMapper cbor(ObjectMapper objectMapper) {
+        CBORFactory factory = CBORFactory.builder()
+                .enable(CBORGenerator.Feature.STRINGREF)
+                .build();
+        return Objects.requireNonNull(objectMapper, "objectMapper").copyWith(factory);
+    }
+}
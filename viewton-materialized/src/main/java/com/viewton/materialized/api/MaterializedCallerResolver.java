@@ -0,0 +1,48 @@
+package com.viewton.materialized.api;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.util.StringUtils;
+
+import java.security.Principal;
+import java.util.Objects;
+
+/**
+ * Derives the key that a request's queries are queued fairly by.
+ * <p>
+ * The key decides whose queries wait when the scheduler is saturated, so it must not be chosen freely by
+ * clients: by default it is the authenticated principal, or the client address for anonymous requests.
+ */
+@FunctionalInterface
+public interface MaterializedCallerResolver {
+
+    /**
+     * @return the caller key, or {@code null} to queue the request with every other unkeyed request
+     */
+    String resolve(HttpServletRequest request);
+
+    /**
+     * Keys requests by the name of the authenticated principal, falling back to the client address.
+     */
+    static MaterializedCallerResolver principal() {
+        return request -> {
+            Principal principal = request.getUserPrincipal();
+            if (principal != null && StringUtils.hasText(principal.getName())) {
+                return principal.getName();
+            }
+            return request.getRemoteAddr();
+        };
+    }
+
+    /**
+     * Keys requests by the value of {@code headerName}, falling back to {@link #principal()} without it.
+     * Only suitable behind a gateway that sets the header itself and drops the one sent by the client.
+     */
+    static MaterializedCallerResolver header(String headerName) {
+        Objects.requireNonNull(headerName, "headerName");
+        MaterializedCallerResolver fallback = principal();
+        return request -> {
+            String caller = request.getHeader(headerName);
+            return StringUtils.hasText(caller) ? caller : fallback.resolve(request);
+        };
+    }
+}
@@ -12,7 +12,11 @@ public final class MaterializedDeclarativeQueryRequest {
     private String table;
     private Integer page;
     private Integer pageSize;
+    private String paginationMode;
+    private String after;
     private Boolean count;
+    private String countStrategy;
+    private Integer countLimit;
     private Boolean distinct;
     private Boolean entities;
     private List<String> attributes;
@@ -56,6 +60,23 @@ public final class MaterializedDeclarativeQueryRequest {
         this.pageSize = pageSize;
     }
 
+    public String getPaginationMode() {
+        return paginationMode;
+    }
+
+    @JsonAlias("pagination_mode")
+    public void setPaginationMode(String paginationMode) {
+        this.paginationMode = paginationMode;
+    }
+
+    public String getAfter() {
+        return after;
+    }
+
+    public void setAfter(String after) {
+        this.after = after;
+    }
+
     public Boolean getCount() {
         return count;
     }
@@ -64,6 +85,24 @@ public final class MaterializedDeclarativeQueryRequest {
         this.count = count;
     }
 
+    public String getCountStrategy() {
+        return countStrategy;
+    }
+
+    @JsonAlias("count_strategy")
+    public void setCountStrategy(String countStrategy) {
+        this.countStrategy = countStrategy;
+    }
+
+    public Integer getCountLimit() {
+        return countLimit;
+    }
+
+    @JsonAlias("count_limit")
+    public void setCountLimit(Integer countLimit) {
+        this.countLimit = countLimit;
+    }
+
     public Boolean getDistinct() {
         return distinct;
     }
@@ -0,0 +1,91 @@
+package com.viewton.materialized.api;
+
+import com.viewton.materialized.service.MaterializedExportService;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * REST endpoint for background exports: submit a query, poll its progress, then download the file.
+ */
+@RestController
+@RequestMapping("/api/exports")
+public class MaterializedExportController {
+    private final MaterializedExportService exports;
+
+    public MaterializedExportController(MaterializedExportService exports) {
+        this.exports = exports;
+    }
+
+    /**
+     * Queues an export of every row the query selects; the response points at the job's status.
+     */
+    @PostMapping
+    public ResponseEntity<MaterializedExportStatus> submit(@RequestBody MaterializedExportRequest request) {
+        MaterializedExportStatus status = exports.submit(request);
+        return ResponseEntity.accepted()
+                .header(HttpHeaders.LOCATION, "/api/exports/" + status.id())
+                .body(status);
+    }
+
+    @GetMapping
+    public List<MaterializedExportStatus> list() {
+        return exports.statuses();
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<MaterializedExportStatus> status(@PathVariable("id") String id) {
+        return ResponseEntity.ofNullable(exports.status(id));
+    }
+
+    /**
+     * Cancels a queued or running export and deletes its partial file.
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<MaterializedExportStatus> cancel(@PathVariable("id") String id) {
+        return ResponseEntity.ofNullable(exports.cancel(id));
+    }
+
+    /**
+     * Downloads the file of a completed export; {@code 409 Conflict} while the export has not completed.
+     */
+    @GetMapping("/{id}/file")
+    public ResponseEntity<Resource> file(@PathVariable("id") String id) {
+        Path file = exports.file(id);
+        if (file == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(
+                        HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(file.getFileName().toString()).build().toString()
+                )
+                .body(new FileSystemResource(file));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> invalid(IllegalArgumentException exception) {
+        return ResponseEntity.badRequest().body(exception.getMessage());
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<String> notCompleted(IllegalStateException exception) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(exception.getMessage());
+    }
+}
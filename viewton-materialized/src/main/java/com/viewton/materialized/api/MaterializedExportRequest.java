@@ -0,0 +1,92 @@
+package com.viewton.materialized.api;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+
+import java.util.Locale;
+
+/**
+ * Request to export every row of a REST or declarative query to a file on the server.
+ */
+public final class MaterializedExportRequest {
+    private MaterializedBatchQuery source;
+    private Format format = Format.CSV;
+    private Compression compression = Compression.GZIP;
+
+    /**
+     * Query whose rows are exported; its paging, count and aggregations are ignored.
+     */
+    public MaterializedBatchQuery getSource() {
+        return source;
+    }
+
+    public void setSource(MaterializedBatchQuery source) {
+        this.source = source;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public void setFormat(Format format) {
+        this.format = format;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public void setCompression(Compression compression) {
+        this.compression = compression;
+    }
+
+    public enum Format {
+        /**
+         * RFC 4180 CSV with a header line.
+         */
+        CSV("csv"),
+        /**
+         * One JSON object per line.
+         */
+        NDJSON("ndjson");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        @JsonCreator
+        public static Format fromValue(String value) {
+            return Format.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Compression of the export file. Every chunk is compressed as a separate gzip member or zstd frame, which
+     * standard tools decompress as one stream.
+     */
+    public enum Compression {
+        NONE(""),
+        GZIP(".gz"),
+        ZSTD(".zst");
+
+        private final String extension;
+
+        Compression(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        @JsonCreator
+        public static Compression fromValue(String value) {
+            return Compression.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.viewton.materialized.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+
+/**
+ * Snapshot of an export job.
+ *
+ * @param rowsWritten   rows written to the file so far
+ * @param chunksWritten chunks written to the file so far; a resumed job continues after the last one
+ * @param bytesWritten  size of the file so far
+ * @param estimatedRows planner estimate of the rows to export, or {@code null} when unknown
+ * @param progress      share of the estimated rows written, between 0 and 1, or {@code null} when unknown
+ * @param error         why the job failed; only present in state {@code FAILED}
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record MaterializedExportStatus(
+        String id,
+        State state,
+        MaterializedExportRequest.Format format,
+        MaterializedExportRequest.Compression compression,
+        String fileName,
+        long rowsWritten,
+        long chunksWritten,
+        long bytesWritten,
+        Long estimatedRows,
+        Double progress,
+        Instant createdAt,
+        Instant updatedAt,
+        String error
+) {
+    public enum State {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        CANCELLED;
+
+        public boolean isFinished() {
+            return this == COMPLETED || this == FAILED || this == CANCELLED;
+        }
+    }
+}
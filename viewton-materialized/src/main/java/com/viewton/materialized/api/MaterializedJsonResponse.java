@@ -0,0 +1,46 @@
+package com.viewton.materialized.api;
+
+import java.util.Objects;
+
+/**
+ * Response for a caller that accepts JSON: either a document rendered by the database, passed through as it
+ * is, or a {@link MaterializedQueryResponse} to serialize.
+ */
+public final class MaterializedJsonResponse {
+    private final String document;
+    private final MaterializedQueryResponse response;
+
+    private MaterializedJsonResponse(String document, MaterializedQueryResponse response) {
+        this.document = document;
+        this.response = response;
+    }
+
+    /**
+     * @param document JSON text shaped like a serialized {@link MaterializedQueryResponse}
+     */
+    public static MaterializedJsonResponse rendered(String document) {
+        return new MaterializedJsonResponse(Objects.requireNonNull(document, "document"), null);
+    }
+
+    public static MaterializedJsonResponse of(MaterializedQueryResponse response) {
+        return new MaterializedJsonResponse(null, Objects.requireNonNull(response, "response"));
+    }
+
+    /**
+     * JSON text rendered by the database, or {@code null} when the response was built on this node.
+     */
+    public String getDocument() {
+        return document;
+    }
+
+    public MaterializedQueryResponse getResponse() {
+        return response;
+    }
+
+    /**
+     * The rendered document when there is one, the response otherwise.
+     */
+    public Object getBody() {
+        return document != null ? document : response;
+    }
+}
@@ -1,5 +1,11 @@
 package com.viewton.materialized.api;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.viewton.jooq.mapping.CountPrecision;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -7,15 +13,37 @@ import java.util.Objects;
 /**
  * Response wrapper for materialized queries with entities and aggregations.
  */
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public final class MaterializedQueryResponse {
     private final List<Map<String, Object>> entities;
     private final Map<String, Object> aggregations;
+    private final CountPrecision countPrecision;
+    private final Boolean hasNext;
+    private final String nextCursor;
+    private final Boolean truncated;
 
     public MaterializedQueryResponse(List<Map<String, Object>> entities, Map<String, Object> aggregations) {
-        this.entities = List.copyOf(Objects.requireNonNull(entities, "entities"));
-        this.aggregations = Map.copyOf(Objects.requireNonNull(aggregations, "aggregations"));
+        this(builder(entities, aggregations));
+    }
+
+    private MaterializedQueryResponse(Builder builder) {
+        this.entities = List.copyOf(builder.entities);
+        this.aggregations = Collections.unmodifiableMap(new LinkedHashMap<>(builder.aggregations));
+        this.countPrecision = builder.countPrecision;
+        this.hasNext = builder.hasNext;
+        this.nextCursor = builder.nextCursor;
+        this.truncated = builder.truncated;
     }
 
+    public static Builder builder(List<Map<String, Object>> entities, Map<String, Object> aggregations) {
+        return new Builder(entities, aggregations);
+    }
+
+    /**
+     * Entities in row order; rows read from the database are read-only views that are serialized without
+     * being copied into maps.
+     */
+    @JsonSerialize(contentUsing = RecordJsonWriter.EntitySerializer.class)
     public List<Map<String, Object>> getEntities() {
         return entities;
     }
@@ -23,4 +51,71 @@ public final class MaterializedQueryResponse {
     public Map<String, Object> getAggregations() {
         return aggregations;
     }
+
+    /**
+     * Whether {@code aggregations.count} is exact, a planner estimate or capped at the count limit;
+     * absent when no count was requested.
+     */
+    public CountPrecision getCountPrecision() {
+        return countPrecision;
+    }
+
+    /**
+     * Whether another page follows; only present with the {@code hasNext} and {@code cursor} pagination modes.
+     */
+    public Boolean getHasNext() {
+        return hasNext;
+    }
+
+    /**
+     * Token to send as {@code after} to fetch the next page in cursor mode.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * {@code true} when the page holds fewer entities than requested because it exceeded the memory budget.
+     */
+    public Boolean getTruncated() {
+        return truncated;
+    }
+
+    public static final class Builder {
+        private final List<Map<String, Object>> entities;
+        private final Map<String, Object> aggregations;
+        private CountPrecision countPrecision;
+        private Boolean hasNext;
+        private String nextCursor;
+        private Boolean truncated;
+
+        private Builder(List<Map<String, Object>> entities, Map<String, Object> aggregations) {
+            this.entities = Objects.requireNonNull(entities, "entities");
+            this.aggregations = Objects.requireNonNull(aggregations, "aggregations");
+        }
+
+        public Builder countPrecision(CountPrecision countPrecision) {
+            this.countPrecision = countPrecision;
+            return this;
+        }
+
+        public Builder hasNext(Boolean hasNext) {
+            this.hasNext = hasNext;
+            return this;
+        }
+
+        public Builder nextCursor(String nextCursor) {
+            this.nextCursor = nextCursor;
+            return this;
+        }
+
+        public Builder truncated(Boolean truncated) {
+            this.truncated = truncated;
+            return this;
+        }
+
+        public MaterializedQueryResponse build() {
+            return new MaterializedQueryResponse(this);
+        }
+    }
 }
@@ -0,0 +1,24 @@
+package com.viewton.materialized.api;
+
+import com.viewton.jooq.executor.QueryScheduler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST endpoint that reports queue depth, running queries and queue wait times of the admission lanes.
+ */
+@RestController
+@RequestMapping("/scheduler")
+public class MaterializedSchedulerController {
+    private final QueryScheduler scheduler;
+
+    public MaterializedSchedulerController(QueryScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    @GetMapping("/stats")
+    public QueryScheduler.Stats stats() {
+        return scheduler.stats();
+    }
+}
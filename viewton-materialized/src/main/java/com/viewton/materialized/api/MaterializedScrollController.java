@@ -0,0 +1,86 @@
+package com.viewton.materialized.api;
+
+import com.viewton.jooq.executor.QueryCostExceededException;
+import com.viewton.jooq.executor.QueryRejectedException;
+import com.viewton.materialized.service.MaterializedScrollService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * REST endpoint for scroll-style reads: open a scroll with a query, then fetch its pages by scroll id until
+ * {@code hasNext} is {@code false}, or close it early.
+ */
+@RestController
+@RequestMapping("/api/scrolls")
+public class MaterializedScrollController {
+    private final MaterializedScrollService scrolls;
+
+    public MaterializedScrollController(MaterializedScrollService scrolls) {
+        this.scrolls = scrolls;
+    }
+
+    /**
+     * Opens a scroll over a REST or declarative query and returns its first page.
+     */
+    @PostMapping
+    public MaterializedScrollResponse open(@RequestBody MaterializedBatchQuery query) {
+        return scrolls.open(query);
+    }
+
+    /**
+     * Opens a scroll over a table, filtered and sorted by the same parameters as the list endpoint.
+     */
+    @PostMapping("/{schema}/{table}")
+    public MaterializedScrollResponse open(
+            @PathVariable("schema") String schema,
+            @PathVariable("table") String table,
+            @RequestParam Map<String, String> parameters
+    ) {
+        return scrolls.open(schema, table, parameters);
+    }
+
+    /**
+     * Reads the next page; {@code 404} once the scroll is exhausted, closed or expired.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<MaterializedScrollResponse> next(@PathVariable("id") String id) {
+        return ResponseEntity.ofNullable(scrolls.next(id));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> close(@PathVariable("id") String id) {
+        return scrolls.close(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Maps a full scroll registry to 429 so that clients back off and retry.
+     */
+    @ExceptionHandler(QueryRejectedException.class)
+    public ResponseEntity<String> rejected(QueryRejectedException exception) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(exception.getMessage());
+    }
+
+    @ExceptionHandler(QueryCostExceededException.class)
+    public ResponseEntity<String> costExceeded(QueryCostExceededException exception) {
+        return ResponseEntity.unprocessableEntity().body(exception.getMessage());
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> invalid(IllegalArgumentException exception) {
+        return ResponseEntity.badRequest().body(exception.getMessage());
+    }
+}
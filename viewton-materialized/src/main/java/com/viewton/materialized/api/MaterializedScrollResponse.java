@@ -0,0 +1,41 @@
+package com.viewton.materialized.api;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * One page of a server-side scroll.
+ */
+public final class MaterializedScrollResponse {
+    private final String scrollId;
+    private final List<Map<String, Object>> entities;
+    private final boolean hasNext;
+
+    public MaterializedScrollResponse(String scrollId, List<Map<String, Object>> entities, boolean hasNext) {
+        this.scrollId = Objects.requireNonNull(scrollId, "scrollId");
+        this.entities = List.copyOf(Objects.requireNonNull(entities, "entities"));
+        this.hasNext = hasNext;
+    }
+
+    /**
+     * Id to fetch the next page with; the scroll is closed once {@link #isHasNext()} is {@code false}.
+     */
+    public String getScrollId() {
+        return scrollId;
+    }
+
+    /**
+     * Entities in row order, serialized like those of {@link MaterializedQueryResponse}.
+     */
+    @JsonSerialize(contentUsing = RecordJsonWriter.EntitySerializer.class)
+    public List<Map<String, Object>> getEntities() {
+        return entities;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+}
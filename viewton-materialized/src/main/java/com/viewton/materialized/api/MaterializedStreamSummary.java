@@ -0,0 +1,52 @@
+package com.viewton.materialized.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.viewton.jooq.mapping.CountPrecision;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Trailing line of an NDJSON response, written after the last entity row.
+ * <p>
+ * A stream that ends without this line was aborted while rows were being written.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class MaterializedStreamSummary {
+    private final Map<String, Object> aggregations;
+    private final CountPrecision countPrecision;
+    private final Boolean hasNext;
+    private final String nextCursor;
+
+    public MaterializedStreamSummary(
+            Map<String, Object> aggregations,
+            CountPrecision countPrecision,
+            Boolean hasNext,
+            String nextCursor
+    ) {
+        this.aggregations = Collections.unmodifiableMap(
+                new LinkedHashMap<>(Objects.requireNonNull(aggregations, "aggregations"))
+        );
+        this.countPrecision = countPrecision;
+        this.hasNext = hasNext;
+        this.nextCursor = nextCursor;
+    }
+
+    public Map<String, Object> getAggregations() {
+        return aggregations;
+    }
+
+    public CountPrecision getCountPrecision() {
+        return countPrecision;
+    }
+
+    public Boolean getHasNext() {
+        return hasNext;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
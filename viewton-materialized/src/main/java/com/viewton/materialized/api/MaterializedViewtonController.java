@@ -1,6 +1,24 @@
 package com.viewton.materialized.api;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.viewton.jooq.executor.QueryCostExceededException;
+import com.viewton.jooq.executor.QueryRejectedException;
+import com.viewton.jooq.executor.QueryTimeoutException;
+import com.viewton.jooq.mapping.RecordMap;
+import com.viewton.materialized.service.MaterializedQueryContext;
+import com.viewton.materialized.service.MaterializedRowStream;
 import com.viewton.materialized.service.MaterializedViewtonService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -8,8 +26,22 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
 
 /**
  * REST endpoint for dynamic Viewton reads from Postgres via jOOQ.
@@ -18,25 +50,336 @@ import java.util.Map;
 @RequestMapping("/api")
 public class MaterializedViewtonController {
     private final MaterializedViewtonService service;
+    private final ObjectMapper objectMapper;
+    private final MaterializedCallerResolver callerResolver;
+    private final ObjectWriter streamWriter;
+    private final ObjectWriter smileStreamWriter;
 
     public MaterializedViewtonController(MaterializedViewtonService service) {
+        this(service, new ObjectMapper());
+    }
+
+    public MaterializedViewtonController(MaterializedViewtonService service, ObjectMapper objectMapper) {
+        this(service, objectMapper, MaterializedCallerResolver.principal());
+    }
+
+    /**
+     * @param callerResolver derives the key that queries are queued fairly by
+     */
+    public MaterializedViewtonController(
+            MaterializedViewtonService service,
+            ObjectMapper objectMapper,
+            MaterializedCallerResolver callerResolver
+    ) {
         this.service = service;
+        this.objectMapper = Objects.requireNonNull(objectMapper, "objectMapper");
+        this.callerResolver = Objects.requireNonNull(callerResolver, "callerResolver");
+        // Buffered output is flushed by the generator when full; flushing per row would defeat batching.
+        this.streamWriter = Objects.requireNonNull(objectMapper, "objectMapper")
+                .writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.smileStreamWriter = MaterializedBinaryFormats.smile(objectMapper)
+                .writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
+    /**
+     * Lists rows of a table. The query is cancelled when the client's deadline passes or the request is aborted.
+     * For callers that prefer JSON by name, plain pages may be rendered by the database and passed through
+     * without being decoded; see {@link #prefersJson}.
+     */
     @GetMapping("/{schema}/{table}")
-    public MaterializedQueryResponse list(
+    public DeferredResult<?> list(
+            @PathVariable("schema") String schema,
+            @PathVariable("table") String table,
+            @RequestParam Map<String, String> parameters,
+            HttpServletRequest request
+    ) {
+        Map<String, String> query = new LinkedHashMap<>(parameters);
+        MaterializedQueryContext context = context(request, query.remove(RequestDeadline.PARAMETER));
+        if (prefersJson(request)) {
+            return deferredJson(service.listJsonAsync(schema, table, query, context));
+        }
+        return deferred(service.listAsync(schema, table, query, context));
+    }
+
+    /**
+     * Streams rows as newline-delimited JSON while they are read, followed by a {@link MaterializedStreamSummary}.
+     */
+    @GetMapping(value = "/{schema}/{table}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> stream(
+            @PathVariable("schema") String schema,
+            @PathVariable("table") String table,
+            @RequestParam Map<String, String> parameters,
+            HttpServletRequest request
+    ) {
+        Map<String, String> query = new LinkedHashMap<>(parameters);
+        MaterializedQueryContext context = context(request, query.remove(RequestDeadline.PARAMETER));
+        return ndjson(service.streamList(schema, table, query, context));
+    }
+
+    /**
+     * Streams rows as consecutive Smile values, followed by a {@link MaterializedStreamSummary}.
+     */
+    @GetMapping(value = "/{schema}/{table}", produces = MaterializedBinaryFormats.SMILE_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSmile(
             @PathVariable("schema") String schema,
             @PathVariable("table") String table,
-            @RequestParam Map<String, String> parameters
+            @RequestParam Map<String, String> parameters,
+            HttpServletRequest request
     ) {
-        return service.list(schema, table, parameters);
+        Map<String, String> query = new LinkedHashMap<>(parameters);
+        MaterializedQueryContext context = context(request, query.remove(RequestDeadline.PARAMETER));
+        return smile(service.streamList(schema, table, query, context));
+    }
+
+    /**
+     * Streams rows as Apache Arrow record batches; aggregations are sent in the schema metadata.
+     */
+    @GetMapping(value = "/{schema}/{table}", produces = "application/vnd.apache.arrow.stream")
+    public ResponseEntity<StreamingResponseBody> arrow(
+            @PathVariable("schema") String schema,
+            @PathVariable("table") String table,
+            @RequestParam Map<String, String> parameters,
+            HttpServletRequest request
+    ) {
+        Map<String, String> query = new LinkedHashMap<>(parameters);
+        MaterializedQueryContext context = context(request, query.remove(RequestDeadline.PARAMETER));
+        return arrow(service.streamList(schema, table, query, context));
     }
 
     /**
      * GraphQL-like declarative endpoint for materialized data access.
      */
     @PostMapping("/graphql")
-    public MaterializedQueryResponse query(@RequestBody MaterializedDeclarativeQueryRequest request) {
-        return service.query(request);
+    public DeferredResult<?> query(
+            @RequestBody MaterializedDeclarativeQueryRequest request,
+            @RequestParam(value = RequestDeadline.PARAMETER, required = false) String timeout,
+            HttpServletRequest servletRequest
+    ) {
+        MaterializedQueryContext context = context(servletRequest, timeout);
+        if (prefersJson(servletRequest)) {
+            return deferredJson(service.queryJsonAsync(request, context));
+        }
+        return deferred(service.queryAsync(request, context));
+    }
+
+    @PostMapping(value = "/graphql", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamQuery(
+            @RequestBody MaterializedDeclarativeQueryRequest request,
+            @RequestParam(value = RequestDeadline.PARAMETER, required = false) String timeout,
+            HttpServletRequest servletRequest
+    ) {
+        return ndjson(service.streamQuery(request, context(servletRequest, timeout)));
+    }
+
+    @PostMapping(value = "/graphql", produces = MaterializedBinaryFormats.SMILE_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSmileQuery(
+            @RequestBody MaterializedDeclarativeQueryRequest request,
+            @RequestParam(value = RequestDeadline.PARAMETER, required = false) String timeout,
+            HttpServletRequest servletRequest
+    ) {
+        return smile(service.streamQuery(request, context(servletRequest, timeout)));
+    }
+
+    @PostMapping(value = "/graphql", produces = "application/vnd.apache.arrow.stream")
+    public ResponseEntity<StreamingResponseBody> arrowQuery(
+            @RequestBody MaterializedDeclarativeQueryRequest request,
+            @RequestParam(value = RequestDeadline.PARAMETER, required = false) String timeout,
+            HttpServletRequest servletRequest
+    ) {
+        return arrow(service.streamQuery(request, context(servletRequest, timeout)));
+    }
+
+    /**
+     * Executes several REST or declarative queries in one request and returns their responses in order.
+     */
+    @PostMapping("/batch")
+    public DeferredResult<List<MaterializedQueryResponse>> batch(
+            @RequestBody List<MaterializedBatchQuery> queries,
+            @RequestParam(value = RequestDeadline.PARAMETER, required = false) String timeout,
+            HttpServletRequest servletRequest
+    ) {
+        return deferred(service.batch(queries, context(servletRequest, timeout)));
+    }
+
+    /**
+     * Maps exceeded deadlines, whether hit by a JDBC query timeout or by the async timeout, to 504.
+     */
+    @ExceptionHandler({ QueryTimeoutException.class, TimeoutException.class })
+    public ResponseEntity<Void> deadlineExceeded() {
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build();
+    }
+
+    /**
+     * Maps queries shed by admission control to 429 so that clients back off and retry.
+     */
+    @ExceptionHandler(QueryRejectedException.class)
+    public ResponseEntity<Void> rejected() {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build();
+    }
+
+    /**
+     * Maps queries rejected by the cost guard to 422, naming the filters that likely need an index.
+     */
+    @ExceptionHandler(QueryCostExceededException.class)
+    public ResponseEntity<Map<String, Object>> costExceeded(QueryCostExceededException exception) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("message", exception.getMessage());
+        body.put("table", exception.getTable());
+        body.put("estimatedCost", exception.getEstimatedCost());
+        body.put("estimatedRows", exception.getEstimatedRows());
+        body.put("offendingFilters", exception.getOffendingFilters());
+        return ResponseEntity.unprocessableEntity().body(body);
+    }
+
+    /**
+     * Queries are queued fairly by the key of the {@link MaterializedCallerResolver}.
+     */
+    private MaterializedQueryContext context(HttpServletRequest request, String timeout) {
+        Duration deadline = RequestDeadline.resolve(request.getHeader(RequestDeadline.HEADER), timeout);
+        return new MaterializedQueryContext(deadline, callerResolver.resolve(request));
+    }
+
+    /**
+     * Whether the client's most preferred type is JSON by name. Wildcards such as {@code *}{@code /*}, and
+     * requests without an {@code Accept} header, leave the choice to the message converters like any other
+     * type; unparsable headers are left to them to reject.
+     */
+    private static boolean prefersJson(HttpServletRequest request) {
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(Collections.list(request.getHeaders(HttpHeaders.ACCEPT)));
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+        MimeTypeUtils.sortBySpecificity(accepted);
+        return !accepted.isEmpty() && MediaType.APPLICATION_JSON.equalsTypeAndSubtype(accepted.get(0));
+    }
+
+    /**
+     * Bridges a query future to the servlet request. When the container reports the request as failed or
+     * timed out (typically because the client went away), the future is cancelled, which cancels the running
+     * statements and returns their connections to the pool.
+     */
+    private static <T> DeferredResult<T> deferred(CompletableFuture<T> future) {
+        DeferredResult<T> result = new DeferredResult<>();
+        result.onError(ignored -> future.cancel(true));
+        result.onTimeout(() -> future.cancel(true));
+        future.whenComplete((value, failure) -> {
+            if (failure == null) {
+                result.setResult(value);
+            } else if (failure instanceof CompletionException && failure.getCause() != null) {
+                result.setErrorResult(failure.getCause());
+            } else {
+                result.setErrorResult(failure);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * A rendered document is returned as a string, which is written as it is; a response is serialized.
+     */
+    private static DeferredResult<Object> deferredJson(CompletableFuture<MaterializedJsonResponse> response) {
+        CompletableFuture<Object> body = response.thenApply(MaterializedJsonResponse::getBody);
+        body.whenComplete((ignored, failure) -> {
+            if (failure instanceof CancellationException) {
+                response.cancel(true);
+            }
+        });
+        return deferred(body);
+    }
+
+    private ResponseEntity<StreamingResponseBody> ndjson(MaterializedRowStream rows) {
+        StreamingResponseBody body = output -> {
+            try (rows) {
+                writeStream(streamWriter, rows, output);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private ResponseEntity<StreamingResponseBody> smile(MaterializedRowStream rows) {
+        StreamingResponseBody body = output -> {
+            try (rows) {
+                writeStream(smileStreamWriter, rows, output);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MaterializedBinaryFormats.SMILE_STREAM)
+                .body(body);
+    }
+
+    private ResponseEntity<StreamingResponseBody> arrow(MaterializedRowStream rows) {
+        StreamingResponseBody body = output -> {
+            try (rows) {
+                MaterializedArrowWriter.write(rows, objectMapper, output);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MaterializedArrowWriter.MEDIA_TYPE)
+                .body(body);
+    }
+
+    /**
+     * Writes each row as soon as it is read. Writes block while the client is not reading, which in turn
+     * stops reading from the database cursor; a disconnect aborts the query and rolls back its transaction.
+     */
+    private static void writeStream(ObjectWriter writer, MaterializedRowStream rows, OutputStream output)
+            throws IOException {
+        // One generator for the whole stream, so that Smile refers back to the column names of the first row.
+        try (JsonGenerator generator = writer.getFactory().createGenerator(output)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            RecordJsonWriter recordWriter = new RecordJsonWriter(writer);
+            MaterializedStreamSummary summary;
+            try {
+                summary = rows.forEach(row -> writeRow(writer, recordWriter, generator, row));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writeValue(writer, generator, summary);
+        }
+    }
+
+    private static void writeRow(
+            ObjectWriter writer,
+            RecordJsonWriter recordWriter,
+            JsonGenerator generator,
+            Map<String, Object> row
+    ) {
+        if (!(row instanceof RecordMap view)) {
+            writeValue(writer, generator, row);
+            return;
+        }
+        try {
+            recordWriter.write(generator, view.getRecord(), null);
+            endValue(generator);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes one root value; JSON values are terminated by a newline, binary values delimit themselves.
+     */
+    private static void writeValue(ObjectWriter writer, JsonGenerator generator, Object value) {
+        try {
+            writer.writeValue(generator, value);
+            endValue(generator);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void endValue(JsonGenerator generator) throws IOException {
+        if (!generator.canWriteBinaryNatively()) {
+            generator.writeRaw('\n');
+        }
     }
 }
@@ -0,0 +1,134 @@
+package com.viewton.materialized.api;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.viewton.jooq.mapping.RecordMap;
+import org.jooq.Record;
+import org.jooq.Row;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Writes jOOQ records as JSON objects without building a map per row.
+ * <p>
+ * Field names are encoded once per result shape and reused for every record with the same fields; common
+ * value types are written with the generator's typed methods, everything else through the configured
+ * serializers. One writer serves one response and is not thread-safe.
+ */
+final class RecordJsonWriter {
+    private final ObjectWriter values;
+    private Row shape;
+    private SerializedString[] names;
+
+    /**
+     * Writer for records serialized within a Jackson serializer, whose provider serializes the other values.
+     */
+    RecordJsonWriter() {
+        this(null);
+    }
+
+    /**
+     * Writer for records written straight to a generator; {@code values} serializes the other values.
+     */
+    RecordJsonWriter(ObjectWriter values) {
+        this.values = values;
+    }
+
+    /**
+     * @param provider serializers for values without a typed method; {@code null} to use the constructor's writer
+     */
+    void write(JsonGenerator generator, Record record, SerializerProvider provider) throws IOException {
+        SerializedString[] fieldNames = names(record);
+        generator.writeStartObject(record, fieldNames.length);
+        for (int i = 0; i < fieldNames.length; i++) {
+            generator.writeFieldName(fieldNames[i]);
+            writeValue(generator, record.get(i), provider);
+        }
+        generator.writeEndObject();
+    }
+
+    private SerializedString[] names(Record record) {
+        Row row = record.fieldsRow();
+        if (row != shape) {
+            // Records copied without hidden fields get a row of their own; their names are usually unchanged.
+            if (!hasNames(row)) {
+                names = new SerializedString[row.size()];
+                for (int i = 0; i < names.length; i++) {
+                    names[i] = new SerializedString(row.field(i).getName());
+                }
+            }
+            shape = row;
+        }
+        return names;
+    }
+
+    private boolean hasNames(Row row) {
+        if (names == null || names.length != row.size()) {
+            return false;
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (!names[i].getValue().equals(row.field(i).getName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeValue(JsonGenerator generator, Object value, SerializerProvider provider)
+            throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof String string) {
+            generator.writeString(string);
+        } else if (value instanceof Long number) {
+            generator.writeNumber(number.longValue());
+        } else if (value instanceof Integer number) {
+            generator.writeNumber(number.intValue());
+        } else if (value instanceof Short number) {
+            generator.writeNumber(number.shortValue());
+        } else if (value instanceof Boolean flag) {
+            generator.writeBoolean(flag);
+        } else if (value instanceof BigDecimal number) {
+            generator.writeNumber(number);
+        } else if (value instanceof Double number) {
+            generator.writeNumber(number.doubleValue());
+        } else if (value instanceof Float number) {
+            generator.writeNumber(number.floatValue());
+        } else if (provider != null) {
+            provider.defaultSerializeValue(value, generator);
+        } else {
+            values.writeValue(generator, value);
+        }
+    }
+
+    /**
+     * Serializes entity maps, writing {@link RecordMap} views straight from their records. The writer, and with
+     * it the encoded field names, is shared by all entities serialized in one call.
+     */
+    static final class EntitySerializer extends StdSerializer<Map<String, Object>> {
+        @SuppressWarnings("unchecked")
+        EntitySerializer() {
+            super((Class<Map<String, Object>>) (Class<?>) Map.class);
+        }
+
+        @Override
+        public void serialize(Map<String, Object> entity, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            if (!(entity instanceof RecordMap row)) {
+                provider.defaultSerializeValue(entity, generator);
+                return;
+            }
+            RecordJsonWriter writer = (RecordJsonWriter) provider.getAttribute(RecordJsonWriter.class);
+            if (writer == null) {
+                writer = new RecordJsonWriter();
+                provider.setAttribute(RecordJsonWriter.class, writer);
+            }
+            writer.write(generator, row.getRecord(), provider);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.viewton.materialized.api;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/**
+ * Reads the time budget a client grants a request.
+ * <p>
+ * The budget can be sent as the {@value #HEADER} header or the {@value #PARAMETER} query parameter; when both
+ * are present the shorter one wins. Values are milliseconds ({@code 1500}), a number with an {@code ms},
+ * {@code s} or {@code m} suffix ({@code 2s}), or an ISO-8601 duration ({@code PT2S}).
+ */
+final class RequestDeadline {
+    static final String HEADER = "X-Viewton-Deadline";
+    static final String PARAMETER = "timeout";
+
+    private RequestDeadline() {
+    }
+
+    /**
+     * @return the requested budget, or {@code null} when the client did not ask for one
+     */
+    static Duration resolve(String header, String parameter) {
+        Duration fromHeader = parse(header);
+        Duration fromParameter = parse(parameter);
+        if (fromHeader == null) {
+            return fromParameter;
+        }
+        if (fromParameter == null) {
+            return fromHeader;
+        }
+        return fromHeader.compareTo(fromParameter) <= 0 ? fromHeader : fromParameter;
+    }
+
+    static Duration parse(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String trimmed = value.trim().toLowerCase(Locale.ROOT);
+        Duration duration;
+        try {
+            if (trimmed.startsWith("pt")) {
+                duration = Duration.parse(trimmed);
+            } else if (trimmed.endsWith("ms")) {
+                duration = Duration.ofMillis(Long.parseLong(trimmed.substring(0, trimmed.length() - 2)));
+            } else if (trimmed.endsWith("s")) {
+                duration = Duration.ofSeconds(Long.parseLong(trimmed.substring(0, trimmed.length() - 1)));
+            } else if (trimmed.endsWith("m")) {
+                duration = Duration.ofMinutes(Long.parseLong(trimmed.substring(0, trimmed.length() - 1)));
+            } else {
+                duration = Duration.ofMillis(Long.parseLong(trimmed));
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid timeout: " + value, e);
+        }
+        if (duration.isZero() || duration.isNegative()) {
+            throw new IllegalArgumentException("Timeout must be positive: " + value);
+        }
+        return duration;
+    }
+}
@@ -1,26 +1,47 @@
 package com.viewton.materialized.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.viewton.api.parser.RestQueryInputParser;
+import com.viewton.jooq.config.ViewtonJooqAutoConfiguration;
+import com.viewton.jooq.executor.JooqExecutorOptions;
 import com.viewton.jooq.executor.JooqQueryExecutor;
+import com.viewton.jooq.executor.QueryScheduler;
+import com.viewton.jooq.executor.ScrollRegistry;
+import com.viewton.materialized.api.MaterializedBinaryFormats;
+import com.viewton.materialized.api.MaterializedCallerResolver;
+import com.viewton.materialized.api.MaterializedExportController;
 import com.viewton.materialized.api.MaterializedOpenApiController;
+import com.viewton.materialized.api.MaterializedSchedulerController;
+import com.viewton.materialized.api.MaterializedScrollController;
 import com.viewton.materialized.api.MaterializedViewtonController;
 import com.viewton.materialized.config.properties.ViewtonProperties;
 import com.viewton.materialized.openapi.MaterializedOpenApiBuilder;
+import com.viewton.materialized.service.MaterializedExportService;
+import com.viewton.materialized.service.MaterializedScrollService;
+import com.viewton.materialized.service.MaterializedTableRegistry;
 import com.viewton.materialized.service.MaterializedViewtonService;
+import com.viewton.plan.QueryPlanCache;
 import com.viewton.plan.RestQueryPlanNormalizer;
 import io.swagger.v3.oas.models.OpenAPI;
 import org.jooq.DSLContext;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.util.StringUtils;
+
+import java.nio.file.Path;
 
 /**
  * Auto-configuration for the materialized Viewton module.
  */
-@AutoConfiguration
+@AutoConfiguration(after = ViewtonJooqAutoConfiguration.class)
 @ConditionalOnClass({ DSLContext.class, JooqQueryExecutor.class })
 @EnableConfigurationProperties(ViewtonProperties.class)
 public class ViewtonMaterializedAutoConfiguration {
@@ -38,33 +59,158 @@ public class ViewtonMaterializedAutoConfiguration {
     }
 
     @Bean
+    @ConditionalOnMissingBean
     @ConditionalOnBean(DSLContext.class)
-    public MaterializedViewtonService materializedViewtonService(
+    public MaterializedTableRegistry materializedTableRegistry(
             DSLContext dslContext,
+            ViewtonProperties properties,
+            ObjectProvider<JooqExecutorOptions> jooqExecutorOptions
+    ) {
+        return new MaterializedTableRegistry(
+                dslContext,
+                properties.getTableIndexRefreshInterval(),
+                jooqExecutorOptions.getIfAvailable(JooqExecutorOptions::defaults)
+        );
+    }
+
+    @Bean
+    @ConditionalOnBean(DSLContext.class)
+    public MaterializedViewtonService materializedViewtonService(
+            MaterializedTableRegistry materializedTableRegistry,
             RestQueryInputParser restQueryInputParser,
-            RestQueryPlanNormalizer restQueryPlanNormalizer
+            RestQueryPlanNormalizer restQueryPlanNormalizer,
+            ObjectProvider<QueryPlanCache> queryPlanCache,
+            ObjectProvider<QueryScheduler> queryScheduler
     ) {
-        return new MaterializedViewtonService(dslContext, restQueryInputParser, restQueryPlanNormalizer);
+        return new MaterializedViewtonService(
+                materializedTableRegistry,
+                restQueryInputParser,
+                restQueryPlanNormalizer,
+                queryPlanCache.getIfAvailable(),
+                queryScheduler.getIfAvailable()
+        );
+    }
+
+    /**
+     * Keys fair queuing by the configured caller header when there is one, by the authenticated principal
+     * otherwise.
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public MaterializedCallerResolver materializedCallerResolver(ViewtonProperties properties) {
+        String callerHeader = properties.getCallerHeader();
+        return StringUtils.hasText(callerHeader)
+                ? MaterializedCallerResolver.header(callerHeader)
+                : MaterializedCallerResolver.principal();
     }
 
     @Bean
     @ConditionalOnMissingBean
     public MaterializedViewtonController materializedViewtonController(
-            MaterializedViewtonService materializedViewtonService
+            MaterializedViewtonService materializedViewtonService,
+            ObjectProvider<ObjectMapper> objectMapper,
+            MaterializedCallerResolver materializedCallerResolver
+    ) {
+        return new MaterializedViewtonController(
+                materializedViewtonService,
+                objectMapper.getIfAvailable(ObjectMapper::new),
+                materializedCallerResolver
+        );
+    }
+
+    /**
+     * Renders responses as Smile for callers that accept {@code application/x-jackson-smile}.
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public MappingJackson2SmileHttpMessageConverter materializedSmileHttpMessageConverter(
+            ObjectProvider<ObjectMapper> objectMapper
     ) {
-        return new MaterializedViewtonController(materializedViewtonService);
+        return new MappingJackson2SmileHttpMessageConverter(
+                MaterializedBinaryFormats.smile(objectMapper.getIfAvailable(ObjectMapper::new))
+        );
     }
 
+    /**
+     * Renders responses as CBOR for callers that accept {@code application/cbor}.
+     */
     @Bean
     @ConditionalOnMissingBean
-    public MaterializedOpenApiController materializedOpenApiController(DSLContext dslContext) {
-        return new MaterializedOpenApiController(materializedOpenApiBuilder(dslContext));
+    public MappingJackson2CborHttpMessageConverter materializedCborHttpMessageConverter(
+            ObjectProvider<ObjectMapper> objectMapper
+    ) {
+        return new MappingJackson2CborHttpMessageConverter(
+                MaterializedBinaryFormats.cbor(objectMapper.getIfAvailable(ObjectMapper::new))
+        );
+    }
+
+    /**
+     * Runs background exports and resumes the jobs an earlier process left unfinished.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    @ConditionalOnBean(MaterializedViewtonService.class)
+    @ConditionalOnProperty(prefix = "viewton.exports", name = "enabled", havingValue = "true")
+    public MaterializedExportService materializedExportService(
+            MaterializedViewtonService materializedViewtonService,
+            ObjectProvider<ObjectMapper> objectMapper,
+            ViewtonProperties properties
+    ) {
+        ViewtonProperties.Exports exports = properties.getExports();
+        MaterializedExportService service = new MaterializedExportService(
+                materializedViewtonService,
+                objectMapper.getIfAvailable(ObjectMapper::new),
+                Path.of(exports.getDirectory()),
+                exports.getChunkSize(),
+                exports.getConcurrency()
+        );
+        service.resumeInterrupted();
+        return service;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnBean(MaterializedExportService.class)
+    public MaterializedExportController materializedExportController(MaterializedExportService exportService) {
+        return new MaterializedExportController(exportService);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnBean({ MaterializedViewtonService.class, ScrollRegistry.class })
+    public MaterializedScrollService materializedScrollService(
+            MaterializedViewtonService materializedViewtonService,
+            ScrollRegistry scrollRegistry
+    ) {
+        return new MaterializedScrollService(materializedViewtonService, scrollRegistry);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnBean(MaterializedScrollService.class)
+    public MaterializedScrollController materializedScrollController(MaterializedScrollService scrollService) {
+        return new MaterializedScrollController(scrollService);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnBean(QueryScheduler.class)
+    public MaterializedSchedulerController materializedSchedulerController(QueryScheduler queryScheduler) {
+        return new MaterializedSchedulerController(queryScheduler);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public MaterializedOpenApiController materializedOpenApiController(
+            MaterializedOpenApiBuilder materializedOpenApiBuilder
+    ) {
+        return new MaterializedOpenApiController(materializedOpenApiBuilder);
     }
 
     @Bean
     @ConditionalOnMissingBean
-    public MaterializedOpenApiBuilder materializedOpenApiBuilder(DSLContext dslContext) {
-        return new MaterializedOpenApiBuilder(dslContext);
+    public MaterializedOpenApiBuilder materializedOpenApiBuilder(MaterializedTableRegistry materializedTableRegistry) {
+        return new MaterializedOpenApiBuilder(materializedTableRegistry);
     }
 
     @Bean
@@ -2,6 +2,7 @@ package com.viewton.materialized.config.properties;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
 import java.util.Set;
 
 @ConfigurationProperties(prefix = "viewton")
@@ -9,6 +10,17 @@ public class ViewtonProperties {
 
 	private Set<String> allowedSchemas;
 
+	private Duration tableIndexRefreshInterval;
+
+	/**
+	 * Request header naming the caller that queries are queued fairly by, such as {@code X-Viewton-Caller}.
+	 * Clients can send any value, so set it only behind a gateway that sets the header itself. Without it,
+	 * queries are queued by the authenticated principal, or by client address for anonymous requests.
+	 */
+	private String callerHeader;
+
+	private final Exports exports = new Exports();
+
 	public Set<String> getAllowedSchemas() {
 		return allowedSchemas;
 	}
@@ -16,4 +28,82 @@ public class ViewtonProperties {
 	public void setAllowedSchemas(Set<String> allowedSchemas) {
 		this.allowedSchemas = allowedSchemas;
 	}
+
+	public Duration getTableIndexRefreshInterval() {
+		return tableIndexRefreshInterval;
+	}
+
+	public void setTableIndexRefreshInterval(Duration tableIndexRefreshInterval) {
+		this.tableIndexRefreshInterval = tableIndexRefreshInterval;
+	}
+
+	public String getCallerHeader() {
+		return callerHeader;
+	}
+
+	public void setCallerHeader(String callerHeader) {
+		this.callerHeader = callerHeader;
+	}
+
+	public Exports getExports() {
+		return exports;
+	}
+
+	/**
+	 * Background exports of whole query results to files.
+	 */
+	public static class Exports {
+
+		/**
+		 * Whether the export endpoints are available.
+		 */
+		private boolean enabled;
+
+		/**
+		 * Directory holding export files and their job manifests; jobs found there resume on start.
+		 */
+		private String directory = "exports";
+
+		/**
+		 * Rows read per statement; each chunk is compressed and synced on its own.
+		 */
+		private int chunkSize = 10_000;
+
+		/**
+		 * Maximum number of export jobs running concurrently.
+		 */
+		private int concurrency = 2;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public String getDirectory() {
+			return directory;
+		}
+
+		public void setDirectory(String directory) {
+			this.directory = directory;
+		}
+
+		public int getChunkSize() {
+			return chunkSize;
+		}
+
+		public void setChunkSize(int chunkSize) {
+			this.chunkSize = chunkSize;
+		}
+
+		public int getConcurrency() {
+			return concurrency;
+		}
+
+		public void setConcurrency(int concurrency) {
+			this.concurrency = concurrency;
+		}
+	}
 }
\ No newline at end of file
@@ -1,6 +1,8 @@
 package com.viewton.materialized.openapi;
 
 import com.viewton.materialized.config.properties.ViewtonProperties;
+import com.viewton.materialized.service.MaterializedTableRegistry;
+import com.viewton.materialized.service.MaterializedTableRegistry.MaterializedTable;
 import io.swagger.v3.oas.models.OpenAPI;
 import io.swagger.v3.oas.models.Operation;
 import io.swagger.v3.oas.models.PathItem;
@@ -11,7 +13,6 @@ import io.swagger.v3.oas.models.parameters.Parameter;
 import io.swagger.v3.oas.models.responses.ApiResponse;
 import io.swagger.v3.oas.models.responses.ApiResponses;
 import org.jooq.DataType;
-import org.jooq.DSLContext;
 import org.jooq.Field;
 import org.jooq.Table;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,31 +33,31 @@ import java.util.Objects;
  * Builds an OpenAPI specification from database metadata.
  */
 public final class MaterializedOpenApiBuilder {
-    private final DSLContext dslContext;
+    private final MaterializedTableRegistry tableRegistry;
 
     @Autowired
     private ViewtonProperties properties;
 
     public MaterializedOpenApiBuilder(
-        DSLContext dslContext
+        MaterializedTableRegistry tableRegistry
     ) {
-        this.dslContext = Objects.requireNonNull(dslContext, "dslContext");
+        this.tableRegistry = Objects.requireNonNull(tableRegistry, "tableRegistry");
     }
 
     public OpenAPI buildAllTables() {
         OpenAPI openAPI = baseOpenApi();
         Paths paths = new Paths();
 
-        for (Table<?> table : dslContext.meta().getTables()) {
-            String schemaName = table.getSchema() != null ? table.getSchema().getName() : "public";
+        for (MaterializedTable table : tableRegistry.tables()) {
+            String schemaName = table.getSchemaName();
 
             if (!properties.getAllowedSchemas().contains(schemaName)) {
                 continue;
             }
 
-            String tableName = table.getName();
+            String tableName = table.getEntityName();
             String path = "/api/" + schemaName + "/" + tableName;
-            paths.addPathItem(path, buildPathItem(schemaName, tableName, table));
+            paths.addPathItem(path, buildPathItem(schemaName, tableName, table.getTable()));
         }
 
         openAPI.setPaths(paths);
@@ -64,7 +65,7 @@ public final class MaterializedOpenApiBuilder {
     }
 
     public OpenAPI buildForTable(String schemaName, String tableName) {
-        Table<?> table = resolveTable(schemaName, tableName);
+        Table<?> table = tableRegistry.resolve(schemaName, tableName).getTable();
         OpenAPI openAPI = baseOpenApi();
         Paths paths = new Paths();
         String path = "/api/" + schemaName + "/" + tableName;
@@ -110,7 +111,17 @@ public final class MaterializedOpenApiBuilder {
         parameters.add(queryParameter("page", "Page number (1-based)."));
         parameters.add(queryParameter("pageSize", "Page size (alias: page_size)."));
         parameters.add(queryParameter("page_size", "Page size (alias: pageSize)."));
+        parameters.add(queryParameter(
+                "paginationMode",
+                "Pagination mode: offset (default), hasNext (reports hasNext without counting) or cursor."
+        ));
+        parameters.add(queryParameter("after", "Cursor token from nextCursor; continues after that row."));
         parameters.add(queryParameter("count", "Return count only."));
+        parameters.add(queryParameter("countStrategy", "Count strategy: exact (default), estimated or auto."));
+        parameters.add(queryParameter(
+                "countLimit",
+                "Stop counting after this many rows; larger counts are reported as CAPPED."
+        ));
         parameters.add(queryParameter("distinct", "Return distinct rows."));
         parameters.add(queryParameter("entities", "Return entity rows (default true)."));
         parameters.add(queryParameter("attributes", "Comma-separated list of fields to select."));
@@ -211,23 +222,4 @@ public final class MaterializedOpenApiBuilder {
         return builder.toString();
     }
 
-    private Table<?> resolveTable(String schemaName, String tableName) {
-        return dslContext.meta()
-                .getTables()
-                .stream()
-                .filter(table -> matchesSchema(table, schemaName))
-                .filter(table -> table.getName().equalsIgnoreCase(tableName))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException(
-                        "Unknown table " + schemaName + "." + tableName
-                ));
-    }
-
-    private boolean matchesSchema(Table<?> table, String schemaName) {
-        if (table.getSchema() == null || table.getSchema().getName() == null) {
-            return false;
-        }
-        return table.getSchema().getName().equalsIgnoreCase(schemaName);
-    }
-
 }
@@ -0,0 +1,548 @@
+package com.viewton.materialized.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.luben.zstd.ZstdOutputStream;
+import com.viewton.jooq.mapping.CountPrecision;
+import com.viewton.jooq.mapping.JooqRow;
+import com.viewton.jooq.mapping.QueryResult;
+import com.viewton.materialized.api.MaterializedBatchQuery;
+import com.viewton.materialized.api.MaterializedExportRequest;
+import com.viewton.materialized.api.MaterializedExportRequest.Compression;
+import com.viewton.materialized.api.MaterializedExportRequest.Format;
+import com.viewton.materialized.api.MaterializedExportStatus;
+import com.viewton.materialized.api.MaterializedExportStatus.State;
+import com.viewton.materialized.service.MaterializedViewtonService.PlannedQuery;
+import com.viewton.plan.Aggregations;
+import com.viewton.plan.CountStrategy;
+import com.viewton.plan.Pagination;
+import com.viewton.plan.PaginationMode;
+import com.viewton.plan.QueryFlags;
+import com.viewton.plan.QueryPlan;
+import org.jooq.Field;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Runs exports of whole query results to files in the background.
+ * <p>
+ * A job reads its query in keyset-ordered chunks (cursor pagination, ordered by the query's sorting and the
+ * primary key), so every chunk is an index range scan instead of an ever larger offset. Each chunk is
+ * appended to the file, compressed on its own, and forced to disk before the job's manifest records the new
+ * file size and cursor. After a restart, jobs that were queued or running are resumed: the file is cut back
+ * to the recorded size and reading continues from the recorded cursor. Cursors are signed with
+ * {@code viewton.jooq.cursor-secret}, which exports therefore require.
+ */
+public final class MaterializedExportService implements AutoCloseable {
+    private static final String MANIFEST_SUFFIX = ".json";
+
+    private final MaterializedViewtonService service;
+    private final Path directory;
+    private final int chunkSize;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter rowWriter;
+    private final ExecutorService workers;
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * @param directory   where export files and job manifests are kept; created when missing
+     * @param chunkSize   rows read per statement
+     * @param concurrency jobs that run at the same time; further jobs wait in state {@code QUEUED}
+     */
+    public MaterializedExportService(
+            MaterializedViewtonService service,
+            ObjectMapper objectMapper,
+            Path directory,
+            int chunkSize,
+            int concurrency
+    ) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency must be positive");
+        }
+        this.service = Objects.requireNonNull(service, "service");
+        this.objectMapper = Objects.requireNonNull(objectMapper, "objectMapper");
+        this.directory = Objects.requireNonNull(directory, "directory");
+        this.chunkSize = chunkSize;
+        this.rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create export directory " + directory, e);
+        }
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(concurrency, task -> {
+            Thread thread = new Thread(task, "viewton-export-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Loads the manifests in the export directory and queues the jobs that had not finished.
+     */
+    public void resumeInterrupted() {
+        List<ExportManifest> manifests = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + MANIFEST_SUFFIX)) {
+            for (Path file : files) {
+                manifests.add(objectMapper.readValue(file.toFile(), ExportManifest.class));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read export manifests in " + directory, e);
+        }
+        manifests.sort(Comparator.comparingLong(ExportManifest::createdAt));
+        for (ExportManifest manifest : manifests) {
+            ExportJob job = new ExportJob(manifest);
+            jobs.put(manifest.id(), job);
+            if (!manifest.state().isFinished()) {
+                workers.execute(() -> run(job));
+            }
+        }
+    }
+
+    /**
+     * Validates the request and queues its job.
+     *
+     * @throws IllegalArgumentException when the query is invalid or selects distinct rows
+     */
+    public MaterializedExportStatus submit(MaterializedExportRequest request) {
+        Objects.requireNonNull(request, "request");
+        MaterializedBatchQuery source = Objects.requireNonNull(request.getSource(), "source");
+        PlannedQuery planned = service.plan(source);
+        if (planned.plan().getFlags().isDistinct()) {
+            throw new IllegalArgumentException("Exports do not support distinct");
+        }
+        long now = System.currentTimeMillis();
+        ExportManifest manifest = new ExportManifest(
+                UUID.randomUUID().toString(),
+                source,
+                Objects.requireNonNull(request.getFormat(), "format"),
+                Objects.requireNonNull(request.getCompression(), "compression"),
+                State.QUEUED,
+                null,
+                0,
+                0,
+                0,
+                null,
+                now,
+                now,
+                null
+        );
+        ExportJob job = new ExportJob(manifest);
+        save(manifest);
+        jobs.put(manifest.id(), job);
+        workers.execute(() -> run(job));
+        return status(job.manifest);
+    }
+
+    /**
+     * @return the job's status, or {@code null} when there is no such job
+     */
+    public MaterializedExportStatus status(String id) {
+        ExportJob job = jobs.get(Objects.requireNonNull(id, "id"));
+        return job == null ? null : status(job.manifest);
+    }
+
+    /**
+     * Statuses of all known jobs, oldest first.
+     */
+    public List<MaterializedExportStatus> statuses() {
+        return jobs.values().stream()
+                .map(job -> job.manifest)
+                .sorted(Comparator.comparingLong(ExportManifest::createdAt))
+                .map(this::status)
+                .toList();
+    }
+
+    /**
+     * Stops a queued or running job after its current chunk and deletes its file.
+     *
+     * @return the job's status, or {@code null} when there is no such job
+     */
+    public MaterializedExportStatus cancel(String id) {
+        ExportJob job = jobs.get(Objects.requireNonNull(id, "id"));
+        if (job == null) {
+            return null;
+        }
+        job.cancelled = true;
+        CompletableFuture<?> chunk = job.chunk;
+        if (chunk != null) {
+            chunk.cancel(true);
+        }
+        return status(job.manifest);
+    }
+
+    /**
+     * File of a completed job.
+     *
+     * @throws IllegalStateException when the job has not completed
+     */
+    public Path file(String id) {
+        ExportJob job = jobs.get(Objects.requireNonNull(id, "id"));
+        if (job == null) {
+            return null;
+        }
+        if (job.manifest.state() != State.COMPLETED) {
+            throw new IllegalStateException("Export " + id + " is " + job.manifest.state());
+        }
+        return directory.resolve(fileName(job.manifest));
+    }
+
+    /**
+     * Stops the workers. Running jobs keep state {@code RUNNING} in their manifests and resume on the next start.
+     */
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    private void run(ExportJob job) {
+        ExportManifest manifest = job.manifest;
+        boolean resumed = manifest.state() == State.RUNNING;
+        try {
+            if (job.cancelled) {
+                throw new CancellationException();
+            }
+            PlannedQuery planned = service.plan(manifest.source());
+            if (manifest.estimatedRows() == null) {
+                manifest = manifest.estimated(estimateRows(planned));
+            }
+            manifest = update(job, manifest.withState(State.RUNNING, null));
+            Path file = directory.resolve(fileName(manifest));
+            MaterializedQueryContext context = new MaterializedQueryContext(null, "export:" + manifest.id());
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                // Drops whatever a crash left after the last recorded chunk.
+                channel.truncate(manifest.bytes());
+                channel.position(manifest.bytes());
+                boolean hasNext = true;
+                while (hasNext) {
+                    if (job.cancelled) {
+                        throw new CancellationException();
+                    }
+                    QueryResult result = fetchChunk(job, planned, manifest, context, resumed);
+                    resumed = false;
+                    List<JooqRow> rows = result.getRows();
+                    hasNext = Boolean.TRUE.equals(result.getPageInfo().getHasNext());
+                    if (rows.isEmpty() && hasNext) {
+                        throw new IllegalStateException("A single row exceeds the page byte budget");
+                    }
+                    writeChunk(channel, manifest, planned, rows);
+                    channel.force(false);
+                    manifest = update(job, manifest.advanced(
+                            result.getPageInfo().getNextCursor(),
+                            rows.size(),
+                            channel.position()
+                    ));
+                }
+            }
+            update(job, manifest.withState(State.COMPLETED, null));
+        } catch (CancellationException cancelled) {
+            if (workers.isShutdown()) {
+                // Interrupted by shutdown rather than by the client; the job resumes on the next start.
+                return;
+            }
+            update(job, manifest.withState(State.CANCELLED, null));
+            deleteFile(manifest);
+        } catch (RuntimeException | IOException failure) {
+            if (workers.isShutdown()) {
+                return;
+            }
+            update(job, manifest.withState(State.FAILED, message(failure)));
+        }
+    }
+
+    private QueryResult fetchChunk(
+            ExportJob job,
+            PlannedQuery planned,
+            ExportManifest manifest,
+            MaterializedQueryContext context,
+            boolean resumed
+    ) {
+        CompletableFuture<QueryResult> chunk =
+                service.executeExport(planned.table(), chunk(planned.plan(), manifest.cursor(), chunkSize), context);
+        job.chunk = chunk;
+        try {
+            return chunk.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (resumed && manifest.cursor() != null && cause instanceof IllegalArgumentException) {
+                throw new IllegalStateException(
+                        "Cannot resume from the recorded cursor; resuming after a restart requires a fixed "
+                                + "viewton.jooq.cursor-secret",
+                        cause
+                );
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        } finally {
+            job.chunk = null;
+        }
+    }
+
+    /**
+     * Entities of the source query, one chunk after {@code after} in keyset order.
+     */
+    private static QueryPlan chunk(QueryPlan plan, String after, int size) {
+        return new QueryPlan(
+                plan.getEntity(),
+                plan.getProjection(),
+                plan.getFilters(),
+                plan.getSorting(),
+                Pagination.builder().pageSize(size).mode(PaginationMode.CURSOR).after(after).build(),
+                new Aggregations(List.of(), List.of(), List.of(), List.of()),
+                new QueryFlags(false, false, true)
+        );
+    }
+
+    /**
+     * Planner estimate of the exported rows. The count limit of zero keeps the executor from counting exactly
+     * when there is no estimate; the capped count it runs instead is discarded.
+     */
+    private Long estimateRows(PlannedQuery planned) {
+        QueryPlan plan = planned.plan();
+        QueryPlan estimate = new QueryPlan(
+                plan.getEntity(),
+                plan.getProjection(),
+                plan.getFilters(),
+                plan.getSorting(),
+                plan.getPagination(),
+                new Aggregations(List.of(), List.of(), List.of(), List.of()),
+                QueryFlags.builder()
+                        .count(true)
+                        .entities(false)
+                        .countStrategy(CountStrategy.ESTIMATED)
+                        .countLimit(0)
+                        .build()
+        );
+        try {
+            QueryResult result = planned.table().getExecutor().execute(estimate);
+            if (result.getCountPrecision() != CountPrecision.ESTIMATED
+                    || !(result.getAggregations().get("count") instanceof Number count)) {
+                return null;
+            }
+            return count.longValue();
+        } catch (RuntimeException unavailable) {
+            return null;
+        }
+    }
+
+    /**
+     * Compresses the chunk in memory as one gzip member or zstd frame, then appends it to the file.
+     */
+    private void writeChunk(
+            FileChannel channel,
+            ExportManifest manifest,
+            PlannedQuery planned,
+            List<JooqRow> rows
+    ) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (OutputStream output = compress(manifest.compression(), buffer)) {
+            if (manifest.format() == Format.CSV) {
+                writeCsv(output, manifest.chunks() == 0 ? planned : null, rows);
+            } else {
+                writeNdjson(output, rows);
+            }
+        }
+        buffer.writeTo(Channels.newOutputStream(channel));
+    }
+
+    private static OutputStream compress(Compression compression, OutputStream output) throws IOException {
+        return switch (compression) {
+            case NONE -> output;
+            case GZIP -> new GZIPOutputStream(output, 64 * 1024);
+            case ZSTD -> new ZstdOutputStream(output);
+        };
+    }
+
+    /**
+     * @param header query whose column names start the file, or {@code null} after the first chunk
+     */
+    private static void writeCsv(OutputStream output, PlannedQuery header, List<JooqRow> rows) throws IOException {
+        Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+        if (header != null) {
+            List<Field<?>> fields = header.table().getExecutor().entityFields(header.plan());
+            for (int i = 0; i < fields.size(); i++) {
+                writeCsvValue(writer, i, fields.get(i).getName());
+            }
+            writer.write("\r\n");
+        }
+        for (JooqRow row : rows) {
+            int column = 0;
+            for (Object value : row.asMapView().values()) {
+                writeCsvValue(writer, column++, value);
+            }
+            writer.write("\r\n");
+        }
+        writer.flush();
+    }
+
+    private static void writeCsvValue(Writer writer, int column, Object value) throws IOException {
+        if (column > 0) {
+            writer.write(',');
+        }
+        if (value == null) {
+            return;
+        }
+        String text = value instanceof byte[] binary ? Base64.getEncoder().encodeToString(binary) : value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private void writeNdjson(OutputStream output, List<JooqRow> rows) throws IOException {
+        try (JsonGenerator generator = rowWriter.getFactory().createGenerator(output)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            for (JooqRow row : rows) {
+                rowWriter.writeValue(generator, row.asMapView());
+                generator.writeRaw('\n');
+            }
+        }
+    }
+
+    private ExportManifest update(ExportJob job, ExportManifest manifest) {
+        save(manifest);
+        job.manifest = manifest;
+        return manifest;
+    }
+
+    /**
+     * Writes the manifest next to the file and moves it into place, so that a crash leaves the old or the new one.
+     */
+    private void save(ExportManifest manifest) {
+        Path target = directory.resolve(manifest.id() + MANIFEST_SUFFIX);
+        Path temporary = directory.resolve(manifest.id() + MANIFEST_SUFFIX + ".tmp");
+        try {
+            objectMapper.writeValue(temporary.toFile(), manifest);
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write export manifest " + target, e);
+        }
+    }
+
+    private void deleteFile(ExportManifest manifest) {
+        try {
+            Files.deleteIfExists(directory.resolve(fileName(manifest)));
+        } catch (IOException ignored) {
+            // The cancelled job's state is recorded; a leftover file is only wasted space.
+        }
+    }
+
+    private static String fileName(ExportManifest manifest) {
+        return manifest.id() + "." + manifest.format().getExtension() + manifest.compression().getExtension();
+    }
+
+    private static String message(Throwable failure) {
+        return failure.getMessage() != null ? failure.getMessage() : failure.getClass().getSimpleName();
+    }
+
+    private MaterializedExportStatus status(ExportManifest manifest) {
+        Double progress = null;
+        if (manifest.state() == State.COMPLETED) {
+            progress = 1.0;
+        } else if (manifest.estimatedRows() != null && manifest.estimatedRows() > 0) {
+            progress = Math.min(1.0, (double) manifest.rows() / manifest.estimatedRows());
+        }
+        return new MaterializedExportStatus(
+                manifest.id(),
+                manifest.state(),
+                manifest.format(),
+                manifest.compression(),
+                fileName(manifest),
+                manifest.rows(),
+                manifest.chunks(),
+                manifest.bytes(),
+                manifest.estimatedRows(),
+                progress,
+                Instant.ofEpochMilli(manifest.createdAt()),
+                Instant.ofEpochMilli(manifest.updatedAt()),
+                manifest.error()
+        );
+    }
+
+    private static final class ExportJob {
+        private volatile ExportManifest manifest;
+        private volatile boolean cancelled;
+        private volatile CompletableFuture<?> chunk;
+
+        private ExportJob(ExportManifest manifest) {
+            this.manifest = manifest;
+        }
+    }
+
+    /**
+     * Persistent state of a job, rewritten after every chunk.
+     *
+     * @param cursor position after the last written row, or {@code null} before the first chunk
+     * @param bytes  file size after the last written chunk
+     */
+    record ExportManifest(
+            String id,
+            MaterializedBatchQuery source,
+            Format format,
+            Compression compression,
+            State state,
+            String cursor,
+            long rows,
+            long chunks,
+            long bytes,
+            Long estimatedRows,
+            long createdAt,
+            long updatedAt,
+            String error
+    ) {
+        ExportManifest withState(State state, String error) {
+            return new ExportManifest(id, source, format, compression, state, cursor, rows, chunks, bytes,
+                    estimatedRows, createdAt, System.currentTimeMillis(), error);
+        }
+
+        ExportManifest estimated(Long estimatedRows) {
+            return new ExportManifest(id, source, format, compression, state, cursor, rows, chunks, bytes,
+                    estimatedRows, createdAt, System.currentTimeMillis(), error);
+        }
+
+        ExportManifest advanced(String cursor, int chunkRows, long bytes) {
+            return new ExportManifest(id, source, format, compression, state, cursor, rows + chunkRows, chunks + 1,
+                    bytes, estimatedRows, createdAt, System.currentTimeMillis(), error);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.viewton.materialized.service;
+
+import java.time.Duration;
+
+/**
+ * Per-request execution settings supplied by the caller.
+ *
+ * @param timeout   maximum execution time, or {@code null} for the configured default
+ * @param callerKey key that queries are queued fairly by, such as a tenant or client address; may be {@code null}
+ */
+public record MaterializedQueryContext(Duration timeout, String callerKey) {
+    private static final MaterializedQueryContext NONE = new MaterializedQueryContext(null, null);
+
+    public static MaterializedQueryContext none() {
+        return NONE;
+    }
+}
@@ -0,0 +1,114 @@
+package com.viewton.materialized.service;
+
+import com.viewton.jooq.executor.JooqQueryExecutor;
+import com.viewton.jooq.executor.QueryScheduler;
+import com.viewton.jooq.mapping.QueryResult;
+import com.viewton.materialized.api.MaterializedStreamSummary;
+import com.viewton.plan.Aggregations;
+import com.viewton.plan.QueryFlags;
+import com.viewton.plan.QueryPlan;
+import org.jooq.Field;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Validated plan whose rows are read lazily, one at a time, when {@link #forEach(Consumer)} is called.
+ * <p>
+ * The stream may hold an admission slot; it is released when {@link #forEach(Consumer)} returns or when the
+ * stream is closed without being consumed. The caller's timeout starts when the stream is created and covers
+ * the aggregations and every row, including the time the consumer takes.
+ */
+public final class MaterializedRowStream implements AutoCloseable {
+    private final JooqQueryExecutor executor;
+    private final QueryScheduler.Permit permit;
+    private final long deadlineNanos;
+    private final boolean hasDeadline;
+    private QueryPlan plan;
+
+    /**
+     * @param timeout maximum time for reading the whole stream, or {@code null} for the configured default
+     */
+    MaterializedRowStream(JooqQueryExecutor executor, QueryPlan plan, QueryScheduler.Permit permit, Duration timeout) {
+        this.executor = Objects.requireNonNull(executor, "executor");
+        this.plan = Objects.requireNonNull(plan, "plan");
+        this.permit = permit;
+        this.hasDeadline = timeout != null;
+        this.deadlineNanos = timeout == null ? 0 : System.nanoTime() + timeout.toNanos();
+    }
+
+    /**
+     * Columns of the streamed rows with their types from the table metadata, known before any row is read.
+     */
+    public List<Field<?>> fields() {
+        return executor.entityFields(plan);
+    }
+
+    /**
+     * Runs the plan's count and aggregations now, for formats that send them ahead of the rows, and leaves
+     * them out of the summary returned by {@link #forEach(Consumer)}.
+     */
+    public MaterializedStreamSummary aggregateFirst() {
+        QueryFlags flags = plan.getFlags();
+        QueryPlan aggregations = new QueryPlan(
+                plan.getEntity(),
+                plan.getProjection(),
+                plan.getFilters(),
+                plan.getSorting(),
+                plan.getPagination(),
+                plan.getAggregations(),
+                flags.toBuilder().entities(false).build()
+        );
+        QueryResult result = executor.execute(aggregations, remaining());
+        plan = new QueryPlan(
+                plan.getEntity(),
+                plan.getProjection(),
+                plan.getFilters(),
+                plan.getSorting(),
+                plan.getPagination(),
+                new Aggregations(List.of(), List.of(), List.of(), List.of()),
+                new QueryFlags(false, flags.isDistinct(), flags.isEntities())
+        );
+        return new MaterializedStreamSummary(result.getAggregations(), result.getCountPrecision(), null, null);
+    }
+
+    /**
+     * Passes each row to {@code consumer} as it is read from the database and returns the trailing summary.
+     * Rows are read-only views of the records; see {@link com.viewton.jooq.mapping.RecordMap}.
+     */
+    public MaterializedStreamSummary forEach(Consumer<Map<String, Object>> consumer) {
+        Objects.requireNonNull(consumer, "consumer");
+        QueryResult result;
+        try {
+            result = executor.stream(plan, row -> consumer.accept(row.asMapView()), remaining());
+        } finally {
+            close();
+        }
+        return new MaterializedStreamSummary(
+                result.getAggregations(),
+                result.getCountPrecision(),
+                result.getPageInfo().getHasNext(),
+                result.getPageInfo().getNextCursor()
+        );
+    }
+
+    /**
+     * Time left until the deadline; once it has passed, a nanosecond, so that the executor fails the read.
+     */
+    private Duration remaining() {
+        if (!hasDeadline) {
+            return null;
+        }
+        return Duration.ofNanos(Math.max(1, deadlineNanos - System.nanoTime()));
+    }
+
+    @Override
+    public void close() {
+        if (permit != null) {
+            permit.close();
+        }
+    }
+}
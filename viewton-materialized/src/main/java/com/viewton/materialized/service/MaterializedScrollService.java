@@ -0,0 +1,79 @@
+package com.viewton.materialized.service;
+
+import com.viewton.jooq.executor.ScrollRegistry;
+import com.viewton.jooq.mapping.JooqRow;
+import com.viewton.materialized.api.MaterializedBatchQuery;
+import com.viewton.materialized.api.MaterializedScrollResponse;
+import com.viewton.materialized.service.MaterializedViewtonService.PlannedQuery;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Scroll-style reads of whole results: the first call opens a database cursor for a REST or declarative query,
+ * later calls read the next page from it, so that no page re-runs the query with a growing offset.
+ * <p>
+ * Open scrolls are kept in a {@link ScrollRegistry}, which caps how many may be open, and so how many pooled
+ * connections they pin, and closes those left idle.
+ */
+public final class MaterializedScrollService {
+    private final MaterializedViewtonService service;
+    private final ScrollRegistry registry;
+
+    public MaterializedScrollService(MaterializedViewtonService service, ScrollRegistry registry) {
+        this.service = Objects.requireNonNull(service, "service");
+        this.registry = Objects.requireNonNull(registry, "registry");
+    }
+
+    /**
+     * Opens a scroll over the rows the REST query selects and returns its first page.
+     */
+    public MaterializedScrollResponse open(String schemaName, String tableName, Map<String, String> parameters) {
+        MaterializedBatchQuery query = new MaterializedBatchQuery();
+        query.setSchema(schemaName);
+        query.setTable(tableName);
+        query.setParameters(parameters);
+        return open(query);
+    }
+
+    /**
+     * Opens a scroll over the rows the query selects and returns its first page. The query's page size sets the
+     * rows per page; its page, count and aggregations are ignored.
+     *
+     * @throws com.viewton.jooq.executor.QueryRejectedException when the maximum number of scrolls are open
+     */
+    public MaterializedScrollResponse open(MaterializedBatchQuery query) {
+        PlannedQuery planned = service.plan(Objects.requireNonNull(query, "query"));
+        String scrollId = registry.open(() -> planned.table().getExecutor().openScroll(planned.plan()));
+        MaterializedScrollResponse first = next(scrollId);
+        // Only an idle timeout shorter than the first read closes the scroll before it.
+        return first != null ? first : new MaterializedScrollResponse(scrollId, List.of(), false);
+    }
+
+    /**
+     * Reads the scroll's next page.
+     *
+     * @return the page, or {@code null} when the scroll is closed, exhausted, expired or unknown
+     */
+    public MaterializedScrollResponse next(String scrollId) {
+        ScrollRegistry.Page page = registry.next(scrollId);
+        if (page == null) {
+            return null;
+        }
+        List<Map<String, Object>> entities = page.rows().stream()
+                .map(JooqRow::asMapView)
+                .collect(Collectors.toUnmodifiableList());
+        return new MaterializedScrollResponse(scrollId, entities, page.hasNext());
+    }
+
+    /**
+     * Closes the scroll before its last page and releases its connection.
+     *
+     * @return whether the scroll was open
+     */
+    public boolean close(String scrollId) {
+        return registry.close(scrollId);
+    }
+}
@@ -0,0 +1,214 @@
+package com.viewton.materialized.service;
+
+import com.viewton.jooq.executor.JooqExecutorOptions;
+import com.viewton.jooq.executor.JooqQueryExecutor;
+import com.viewton.jooq.schema.JooqSchema;
+import org.jooq.DSLContext;
+import org.jooq.DataType;
+import org.jooq.Field;
+import org.jooq.Table;
+import org.jooq.UniqueKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schema-qualified, case-insensitive index of database tables shared across requests.
+ * <p>
+ * The index is built from {@code dslContext.meta()} on first use and replaced atomically on
+ * {@link #refresh()}, so lookups never introspect the database. Each entry keeps a single
+ * {@link JooqSchema} and {@link JooqQueryExecutor} for its table; a refresh keeps the entry of every
+ * table whose columns have not changed, so executors keep their in-flight and cost-estimate state.
+ */
+public final class MaterializedTableRegistry implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(MaterializedTableRegistry.class);
+
+    private final DSLContext dslContext;
+    private final JooqExecutorOptions executorOptions;
+    private final ScheduledExecutorService scheduler;
+    private volatile Map<String, MaterializedTable> tables;
+
+    public MaterializedTableRegistry(DSLContext dslContext) {
+        this(dslContext, null, JooqExecutorOptions.defaults());
+    }
+
+    public MaterializedTableRegistry(
+            DSLContext dslContext,
+            Duration refreshInterval,
+            JooqExecutorOptions executorOptions
+    ) {
+        this.dslContext = Objects.requireNonNull(dslContext, "dslContext");
+        this.executorOptions = Objects.requireNonNull(executorOptions, "executorOptions");
+        this.scheduler = startScheduler(refreshInterval);
+    }
+
+    public MaterializedTable resolve(String schemaName, String tableName) {
+        Objects.requireNonNull(schemaName, "schemaName");
+        Objects.requireNonNull(tableName, "tableName");
+        MaterializedTable table = index().get(key(schemaName, tableName));
+        if (table == null) {
+            throw new IllegalArgumentException("Unknown table " + schemaName + "." + tableName);
+        }
+        return table;
+    }
+
+    public Collection<MaterializedTable> tables() {
+        return index().values();
+    }
+
+    /**
+     * Re-reads database metadata and atomically swaps the index. Entries of unchanged tables are reused.
+     */
+    public synchronized void refresh() {
+        Map<String, MaterializedTable> previous = tables == null ? Map.of() : tables;
+        Map<String, MaterializedTable> index = new LinkedHashMap<>();
+        for (Table<?> table : dslContext.meta().getTables()) {
+            if (table.getSchema() == null || table.getSchema().getName() == null) {
+                continue;
+            }
+            String schemaName = table.getSchema().getName();
+            String key = key(schemaName, table.getName());
+            if (index.containsKey(key)) {
+                continue;
+            }
+            MaterializedTable existing = previous.get(key);
+            index.put(key, existing != null && sameColumns(existing.getTable(), table)
+                    ? existing
+                    : new MaterializedTable(schemaName, table, dslContext, executorOptions));
+        }
+        tables = Map.copyOf(index);
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private Map<String, MaterializedTable> index() {
+        Map<String, MaterializedTable> current = tables;
+        if (current == null) {
+            synchronized (this) {
+                current = tables;
+                if (current == null) {
+                    refresh();
+                    current = tables;
+                }
+            }
+        }
+        return current;
+    }
+
+    private ScheduledExecutorService startScheduler(Duration refreshInterval) {
+        if (refreshInterval == null || refreshInterval.isZero() || refreshInterval.isNegative()) {
+            return null;
+        }
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "viewton-table-registry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = refreshInterval.toMillis();
+        executor.scheduleWithFixedDelay(this::refreshQuietly, millis, millis, TimeUnit.MILLISECONDS);
+        return executor;
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            // Keep serving the previous snapshot until the next successful refresh.
+            log.warn("Failed to refresh table metadata; keeping the previous index", e);
+        }
+    }
+
+    private static boolean sameColumns(Table<?> current, Table<?> table) {
+        Field<?>[] currentFields = current.fields();
+        Field<?>[] fields = table.fields();
+        if (currentFields.length != fields.length) {
+            return false;
+        }
+        for (int i = 0; i < fields.length; i++) {
+            if (!currentFields[i].getName().equals(fields[i].getName())
+                    || !sameType(currentFields[i].getDataType(), fields[i].getDataType())) {
+                return false;
+            }
+        }
+        return Objects.equals(keyColumns(current), keyColumns(table));
+    }
+
+    private static boolean sameType(DataType<?> current, DataType<?> type) {
+        return current.getType() == type.getType()
+                && current.getTypeName().equals(type.getTypeName())
+                && current.length() == type.length()
+                && current.precision() == type.precision()
+                && current.scale() == type.scale()
+                && current.nullable() == type.nullable();
+    }
+
+    private static List<String> keyColumns(Table<?> table) {
+        UniqueKey<?> primaryKey = table.getPrimaryKey();
+        return primaryKey == null
+                ? List.of()
+                : primaryKey.getFields().stream().map(Field::getName).toList();
+    }
+
+    private static String key(String schemaName, String tableName) {
+        return schemaName.toLowerCase(Locale.ROOT) + "." + tableName.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Indexed table together with the Viewton components bound to it.
+     */
+    public static final class MaterializedTable {
+        private final String schemaName;
+        private final Table<?> table;
+        private final JooqSchema schema;
+        private final JooqQueryExecutor executor;
+
+        MaterializedTable(
+                String schemaName,
+                Table<?> table,
+                DSLContext dslContext,
+                JooqExecutorOptions executorOptions
+        ) {
+            this.schemaName = schemaName;
+            this.table = table;
+            this.schema = JooqSchema.builder()
+                    .registerTable(table.getName(), table)
+                    .build();
+            this.executor = new JooqQueryExecutor(dslContext, schema, executorOptions);
+        }
+
+        public String getSchemaName() {
+            return schemaName;
+        }
+
+        public String getEntityName() {
+            return table.getName();
+        }
+
+        public Table<?> getTable() {
+            return table;
+        }
+
+        public JooqSchema getSchema() {
+            return schema;
+        }
+
+        public JooqQueryExecutor getExecutor() {
+            return executor;
+        }
+    }
+}
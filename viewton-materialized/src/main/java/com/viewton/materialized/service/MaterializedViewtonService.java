@@ -3,98 +3,452 @@ package com.viewton.materialized.service;
 import com.viewton.api.input.RestQueryInput;
 import com.viewton.api.parser.RestQueryInputParser;
 import com.viewton.jooq.executor.JooqQueryExecutor;
+import com.viewton.jooq.executor.QueryLane;
+import com.viewton.jooq.executor.QueryScheduler;
+import com.viewton.jooq.mapping.JooqRow;
 import com.viewton.jooq.mapping.QueryResult;
+import com.viewton.materialized.api.MaterializedBatchQuery;
 import com.viewton.materialized.api.MaterializedDeclarativeQueryRequest;
+import com.viewton.materialized.api.MaterializedJsonResponse;
 import com.viewton.materialized.api.MaterializedQueryResponse;
-import com.viewton.jooq.schema.JooqSchema;
+import com.viewton.materialized.service.MaterializedTableRegistry.MaterializedTable;
 import com.viewton.model.FilterCriterion;
 import com.viewton.model.FilterOperator;
 import com.viewton.model.QueryModel;
 import com.viewton.model.RestQueryModel;
 import com.viewton.plan.QueryPlan;
+import com.viewton.plan.QueryPlanCache;
 import com.viewton.plan.RestQueryPlanNormalizer;
-import org.jooq.DSLContext;
-import org.jooq.Table;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * Service that builds dynamic Viewton queries from the database meta-model.
  */
 public final class MaterializedViewtonService {
-    private final DSLContext dslContext;
+    private final MaterializedTableRegistry tableRegistry;
     private final RestQueryInputParser restQueryInputParser;
     private final RestQueryPlanNormalizer restQueryPlanNormalizer;
+    private final QueryPlanCache planCache;
+    private final QueryScheduler scheduler;
 
     public MaterializedViewtonService(
-            DSLContext dslContext,
+            MaterializedTableRegistry tableRegistry,
             RestQueryInputParser restQueryInputParser,
             RestQueryPlanNormalizer restQueryPlanNormalizer
     ) {
-        this.dslContext = Objects.requireNonNull(dslContext, "dslContext");
+        this(tableRegistry, restQueryInputParser, restQueryPlanNormalizer, null);
+    }
+
+    /**
+     * @param planCache optional cache of normalized REST plans; {@code null} disables caching
+     */
+    public MaterializedViewtonService(
+            MaterializedTableRegistry tableRegistry,
+            RestQueryInputParser restQueryInputParser,
+            RestQueryPlanNormalizer restQueryPlanNormalizer,
+            QueryPlanCache planCache
+    ) {
+        this(tableRegistry, restQueryInputParser, restQueryPlanNormalizer, planCache, null);
+    }
+
+    /**
+     * @param planCache optional cache of normalized REST plans; {@code null} disables caching
+     * @param scheduler optional admission control; {@code null} runs every query immediately
+     */
+    public MaterializedViewtonService(
+            MaterializedTableRegistry tableRegistry,
+            RestQueryInputParser restQueryInputParser,
+            RestQueryPlanNormalizer restQueryPlanNormalizer,
+            QueryPlanCache planCache,
+            QueryScheduler scheduler
+    ) {
+        this.tableRegistry = Objects.requireNonNull(tableRegistry, "tableRegistry");
         this.restQueryInputParser = Objects.requireNonNull(restQueryInputParser, "restQueryInputParser");
         this.restQueryPlanNormalizer = Objects.requireNonNull(restQueryPlanNormalizer, "restQueryPlanNormalizer");
+        this.planCache = planCache;
+        this.scheduler = scheduler;
     }
 
+    /**
+     * Lists rows of a table on the caller's thread. With a scheduler, the call blocks until the query is
+     * admitted and fails with a {@link com.viewton.jooq.executor.QueryRejectedException} when it is shed.
+     */
     public MaterializedQueryResponse list(String schemaName, String tableName, Map<String, String> parameters) {
-        Objects.requireNonNull(schemaName, "schemaName");
-        Objects.requireNonNull(tableName, "tableName");
-        Table<?> table = resolveTable(schemaName, tableName);
-        JooqSchema schema = JooqSchema.builder()
-                .registerTable(tableName, table)
-                .build();
+        MaterializedTable table = resolveTable(schemaName, tableName);
+        return execute(table, restPlan(table, parameters));
+    }
 
-        QueryModel model = restQueryInputParser.parse(new RestQueryInput(parameters));
-        QueryPlan plan = restQueryPlanNormalizer.normalize(asRestModel(model), tableName, schema);
+    /**
+     * Runs a declarative query on the caller's thread, see {@link #list(String, String, Map)}.
+     */
+    public MaterializedQueryResponse query(MaterializedDeclarativeQueryRequest request) {
+        MaterializedTable table = resolveTable(request);
+        return execute(table, declarativePlan(table, request));
+    }
+
+    /**
+     * Asynchronous variant of {@link #list(String, String, Map)}. Invalid queries fail the returned future;
+     * cancelling it, or exceeding the context's timeout, cancels the running statements. With a scheduler,
+     * the query first waits for admission and fails with a
+     * {@link com.viewton.jooq.executor.QueryRejectedException} when it is shed.
+     */
+    public CompletableFuture<MaterializedQueryResponse> listAsync(
+            String schemaName,
+            String tableName,
+            Map<String, String> parameters,
+            MaterializedQueryContext context
+    ) {
+        MaterializedTable table;
+        QueryPlan plan;
+        try {
+            table = resolveTable(schemaName, tableName);
+            plan = restPlan(table, parameters);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return executeAsync(table, plan, context);
+    }
+
+    /**
+     * Asynchronous variant of {@link #query(MaterializedDeclarativeQueryRequest)}, see
+     * {@link #listAsync(String, String, Map, MaterializedQueryContext)}.
+     */
+    public CompletableFuture<MaterializedQueryResponse> queryAsync(
+            MaterializedDeclarativeQueryRequest request,
+            MaterializedQueryContext context
+    ) {
+        MaterializedTable table;
+        QueryPlan plan;
+        try {
+            table = resolveTable(request);
+            plan = declarativePlan(table, request);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return executeAsync(table, plan, context);
+    }
+
+    /**
+     * Variant of {@link #listAsync(String, String, Map, MaterializedQueryContext)} for callers that accept JSON.
+     * When the table's executor can have the database render the page, completes with the document as the
+     * database built it; otherwise with the response to serialize.
+     */
+    public CompletableFuture<MaterializedJsonResponse> listJsonAsync(
+            String schemaName,
+            String tableName,
+            Map<String, String> parameters,
+            MaterializedQueryContext context
+    ) {
+        MaterializedTable table;
+        QueryPlan plan;
+        try {
+            table = resolveTable(schemaName, tableName);
+            plan = restPlan(table, parameters);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return executeJsonAsync(table, plan, context);
+    }
+
+    /**
+     * Variant of {@link #queryAsync(MaterializedDeclarativeQueryRequest, MaterializedQueryContext)} for callers
+     * that accept JSON, see {@link #listJsonAsync(String, String, Map, MaterializedQueryContext)}.
+     */
+    public CompletableFuture<MaterializedJsonResponse> queryJsonAsync(
+            MaterializedDeclarativeQueryRequest request,
+            MaterializedQueryContext context
+    ) {
+        MaterializedTable table;
+        QueryPlan plan;
+        try {
+            table = resolveTable(request);
+            plan = declarativePlan(table, request);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return executeJsonAsync(table, plan, context);
+    }
+
+    /**
+     * Resolves and validates a REST query whose rows are streamed instead of collected into a response.
+     */
+    public MaterializedRowStream streamList(String schemaName, String tableName, Map<String, String> parameters) {
+        return streamList(schemaName, tableName, parameters, MaterializedQueryContext.none());
+    }
+
+    /**
+     * Variant of {@link #streamList(String, String, Map)} that, with a scheduler, waits for an export slot
+     * before returning. The slot is held until the stream is consumed or closed.
+     */
+    public MaterializedRowStream streamList(
+            String schemaName,
+            String tableName,
+            Map<String, String> parameters,
+            MaterializedQueryContext context
+    ) {
+        MaterializedTable table = resolveTable(schemaName, tableName);
+        QueryPlan plan = restPlan(table, parameters);
+        return new MaterializedRowStream(table.getExecutor(), plan, admitExport(table, context), context.timeout());
+    }
+
+    /**
+     * Resolves and validates a declarative query whose rows are streamed instead of collected into a response.
+     */
+    public MaterializedRowStream streamQuery(MaterializedDeclarativeQueryRequest request) {
+        return streamQuery(request, MaterializedQueryContext.none());
+    }
+
+    /**
+     * Variant of {@link #streamQuery(MaterializedDeclarativeQueryRequest)}, see
+     * {@link #streamList(String, String, Map, MaterializedQueryContext)}.
+     */
+    public MaterializedRowStream streamQuery(
+            MaterializedDeclarativeQueryRequest request,
+            MaterializedQueryContext context
+    ) {
+        MaterializedTable table = resolveTable(request);
+        QueryPlan plan = declarativePlan(table, request);
+        return new MaterializedRowStream(table.getExecutor(), plan, admitExport(table, context), context.timeout());
+    }
+
+    /**
+     * Executes a batch of queries and completes with their responses in request order.
+     * <p>
+     * Queries are grouped by table and each group is reduced by the table's executor: identical plans run
+     * once and aggregation-only plans with the same filters share one statement. Every query is validated
+     * before anything runs, so an invalid entry fails the whole batch.
+     */
+    public CompletableFuture<List<MaterializedQueryResponse>> batch(List<MaterializedBatchQuery> queries) {
+        return batch(queries, MaterializedQueryContext.none());
+    }
+
+    /**
+     * Variant of {@link #batch(List)} that runs under the caller's timeout and admission key. Each table's
+     * group of queries is admitted as one unit.
+     */
+    public CompletableFuture<List<MaterializedQueryResponse>> batch(
+            List<MaterializedBatchQuery> queries,
+            MaterializedQueryContext context
+    ) {
+        Objects.requireNonNull(queries, "queries");
+        Map<MaterializedTable, List<Integer>> positionsByTable = new LinkedHashMap<>();
+        Map<MaterializedTable, List<QueryPlan>> plansByTable = new LinkedHashMap<>();
+        for (int i = 0; i < queries.size(); i++) {
+            PlannedQuery planned = plan(Objects.requireNonNull(queries.get(i), "query"));
+            positionsByTable.computeIfAbsent(planned.table(), ignored -> new ArrayList<>()).add(i);
+            plansByTable.computeIfAbsent(planned.table(), ignored -> new ArrayList<>()).add(planned.plan());
+        }
+
+        MaterializedQueryResponse[] responses = new MaterializedQueryResponse[queries.size()];
+        List<CompletableFuture<List<QueryResult>>> executions = new ArrayList<>();
+        List<CompletableFuture<Void>> groups = new ArrayList<>();
+        plansByTable.forEach((table, plans) -> {
+            List<Integer> positions = positionsByTable.get(table);
+            QueryLane lane = plans.stream().anyMatch(plan -> plan.getFlags().isEntities())
+                    ? QueryLane.INTERACTIVE
+                    : QueryLane.AGGREGATE;
+            CompletableFuture<List<QueryResult>> execution = schedule(
+                    lane,
+                    table,
+                    context,
+                    () -> table.getExecutor().executeAllAsync(plans, context.timeout())
+            );
+            executions.add(execution);
+            groups.add(execution.thenAccept(results -> {
+                for (int i = 0; i < results.size(); i++) {
+                    responses[positions.get(i)] = toResponse(results.get(i));
+                }
+            }));
+        });
+        CompletableFuture<List<MaterializedQueryResponse>> batch = CompletableFuture
+                .allOf(groups.toArray(CompletableFuture<?>[]::new))
+                .thenApply(ignored -> Arrays.asList(responses));
+        batch.whenComplete((ignored, failure) -> {
+            if (failure != null) {
+                executions.forEach(execution -> execution.cancel(true));
+            }
+        });
+        return batch;
+    }
 
-        JooqQueryExecutor executor = new JooqQueryExecutor(dslContext, schema);
-        QueryResult result = executor.execute(plan);
-        return new MaterializedQueryResponse(
-                result.getRows().stream().map(row -> row.asMap()).toList(),
-                result.getAggregations()
+    private CompletableFuture<MaterializedQueryResponse> executeAsync(
+            MaterializedTable table,
+            QueryPlan plan,
+            MaterializedQueryContext context
+    ) {
+        CompletableFuture<QueryResult> execution = schedule(
+                QueryLane.of(plan),
+                table,
+                context,
+                () -> table.getExecutor().executeAsync(plan, context.timeout())
         );
+        CompletableFuture<MaterializedQueryResponse> response = execution.thenApply(this::toResponse);
+        response.whenComplete((ignored, failure) -> {
+            if (failure instanceof CancellationException) {
+                execution.cancel(true);
+            }
+        });
+        return response;
     }
 
-    public MaterializedQueryResponse query(MaterializedDeclarativeQueryRequest request) {
+    /**
+     * Renders the page in the database when possible; the statement applies the byte budget itself, so a
+     * rendered document is never run again on this node.
+     */
+    private CompletableFuture<MaterializedJsonResponse> executeJsonAsync(
+            MaterializedTable table,
+            QueryPlan plan,
+            MaterializedQueryContext context
+    ) {
+        JooqQueryExecutor executor = table.getExecutor();
+        if (!executor.rendersJson(plan)) {
+            return executeAsync(table, plan, context).thenApply(MaterializedJsonResponse::of);
+        }
+        CompletableFuture<String> rendering = schedule(
+                QueryLane.of(plan),
+                table,
+                context,
+                () -> executor.executeJsonAsync(plan, context.timeout())
+        );
+        CompletableFuture<MaterializedJsonResponse> response = rendering.thenApply(MaterializedJsonResponse::rendered);
+        response.whenComplete((ignored, failure) -> {
+            if (failure instanceof CancellationException) {
+                rendering.cancel(true);
+            }
+        });
+        return response;
+    }
+
+    /**
+     * Resolves and validates a REST or declarative query.
+     */
+    PlannedQuery plan(MaterializedBatchQuery query) {
+        if (query.getQuery() != null) {
+            MaterializedTable table = resolveTable(query.getQuery());
+            return new PlannedQuery(table, declarativePlan(table, query.getQuery()));
+        }
+        MaterializedTable table = resolveTable(query.getSchema(), query.getTable());
+        return new PlannedQuery(table, restPlan(table, Objects.requireNonNullElse(query.getParameters(), Map.of())));
+    }
+
+    /**
+     * Executes one chunk of an export in the export lane.
+     */
+    CompletableFuture<QueryResult> executeExport(
+            MaterializedTable table,
+            QueryPlan plan,
+            MaterializedQueryContext context
+    ) {
+        return schedule(
+                QueryLane.EXPORT,
+                table,
+                context,
+                () -> table.getExecutor().executeAsync(plan, context.timeout())
+        );
+    }
+
+    private <T> CompletableFuture<T> schedule(
+            QueryLane lane,
+            MaterializedTable table,
+            MaterializedQueryContext context,
+            Supplier<CompletableFuture<T>> task
+    ) {
+        if (scheduler == null) {
+            return task.get();
+        }
+        return scheduler.submit(lane, tableKey(table), context.callerKey(), task);
+    }
+
+    private MaterializedQueryResponse execute(MaterializedTable table, QueryPlan plan) {
+        try (QueryScheduler.Permit ignored = admit(QueryLane.of(plan), table, MaterializedQueryContext.none())) {
+            return toResponse(table.getExecutor().execute(plan));
+        }
+    }
+
+    private QueryScheduler.Permit admitExport(MaterializedTable table, MaterializedQueryContext context) {
+        return admit(QueryLane.EXPORT, table, context);
+    }
+
+    /**
+     * Blocks until the query is admitted; returns {@code null} without a scheduler.
+     */
+    private QueryScheduler.Permit admit(QueryLane lane, MaterializedTable table, MaterializedQueryContext context) {
+        if (scheduler == null) {
+            return null;
+        }
+        CompletableFuture<QueryScheduler.Permit> admission =
+                scheduler.admit(lane, tableKey(table), context.callerKey());
+        try {
+            return admission.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private String tableKey(MaterializedTable table) {
+        return table.getSchemaName() + "." + table.getEntityName();
+    }
+
+    private MaterializedTable resolveTable(String schemaName, String tableName) {
+        Objects.requireNonNull(schemaName, "schemaName");
+        Objects.requireNonNull(tableName, "tableName");
+        return tableRegistry.resolve(schemaName, tableName);
+    }
+
+    private MaterializedTable resolveTable(MaterializedDeclarativeQueryRequest request) {
         Objects.requireNonNull(request, "request");
         String schemaName = Objects.requireNonNull(request.getSchema(), "schema");
         String tableName = Objects.requireNonNull(request.getTable(), "table");
-        Table<?> table = resolveTable(schemaName, tableName);
-        JooqSchema schema = JooqSchema.builder()
-                .registerTable(tableName, table)
-                .build();
-
-        RestQueryModel model = toRestModel(request);
-        QueryPlan plan = restQueryPlanNormalizer.normalize(model, tableName, schema);
+        return tableRegistry.resolve(schemaName, tableName);
+    }
 
-        JooqQueryExecutor executor = new JooqQueryExecutor(dslContext, schema);
-        QueryResult result = executor.execute(plan);
-        return new MaterializedQueryResponse(
-                result.getRows().stream().map(row -> row.asMap()).toList(),
-                result.getAggregations()
+    private QueryPlan restPlan(MaterializedTable table, Map<String, String> parameters) {
+        if (planCache == null) {
+            return buildRestPlan(table, parameters);
+        }
+        return planCache.get(
+                table.getSchemaName() + "." + table.getEntityName(),
+                parameters,
+                () -> buildRestPlan(table, parameters)
         );
     }
 
-    private Table<?> resolveTable(String schemaName, String tableName) {
-        return dslContext.meta()
-                .getTables()
-                .stream()
-                .filter(table -> matchesSchema(table, schemaName))
-                .filter(table -> table.getName().equalsIgnoreCase(tableName))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException(
-                        "Unknown table " + schemaName + "." + tableName
-                ));
+    private QueryPlan declarativePlan(MaterializedTable table, MaterializedDeclarativeQueryRequest request) {
+        RestQueryModel model = toRestModel(request);
+        return restQueryPlanNormalizer.normalize(model, table.getEntityName(), table.getSchema());
     }
 
-    private boolean matchesSchema(Table<?> table, String schemaName) {
-        if (table.getSchema() == null || table.getSchema().getName() == null) {
-            return false;
-        }
-        return table.getSchema().getName().equalsIgnoreCase(schemaName);
+    private MaterializedQueryResponse toResponse(QueryResult result) {
+        // Collected unmodifiable and without nulls, so that the response keeps the list as it is.
+        return MaterializedQueryResponse.builder(
+                        result.getRows().stream().map(JooqRow::asMapView).collect(Collectors.toUnmodifiableList()),
+                        result.getAggregations()
+                )
+                .countPrecision(result.getCountPrecision())
+                .hasNext(result.getPageInfo().getHasNext())
+                .nextCursor(result.getPageInfo().getNextCursor())
+                .truncated(result.getPageInfo().getTruncated())
+                .build();
+    }
+
+    private QueryPlan buildRestPlan(MaterializedTable table, Map<String, String> parameters) {
+        QueryModel model = restQueryInputParser.parse(new RestQueryInput(parameters));
+        return restQueryPlanNormalizer.normalize(asRestModel(model), table.getEntityName(), table.getSchema());
     }
 
     private RestQueryModel asRestModel(QueryModel model) {
@@ -117,20 +471,24 @@ public final class MaterializedViewtonService {
         List<String> sorting = defaultList(request.getSorting());
         List<FilterCriterion> filters = toFilters(request.getFilters());
 
-        return new RestQueryModel(
-                request.getPage(),
-                request.getPageSize(),
-                count,
-                distinct,
-                entities,
-                attributes,
-                sum,
-                avg,
-                min,
-                max,
-                sorting,
-                filters
-        );
+        return RestQueryModel.builder()
+                .page(request.getPage())
+                .pageSize(request.getPageSize())
+                .count(count)
+                .distinct(distinct)
+                .entities(entities)
+                .attributes(attributes)
+                .sum(sum)
+                .avg(avg)
+                .min(min)
+                .max(max)
+                .sorting(sorting)
+                .filters(filters)
+                .countStrategy(request.getCountStrategy())
+                .countLimit(request.getCountLimit())
+                .paginationMode(request.getPaginationMode())
+                .after(request.getAfter())
+                .build();
     }
 
     private List<String> defaultList(List<String> values) {
@@ -188,4 +546,10 @@ public final class MaterializedViewtonService {
     private String stringify(Object value) {
         return value == null ? "" : String.valueOf(value);
     }
+
+    /**
+     * A validated query and the table it reads.
+     */
+    record PlannedQuery(MaterializedTable table, QueryPlan plan) {
+    }
 }
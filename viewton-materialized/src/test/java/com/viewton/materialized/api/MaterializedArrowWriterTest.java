@@ -0,0 +1,186 @@
+package com.viewton.materialized.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.viewton.api.parser.RestQueryInputParser;
+import com.viewton.materialized.service.MaterializedRowStream;
+import com.viewton.materialized.service.MaterializedTableRegistry;
+import com.viewton.materialized.service.MaterializedViewtonService;
+import com.viewton.plan.RestQueryPlanNormalizer;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.DecimalVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.TimeStampMicroVector;
+import org.apache.arrow.vector.ValueVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.dictionary.Dictionary;
+import org.apache.arrow.vector.dictionary.DictionaryEncoder;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.DictionaryEncoding;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MaterializedArrowWriterTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private DSLContext dslContext;
+    private MaterializedTableRegistry registry;
+    private MaterializedViewtonService service;
+    private BufferAllocator allocator;
+
+    @BeforeEach
+    void setUp() {
+        dslContext = DSL.using("jdbc:h2:mem:arrow;DB_CLOSE_DELAY=-1", "sa", "");
+        dslContext.execute("create table payments (id bigint primary key, amount decimal(10, 2), rate double, "
+                + "status varchar(20), note varchar(50), settled boolean, paid_on date, paid_at timestamp)");
+        dslContext.execute("insert into payments values "
+                + "(1, 250.00, 0.5, 'PAID', 'first', true, '2024-01-01', '2024-01-01 10:00:00.123456'), "
+                + "(2, 150.00, 1.5, 'PAID', null, false, '2024-01-02', '2024-01-02 11:30:00'), "
+                + "(3, 75.00, 2.5, 'FAILED', 'third', null, '2024-01-03', '2024-01-03 12:00:00'), "
+                + "(4, 20.00, 3.5, 'PAID', 'fourth', true, null, null)");
+        registry = new MaterializedTableRegistry(dslContext);
+        service = new MaterializedViewtonService(registry, new RestQueryInputParser(), new RestQueryPlanNormalizer());
+        allocator = new RootAllocator();
+    }
+
+    @AfterEach
+    void tearDown() {
+        allocator.close();
+        registry.close();
+        dslContext.execute("drop all objects");
+        dslContext.close();
+    }
+
+    @Test
+    void streamReadsBackWithColumnTypesDictionariesAndAggregations() throws IOException {
+        byte[] stream = write(Map.of("sorting", "ID", "sum", "AMOUNT", "count", "true"));
+
+        try (ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(stream), allocator)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            Schema schema = root.getSchema();
+            assertThat(schema.getFields()).extracting(Field::getName)
+                    .containsExactly("ID", "AMOUNT", "RATE", "STATUS", "NOTE", "SETTLED", "PAID_ON", "PAID_AT");
+            assertThat(schema.findField("ID").getType()).isEqualTo(new ArrowType.Int(64, true));
+            assertThat(schema.findField("AMOUNT").getType()).isEqualTo(new ArrowType.Decimal(10, 2, 128));
+            assertThat(schema.findField("NOTE").getType()).isEqualTo(ArrowType.Utf8.INSTANCE);
+            assertThat(schema.findField("NOTE").getDictionary()).isNull();
+            DictionaryEncoding status = schema.findField("STATUS").getDictionary();
+            assertThat(status).isNotNull();
+            assertThat(status.getIndexType()).isEqualTo(new ArrowType.Int(32, true));
+
+            JsonNode aggregations = objectMapper.readTree(
+                    schema.getCustomMetadata().get(MaterializedArrowWriter.AGGREGATIONS_METADATA));
+            assertThat(aggregations.get("AMOUNT_sum").decimalValue()).isEqualByComparingTo("495.00");
+            assertThat(aggregations.get("count").asLong()).isEqualTo(4L);
+            assertThat(schema.getCustomMetadata().get(MaterializedArrowWriter.COUNT_PRECISION_METADATA))
+                    .isEqualTo("EXACT");
+
+            assertThat(reader.loadNextBatch()).isTrue();
+            assertThat(root.getRowCount()).isEqualTo(4);
+            BigIntVector ids = (BigIntVector) root.getVector("ID");
+            assertThat(List.of(ids.get(0), ids.get(1), ids.get(2), ids.get(3))).containsExactly(1L, 2L, 3L, 4L);
+            DecimalVector amounts = (DecimalVector) root.getVector("AMOUNT");
+            assertThat(amounts.getObject(2)).isEqualTo(new BigDecimal("75.00"));
+            assertThat(((Float8Vector) root.getVector("RATE")).get(1)).isEqualTo(1.5);
+            assertThat(decode(reader, root, "STATUS")).containsExactly("PAID", "PAID", "FAILED", "PAID");
+            VarCharVector notes = (VarCharVector) root.getVector("NOTE");
+            assertThat(notes.getObject(0).toString()).isEqualTo("first");
+            assertThat(notes.isNull(1)).isTrue();
+            BitVector settled = (BitVector) root.getVector("SETTLED");
+            assertThat(settled.getObject(0)).isTrue();
+            assertThat(settled.getObject(1)).isFalse();
+            assertThat(settled.isNull(2)).isTrue();
+            DateDayVector paidOn = (DateDayVector) root.getVector("PAID_ON");
+            assertThat(LocalDate.ofEpochDay(paidOn.get(1))).isEqualTo(LocalDate.of(2024, 1, 2));
+            assertThat(paidOn.isNull(3)).isTrue();
+            TimeStampMicroVector paidAt = (TimeStampMicroVector) root.getVector("PAID_AT");
+            assertThat(paidAt.getObject(0)).isEqualTo(LocalDateTime.of(2024, 1, 1, 10, 0, 0, 123_456_000));
+            assertThat(paidAt.isNull(3)).isTrue();
+
+            assertThat(reader.loadNextBatch()).isFalse();
+        }
+    }
+
+    @Test
+    void laterBatchesCarryTheirOwnDictionary() throws IOException {
+        dslContext.execute("insert into payments (id, amount, status) "
+                + "select x + 10, 1.00, case when x <= 8188 then 'PAID' else 'REFUNDED' end "
+                + "from system_range(1, 9000)");
+
+        byte[] stream = write(Map.of("sorting", "ID", "attributes", "ID,STATUS"));
+
+        List<String> statuses = new ArrayList<>();
+        try (ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(stream), allocator)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            assertThat(root.getSchema().findField("STATUS").getDictionary()).isNotNull();
+            List<Integer> batchSizes = new ArrayList<>();
+            while (reader.loadNextBatch()) {
+                batchSizes.add(root.getRowCount());
+                statuses.addAll(decode(reader, root, "STATUS"));
+            }
+            assertThat(batchSizes).containsExactly(8192, 812);
+        }
+        assertThat(statuses.subList(0, 4)).containsExactly("PAID", "PAID", "FAILED", "PAID");
+        assertThat(statuses.subList(4, 8192)).containsOnly("PAID");
+        assertThat(statuses.subList(8192, statuses.size())).containsOnly("REFUNDED");
+    }
+
+    @Test
+    void emptyResultStillWritesTheSchema() throws IOException {
+        byte[] stream = write(Map.of("STATUS", "REFUNDED", "count", "true"));
+
+        try (ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(stream), allocator)) {
+            Schema schema = reader.getVectorSchemaRoot().getSchema();
+            assertThat(schema.getFields()).hasSize(8);
+            assertThat(schema.findField("STATUS").getDictionary()).isNull();
+            assertThat(objectMapper.readTree(schema.getCustomMetadata()
+                    .get(MaterializedArrowWriter.AGGREGATIONS_METADATA)).get("count").asLong()).isZero();
+            assertThat(reader.loadNextBatch()).isTrue();
+            assertThat(reader.getVectorSchemaRoot().getRowCount()).isZero();
+            assertThat(reader.loadNextBatch()).isFalse();
+        }
+    }
+
+    private byte[] write(Map<String, String> parameters) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (MaterializedRowStream rows = service.streamList("public", "payments", parameters)) {
+            MaterializedArrowWriter.write(rows, objectMapper, output);
+        }
+        return output.toByteArray();
+    }
+
+    private static List<String> decode(ArrowStreamReader reader, VectorSchemaRoot root, String column) {
+        IntVector indices = (IntVector) root.getVector(column);
+        Dictionary dictionary = reader.getDictionaryVectors().get(indices.getField().getDictionary().getId());
+        List<String> values = new ArrayList<>();
+        try (ValueVector decoded = DictionaryEncoder.decode(indices, dictionary)) {
+            for (int row = 0; row < decoded.getValueCount(); row++) {
+                values.add(decoded.isNull(row) ? null : decoded.getObject(row).toString());
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,40 @@
+package com.viewton.materialized.api;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MaterializedCallerResolverTest {
+
+    @Test
+    void principalIgnoresTheCallerSuppliedHeader() {
+        MockHttpServletRequest request = request();
+        MaterializedCallerResolver resolver = MaterializedCallerResolver.principal();
+
+        assertThat(resolver.resolve(request)).isEqualTo("10.0.0.7");
+
+        request.setUserPrincipal(() -> "tenant-a");
+        assertThat(resolver.resolve(request)).isEqualTo("tenant-a");
+    }
+
+    @Test
+    void headerIsUsedOnlyWhenConfiguredAndPresent() {
+        MaterializedCallerResolver resolver = MaterializedCallerResolver.header("X-Viewton-Caller");
+        MockHttpServletRequest anonymous = new MockHttpServletRequest();
+        anonymous.setRemoteAddr("10.0.0.8");
+        MockHttpServletRequest authenticated = new MockHttpServletRequest();
+        authenticated.setUserPrincipal(() -> "tenant-a");
+
+        assertThat(resolver.resolve(request())).isEqualTo("batch-jobs");
+        assertThat(resolver.resolve(anonymous)).isEqualTo("10.0.0.8");
+        assertThat(resolver.resolve(authenticated)).isEqualTo("tenant-a");
+    }
+
+    private static MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("10.0.0.7");
+        request.addHeader("X-Viewton-Caller", "batch-jobs");
+        return request;
+    }
+}
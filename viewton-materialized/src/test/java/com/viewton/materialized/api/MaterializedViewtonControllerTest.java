@@ -0,0 +1,127 @@
+package com.viewton.materialized.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.viewton.api.parser.RestQueryInputParser;
+import com.viewton.materialized.service.MaterializedTableRegistry;
+import com.viewton.materialized.service.MaterializedViewtonService;
+import com.viewton.plan.RestQueryPlanNormalizer;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class MaterializedViewtonControllerTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private DSLContext dslContext;
+    private MaterializedTableRegistry registry;
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        dslContext = DSL.using("jdbc:h2:mem:controller;DB_CLOSE_DELAY=-1", "sa", "");
+        dslContext.execute("create table payments (id bigint primary key, amount decimal(10, 2), status varchar(20))");
+        dslContext.execute("insert into payments values (1, 250.00, 'PAID'), (2, 150.00, 'PAID'), "
+                + "(3, 75.00, 'FAILED')");
+        registry = new MaterializedTableRegistry(dslContext);
+        MaterializedViewtonService service = new MaterializedViewtonService(
+                registry,
+                new RestQueryInputParser(),
+                new RestQueryPlanNormalizer()
+        );
+        mvc = MockMvcBuilders.standaloneSetup(new MaterializedViewtonController(service, objectMapper)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.close();
+        dslContext.execute("drop all objects");
+        dslContext.close();
+    }
+
+    @Test
+    void ndjsonStreamEndsWithTheSummaryLine() throws Exception {
+        List<JsonNode> lines = ndjson("/api/public/payments?sorting=ID&STATUS=PAID&count=true&sum=AMOUNT");
+
+        assertThat(lines).hasSize(3);
+        assertThat(lines.subList(0, 2)).extracting(line -> line.get("ID").asLong()).containsExactly(1L, 2L);
+        JsonNode summary = lines.get(2);
+        assertThat(summary.has("ID")).isFalse();
+        assertThat(summary.get("aggregations").get("count").asLong()).isEqualTo(2L);
+        assertThat(summary.get("aggregations").get("AMOUNT_sum").decimalValue()).isEqualByComparingTo("400.00");
+        assertThat(summary.get("countPrecision").asText()).isEqualTo("EXACT");
+    }
+
+    @Test
+    void ndjsonStreamWithoutEntitiesWritesOnlyTheSummaryLine() throws Exception {
+        List<JsonNode> lines = ndjson("/api/public/payments?entities=false&max=AMOUNT");
+
+        assertThat(lines).hasSize(1);
+        assertThat(lines.get(0).get("aggregations").get("AMOUNT_max").decimalValue()).isEqualByComparingTo("250.00");
+        assertThat(lines.get(0).has("countPrecision")).isFalse();
+    }
+
+    @Test
+    void onlyCallersThatPreferJsonByNameGetTheDatabaseRenderedVariant() throws Exception {
+        MaterializedViewtonService service = mock(MaterializedViewtonService.class);
+        when(service.listAsync(any(), any(), any(), any())).thenReturn(new CompletableFuture<>());
+        when(service.listJsonAsync(any(), any(), any(), any())).thenReturn(new CompletableFuture<>());
+        MockMvc mocked = MockMvcBuilders.standaloneSetup(new MaterializedViewtonController(service, objectMapper))
+                .build();
+
+        mocked.perform(get("/api/public/payments").accept(MediaType.ALL)).andExpect(request().asyncStarted());
+        mocked.perform(get("/api/public/payments")).andExpect(request().asyncStarted());
+        mocked.perform(get("/api/public/payments")
+                        .header(HttpHeaders.ACCEPT, "application/cbor, application/json;q=0.5"))
+                .andExpect(request().asyncStarted());
+        verify(service, times(3)).listAsync(eq("public"), eq("payments"), any(), any());
+        verify(service, never()).listJsonAsync(any(), any(), any(), any());
+
+        mocked.perform(get("/api/public/payments").header(HttpHeaders.ACCEPT, "application/json, */*;q=0.8"))
+                .andExpect(request().asyncStarted());
+        verify(service).listJsonAsync(eq("public"), eq("payments"), any(), any());
+    }
+
+    private List<JsonNode> ndjson(String uri) throws Exception {
+        MvcResult started = mvc.perform(get(uri).accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        assertThat(body).endsWith("\n");
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,161 @@
+package com.viewton.materialized.api;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.viewton.jooq.mapping.RecordMap;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecordJsonWriterTest {
+    private static final DSLContext CREATE = DSL.using(SQLDialect.DEFAULT);
+    private static final Field<?>[] FIELDS = {
+            DSL.field(DSL.name("NAME"), SQLDataType.VARCHAR),
+            DSL.field(DSL.name("ID"), SQLDataType.BIGINT),
+            DSL.field(DSL.name("QUANTITY"), SQLDataType.INTEGER),
+            DSL.field(DSL.name("RANK"), SQLDataType.SMALLINT),
+            DSL.field(DSL.name("LEVEL"), SQLDataType.TINYINT),
+            DSL.field(DSL.name("ACTIVE"), SQLDataType.BOOLEAN),
+            DSL.field(DSL.name("AMOUNT"), SQLDataType.DECIMAL),
+            DSL.field(DSL.name("RATE"), SQLDataType.DOUBLE),
+            DSL.field(DSL.name("RATIO"), SQLDataType.REAL),
+            DSL.field(DSL.name("PAID_ON"), SQLDataType.LOCALDATE),
+            DSL.field(DSL.name("PAID_AT"), SQLDataType.LOCALDATETIME),
+            DSL.field(DSL.name("SETTLED_AT"), SQLDataType.OFFSETDATETIME),
+            DSL.field(DSL.name("REFERENCE"), SQLDataType.UUID),
+            DSL.field(DSL.name("PAYLOAD"), SQLDataType.VARBINARY)
+    };
+
+    // Spring's defaults, as Boot applies them; plain BigDecimals check that generator features still apply.
+    private final ObjectMapper json = Jackson2ObjectMapperBuilder.json()
+            .featuresToEnable(JsonGenerator.Feature.WRITE_BIGDECIMAL_AS_PLAIN)
+            .build();
+    private final ObjectMapper smile = Jackson2ObjectMapperBuilder.smile().build();
+
+    @Test
+    void recordViewsAreEqualToTheirCopies() {
+        for (Record record : records()) {
+            RecordMap view = new RecordMap(record);
+            Map<String, Object> copy = copy(record);
+
+            assertThat(view).isEqualTo(copy);
+            assertThat(view.keySet()).containsExactlyElementsOf(copy.keySet());
+            assertThat(view.containsKey("NAME")).isTrue();
+            assertThat(view.containsKey("name")).isFalse();
+            assertThat(view.get("MISSING")).isNull();
+        }
+    }
+
+    @Test
+    void responsesSerializeRecordViewsLikeMaps() throws IOException {
+        Record other = CREATE.newRecord(FIELDS[1], DSL.field(DSL.name("NOTE"), SQLDataType.VARCHAR));
+        other.fromArray(7L, "after a shape change");
+        Map<String, Object> plain = new LinkedHashMap<>();
+        plain.put("ID", 8L);
+        plain.put("NOTE", null);
+
+        List<Map<String, Object>> views = new ArrayList<>();
+        List<Map<String, Object>> copies = new ArrayList<>();
+        for (Record record : records()) {
+            views.add(new RecordMap(record));
+            copies.add(copy(record));
+        }
+        views.add(new RecordMap(other));
+        copies.add(copy(other));
+        views.add(plain);
+        copies.add(plain);
+        views.add(new RecordMap(records().get(0)));
+        copies.add(copy(records().get(0)));
+        Map<String, Object> aggregations = Map.of("count", 4L);
+
+        for (ObjectMapper mapper : List.of(json, smile)) {
+            byte[] expected = mapper.writeValueAsBytes(new MaterializedQueryResponse(copies, aggregations));
+            byte[] actual = mapper.writeValueAsBytes(new MaterializedQueryResponse(views, aggregations));
+            assertThat(actual).isEqualTo(expected);
+        }
+        String document = json.writeValueAsString(new MaterializedQueryResponse(views, aggregations));
+        assertThat(document)
+                .contains("\"NAME\":\"na\u00efve \\\"quoted\\\"\\n\"")
+                .contains("\"AMOUNT\":1000,")
+                .contains("\"PAID_ON\":\"2024-01-02\"")
+                .contains("\"NAME\":null");
+    }
+
+    @Test
+    void streamedRecordsMatchStreamedMaps() throws IOException {
+        for (ObjectMapper mapper : List.of(json, smile)) {
+            ObjectWriter writer = mapper.writer();
+            assertThat(stream(writer, true)).isEqualTo(stream(writer, false));
+        }
+        assertThat(new String(stream(json.writer(), true), StandardCharsets.UTF_8))
+                .startsWith("{\"NAME\":")
+                .contains("\"REFERENCE\":\"00000000-0000-0001-0000-000000000002\"");
+    }
+
+    /**
+     * Writes every record to one generator, as the NDJSON and Smile streams do, either through the record
+     * writer or as copied maps.
+     */
+    private byte[] stream(ObjectWriter writer, boolean records) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        RecordJsonWriter recordWriter = new RecordJsonWriter(writer);
+        try (JsonGenerator generator = writer.getFactory().createGenerator(output)) {
+            for (Record record : records()) {
+                if (records) {
+                    recordWriter.write(generator, record, null);
+                } else {
+                    writer.writeValue(generator, copy(record));
+                }
+            }
+        }
+        return output.toByteArray();
+    }
+
+    private static List<Record> records() {
+        Record values = CREATE.newRecord(FIELDS);
+        values.fromArray(
+                "na\u00efve \"quoted\"\n",
+                Long.MAX_VALUE,
+                -12,
+                (short) 3,
+                (byte) -1,
+                true,
+                new BigDecimal("1E+3"),
+                Double.NaN,
+                0.1f,
+                LocalDate.of(2024, 1, 2),
+                LocalDateTime.of(2024, 1, 2, 3, 4, 5, 6_000),
+                OffsetDateTime.of(2024, 1, 2, 3, 4, 5, 0, ZoneOffset.ofHours(2)),
+                new UUID(1, 2),
+                new byte[] {1, 2, 3}
+        );
+        Record nulls = CREATE.newRecord(FIELDS);
+        return List.of(values, nulls);
+    }
+
+    private static Map<String, Object> copy(Record record) {
+        return new LinkedHashMap<>(new RecordMap(record));
+    }
+}
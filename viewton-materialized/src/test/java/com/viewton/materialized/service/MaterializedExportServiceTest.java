@@ -0,0 +1,270 @@
+package com.viewton.materialized.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.luben.zstd.ZstdInputStream;
+import com.viewton.api.parser.RestQueryInputParser;
+import com.viewton.jooq.executor.CursorCodec;
+import com.viewton.jooq.executor.JooqExecutorOptions;
+import com.viewton.materialized.api.MaterializedBatchQuery;
+import com.viewton.materialized.api.MaterializedExportRequest;
+import com.viewton.materialized.api.MaterializedExportRequest.Compression;
+import com.viewton.materialized.api.MaterializedExportRequest.Format;
+import com.viewton.materialized.api.MaterializedExportStatus;
+import com.viewton.materialized.api.MaterializedExportStatus.State;
+import com.viewton.plan.RestQueryPlanNormalizer;
+import org.h2.jdbcx.JdbcDataSource;
+import org.jooq.DSLContext;
+import org.jooq.ExecuteContext;
+import org.jooq.ExecuteListener;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultConfiguration;
+import org.jooq.impl.DefaultExecuteListenerProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MaterializedExportServiceTest {
+    private static final String CSV = "ID,AMOUNT,STATUS,NOTE\r\n"
+            + "1,250.00,PAID,\r\n"
+            + "2,150.00,PAID,first\r\n"
+            + "3,75.00,FAILED,\"late, \"\"retried\"\"\"\r\n"
+            + "4,20.00,PAID,\r\n"
+            + "5,10.00,REFUNDED,\r\n";
+    private static final byte[] GZIP_MAGIC = {0x1f, (byte) 0x8b, 0x08};
+    private static final byte[] ZSTD_MAGIC = {(byte) 0xfd, 0x2f, (byte) 0xb5, 0x28};
+    private static final int OPEN = Integer.MAX_VALUE / 2;
+
+    @TempDir
+    Path directory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // Chunk statements are the only ordered ones; each takes a permit, so the test decides how many may run.
+    private final Semaphore chunks = new Semaphore(OPEN);
+    private DSLContext dslContext;
+    private MaterializedTableRegistry registry;
+    private MaterializedViewtonService service;
+    private MaterializedExportService exports;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:export;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        dslContext = DSL.using(new DefaultConfiguration()
+                .set(dataSource)
+                .set(SQLDialect.H2)
+                .set(new DefaultExecuteListenerProvider(new ExecuteListener() {
+                    @Override
+                    public void executeStart(ExecuteContext ctx) {
+                        if (ctx.sql() != null && ctx.sql().toLowerCase(Locale.ROOT).contains("order by")) {
+                            chunks.acquireUninterruptibly();
+                        }
+                    }
+                })));
+        dslContext.execute("create table payments (id bigint primary key, amount decimal(10, 2), "
+                + "status varchar(20), note varchar(50))");
+        dslContext.execute("insert into payments values (1, 250.00, 'PAID', null), (2, 150.00, 'PAID', 'first'), "
+                + "(3, 75.00, 'FAILED', 'late, \"retried\"'), (4, 20.00, 'PAID', null), "
+                + "(5, 10.00, 'REFUNDED', null)");
+        registry = new MaterializedTableRegistry(dslContext, null, JooqExecutorOptions.builder()
+                .cursorCodec(CursorCodec.fromSecret("export-test-cursor-secret"))
+                .build());
+        // Loads the table's metadata while statements are not held back.
+        registry.resolve("public", "payments");
+        service = new MaterializedViewtonService(registry, new RestQueryInputParser(), new RestQueryPlanNormalizer());
+        exports = exports(directory);
+    }
+
+    @AfterEach
+    void tearDown() {
+        openChunks();
+        exports.close();
+        registry.close();
+        dslContext.execute("drop all objects");
+    }
+
+    @Test
+    void csvExportWritesTheHeaderOnlyBeforeTheFirstChunk() throws Exception {
+        MaterializedExportStatus status = completed(exports.submit(request(Format.CSV, Compression.NONE)).id());
+
+        Path file = exports.file(status.id());
+        assertThat(Files.readString(file)).isEqualTo(CSV);
+        assertThat(status.rowsWritten()).isEqualTo(5);
+        assertThat(status.chunksWritten()).isEqualTo(3);
+        assertThat(status.bytesWritten()).isEqualTo(Files.size(file));
+        assertThat(status.progress()).isEqualTo(1.0);
+    }
+
+    @Test
+    void compressedChunksAreSeparateFramesOfOneStream() throws Exception {
+        MaterializedExportStatus gzip = completed(exports.submit(request(Format.CSV, Compression.GZIP)).id());
+        MaterializedExportStatus zstd = completed(exports.submit(request(Format.NDJSON, Compression.ZSTD)).id());
+
+        byte[] gzipped = Files.readAllBytes(exports.file(gzip.id()));
+        assertThat(gzip.fileName()).endsWith(".csv.gz");
+        assertThat(occurrences(gzipped, GZIP_MAGIC)).isEqualTo(3);
+        assertThat(decompress(new GZIPInputStream(new ByteArrayInputStream(gzipped)))).isEqualTo(CSV);
+
+        byte[] zstdBytes = Files.readAllBytes(exports.file(zstd.id()));
+        assertThat(zstd.fileName()).endsWith(".ndjson.zst");
+        assertThat(occurrences(zstdBytes, ZSTD_MAGIC)).isEqualTo(3);
+        List<String> lines = decompress(new ZstdInputStream(new ByteArrayInputStream(zstdBytes))).lines().toList();
+        assertThat(lines).hasSize(5);
+        assertThat(lines).extracting(line -> objectMapper.readTree(line).get("ID").asLong())
+                .containsExactly(1L, 2L, 3L, 4L, 5L);
+    }
+
+    @Test
+    void queuedJobsRunOnceAWorkerIsFree() throws Exception {
+        chunks.drainPermits();
+        String first = exports.submit(request(Format.CSV, Compression.NONE)).id();
+        await(() -> exports.status(first).state() == State.RUNNING);
+
+        MaterializedExportStatus second = exports.submit(request(Format.NDJSON, Compression.NONE));
+        assertThat(second.state()).isEqualTo(State.QUEUED);
+        Thread.sleep(100);
+        assertThat(exports.status(second.id()).state()).isEqualTo(State.QUEUED);
+        assertThat(exports.statuses()).extracting(MaterializedExportStatus::id).containsExactly(first, second.id());
+
+        await(() -> {
+            if (chunks.hasQueuedThreads()) {
+                chunks.release(1);
+            }
+            return exports.status(first).state() == State.COMPLETED;
+        });
+        await(() -> exports.status(second.id()).state() == State.RUNNING);
+        openChunks();
+        assertThat(completed(second.id()).rowsWritten()).isEqualTo(5);
+    }
+
+    @Test
+    void cancelStopsTheJobAndDeletesItsFile() throws Exception {
+        chunks.drainPermits();
+        String running = exports.submit(request(Format.CSV, Compression.NONE)).id();
+        String queued = exports.submit(request(Format.CSV, Compression.NONE)).id();
+        chunks.release(1);
+        await(() -> exports.status(running).chunksWritten() == 1 && chunks.hasQueuedThreads());
+        Path file = directory.resolve(exports.status(running).fileName());
+        assertThat(file).exists();
+
+        assertThat(exports.cancel(queued)).isNotNull();
+        assertThat(exports.cancel(running)).isNotNull();
+        await(() -> exports.status(running).state() == State.CANCELLED);
+        await(() -> exports.status(queued).state() == State.CANCELLED);
+
+        assertThat(file).doesNotExist();
+        assertThat(directory.resolve(exports.status(queued).fileName())).doesNotExist();
+        assertThat(manifest(directory, running).state()).isEqualTo(State.CANCELLED);
+        assertThat(exports.cancel("unknown")).isNull();
+    }
+
+    @Test
+    void resumedJobCutsTheFileBackToTheRecordedSize() throws Exception {
+        chunks.drainPermits();
+        String id = exports.submit(request(Format.CSV, Compression.NONE)).id();
+        chunks.release(1);
+        await(() -> exports.status(id).chunksWritten() == 1 && chunks.hasQueuedThreads());
+
+        // The state a crash while writing the second chunk leaves: the manifest of the first and a partial chunk.
+        Path restarted = Files.createDirectory(directory.resolve("restarted"));
+        MaterializedExportStatus crashed = exports.status(id);
+        Files.copy(directory.resolve(id + ".json"), restarted.resolve(id + ".json"));
+        Files.copy(directory.resolve(crashed.fileName()), restarted.resolve(crashed.fileName()));
+        Files.writeString(restarted.resolve(crashed.fileName()), "3,75.00,FAI", StandardOpenOption.APPEND);
+        exports.cancel(id);
+        await(() -> exports.status(id).state() == State.CANCELLED);
+        openChunks();
+
+        try (MaterializedExportService resumed = exports(restarted)) {
+            resumed.resumeInterrupted();
+            await(() -> resumed.status(id).state() == State.COMPLETED);
+
+            MaterializedExportStatus status = resumed.status(id);
+            assertThat(Files.readString(resumed.file(id))).isEqualTo(CSV);
+            assertThat(status.rowsWritten()).isEqualTo(5);
+            assertThat(status.chunksWritten()).isEqualTo(3);
+        }
+    }
+
+    private void openChunks() {
+        chunks.drainPermits();
+        chunks.release(OPEN);
+    }
+
+    private MaterializedExportService exports(Path target) {
+        return new MaterializedExportService(service, objectMapper, target, 2, 1);
+    }
+
+    private MaterializedExportStatus completed(String id) throws InterruptedException {
+        await(() -> exports.status(id).state().isFinished());
+        MaterializedExportStatus status = exports.status(id);
+        assertThat(status.state()).as(status.error()).isEqualTo(State.COMPLETED);
+        return status;
+    }
+
+    private MaterializedExportService.ExportManifest manifest(Path target, String id) throws IOException {
+        return objectMapper.readValue(target.resolve(id + ".json").toFile(),
+                MaterializedExportService.ExportManifest.class);
+    }
+
+    private static MaterializedExportRequest request(Format format, Compression compression) {
+        MaterializedBatchQuery source = new MaterializedBatchQuery();
+        source.setSchema("public");
+        source.setTable("payments");
+        source.setParameters(Map.of("sorting", "ID"));
+        MaterializedExportRequest request = new MaterializedExportRequest();
+        request.setSource(source);
+        request.setFormat(format);
+        request.setCompression(compression);
+        return request;
+    }
+
+    private static String decompress(InputStream input) throws IOException {
+        try (input) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static int occurrences(byte[] bytes, byte[] pattern) {
+        int count = 0;
+        for (int i = 0; i + pattern.length <= bytes.length; i++) {
+            int matched = 0;
+            while (matched < pattern.length && bytes[i + matched] == pattern[matched]) {
+                matched++;
+            }
+            if (matched == pattern.length) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Condition not met within 5 seconds");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.viewton.materialized.service;
+
+import com.viewton.materialized.service.MaterializedTableRegistry.MaterializedTable;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MaterializedTableRegistryTest {
+    private DSLContext dslContext;
+    private MaterializedTableRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        dslContext = DSL.using("jdbc:h2:mem:registry;DB_CLOSE_DELAY=-1", "sa", "");
+        dslContext.execute("create schema reporting");
+        dslContext.execute("create table reporting.payments (id bigint primary key, amount decimal(10, 2))");
+        dslContext.execute("create table public.payments (id bigint primary key)");
+        registry = new MaterializedTableRegistry(dslContext);
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.close();
+        dslContext.execute("drop all objects");
+        dslContext.close();
+    }
+
+    @Test
+    void resolvesTablesBySchemaAndNameIgnoringCase() {
+        MaterializedTable table = registry.resolve("reporting", "payments");
+
+        assertThat(registry.resolve("REPORTING", "Payments")).isSameAs(table);
+        assertThat(table.getSchemaName()).isEqualTo("REPORTING");
+        assertThat(table.getTable().fields()).hasSize(2);
+        assertThat(registry.resolve("public", "payments")).isNotSameAs(table);
+        assertThat(registry.resolve("public", "payments").getTable().fields()).hasSize(1);
+        assertThatThrownBy(() -> registry.resolve("reporting", "refunds"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Unknown table reporting.refunds");
+    }
+
+    @Test
+    void refreshKeepsUnchangedTablesAndSwapsChangedOnes() {
+        MaterializedTable payments = registry.resolve("reporting", "payments");
+        MaterializedTable publicPayments = registry.resolve("public", "payments");
+
+        dslContext.execute("alter table public.payments add column status varchar(20)");
+        dslContext.execute("create table reporting.refunds (id bigint primary key)");
+        registry.refresh();
+
+        assertThat(registry.resolve("reporting", "payments")).isSameAs(payments);
+        assertThat(registry.resolve("reporting", "payments").getExecutor()).isSameAs(payments.getExecutor());
+        MaterializedTable changed = registry.resolve("public", "payments");
+        assertThat(changed).isNotSameAs(publicPayments);
+        assertThat(changed.getTable().field("STATUS")).isNotNull();
+        assertThat(registry.resolve("reporting", "refunds").getEntityName()).isEqualTo("REFUNDS");
+
+        dslContext.execute("drop table reporting.refunds");
+        registry.refresh();
+
+        assertThatThrownBy(() -> registry.resolve("reporting", "refunds"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}